@@ -0,0 +1,55 @@
+package de.fh.albsig.weatherapp;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Fills the in-memory H2 database used by {@link WeatherRepository} with synthetic readings. */
+final class BenchmarkData {
+
+  /** Number of distinct locations the synthetic readings are spread over. */
+  static final int LOCATIONS = 1000;
+
+  /** Location that always has readings. */
+  static final String LOCATION = "City0";
+
+  private static final int CHUNK = 100_000;
+
+  private BenchmarkData() {}
+
+  /**
+   * Replaces the table content with {@code rows} readings spread over {@value #LOCATIONS}
+   * locations, one minute apart. The rows get negative IDs so they never collide with IDs generated
+   * by Hibernate during the benchmark.
+   *
+   * @param repository a repository, bootstrapped first so that the schema exists
+   * @param rows the number of rows
+   * @throws SQLException if the database cannot be filled
+   */
+  static void seed(WeatherRepository repository, int rows) throws SQLException {
+    repository.bootstrap(); // legt das Schema an, die Factory entsteht erst bei Bedarf
+    // Dieselbe In-Memory-Datenbank wie die des Repositorys (gleicher Name, gleiche JVM)
+    try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:weatherdb", "sa", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("TRUNCATE TABLE weather_data");
+      }
+      try (PreparedStatement insert =
+          connection.prepareStatement(
+              "INSERT INTO weather_data (id, location, temperature, humidity, timestamp)"
+                  + " SELECT -X, 'City' || MOD(X, "
+                  + LOCATIONS
+                  + "), 10 + MOD(X, 20), 40 + MOD(X, 50),"
+                  + " DATEADD(MINUTE, X, TIMESTAMP '2020-01-01 00:00:00')"
+                  + " FROM SYSTEM_RANGE(?, ?)")) {
+        for (int start = 0; start < rows; start += CHUNK) {
+          insert.setLong(1, start);
+          insert.setLong(2, Math.min(rows, start + CHUNK) - 1L);
+          insert.executeUpdate();
+        }
+      }
+    }
+    repository.getLatestCache().invalidateAll();
+  }
+}
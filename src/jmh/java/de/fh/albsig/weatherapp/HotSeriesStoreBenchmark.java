@@ -0,0 +1,176 @@
+package de.fh.albsig.weatherapp;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link HotSeriesStore} with the database path of {@link JpaWeatherRepository} for
+ * one location holding {@code rows} readings, one minute apart.
+ *
+ * <p>{@code latest*} returns the newest reading, {@code history*} aggregates the last day into
+ * hourly buckets. The repository uses a cache that never hits and no hot tier, so every call
+ * reaches H2. After each trial the heap retained per reading is printed: by the hot tier, and by
+ * the H2 table with its indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhibernate.show_sql=false")
+@State(Scope.Benchmark)
+public class HotSeriesStoreBenchmark {
+
+  private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+  @Param({"10000", "100000"})
+  private int rows;
+
+  private WeatherRepository database;
+  private HotSeriesStore hotStore;
+  private LocalDateTime from;
+  private LocalDateTime to;
+  private double databaseBytesPerReading;
+  private double hotBytesPerReading;
+
+  /**
+   * Seeds the table and fills the hot tier with the same readings.
+   *
+   * @throws SQLException if the table cannot be seeded
+   */
+  @Setup
+  public void setup() throws SQLException {
+    // Zuerst der Hot-Tier, damit kein Müll aus dem Aufbau von H2 in seine Messung fällt
+    long before = usedHeap();
+    hotStore = new HotSeriesStore(Long.MAX_VALUE, location -> null);
+    for (int x = 1; x <= rows; x++) {
+      hotStore.append(reading(x));
+    }
+    hotBytesPerReading = (usedHeap() - before) / (double) rows;
+
+    database = new JpaWeatherRepository(new ExpiringCache<>(1, Duration.ZERO));
+    database.bootstrap();
+    truncate();
+    before = usedHeap();
+    seed();
+    databaseBytesPerReading = (usedHeap() - before) / (double) rows;
+    database.getLatestCache().invalidateAll();
+
+    to = START.plusMinutes(rows + 1L);
+    from = to.minusDays(1);
+  }
+
+  /**
+   * Prints the heap retained per reading. JMH would sum an auxiliary counter over the iterations,
+   * so the footprint is not reported as one.
+   */
+  @TearDown
+  public void printFootprint() {
+    System.out.printf(
+        Locale.ROOT,
+        "%nHeap per reading: hot tier %.1f B (arrays %.1f B), H2 %.1f B%n",
+        hotBytesPerReading,
+        hotStore.memoryBytes() / (double) hotStore.size(),
+        databaseBytesPerReading);
+  }
+
+  /**
+   * Returns the newest reading from the hot tier.
+   *
+   * @return the newest reading
+   */
+  @Benchmark
+  public WeatherData latestHot() {
+    return hotStore.latest(BenchmarkData.LOCATION);
+  }
+
+  /**
+   * Returns the newest reading from H2.
+   *
+   * @return the newest reading
+   */
+  @Benchmark
+  public WeatherData latestDatabase() {
+    return database.findByLocation(BenchmarkData.LOCATION);
+  }
+
+  /**
+   * Aggregates the last day into hourly buckets in the hot tier.
+   *
+   * @return the buckets
+   */
+  @Benchmark
+  public List<WeatherBucket> historyHot() {
+    return hotStore.history(BenchmarkData.LOCATION, from, to, 3600);
+  }
+
+  /**
+   * Aggregates the last day into hourly buckets in H2.
+   *
+   * @return the buckets
+   */
+  @Benchmark
+  public List<WeatherBucket> historyDatabase() {
+    return database.findHistory(BenchmarkData.LOCATION, from, to, Duration.ofHours(1));
+  }
+
+  private static void truncate() throws SQLException {
+    try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:weatherdb", "sa", "");
+        Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE TABLE weather_data");
+    }
+  }
+
+  /** Inserts the readings {@link #reading(int)} describes, with the same values. */
+  private void seed() throws SQLException {
+    try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:weatherdb", "sa", "");
+        PreparedStatement insert =
+            connection.prepareStatement(
+                "INSERT INTO weather_data (id, location, temperature, humidity, timestamp)"
+                    + " SELECT -X, ?, 10 + MOD(X, 20), 40 + MOD(X, 50),"
+                    + " DATEADD(MINUTE, X, TIMESTAMP '2020-01-01 00:00:00')"
+                    + " FROM SYSTEM_RANGE(1, ?)")) {
+      insert.setString(1, BenchmarkData.LOCATION);
+      insert.setInt(2, rows);
+      insert.executeUpdate();
+    }
+  }
+
+  private static WeatherData reading(int x) {
+    WeatherData data = new WeatherData();
+    data.setId((long) -x);
+    data.setLocation(BenchmarkData.LOCATION);
+    data.setTemperature(10 + x % 20);
+    data.setHumidity(40 + x % 50);
+    data.setTimestamp(START.plusMinutes(x));
+    return data;
+  }
+
+  private static long usedHeap() {
+    // Ein einzelner Aufruf räumt nicht zuverlässig alles auf
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
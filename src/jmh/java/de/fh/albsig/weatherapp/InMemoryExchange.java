@@ -0,0 +1,104 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Minimal in-memory request and response for driving servlets without a container or mocking
+ * framework. Only the methods used by the servlets are implemented; all others return default
+ * values.
+ */
+final class InMemoryExchange {
+
+  private final HttpServletRequest request;
+  private final HttpServletResponse response;
+  private final CapturingServletOutputStream body = new CapturingServletOutputStream();
+  private final StringWriter text = new StringWriter();
+  private int status = HttpServletResponse.SC_OK;
+
+  /**
+   * Creates an exchange.
+   *
+   * @param parameters the query parameters
+   * @param requestBody the request body, or null
+   */
+  InMemoryExchange(Map<String, String> parameters, String requestBody) {
+    this.request =
+        proxy(
+            HttpServletRequest.class,
+            (name, args) ->
+                switch (name) {
+                  case "getParameter" -> parameters.get((String) args[0]);
+                  case "getReader" ->
+                      new BufferedReader(new StringReader(requestBody == null ? "" : requestBody));
+                  default -> null;
+                });
+    this.response =
+        proxy(
+            HttpServletResponse.class,
+            (name, args) ->
+                switch (name) {
+                  case "getOutputStream" -> body;
+                  case "getWriter" -> new PrintWriter(text, true);
+                  case "setStatus", "sendError" -> {
+                    status = (Integer) args[0];
+                    yield null;
+                  }
+                  case "getStatus" -> status;
+                  default -> null;
+                });
+  }
+
+  HttpServletRequest request() {
+    return request;
+  }
+
+  HttpServletResponse response() {
+    return response;
+  }
+
+  int status() {
+    return status;
+  }
+
+  String body() {
+    return body.toString() + text;
+  }
+
+  private interface Handler {
+    Object invoke(String name, Object[] args);
+  }
+
+  private static <T> T proxy(Class<T> type, Handler handler) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            InMemoryExchange.class.getClassLoader(),
+            new Class<?>[] {type},
+            (self, method, args) -> {
+              Object result = handler.invoke(method.getName(), args);
+              if (result == null && method.getReturnType().isPrimitive()) {
+                return defaultValue(method.getReturnType());
+              }
+              return result;
+            }));
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null; // void
+  }
+}
@@ -0,0 +1,82 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding of a single {@link WeatherData} reading in the three
+ * representations negotiated by {@link WeatherServlet}. The encoded sizes are compared in {@code
+ * WeatherCodecsTest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherCodecBenchmark {
+
+  @Param({"application/xml", "application/json", "application/x-weather-binary"})
+  public String mediaType;
+
+  private WeatherCodec codec;
+  private WeatherData data;
+  private byte[] encoded;
+
+  /**
+   * Selects the codec and encodes the sample reading once.
+   *
+   * @throws IOException if the sample cannot be encoded
+   */
+  @Setup
+  public void setup() throws IOException {
+    codec = WeatherCodecs.standard(new WeatherXmlCodec()).forAccept(mediaType);
+    data = new WeatherData();
+    data.setId(42L);
+    data.setLocation("Berlin");
+    data.setTemperature(15.5);
+    data.setHumidity(80);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(data, out);
+    encoded = out.toByteArray();
+  }
+
+  /**
+   * Encodes the sample reading.
+   *
+   * @return the encoded bytes
+   * @throws IOException if encoding fails
+   */
+  @Benchmark
+  public byte[] encode() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    codec.encode(data, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes the sample reading.
+   *
+   * @return the decoded reading
+   * @throws IOException if decoding fails
+   */
+  @Benchmark
+  public WeatherData decode() throws IOException {
+    return codec.decode(new ByteArrayInputStream(encoded));
+  }
+}
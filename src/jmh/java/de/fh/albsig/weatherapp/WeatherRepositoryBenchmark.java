@@ -0,0 +1,103 @@
+package de.fh.albsig.weatherapp;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single-row repository operations against H2 tables of different sizes.
+ *
+ * <p>{@code findByLocation} is measured with a cache that never hits, so every call reaches the
+ * database, and with the default cache. {@code saveAll} stores {@value #BATCH} readings in one
+ * batched transaction; compare it with {@value #BATCH} times {@code save}. The largest table needs
+ * a bigger heap, e.g. {@code -Djmh.args="-jvmArgsAppend -Xmx8g"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhibernate.show_sql=false")
+@State(Scope.Benchmark)
+public class WeatherRepositoryBenchmark {
+
+  /** Number of readings stored by one {@link #saveAll()} call. */
+  static final int BATCH = 500;
+
+  @Param({"10000", "1000000", "10000000"})
+  private int rows;
+
+  private WeatherRepository uncached;
+  private WeatherRepository cached;
+  private long counter;
+
+  /**
+   * Seeds the table.
+   *
+   * @throws SQLException if the table cannot be seeded
+   */
+  @Setup
+  public void setup() throws SQLException {
+    uncached = new JpaWeatherRepository(new ExpiringCache<>(1, Duration.ZERO));
+    cached = new JpaWeatherRepository();
+    BenchmarkData.seed(uncached, rows);
+  }
+
+  /** Stores one new reading in its own transaction. */
+  @Benchmark
+  public void save() {
+    uncached.save(newReading());
+  }
+
+  /** Stores {@value #BATCH} new readings in one transaction with JDBC batching. */
+  @Benchmark
+  public void saveAll() {
+    List<WeatherData> batch = new ArrayList<>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      batch.add(newReading());
+    }
+    uncached.saveAll(batch);
+  }
+
+  /**
+   * Looks up the latest reading in the database.
+   *
+   * @return the latest reading
+   */
+  @Benchmark
+  public WeatherData findByLocation() {
+    return uncached.findByLocation(BenchmarkData.LOCATION);
+  }
+
+  /**
+   * Looks up the latest reading through the latest-reading cache.
+   *
+   * @return the latest reading
+   */
+  @Benchmark
+  public WeatherData findByLocationCached() {
+    return cached.findByLocation(BenchmarkData.LOCATION);
+  }
+
+  private WeatherData newReading() {
+    WeatherData data = new WeatherData();
+    data.setLocation("City" + (counter++ % BenchmarkData.LOCATIONS));
+    data.setTemperature(20);
+    data.setHumidity(60);
+    data.setTimestamp(LocalDateTime.of(2030, 1, 1, 0, 0).plusSeconds(counter));
+    return data;
+  }
+}
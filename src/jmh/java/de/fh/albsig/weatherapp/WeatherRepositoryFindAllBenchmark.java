@@ -0,0 +1,57 @@
+package de.fh.albsig.weatherapp;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link WeatherRepository#findAll()}, which materializes the whole table per call.
+ *
+ * <p>With 10 million rows a single call holds all entities on the heap at once, which needs roughly
+ * 8 GB: run it with {@code -Djmh.args="-jvmArgsAppend -Xmx12g"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dhibernate.show_sql=false")
+@State(Scope.Benchmark)
+public class WeatherRepositoryFindAllBenchmark {
+
+  @Param({"10000", "1000000", "10000000"})
+  private int rows;
+
+  private WeatherRepository repository;
+
+  /**
+   * Seeds the table.
+   *
+   * @throws SQLException if the table cannot be seeded
+   */
+  @Setup
+  public void setup() throws SQLException {
+    repository = new JpaWeatherRepository();
+    BenchmarkData.seed(repository, rows);
+  }
+
+  /**
+   * Loads every reading.
+   *
+   * @return all readings
+   */
+  @Benchmark
+  public List<WeatherData> findAll() {
+    return repository.findAll();
+  }
+}
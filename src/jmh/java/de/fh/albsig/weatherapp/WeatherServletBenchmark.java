@@ -0,0 +1,94 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full {@link WeatherServlet} request cycle, from parameter and body parsing through the
+ * repository to the serialized response, using {@link InMemoryExchange} instead of a container.
+ *
+ * <p>{@code doGet} is measured with and without the latest-reading cache; {@code doPost} stores a
+ * new reading in H2 on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dhibernate.show_sql=false")
+@State(Scope.Benchmark)
+public class WeatherServletBenchmark {
+
+  private static final Map<String, String> GET_PARAMETERS =
+      Map.of("location", BenchmarkData.LOCATION);
+  private static final String POST_BODY =
+      "<weatherData><location>Berlin</location><temperature>16.5</temperature>"
+          + "<humidity>70</humidity><timestamp>2024-05-01T12:00:00</timestamp></weatherData>";
+
+  private WeatherServlet cachedServlet;
+  private WeatherServlet uncachedServlet;
+
+  /**
+   * Seeds the table with 10000 readings and creates the servlets.
+   *
+   * @throws SQLException if the table cannot be seeded
+   */
+  @Setup
+  public void setup() throws SQLException {
+    WeatherRepository uncached = new JpaWeatherRepository(new ExpiringCache<>(1, Duration.ZERO));
+    BenchmarkData.seed(uncached, 10_000);
+    cachedServlet = new WeatherServlet(new JpaWeatherRepository(), new WeatherXmlCodec());
+    uncachedServlet = new WeatherServlet(uncached, new WeatherXmlCodec());
+  }
+
+  /**
+   * GET served from the latest-reading cache.
+   *
+   * @return the response body
+   * @throws IOException if the servlet fails
+   */
+  @Benchmark
+  public String doGetCached() throws IOException {
+    InMemoryExchange exchange = new InMemoryExchange(GET_PARAMETERS, null);
+    cachedServlet.doGet(exchange.request(), exchange.response());
+    return exchange.body();
+  }
+
+  /**
+   * GET reading the latest reading from the database.
+   *
+   * @return the response body
+   * @throws IOException if the servlet fails
+   */
+  @Benchmark
+  public String doGetUncached() throws IOException {
+    InMemoryExchange exchange = new InMemoryExchange(GET_PARAMETERS, null);
+    uncachedServlet.doGet(exchange.request(), exchange.response());
+    return exchange.body();
+  }
+
+  /**
+   * POST storing one reading.
+   *
+   * @return the response status
+   * @throws IOException if the servlet fails
+   */
+  @Benchmark
+  public int doPost() throws IOException {
+    InMemoryExchange exchange = new InMemoryExchange(Map.of(), POST_BODY);
+    cachedServlet.doPost(exchange.request(), exchange.response());
+    return exchange.status();
+  }
+}
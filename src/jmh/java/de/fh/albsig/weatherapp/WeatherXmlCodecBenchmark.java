@@ -0,0 +1,75 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures marshalling and unmarshalling of a single {@link WeatherData} document. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherXmlCodecBenchmark {
+
+  private WeatherXmlCodec codec;
+  private WeatherData data;
+  private String xml;
+
+  /**
+   * Builds the codec and a sample document.
+   *
+   * @throws JAXBException if the sample cannot be marshalled
+   */
+  @Setup
+  public void setup() throws JAXBException {
+    codec = new WeatherXmlCodec();
+    data = new WeatherData();
+    data.setId(42L);
+    data.setLocation("Berlin");
+    data.setTemperature(15.5);
+    data.setHumidity(80);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(data, out);
+    xml = out.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Marshals the sample reading.
+   *
+   * @return the encoded bytes
+   * @throws JAXBException if marshalling fails
+   */
+  @Benchmark
+  public byte[] marshal() throws JAXBException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+    codec.write(data, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Unmarshals the sample document.
+   *
+   * @return the decoded reading
+   * @throws JAXBException if unmarshalling fails
+   */
+  @Benchmark
+  public WeatherData unmarshal() throws JAXBException {
+    return codec.read(new StringReader(xml));
+  }
+}
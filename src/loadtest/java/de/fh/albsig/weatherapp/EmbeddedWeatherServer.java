@@ -0,0 +1,74 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.DispatcherType;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.Map;
+import org.eclipse.jetty.ee10.servlet.FilterHolder;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+/**
+ * Runs the web application in an embedded Jetty, wired like the WAR: the {@link
+ * ApplicationLifecycleListener}, the {@link CompressionFilter} and the servlets under test, all on
+ * the shared repository and its in-memory H2 database.
+ *
+ * <p>The components are registered explicitly instead of by annotation scanning, so the container
+ * starts in well under a second and needs nothing but {@code jetty-ee10-servlet}.
+ */
+final class EmbeddedWeatherServer implements AutoCloseable {
+
+  private final Server server;
+  private final ServerConnector connector;
+
+  /**
+   * Starts the server.
+   *
+   * @param port the port to listen on, or 0 for any free port
+   * @param weatherInitParameters init parameters of {@link WeatherServlet}, e.g. {@code
+   *     readConcurrency}
+   * @throws Exception if Jetty cannot be started
+   */
+  EmbeddedWeatherServer(int port, Map<String, String> weatherInitParameters) throws Exception {
+    server = new Server();
+    connector = new ServerConnector(server);
+    connector.setHost("127.0.0.1");
+    connector.setPort(port);
+    server.addConnector(connector);
+
+    ServletContextHandler context = new ServletContextHandler("/");
+    context.addEventListener(new ApplicationLifecycleListener());
+    FilterHolder compression = new FilterHolder(CompressionFilter.class);
+    compression.setAsyncSupported(true);
+    context.addFilter(compression, "/*", EnumSet.of(DispatcherType.REQUEST));
+    ServletHolder weather = new ServletHolder(WeatherServlet.class);
+    weather.setAsyncSupported(true);
+    weather.setInitParameters(weatherInitParameters);
+    context.addServlet(weather, "/weather");
+    context.addServlet(ReadinessServlet.class, "/ready");
+    context.addServlet(MetricsServlet.class, "/metrics");
+    server.setHandler(context);
+    server.start();
+  }
+
+  /**
+   * Returns the address of the application.
+   *
+   * @return the base URI, e.g. {@code http://127.0.0.1:43125/}
+   */
+  URI baseUri() {
+    return URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/");
+  }
+
+  /**
+   * Stops the server, which destroys the servlets and closes the shared repository.
+   *
+   * @throws Exception if Jetty cannot be stopped
+   */
+  @Override
+  public void close() throws Exception {
+    server.stop();
+  }
+}
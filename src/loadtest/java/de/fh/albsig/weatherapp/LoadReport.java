@@ -0,0 +1,193 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and response statuses collected by {@link OpenLoadGenerator}, per operation.
+ *
+ * <p>Latencies are measured from the time a request was scheduled to be sent, not from the time it
+ * actually was, so a stalled server cannot hide its queueing delay from the percentiles
+ * (coordinated omission). Requests the generator did not send at all because too many were still
+ * outstanding are reported as skipped. They have no latency, and leaving them out would make the
+ * percentiles look better the more the server is overloaded, so such a run is marked invalid.
+ */
+final class LoadReport {
+
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final String description;
+  private final Map<OpenLoadGenerator.Operation, Stats> stats =
+      new EnumMap<>(OpenLoadGenerator.Operation.class);
+  private final LongAccumulator lastCompletion = new LongAccumulator(Math::max, Long.MIN_VALUE);
+  private long windowStart;
+  private long unfinished;
+
+  /**
+   * Creates an empty report.
+   *
+   * @param description the settings of the run, printed as the first line
+   */
+  LoadReport(String description) {
+    this.description = description;
+    for (OpenLoadGenerator.Operation operation : OpenLoadGenerator.Operation.values()) {
+      stats.put(operation, new Stats());
+    }
+  }
+
+  /**
+   * Sets the start of the measured window, i.e. the end of the warm-up.
+   *
+   * @param nanos the start as {@link System#nanoTime()}
+   */
+  void startWindow(long nanos) {
+    windowStart = nanos;
+  }
+
+  /**
+   * Records a completed request.
+   *
+   * @param operation the operation
+   * @param latencyNanos the time from the scheduled start to the complete response
+   * @param status the HTTP status, or -1 if the request failed without a response
+   */
+  void record(OpenLoadGenerator.Operation operation, long latencyNanos, int status) {
+    Stats operationStats = stats.get(operation);
+    operationStats.latency.recordNanos(latencyNanos);
+    operationStats.max.accumulate(latencyNanos);
+    operationStats.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    lastCompletion.accumulate(System.nanoTime());
+  }
+
+  /**
+   * Records a request that was due but not sent because too many requests were outstanding.
+   *
+   * @param operation the operation
+   */
+  void skipped(OpenLoadGenerator.Operation operation) {
+    stats.get(operation).skipped.increment();
+  }
+
+  /**
+   * Records the number of requests still outstanding when the generator stopped waiting.
+   *
+   * @param requests the number of unfinished requests
+   */
+  void unfinished(long requests) {
+    unfinished = requests;
+  }
+
+  /**
+   * Returns whether the percentiles cover every request due in the measured window, i.e. none was
+   * skipped.
+   *
+   * @return true if no request was skipped
+   */
+  boolean isValid() {
+    return skipped() == 0;
+  }
+
+  /**
+   * Renders the report as a table with one row per operation.
+   *
+   * @return the report text
+   */
+  String render() {
+    StringBuilder out = new StringBuilder(description).append('\n');
+    out.append(
+        String.format(
+            Locale.ROOT,
+            "%-7s %8s %8s %8s %9s %9s %9s %9s %9s  %s%n",
+            "op",
+            "done",
+            "ok",
+            "skipped",
+            "p50 ms",
+            "p90 ms",
+            "p99 ms",
+            "p99.9 ms",
+            "max ms",
+            "statuses"));
+    long done = 0;
+    long ok = 0;
+    for (Map.Entry<OpenLoadGenerator.Operation, Stats> entry : stats.entrySet()) {
+      Stats operationStats = entry.getValue();
+      long count = operationStats.latency.count();
+      if (count == 0 && operationStats.skipped.sum() == 0) {
+        continue;
+      }
+      Map<Integer, Long> statuses = new TreeMap<>();
+      operationStats.statuses.forEach((status, counter) -> statuses.put(status, counter.sum()));
+      long successful =
+          statuses.entrySet().stream()
+              .filter(status -> status.getKey() >= 200 && status.getKey() < 400)
+              .mapToLong(Map.Entry::getValue)
+              .sum();
+      done += count;
+      ok += successful;
+      out.append(
+          String.format(
+              Locale.ROOT,
+              "%-7s %8d %8d %8d",
+              entry.getKey(),
+              count,
+              successful,
+              operationStats.skipped.sum()));
+      for (double quantile : QUANTILES) {
+        out.append(
+            String.format(Locale.ROOT, " %9.2f", millis(quantileOf(operationStats, quantile))));
+      }
+      out.append(
+              String.format(
+                  Locale.ROOT, " %9.2f", millis(count == 0 ? 0 : operationStats.max.get())))
+          .append("  ")
+          .append(statuses)
+          .append('\n');
+    }
+    long window = lastCompletion.get() - windowStart;
+    double seconds = window > 0 ? window / (double) TimeUnit.SECONDS.toNanos(1) : 0;
+    out.append(
+        String.format(
+            Locale.ROOT,
+            "throughput %.1f req/s (%.1f successful), %d requests unfinished%n",
+            seconds > 0 ? done / seconds : 0,
+            seconds > 0 ? ok / seconds : 0,
+            unfinished));
+    if (!isValid()) {
+      out.append(
+          String.format(
+              Locale.ROOT,
+              "INVALID: %d requests skipped without a latency, the percentiles understate it;"
+                  + " lower the rate or raise maxInFlight%n",
+              skipped()));
+    }
+    return out.toString();
+  }
+
+  private long skipped() {
+    return stats.values().stream().mapToLong(operationStats -> operationStats.skipped.sum()).sum();
+  }
+
+  private static long quantileOf(Stats operationStats, double quantile) {
+    // Obere Bucketgrenze, höchstens aber das gemessene Maximum
+    return Math.min(operationStats.latency.quantileNanos(quantile), operationStats.max.get());
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /** Counters of one operation. */
+  private static final class Stats {
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    final LongAdder skipped = new LongAdder();
+  }
+}
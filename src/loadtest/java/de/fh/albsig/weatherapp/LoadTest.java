@@ -0,0 +1,303 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test: starts the application in an {@link EmbeddedWeatherServer} on the local
+ * in-memory H2 database, seeds it, drives it with an {@link OpenLoadGenerator} and prints a {@link
+ * LoadReport}.
+ *
+ * <p>Run it with {@code mvn -P loadtest verify}; once the dependencies are in the local repository
+ * this also works offline ({@code -o}). The run fails if its report is invalid, see {@link
+ * LoadReport#isValid()}. Options are passed as {@code key=value} arguments, from Maven via {@code
+ * -Dloadtest.args="..."}:
+ *
+ * <ul>
+ *   <li>{@code rate}: requests per second (default {@value #DEFAULT_RATE}).
+ *   <li>{@code duration}, {@code warmup}: length of the measured phase and of the warm-up before
+ *       it, e.g. {@code 30s}, {@code 500ms} or {@code 2m} (default 30s and 10s).
+ *   <li>{@code mix}: relative weights of the operations (default {@value #DEFAULT_MIX}).
+ *   <li>{@code locations}, {@code rows}: locations and readings seeded before the run (default
+ *       {@value #DEFAULT_LOCATIONS} and {@value #DEFAULT_ROWS}).
+ *   <li>{@code maxInFlight}: outstanding requests after which further ones are skipped (default
+ *       {@value #DEFAULT_MAX_IN_FLIGHT}).
+ *   <li>{@code report}: file the report is written to in addition to standard output.
+ *   <li>{@code weather.<name>}: init parameter {@code <name>} of {@link WeatherServlet}, e.g.
+ *       {@code weather.readConcurrency=50}.
+ * </ul>
+ *
+ * <p>The database can be replaced with a file-based H2 by setting {@code
+ * jakarta.persistence.jdbc.url} as a system property; the seeding uses the same URL.
+ */
+public final class LoadTest {
+
+  static final int DEFAULT_RATE = 200;
+  static final String DEFAULT_MIX = "get:80,post:10,put:5,delete:5";
+  static final int DEFAULT_LOCATIONS = 100;
+  static final int DEFAULT_ROWS = 10_000;
+  static final int DEFAULT_MAX_IN_FLIGHT = 2_000;
+
+  private static final String JDBC_URL_PROPERTY = "jakarta.persistence.jdbc.url";
+  private static final Duration READY_TIMEOUT = Duration.ofSeconds(60);
+
+  private LoadTest() {}
+
+  /**
+   * The settings of a run.
+   *
+   * @param rate requests per second
+   * @param duration length of the measured phase
+   * @param warmup length of the warm-up
+   * @param mix relative weight of each operation
+   * @param locations number of seeded locations
+   * @param rows number of seeded readings that may be updated
+   * @param maxInFlight outstanding requests after which further ones are skipped
+   * @param report file the report is written to, or null
+   * @param weatherInitParameters init parameters of {@link WeatherServlet}
+   */
+  record Settings(
+      int rate,
+      Duration duration,
+      Duration warmup,
+      Map<OpenLoadGenerator.Operation, Integer> mix,
+      int locations,
+      int rows,
+      int maxInFlight,
+      Path report,
+      Map<String, String> weatherInitParameters) {
+
+    /**
+     * Parses {@code key=value} arguments.
+     *
+     * @param args the arguments
+     * @return the settings
+     * @throws IllegalArgumentException if an argument is unknown or invalid
+     */
+    static Settings parse(String... args) {
+      Map<String, String> values = new HashMap<>();
+      Map<String, String> initParameters = new HashMap<>();
+      for (String arg : args) {
+        int separator = arg.indexOf('=');
+        if (separator < 1) {
+          throw new IllegalArgumentException("Expected key=value: " + arg);
+        }
+        String key = arg.substring(0, separator);
+        String value = arg.substring(separator + 1);
+        if (key.startsWith("weather.")) {
+          initParameters.put(key.substring("weather.".length()), value);
+        } else {
+          values.put(key, value);
+        }
+      }
+      Settings settings =
+          new Settings(
+              Integer.parseInt(values.getOrDefault("rate", String.valueOf(DEFAULT_RATE))),
+              parseDuration(values.getOrDefault("duration", "30s")),
+              parseDuration(values.getOrDefault("warmup", "10s")),
+              parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+              Integer.parseInt(values.getOrDefault("locations", String.valueOf(DEFAULT_LOCATIONS))),
+              Integer.parseInt(values.getOrDefault("rows", String.valueOf(DEFAULT_ROWS))),
+              Integer.parseInt(
+                  values.getOrDefault("maxInFlight", String.valueOf(DEFAULT_MAX_IN_FLIGHT))),
+              values.containsKey("report") ? Path.of(values.get("report")) : null,
+              initParameters);
+      values
+          .keySet()
+          .removeAll(
+              Set.of(
+                  "rate",
+                  "duration",
+                  "warmup",
+                  "mix",
+                  "locations",
+                  "rows",
+                  "maxInFlight",
+                  "report"));
+      if (!values.isEmpty()) {
+        throw new IllegalArgumentException("Unknown options: " + values.keySet());
+      }
+      if (settings.rate < 1 || settings.locations < 1 || settings.rows < 1) {
+        throw new IllegalArgumentException("rate, locations and rows must be positive");
+      }
+      return settings;
+    }
+
+    /**
+     * Returns the ID of the first seeded reading reserved for DELETE requests. DELETE counts down
+     * from there, so every request deletes a reading that exists.
+     *
+     * @return a negative ID below those of the updatable readings
+     */
+    long firstDeleteId() {
+      return -1L - rows;
+    }
+
+    /**
+     * Returns the number of readings to reserve for DELETE requests: the expected number of DELETE
+     * requests of the run plus a margin for the random mix. {@link OpenLoadGenerator} never deletes
+     * beyond it.
+     *
+     * @return the number of readings reserved for DELETE requests
+     */
+    long deletePool() {
+      int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+      long requests = (warmup.toSeconds() + duration.toSeconds() + 1) * rate;
+      long expected = requests * mix.getOrDefault(OpenLoadGenerator.Operation.DELETE, 0) / total;
+      // Der Anteil der DELETEs schwankt zufällig: fünf Standardabweichungen Reserve
+      return expected + 5 * (long) Math.ceil(Math.sqrt(expected)) + 1;
+    }
+
+    /**
+     * Describes the run in one line, for the head of the report.
+     *
+     * @return the description
+     */
+    String describe() {
+      return String.format(
+          Locale.ROOT,
+          "Open-model load test: %d req/s for %s after %s warm-up, mix %s, %d locations,"
+              + " %d rows, at most %d in flight, servlet parameters %s",
+          rate,
+          duration,
+          warmup,
+          mix,
+          locations,
+          rows,
+          maxInFlight,
+          weatherInitParameters);
+    }
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param args {@code key=value} options, see the class documentation
+   * @throws Exception if the server cannot be started or the run fails
+   */
+  public static void main(String[] args) throws Exception {
+    Settings settings = Settings.parse(args);
+    ExecutorService clientExecutor =
+        Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    try (EmbeddedWeatherServer server =
+        new EmbeddedWeatherServer(0, settings.weatherInitParameters())) {
+      HttpClient client =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_1_1)
+              .connectTimeout(Duration.ofSeconds(5))
+              .executor(clientExecutor)
+              .build();
+      awaitReady(client, server.baseUri());
+      seed(settings);
+      System.out.println("Seeded, starting the load test at " + server.baseUri());
+
+      LoadReport report = new OpenLoadGenerator(client, server.baseUri(), settings).run();
+      String rendered = report.render();
+      System.out.print(rendered);
+      if (settings.report() != null) {
+        Files.createDirectories(settings.report().toAbsolutePath().getParent());
+        Files.writeString(settings.report(), rendered, StandardCharsets.UTF_8);
+      }
+      if (!report.isValid()) {
+        throw new IllegalStateException("Invalid load test run, see the report");
+      }
+    } finally {
+      clientExecutor.shutdownNow();
+    }
+  }
+
+  private static void awaitReady(HttpClient client, URI baseUri)
+      throws IOException, InterruptedException {
+    HttpRequest ready = HttpRequest.newBuilder(baseUri.resolve("ready")).build();
+    long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+    while (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new IllegalStateException("Application not ready after " + READY_TIMEOUT);
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  /**
+   * Replaces the table content with the updatable readings (IDs -1 to -rows) and those reserved for
+   * DELETE (below), spread over the locations. Negative IDs never collide with the IDs generated
+   * for POST requests.
+   */
+  private static void seed(Settings settings) throws SQLException {
+    String url = System.getProperty(JDBC_URL_PROPERTY, "jdbc:h2:mem:weatherdb");
+    long rows = settings.rows() + settings.deletePool();
+    try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("TRUNCATE TABLE weather_data");
+      }
+      try (PreparedStatement insert =
+          connection.prepareStatement(
+              "INSERT INTO weather_data (id, location, temperature, humidity, timestamp)"
+                  + " SELECT -X, 'City' || MOD(X, ?), 10 + MOD(X, 20), 40 + MOD(X, 50),"
+                  + " DATEADD(MINUTE, X, TIMESTAMP '2020-01-01 00:00:00')"
+                  + " FROM SYSTEM_RANGE(1, ?)")) {
+        insert.setInt(1, settings.locations());
+        insert.setLong(2, rows);
+        insert.executeUpdate();
+      }
+    }
+    // Caches, Hot-Tier und Ortsindex kennen noch den Stand von vor dem Befüllen
+    WeatherRepository.shared().discardCaches();
+  }
+
+  /** Parses {@code 30s}, {@code 500ms}, {@code 2m} or a plain number of seconds. */
+  private static Duration parseDuration(String value) {
+    String trimmed = value.trim().toLowerCase(Locale.ROOT);
+    if (trimmed.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+    }
+    if (trimmed.endsWith("s")) {
+      return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+    }
+    if (trimmed.endsWith("m")) {
+      return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+    }
+    return Duration.ofSeconds(Long.parseLong(trimmed));
+  }
+
+  /** Parses {@code get:80,post:10,...}; operations not named get no requests. */
+  private static Map<OpenLoadGenerator.Operation, Integer> parseMix(String value) {
+    Map<OpenLoadGenerator.Operation, Integer> mix =
+        new EnumMap<>(OpenLoadGenerator.Operation.class);
+    for (String entry : value.split(",")) {
+      String[] parts = entry.trim().split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Expected operation:weight in mix: " + entry);
+      }
+      int weight = Integer.parseInt(parts[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("Negative weight in mix: " + entry);
+      }
+      mix.put(
+          OpenLoadGenerator.Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+    }
+    if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+      throw new IllegalArgumentException("The mix must contain at least one request");
+    }
+    return mix;
+  }
+}
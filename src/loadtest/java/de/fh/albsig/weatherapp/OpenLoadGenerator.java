@@ -0,0 +1,181 @@
+package de.fh.albsig.weatherapp;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests to {@code /weather} at a fixed rate, no matter how fast the server answers.
+ *
+ * <p>This is an open model: request {@code i} is due at {@code start + i / rate}, and its latency
+ * is measured from that time. A closed model, where a fixed number of clients waits for each
+ * response before sending the next request, slows down together with the server and so hides the
+ * latency that real, independent clients would see (coordinated omission). Requests are sent
+ * asynchronously; if more than {@code maxInFlight} are outstanding, further requests are counted as
+ * skipped instead of being delayed. A skipped request has no latency, so a run with skipped
+ * requests is reported as invalid (see {@link LoadReport#isValid()}).
+ *
+ * <p>The sequence of operations and their parameters comes from a fixed seed, so two builds are
+ * compared on the same requests.
+ */
+final class OpenLoadGenerator {
+
+  /** The kinds of request sent. */
+  enum Operation {
+    GET,
+    POST,
+    PUT,
+    DELETE
+  }
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final long SEED = 42;
+
+  private final HttpClient client;
+  private final URI weather;
+  private final LoadTest.Settings settings;
+  private final SplittableRandom random = new SplittableRandom(SEED);
+  private final int[] cumulativeWeights;
+  private final long lastDeleteId;
+  private long nextDeleteId;
+
+  /**
+   * Creates a generator.
+   *
+   * @param client the client sending the requests
+   * @param baseUri the address of the application
+   * @param settings rate, duration, mix and seeded data
+   */
+  OpenLoadGenerator(HttpClient client, URI baseUri, LoadTest.Settings settings) {
+    this.client = client;
+    this.weather = baseUri.resolve("weather");
+    this.settings = settings;
+    this.cumulativeWeights = new int[Operation.values().length];
+    int sum = 0;
+    for (Operation operation : Operation.values()) {
+      sum += settings.mix().getOrDefault(operation, 0);
+      cumulativeWeights[operation.ordinal()] = sum;
+    }
+    this.nextDeleteId = settings.firstDeleteId();
+    this.lastDeleteId = settings.firstDeleteId() - settings.deletePool() + 1;
+  }
+
+  /**
+   * Runs the warm-up and the measured phase and waits for the outstanding responses.
+   *
+   * @return the report of the measured phase
+   * @throws InterruptedException if interrupted while waiting
+   * @throws IllegalStateException if the readings seeded for DELETE requests are used up
+   */
+  LoadReport run() throws InterruptedException {
+    LoadReport report = new LoadReport(settings.describe());
+    long rate = settings.rate();
+    long warmupRequests = settings.warmup().toNanos() * rate / TimeUnit.SECONDS.toNanos(1);
+    long totalRequests =
+        warmupRequests + settings.duration().toNanos() * rate / TimeUnit.SECONDS.toNanos(1);
+    Semaphore inFlight = new Semaphore(settings.maxInFlight());
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+    report.startWindow(start + warmupRequests * TimeUnit.SECONDS.toNanos(1) / rate);
+
+    for (long i = 0; i < totalRequests; i++) {
+      // Aus i berechnet statt aufsummiert, damit sich Rundungsfehler nicht addieren
+      long intended = start + i * TimeUnit.SECONDS.toNanos(1) / rate;
+      parkUntil(intended);
+      Operation operation = nextOperation();
+      // Auch übersprungene Anfragen erzeugen, damit sie dieselben Zufallszahlen verbrauchen und
+      // die Folge der Anfragen nicht davon abhängt, wie viele übersprungen werden
+      HttpRequest request = request(operation);
+      boolean measured = i >= warmupRequests;
+      if (!inFlight.tryAcquire()) {
+        if (measured) {
+          report.skipped(operation);
+        }
+        continue;
+      }
+      client
+          .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete(
+              (response, failure) -> {
+                long latency = System.nanoTime() - intended;
+                inFlight.release();
+                if (measured) {
+                  report.record(operation, latency, response == null ? -1 : response.statusCode());
+                }
+              });
+    }
+
+    int maxInFlight = settings.maxInFlight();
+    if (!inFlight.tryAcquire(maxInFlight, REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+      report.unfinished(maxInFlight - (long) inFlight.availablePermits());
+    }
+    return report;
+  }
+
+  private static void parkUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  private Operation nextOperation() {
+    int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (Operation operation : Operation.values()) {
+      if (value < cumulativeWeights[operation.ordinal()]) {
+        return operation;
+      }
+    }
+    throw new IllegalStateException("Weights do not cover " + value);
+  }
+
+  private HttpRequest request(Operation operation) {
+    String location = "City" + random.nextInt(settings.locations());
+    HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+    switch (operation) {
+      case GET:
+        return builder.uri(URI.create(weather + "?location=" + location)).GET().build();
+      case POST:
+        return xml(builder, "POST", reading(null, location));
+      case PUT:
+        // Nur Zeilen aktualisieren, die nie gelöscht werden
+        return xml(builder, "PUT", reading(-1L - random.nextInt(settings.rows()), location));
+      case DELETE:
+        if (nextDeleteId < lastDeleteId) {
+          // Sonst träfen weitere DELETEs nicht vorhandene Zeilen und verfälschten die Messung
+          throw new IllegalStateException(
+              "All " + settings.deletePool() + " readings seeded for DELETE are used up");
+        }
+        return xml(builder, "DELETE", "<weatherData><id>" + nextDeleteId-- + "</id></weatherData>");
+      default:
+        throw new IllegalArgumentException("Unknown operation " + operation);
+    }
+  }
+
+  private HttpRequest xml(HttpRequest.Builder builder, String method, String body) {
+    return builder
+        .uri(weather)
+        .header("Content-Type", WeatherXmlCodec.MEDIA_TYPE)
+        .method(method, HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private String reading(Long id, String location) {
+    return String.format(
+        Locale.ROOT,
+        "<weatherData>%s<location>%s</location><temperature>%.1f</temperature>"
+            + "<humidity>%d</humidity><timestamp>%s</timestamp></weatherData>",
+        id == null ? "" : "<id>" + id + "</id>",
+        location,
+        random.nextInt(-200, 400) / 10.0,
+        random.nextInt(0, 101),
+        LocalDateTime.now().withNano(0));
+  }
+}
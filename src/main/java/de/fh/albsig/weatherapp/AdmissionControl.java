@@ -0,0 +1,222 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Load shedding in front of the repository: decides whether a request may run or is rejected at
+ * once.
+ *
+ * <p>Reads and writes pass separate {@link ConcurrencyLimiter}s, so a burst of slow writes cannot
+ * starve reads and vice versa. A request over the limit is answered with 503 (Service Unavailable)
+ * and a {@code Retry-After} header instead of waiting for a worker. Optionally, a {@link
+ * ClientRateLimiter} caps the rate of each client; clients over their rate are answered with 429
+ * (Too Many Requests) and the time until their next token as {@code Retry-After}.
+ *
+ * <p>Clients are told apart by their remote address. Behind a load balancer or reverse proxy that
+ * address is the proxy's, so all clients would share one bucket; the proxies can therefore be named
+ * as trusted, and for requests from them the client is taken from {@code X-Forwarded-For}: the
+ * rightmost address in it that is not a trusted proxy itself. Addresses further left are ignored,
+ * because any client can put them there.
+ */
+public final class AdmissionControl {
+
+  /** {@code Retry-After} in seconds sent when the concurrency limit is reached. */
+  static final int RETRY_AFTER_SECONDS = 1;
+
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+  private static final Logger logger = LogManager.getLogger(AdmissionControl.class);
+  private final ConcurrencyLimiter reads;
+  private final ConcurrencyLimiter writes;
+  private final ClientRateLimiter clients;
+  private final Set<String> trustedProxies;
+
+  /**
+   * Creates admission control without a per-client limit.
+   *
+   * @param reads the limiter for GET requests
+   * @param writes the limiter for POST, PUT and DELETE requests
+   */
+  public AdmissionControl(ConcurrencyLimiter reads, ConcurrencyLimiter writes) {
+    this(reads, writes, null);
+  }
+
+  /**
+   * Creates admission control.
+   *
+   * @param reads the limiter for GET requests
+   * @param writes the limiter for POST, PUT and DELETE requests
+   * @param clients the per-client rate limit, or null for none
+   */
+  public AdmissionControl(
+      ConcurrencyLimiter reads, ConcurrencyLimiter writes, ClientRateLimiter clients) {
+    this(reads, writes, clients, Set.of());
+  }
+
+  /**
+   * Creates admission control behind trusted proxies.
+   *
+   * @param reads the limiter for GET requests
+   * @param writes the limiter for POST, PUT and DELETE requests
+   * @param clients the per-client rate limit, or null for none
+   * @param trustedProxies the remote addresses whose {@code X-Forwarded-For} header is believed
+   */
+  public AdmissionControl(
+      ConcurrencyLimiter reads,
+      ConcurrencyLimiter writes,
+      ClientRateLimiter clients,
+      Set<String> trustedProxies) {
+    this.reads = Objects.requireNonNull(reads, "reads must not be null");
+    this.writes = Objects.requireNonNull(writes, "writes must not be null");
+    this.clients = clients;
+    this.trustedProxies = Set.copyOf(trustedProxies);
+  }
+
+  /**
+   * Checks the rate limit of the client sending a request, keyed by {@link
+   * #clientKey(HttpServletRequest)}. If the client is over its rate, the request is answered with
+   * 429.
+   *
+   * @param req the request
+   * @param resp the response
+   * @return true if the request may proceed, false if it has been answered already
+   * @throws IOException if the error response cannot be sent
+   */
+  public boolean admitClient(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (clients == null) {
+      return true;
+    }
+    String client = clientKey(req);
+    long waitNanos = clients.tryAcquire(client);
+    if (waitNanos == 0) {
+      return true;
+    }
+    // Nur TRACE: unter Last würde jede Zeile die Antwort bremsen, die Metrik zählt ohnehin mit
+    logger.trace("Rate limit exceeded by {}", client);
+    // Auf ganze Sekunden aufrunden, Retry-After kennt keine Bruchteile
+    long second = TimeUnit.SECONDS.toNanos(1);
+    long seconds = (waitNanos + second - 1) / second;
+    resp.setHeader("Retry-After", String.valueOf(seconds));
+    resp.sendError(SC_TOO_MANY_REQUESTS, "Too many requests");
+    return false;
+  }
+
+  /**
+   * Returns the address of the client sending a request: its remote address, or for a request from
+   * a trusted proxy the rightmost untrusted address in {@code X-Forwarded-For}.
+   *
+   * @param req the request
+   * @return the client address
+   */
+  String clientKey(HttpServletRequest req) {
+    String remote = req.getRemoteAddr();
+    if (!trustedProxies.contains(remote)) {
+      return remote;
+    }
+    Enumeration<String> headers = req.getHeaders("X-Forwarded-For");
+    if (headers == null) {
+      return remote;
+    }
+    // Mehrere Header zählen wie eine kommagetrennte Liste in ihrer Reihenfolge
+    List<String> values = Collections.list(headers);
+    String client = remote;
+    for (int i = values.size() - 1; i >= 0; i--) {
+      String[] hops = values.get(i).split(",");
+      for (int j = hops.length - 1; j >= 0; j--) {
+        String hop = hops[j].trim();
+        if (hop.isEmpty()) {
+          continue;
+        }
+        if (!trustedProxies.contains(hop)) {
+          return hop;
+        }
+        client = hop;
+      }
+    }
+    return client;
+  }
+
+  /**
+   * Runs a handler if the concurrency limit for its kind of request allows it; otherwise answers
+   * the request with 503 and a {@code Retry-After} header.
+   *
+   * @param write true for a request changing data, false for a read
+   * @param handler the handler to run
+   * @param req the request
+   * @param resp the response
+   * @throws IOException if an I/O error occurs while writing the response
+   */
+  public void run(
+      boolean write,
+      AsyncDispatcher.Handler handler,
+      HttpServletRequest req,
+      HttpServletResponse resp)
+      throws IOException {
+    ConcurrencyLimiter limiter = write ? writes : reads;
+    if (!limiter.tryAcquire()) {
+      logger.trace("Shedding {} request, limit {}", write ? "write" : "read", limiter.getLimit());
+      resp.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded");
+      return;
+    }
+    long started = System.nanoTime();
+    try {
+      handler.handle(req, resp);
+    } finally {
+      limiter.release(started);
+    }
+  }
+
+  /**
+   * Registers the current limits, the running requests and the rejections with a registry.
+   *
+   * @param registry the registry to report to
+   */
+  public void registerMetrics(MetricsRegistry registry) {
+    registerLimiter(registry, reads, "read");
+    registerLimiter(registry, writes, "write");
+    if (clients != null) {
+      registry.counterFunction(
+          "weather_requests_shed_total",
+          "Requests rejected by admission control",
+          clients::rejectedCount,
+          "reason",
+          "client_rate");
+      registry.counterFunction(
+          "weather_client_rate_overflow_total",
+          "Requests rate-limited in the shared bucket because too many clients were active",
+          clients::overflowCount);
+    }
+  }
+
+  private static void registerLimiter(
+      MetricsRegistry registry, ConcurrencyLimiter limiter, String kind) {
+    registry.gauge(
+        "weather_concurrency_limit",
+        "Current adaptive concurrency limit",
+        limiter::getLimit,
+        "kind",
+        kind);
+    registry.gauge(
+        "weather_concurrency_in_flight",
+        "Requests currently admitted by the concurrency limit",
+        limiter::getInFlight,
+        "kind",
+        kind);
+    registry.counterFunction(
+        "weather_requests_shed_total",
+        "Requests rejected by admission control",
+        limiter::rejectedCount,
+        "reason",
+        kind + "_concurrency");
+  }
+}
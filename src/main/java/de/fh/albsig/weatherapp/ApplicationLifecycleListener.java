@@ -0,0 +1,180 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Starts and stops the resources shared by all servlets.
+ *
+ * <p>When the web application is deployed, the expensive initialization runs in the background
+ * instead of on the thread of the first request. The shared {@link WeatherRepository} bootstraps
+ * its backend (for JPA: Hibernate, the schema and the connection pool) while the JAXB context of
+ * the shared {@link WeatherXmlCodec} is built. Afterwards the repository queries are prepared and
+ * the codecs are warmed up, again in parallel (see {@link Warmup}). Each phase is timed in a {@link
+ * StartupReport}, which is published in the servlet context; {@link ReadinessServlet} answers with
+ * 503 (Service Unavailable) until all phases have finished.
+ *
+ * <p>Once the application is ready, the {@link RetentionJob} is scheduled if a retention policy is
+ * configured (see {@link RetentionJob#RAW_RETENTION_PROPERTY}); it first runs right away, then
+ * after each interval. An invalid policy, or one set for the memory-mapped backend, which keeps no
+ * rollups, fails the deployment.
+ *
+ * <p>When the web application stops, after all servlets have been destroyed, a startup still in
+ * progress is cancelled, a running retention job is stopped after its current batch, and the shared
+ * repository is closed. For the memory-mapped backend this forces the segments to disk and writes
+ * the index checkpoint, so the next start does not have to rebuild the index.
+ */
+@WebListener
+public class ApplicationLifecycleListener implements ServletContextListener {
+
+  private static final Logger logger = LogManager.getLogger(ApplicationLifecycleListener.class);
+
+  /** Time a retention batch in progress is given to finish when the application stops. */
+  private static final long RETENTION_SHUTDOWN_SECONDS = 10;
+
+  private ExecutorService startupExecutor;
+  private ScheduledExecutorService retentionExecutor;
+  private boolean destroyed;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    // Ungültige Einstellungen sollen das Deployment scheitern lassen, nicht erst den ersten Lauf
+    RetentionJob.Policy retention = RetentionJob.Policy.fromProperties(System.getProperties());
+    StartupReport report = new StartupReport(MetricsRegistry.shared());
+    event.getServletContext().setAttribute(StartupReport.CONTEXT_ATTRIBUTE, report);
+    startupExecutor =
+        Executors.newFixedThreadPool(
+            2,
+            runnable -> {
+              Thread thread = new Thread(runnable, "weather-startup");
+              thread.setDaemon(true);
+              return thread;
+            });
+    start(
+            report,
+            WeatherRepository::shared,
+            WeatherXmlCodec::shared,
+            startupExecutor,
+            Warmup.iterations())
+        .whenComplete(
+            (ignored, error) -> {
+              startupExecutor.shutdown();
+              if (error == null && retention != null) {
+                startRetention(retention);
+              }
+            });
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    if (startupExecutor != null) {
+      startupExecutor.shutdownNow();
+    }
+    stopRetention();
+    logger.info("Closing the shared weather repository");
+    WeatherRepositories.closeShared();
+  }
+
+  private synchronized void startRetention(RetentionJob.Policy policy) {
+    if (destroyed) {
+      return;
+    }
+    retentionExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "weather-retention");
+              thread.setDaemon(true);
+              return thread;
+            });
+    RetentionJob job =
+        new RetentionJob(
+            WeatherRepository.shared(), policy, Clock.systemUTC(), MetricsRegistry.shared());
+    long interval = policy.interval().toMillis();
+    retentionExecutor.scheduleWithFixedDelay(job, 0, interval, TimeUnit.MILLISECONDS);
+    logger.info("Scheduled the retention job: {}", policy);
+  }
+
+  private void stopRetention() {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      destroyed = true;
+      executor = retentionExecutor;
+    }
+    if (executor == null) {
+      return;
+    }
+    executor.shutdownNow();
+    try {
+      // Die laufende Transaktion abschließen lassen, bevor das Repository geschlossen wird
+      if (!executor.awaitTermination(RETENTION_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+        logger.warn("Retention job did not stop within {} s", RETENTION_SHUTDOWN_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs the startup phases on the given executor and records them in the report.
+   *
+   * @param report the report to fill in
+   * @param repository supplies the repository to bootstrap and warm up
+   * @param xmlCodec supplies the XML codec to build and warm up
+   * @param executor runs the phases; two threads let independent phases overlap
+   * @param iterations the number of codec warm-up rounds
+   * @return completes when the report is ready or has failed
+   */
+  static CompletableFuture<Void> start(
+      StartupReport report,
+      Supplier<WeatherRepository> repository,
+      Supplier<WeatherXmlCodec> xmlCodec,
+      Executor executor,
+      int iterations) {
+    CompletableFuture<WeatherRepository> bootstrapped =
+        CompletableFuture.supplyAsync(
+            () ->
+                report.call(
+                    "repository",
+                    () -> {
+                      WeatherRepository shared = repository.get();
+                      shared.bootstrap();
+                      return shared;
+                    }),
+            executor);
+    CompletableFuture<WeatherXmlCodec> jaxb =
+        CompletableFuture.supplyAsync(() -> report.call("jaxb", xmlCodec), executor);
+    CompletableFuture<Void> queries =
+        bootstrapped.thenAcceptAsync(
+            shared ->
+                report.run("queries", () -> Warmup.readRepository(shared, Warmup.QUERY_ROUNDS)),
+            executor);
+    CompletableFuture<Void> codecs =
+        jaxb.thenAcceptAsync(
+            codec ->
+                report.run(
+                    "codecs",
+                    () -> Warmup.exerciseCodecs(WeatherCodecs.standard(codec), iterations)),
+            executor);
+    return CompletableFuture.allOf(queries, codecs)
+        .whenComplete(
+            (ignored, error) -> {
+              if (error == null) {
+                report.ready();
+              } else {
+                report.failed(error instanceof CompletionException ? error.getCause() : error);
+              }
+            });
+  }
+}
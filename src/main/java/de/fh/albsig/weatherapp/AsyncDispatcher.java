@@ -0,0 +1,233 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs servlet handlers off the container's request threads using the Servlet {@link AsyncContext}.
+ *
+ * <p>{@link #dispatch} puts the request into asynchronous mode and hands the handler to an
+ * executor, so the container thread returns to its pool while the repository call is running. A
+ * request that is not finished within the timeout is answered with 503 (Service Unavailable); so is
+ * a request the executor cannot accept. If the request does not support asynchronous processing
+ * (e.g. a filter in the chain is not async-capable), the handler simply runs on the calling thread.
+ *
+ * <p>The handler writes to a {@link GuardedResponse}. Whoever completes the request first, the
+ * handler or the timeout, closes it for the other, so a handler that is still running after the 503
+ * has been sent cannot write into the recycled response.
+ *
+ * <p>{@link #newRequestExecutor(int, int)} uses virtual threads when running on Java 21 or later,
+ * so thousands of concurrently blocked requests cost little memory. On older runtimes it falls back
+ * to a fixed platform thread pool: at most {@code platformThreads} requests are then handled at the
+ * same time and {@code queueCapacity} more wait, all further ones are answered with 503. With the
+ * defaults of {@link WeatherServlet} that is 200 running and 1000 waiting requests, which is not
+ * enough for several thousand concurrent slow requests; those need Java 21 or larger pool settings.
+ */
+public class AsyncDispatcher {
+
+  /** Default time after which an unfinished asynchronous request is answered with 503. */
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final Logger logger = LogManager.getLogger(AsyncDispatcher.class);
+  private final ExecutorService executor;
+  private final long timeoutMillis;
+
+  /**
+   * A servlet handler that may run on any thread.
+   *
+   * <p>Implementations write their complete response, including error responses, themselves.
+   */
+  @FunctionalInterface
+  public interface Handler {
+
+    /**
+     * Handles the request.
+     *
+     * @param req the request
+     * @param resp the response
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    void handle(HttpServletRequest req, HttpServletResponse resp) throws IOException;
+  }
+
+  /**
+   * Creates a dispatcher.
+   *
+   * @param executor runs the handlers; shut down by {@link #shutdown()}
+   * @param timeout how long an asynchronous request may take
+   */
+  public AsyncDispatcher(ExecutorService executor, Duration timeout) {
+    this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    this.timeoutMillis = timeout.toMillis();
+  }
+
+  /**
+   * Creates the executor for request handlers: one virtual thread per task on Java 21 or later,
+   * otherwise a fixed pool of platform threads with a bounded queue. The pool limits how many
+   * requests can be in flight, see the class documentation.
+   *
+   * @param platformThreads the pool size used without virtual threads
+   * @param queueCapacity the number of waiting handlers accepted without virtual threads
+   * @return the executor
+   */
+  public static ExecutorService newRequestExecutor(int platformThreads, int queueCapacity) {
+    try {
+      // Per Reflection, da das Projekt für Java 17 kompiliert wird
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      logger.info("Handling asynchronous requests on virtual threads");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.info(
+          "Virtual threads not available, using {} platform threads and {} queue slots for"
+              + " asynchronous requests; further concurrent requests are answered with 503",
+          platformThreads,
+          queueCapacity);
+    }
+    AtomicInteger counter = new AtomicInteger();
+    return new ThreadPoolExecutor(
+        platformThreads,
+        platformThreads,
+        60,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "weather-async-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Runs the handler asynchronously if the request supports it, otherwise on the calling thread.
+   *
+   * @param req the request
+   * @param resp the response
+   * @param handler the handler producing the response
+   * @throws IOException if the handler runs synchronously and fails with an I/O error
+   */
+  public void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+      throws IOException {
+    if (!req.isAsyncSupported()) {
+      handler.handle(req, resp);
+      return;
+    }
+    AsyncContext async = req.startAsync(req, resp);
+    async.setTimeout(timeoutMillis);
+    // Genau einer von Handler, Timeout und Fehler darf den Request abschließen
+    GuardedResponse guarded = new GuardedResponse(resp);
+    async.addListener(new TimeoutListener(guarded));
+    try {
+      executor.execute(() -> run(async, guarded, handler, req, resp));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Rejected request, no capacity for asynchronous handling");
+      if (guarded.finish()) {
+        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded");
+        async.complete();
+      }
+    }
+  }
+
+  /** Stops accepting new handlers and waits briefly for running ones. */
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run(
+      AsyncContext async,
+      GuardedResponse guarded,
+      Handler handler,
+      HttpServletRequest req,
+      HttpServletResponse resp) {
+    Exception failure = null;
+    try {
+      handler.handle(req, guarded);
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    }
+    if (!guarded.finish()) {
+      // Timeout oder Fehler war schneller und hat den Request bereits abgeschlossen
+      if (failure != null) {
+        logger.debug("Handler failed after the request had already been completed", failure);
+      }
+      return;
+    }
+    if (failure != null) {
+      logger.error("Error while handling request asynchronously", failure);
+      sendErrorIfPossible(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+    async.complete();
+  }
+
+  private static void sendErrorIfPossible(HttpServletResponse resp, int status) {
+    if (resp.isCommitted()) {
+      return;
+    }
+    try {
+      resp.sendError(status);
+    } catch (IOException | IllegalStateException e) {
+      logger.debug("Could not send error response", e);
+    }
+  }
+
+  /** Answers timed-out requests with 503 and completes failed ones. */
+  private static final class TimeoutListener implements AsyncListener {
+    private final GuardedResponse guarded;
+
+    private TimeoutListener(GuardedResponse guarded) {
+      this.guarded = guarded;
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      if (guarded.finish()) {
+        logger.warn("Request timed out during asynchronous handling");
+        sendErrorIfPossible(
+            (HttpServletResponse) event.getSuppliedResponse(),
+            HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        event.getAsyncContext().complete();
+      }
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      if (guarded.finish()) {
+        logger.warn("Asynchronous request failed", event.getThrowable());
+        event.getAsyncContext().complete();
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      // nichts zu tun
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // nichts zu tun
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Response of a bulk operation, reporting the outcome of every submitted item in input order.
+ *
+ * <pre>{@code
+ * <bulkResult succeeded="2" failed="1">
+ *   <item index="0" status="created" id="42"/>
+ *   <item index="1" status="updated" id="7"/>
+ *   <item index="2" status="failed" message="Missing location"/>
+ * </bulkResult>
+ * }</pre>
+ */
+@XmlRootElement(name = "bulkResult")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BulkResult {
+
+  /** Status of an item that has been stored. */
+  public static final String CREATED = "created";
+
+  /** Status of an item that carried an ID and has been stored under it. */
+  public static final String UPDATED = "updated";
+
+  /** Status of an item that has been rejected or could not be stored. */
+  public static final String FAILED = "failed";
+
+  @XmlElement(name = "item")
+  private List<Item> items = new ArrayList<>();
+
+  public List<Item> getItems() {
+    return Collections.unmodifiableList(items);
+  }
+
+  public void setItems(List<Item> items) {
+    this.items = new ArrayList<>(items);
+  }
+
+  /**
+   * Returns the number of items that have been stored, whether created or updated.
+   *
+   * @return the number of successful items
+   */
+  @XmlAttribute
+  public int getSucceeded() {
+    return (int) items.stream().filter(item -> !FAILED.equals(item.getStatus())).count();
+  }
+
+  /**
+   * Returns the number of items that have been rejected or could not be stored.
+   *
+   * @return the number of failed items
+   */
+  @XmlAttribute
+  public int getFailed() {
+    return items.size() - getSucceeded();
+  }
+
+  /** Outcome of a single item of a bulk request. */
+  public static class Item {
+
+    private int index;
+    private String status;
+    private Long id;
+    private String message;
+
+    /** Creates an empty item, required by JAXB. */
+    public Item() {}
+
+    /**
+     * Creates an item result.
+     *
+     * @param index the position of the item in the request
+     * @param status {@link #CREATED} or {@link #FAILED}
+     * @param id the id of the stored reading, or null
+     * @param message an error message, or null
+     */
+    public Item(int index, String status, Long id, String message) {
+      this.index = index;
+      this.status = status;
+      this.id = id;
+      this.message = message;
+    }
+
+    @XmlAttribute
+    public int getIndex() {
+      return index;
+    }
+
+    public void setIndex(int index) {
+      this.index = index;
+    }
+
+    @XmlAttribute
+    public String getStatus() {
+      return status;
+    }
+
+    public void setStatus(String status) {
+      this.status = status;
+    }
+
+    @XmlAttribute
+    public Long getId() {
+      return id;
+    }
+
+    public void setId(Long id) {
+      this.id = id;
+    }
+
+    @XmlAttribute
+    public String getMessage() {
+      return message;
+    }
+
+    public void setMessage(String message) {
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per client, so a single client cannot take the whole capacity of the server.
+ *
+ * <p>The buckets use the generic cell rate algorithm (GCRA): instead of a token count and a refill
+ * time, each bucket stores only the theoretical arrival time of the next request, which makes an
+ * update a single compare-and-set on one {@code long}. Every client has a bucket of its own in a
+ * concurrent map, so no lock is taken and one client never pays for the traffic of another.
+ *
+ * <p>The map holds at most {@code maxClients} buckets. A bucket whose arrival time has passed is
+ * full again and behaves like a missing one, so when the map is full such buckets are dropped; a
+ * request racing with that sweep may at most get one token for free. Only if more clients than that
+ * are active at the same time do the ones without a bucket share a single overflow bucket until
+ * buckets become idle; they are counted in {@link #overflowCount()}.
+ */
+public final class ClientRateLimiter {
+
+  /** Default maximum number of clients with a bucket of their own. */
+  public static final int DEFAULT_MAX_CLIENTS = 10_000;
+
+  /** Minimum time between two sweeps for idle buckets while the map is full. */
+  private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final int maxClients;
+  private final ConcurrentHashMap<String, AtomicLong> arrivals = new ConcurrentHashMap<>();
+  private final AtomicLong overflow = new AtomicLong();
+  private final AtomicLong nextSweep = new AtomicLong();
+  private final LongSupplier clock;
+  private final long origin;
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder overflowed = new LongAdder();
+
+  /**
+   * Creates a limiter for up to {@value #DEFAULT_MAX_CLIENTS} clients measuring time with {@link
+   * System#nanoTime()}.
+   *
+   * @param requestsPerSecond the sustained rate a client may send
+   * @param burst the number of requests a client may send at once after being idle
+   */
+  public ClientRateLimiter(double requestsPerSecond, int burst) {
+    this(requestsPerSecond, burst, DEFAULT_MAX_CLIENTS, System::nanoTime);
+  }
+
+  /**
+   * Creates a limiter with a custom client bound and clock.
+   *
+   * @param requestsPerSecond the sustained rate a client may send
+   * @param burst the number of requests a client may send at once after being idle
+   * @param maxClients the maximum number of buckets kept
+   * @param clock supplies the current time in nanoseconds
+   * @throws IllegalArgumentException if a parameter is out of range
+   */
+  ClientRateLimiter(double requestsPerSecond, int burst, int maxClients, LongSupplier clock) {
+    if (!(requestsPerSecond > 0)) {
+      throw new IllegalArgumentException("requestsPerSecond must be positive");
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("burst must be at least 1");
+    }
+    if (maxClients < 1) {
+      throw new IllegalArgumentException("maxClients must be positive");
+    }
+    this.intervalNanos = Math.max(1, (long) (1_000_000_000L / requestsPerSecond));
+    this.toleranceNanos = (burst - 1) * intervalNanos;
+    this.maxClients = maxClients;
+    this.clock = clock;
+    // Zeiten relativ zum Start, damit der Anfangswert 0 "schon lange frei" bedeutet
+    this.origin = clock.getAsLong();
+  }
+
+  /**
+   * Takes a token from the bucket of a client.
+   *
+   * @param client the client key, e.g. its remote address
+   * @return 0 if the request may run, otherwise the nanoseconds until the client may try again
+   */
+  public long tryAcquire(String client) {
+    AtomicLong arrival = bucket(client == null ? "" : client);
+    while (true) {
+      long now = clock.getAsLong() - origin;
+      long next = arrival.get();
+      long ahead = next - now;
+      if (ahead > toleranceNanos) {
+        rejected.increment();
+        return ahead - toleranceNanos;
+      }
+      if (arrival.compareAndSet(next, Math.max(next, now) + intervalNanos)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of requests rejected so far.
+   *
+   * @return the number of rejected requests
+   */
+  public long rejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Returns the number of requests that had to use the shared overflow bucket because the map was
+   * full of active clients.
+   *
+   * @return the number of overflowed requests
+   */
+  public long overflowCount() {
+    return overflowed.sum();
+  }
+
+  /**
+   * Returns the number of buckets currently kept.
+   *
+   * @return the number of clients with a bucket
+   */
+  int clients() {
+    return arrivals.size();
+  }
+
+  private AtomicLong bucket(String client) {
+    AtomicLong arrival = arrivals.get(client);
+    if (arrival != null) {
+      return arrival;
+    }
+    if (arrivals.size() >= maxClients) {
+      sweep();
+      if (arrivals.size() >= maxClients) {
+        overflowed.increment();
+        return overflow;
+      }
+    }
+    // Gleichzeitig neue Clients können maxClients knapp überschreiten
+    return arrivals.computeIfAbsent(client, key -> new AtomicLong());
+  }
+
+  /** Drops the buckets that are full again, at most once per {@link #SWEEP_INTERVAL_NANOS}. */
+  private void sweep() {
+    long now = clock.getAsLong() - origin;
+    long due = nextSweep.get();
+    if (now < due || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+      return;
+    }
+    arrivals.values().removeIf(arrival -> arrival.get() <= now);
+  }
+}
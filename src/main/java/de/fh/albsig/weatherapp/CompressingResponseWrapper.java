@@ -0,0 +1,304 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response wrapper that compresses the body with gzip or deflate once it is large enough.
+ *
+ * <p>The first bytes written are buffered until either {@code minSize} bytes have been written (the
+ * body is compressed) or the servlet flushes or finishes the response (the body is sent as is). If
+ * the servlet declares a {@code Content-Length} before writing, the decision is made right away
+ * without buffering. Bodies of other than text, XML or JSON content types, and responses that
+ * already carry a {@code Content-Encoding}, are never compressed.
+ *
+ * <p>When the body is compressed, the {@code Content-Length} is dropped, {@code Content-Encoding}
+ * is set, and a strong {@code ETag} is turned into a weak one because the bytes on the wire differ
+ * from the identity representation. Flushes are passed to the compressor as sync flushes, so
+ * streamed responses still reach the client incrementally.
+ *
+ * <p>{@link #finish()} must be called once the response is complete; it writes buffered bytes or
+ * the compressor trailer. Instances are not thread-safe, like the response they wrap.
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+  private static final int COMPRESSOR_BUFFER_SIZE = 8192;
+
+  private final String encoding;
+  private final int minSize;
+  private final BodyStream body = new BodyStream();
+  private byte[] buffer;
+  private int buffered;
+  private long declaredLength = -1;
+  private ServletOutputStream out;
+  private OutputStream target;
+  private PrintWriter writer;
+  private boolean streamUsed;
+  private boolean compressed;
+  private boolean finished;
+
+  /**
+   * Wraps a response.
+   *
+   * @param response the response to write to
+   * @param encoding {@value CompressionFilter#GZIP} or {@value CompressionFilter#DEFLATE}
+   * @param minSize the smallest body that is compressed, in bytes
+   */
+  CompressingResponseWrapper(HttpServletResponse response, String encoding, int minSize) {
+    super(response);
+    this.encoding = encoding;
+    this.minSize = minSize;
+  }
+
+  /**
+   * Returns whether the body is being sent compressed.
+   *
+   * @return true once the wrapper has decided to compress
+   */
+  boolean isCompressed() {
+    return compressed;
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() {
+    if (writer != null) {
+      throw new IllegalStateException("getWriter() has already been called");
+    }
+    streamUsed = true;
+    return body;
+  }
+
+  @Override
+  public PrintWriter getWriter() {
+    if (writer == null) {
+      if (streamUsed) {
+        throw new IllegalStateException("getOutputStream() has already been called");
+      }
+      Charset charset = Charset.forName(getCharacterEncoding());
+      writer = new PrintWriter(new OutputStreamWriter(body, charset));
+    }
+    return writer;
+  }
+
+  @Override
+  public void setContentLength(int len) {
+    setContentLengthLong(len);
+  }
+
+  @Override
+  public void setContentLengthLong(long len) {
+    if (target == null) {
+      declaredLength = len;
+    } else if (!compressed) {
+      super.setContentLengthLong(len);
+    }
+  }
+
+  @Override
+  public void setHeader(String name, String value) {
+    if ("Content-Length".equalsIgnoreCase(name)) {
+      setContentLengthLong(value == null ? -1 : Long.parseLong(value.trim()));
+    } else {
+      super.setHeader(name, value);
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    if (writer != null) {
+      writer.flush();
+    }
+    body.flush();
+    super.flushBuffer();
+  }
+
+  @Override
+  public void resetBuffer() {
+    super.resetBuffer();
+    buffered = 0;
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    buffered = 0;
+    declaredLength = -1;
+  }
+
+  @Override
+  public void sendError(int sc, String msg) throws IOException {
+    discard();
+    super.sendError(sc, msg);
+  }
+
+  @Override
+  public void sendError(int sc) throws IOException {
+    discard();
+    super.sendError(sc);
+  }
+
+  @Override
+  public void sendRedirect(String location) throws IOException {
+    discard();
+    super.sendRedirect(location);
+  }
+
+  /**
+   * Completes the body: writes buffered bytes uncompressed, or finishes the compressor. Later calls
+   * do nothing.
+   *
+   * @throws IOException if writing to the underlying response fails
+   */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    if (writer != null) {
+      writer.flush();
+    }
+    finished = true;
+    if (target == null) {
+      if (buffered == 0) {
+        return; // kein Body, z.B. 304 oder HEAD
+      }
+      if (declaredLength < 0) {
+        declaredLength = buffered;
+      }
+      decide(false);
+    } else if (compressed) {
+      // Schreibt den Abschluss des Kompressors und gibt dessen nativen Speicher frei
+      target.close();
+    }
+  }
+
+  /** Drops the buffered body of a response that is replaced by an error page or redirect. */
+  private void discard() {
+    if (target == null) {
+      buffered = 0;
+      finished = true;
+    }
+  }
+
+  private void write(byte[] bytes, int offset, int length) throws IOException {
+    if (finished) {
+      throw new IOException("Response has already been completed");
+    }
+    if (target == null) {
+      if (declaredLength < 0 && buffered + length < minSize) {
+        if (buffer == null) {
+          buffer = new byte[minSize];
+        }
+        System.arraycopy(bytes, offset, buffer, buffered, length);
+        buffered += length;
+        return;
+      }
+      decide(declaredLength < 0 || declaredLength >= minSize);
+    }
+    target.write(bytes, offset, length);
+  }
+
+  private void flush() throws IOException {
+    if (finished) {
+      return;
+    }
+    // Ein Flush vor Erreichen der Schwelle sendet den bisherigen Body unkomprimiert
+    if (target == null) {
+      decide(declaredLength >= minSize);
+    }
+    target.flush();
+  }
+
+  /** Selects the target stream and writes the bytes buffered so far to it. */
+  private void decide(boolean large) throws IOException {
+    HttpServletResponse response = (HttpServletResponse) getResponse();
+    boolean compressible =
+        isCompressibleType(getContentType()) && getHeader("Content-Encoding") == null;
+    if (compressible) {
+      // Die Antwort hängt von Accept-Encoding ab, auch wenn sie diesmal klein ist
+      response.addHeader("Vary", "Accept-Encoding");
+    }
+    out = response.getOutputStream();
+    if (compressible && large && !response.isCommitted()) {
+      response.setHeader("Content-Encoding", encoding);
+      String etag = response.getHeader("ETag");
+      if (etag != null && etag.startsWith("\"")) {
+        response.setHeader("ETag", "W/" + etag);
+      }
+      target =
+          CompressionFilter.GZIP.equals(encoding)
+              ? new GZIPOutputStream(out, COMPRESSOR_BUFFER_SIZE, true)
+              : new DeflaterOutputStream(out, true);
+      compressed = true;
+    } else {
+      if (declaredLength >= 0) {
+        response.setContentLengthLong(declaredLength);
+      }
+      target = out;
+    }
+    if (buffered > 0) {
+      target.write(buffer, 0, buffered);
+    }
+    buffer = null;
+    buffered = 0;
+  }
+
+  private static boolean isCompressibleType(String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    String type = contentType.toLowerCase(Locale.ROOT);
+    int parameters = type.indexOf(';');
+    if (parameters >= 0) {
+      type = type.substring(0, parameters).trim();
+    }
+    return type.startsWith("text/") && !type.equals(WeatherEventHub.MEDIA_TYPE)
+        || type.endsWith("/xml")
+        || type.endsWith("+xml")
+        || type.endsWith("/json")
+        || type.endsWith("+json");
+  }
+
+  /** The stream handed to the servlet; all writes go through the wrapper. */
+  private final class BodyStream extends ServletOutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      CompressingResponseWrapper.this.write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      CompressingResponseWrapper.this.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      CompressingResponseWrapper.this.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      finish();
+    }
+
+    @Override
+    public boolean isReady() {
+      return out == null || out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      throw new UnsupportedOperationException("Non-blocking output is not supported");
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compresses responses and decompresses request bodies with {@code gzip} or {@code deflate}.
+ *
+ * <p>Responses are compressed if the client accepts one of the encodings in {@code Accept-Encoding}
+ * (gzip is preferred), the content type is text, XML or JSON, and the body is at least {@code
+ * minResponseSize} bytes long (init parameter, default {@value #DEFAULT_MIN_RESPONSE_SIZE}).
+ * Smaller bodies are sent unchanged with a {@code Content-Length}, so single readings do not pay
+ * for a compressor. Compression is streaming: only the first {@code minResponseSize} bytes are
+ * buffered to make the decision, and every flush by the servlet is passed on as a sync flush of the
+ * compressor. See {@link CompressingResponseWrapper}.
+ *
+ * <p>Request bodies sent with {@code Content-Encoding: gzip} or {@code deflate} are decompressed
+ * while the servlet reads them. The decompressed size is limited by {@code maxRequestSize} (init
+ * parameter, default {@value #DEFAULT_MAX_REQUEST_SIZE} bytes) to guard against compression bombs;
+ * other encodings are answered with 415 (Unsupported Media Type).
+ *
+ * <p>Requests accepting {@code text/event-stream} are passed through unchanged: event streams are
+ * written with non-blocking I/O and every event has to reach the client at once (see {@link
+ * WeatherStreamServlet}).
+ *
+ * <p>The filter supports asynchronous requests: a response completed through its {@link
+ * jakarta.servlet.AsyncContext} is finished (compressor trailer written) before the container
+ * closes it.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public final class CompressionFilter extends HttpFilter {
+
+  /** Default smallest response body that is compressed, in bytes. */
+  static final int DEFAULT_MIN_RESPONSE_SIZE = 1024;
+
+  /** Default largest decompressed request body, in bytes. */
+  static final long DEFAULT_MAX_REQUEST_SIZE = 16L * 1024 * 1024;
+
+  /** The {@code gzip} content coding. */
+  static final String GZIP = "gzip";
+
+  /** The {@code deflate} content coding (zlib format). */
+  static final String DEFLATE = "deflate";
+
+  private static final Logger logger = LogManager.getLogger(CompressionFilter.class);
+  private int minResponseSize = DEFAULT_MIN_RESPONSE_SIZE;
+  private long maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+
+  /** Default constructor, used by the servlet container. */
+  public CompressionFilter() {
+    // Werte aus den Init-Parametern, siehe init()
+  }
+
+  /**
+   * Constructor for initializing the filter with explicit limits.
+   *
+   * @param minResponseSize the smallest response body that is compressed, in bytes
+   * @param maxRequestSize the largest decompressed request body, in bytes
+   */
+  public CompressionFilter(int minResponseSize, long maxRequestSize) {
+    if (minResponseSize < 0 || maxRequestSize < 0) {
+      throw new IllegalArgumentException("Sizes must not be negative");
+    }
+    this.minResponseSize = minResponseSize;
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  /**
+   * Reads the optional init parameters {@code minResponseSize} and {@code maxRequestSize}.
+   *
+   * @throws ServletException if a parameter is not a non-negative number
+   */
+  @Override
+  public void init() throws ServletException {
+    String configuredMin = getInitParameter("minResponseSize");
+    String configuredMax = getInitParameter("maxRequestSize");
+    try {
+      if (configuredMin != null) {
+        minResponseSize = Integer.parseInt(configuredMin);
+      }
+      if (configuredMax != null) {
+        maxRequestSize = Long.parseLong(configuredMax);
+      }
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid compression size parameter", e);
+    }
+    if (minResponseSize < 0 || maxRequestSize < 0) {
+      throw new ServletException("Compression size parameters must not be negative");
+    }
+  }
+
+  /**
+   * Wraps the request if its body is compressed and the response if the client accepts a compressed
+   * one, then finishes the compressed response unless it was completed asynchronously.
+   *
+   * @param req the request
+   * @param resp the response
+   * @param chain the remaining filter chain
+   * @throws IOException if an I/O error occurs
+   * @throws ServletException if the chain fails
+   */
+  @Override
+  protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+      throws IOException, ServletException {
+    String requestEncoding = contentCoding(req.getHeader("Content-Encoding"));
+    if (requestEncoding != null && !isSupported(requestEncoding)) {
+      logger.warn("Rejected request body with Content-Encoding {}", requestEncoding);
+      resp.setHeader("Accept-Encoding", GZIP + ", " + DEFLATE);
+      resp.sendError(
+          HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+          "Unsupported Content-Encoding: " + requestEncoding);
+      return;
+    }
+
+    String responseEncoding = negotiate(req.getHeader("Accept-Encoding"));
+    if (responseEncoding != null && isEventStream(req.getHeader("Accept"))) {
+      // Event-Streams schreiben nicht blockierend und müssen jedes Ereignis sofort zustellen
+      responseEncoding = null;
+    }
+    CompressingResponseWrapper compressing =
+        responseEncoding == null
+            ? null
+            : new CompressingResponseWrapper(resp, responseEncoding, minResponseSize);
+    if (requestEncoding == null && compressing == null) {
+      chain.doFilter(req, resp);
+      return;
+    }
+
+    CompressionRequestWrapper wrappedRequest =
+        new CompressionRequestWrapper(req, requestEncoding, maxRequestSize, compressing);
+    HttpServletResponse wrappedResponse = compressing == null ? resp : compressing;
+    chain.doFilter(wrappedRequest, wrappedResponse);
+    // Asynchrone Antworten werden beim complete() des AsyncContext abgeschlossen
+    if (compressing != null && !wrappedRequest.isAsyncStarted()) {
+      compressing.finish();
+    }
+  }
+
+  /**
+   * Chooses the response encoding from an {@code Accept-Encoding} header.
+   *
+   * @param acceptEncoding the header, or null
+   * @return {@value #GZIP}, {@value #DEFLATE} or null if the client accepts neither
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isBlank()) {
+      return null;
+    }
+    double gzip = -1;
+    double deflate = -1;
+    double any = -1;
+    for (String element : acceptEncoding.split(",")) {
+      int parameters = element.indexOf(';');
+      String coding =
+          (parameters < 0 ? element : element.substring(0, parameters))
+              .trim()
+              .toLowerCase(Locale.ROOT);
+      double quality = parameters < 0 ? 1 : quality(element.substring(parameters + 1));
+      if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+        gzip = Math.max(gzip, quality);
+      } else if (coding.equals(DEFLATE)) {
+        deflate = Math.max(deflate, quality);
+      } else if (coding.equals("*")) {
+        any = quality;
+      }
+    }
+    // Nicht ausdrücklich genannte Kodierungen erhalten den Wert von "*"
+    gzip = gzip < 0 ? any : gzip;
+    deflate = deflate < 0 ? any : deflate;
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    }
+    return deflate > 0 ? DEFLATE : null;
+  }
+
+  private static double quality(String parameters) {
+    for (String parameter : parameters.split(";")) {
+      String trimmed = parameter.trim();
+      if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+        try {
+          return Math.max(0, Math.min(1, Double.parseDouble(trimmed.substring(2))));
+        } catch (NumberFormatException e) {
+          return 0; // ungültige Angabe wie "nicht akzeptabel" behandeln
+        }
+      }
+    }
+    return 1;
+  }
+
+  /** Whether the client asks for Server-Sent Events. */
+  private static boolean isEventStream(String accept) {
+    return accept != null && accept.toLowerCase(Locale.ROOT).contains(WeatherEventHub.MEDIA_TYPE);
+  }
+
+  /** The content coding of a request body, or null for none or {@code identity}. */
+  private static String contentCoding(String contentEncoding) {
+    if (contentEncoding == null) {
+      return null;
+    }
+    String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+    return coding.isEmpty() || coding.equals("identity") ? null : coding;
+  }
+
+  private static boolean isSupported(String coding) {
+    return coding.equals(GZIP) || coding.equals("x-gzip") || coding.equals(DEFLATE);
+  }
+}
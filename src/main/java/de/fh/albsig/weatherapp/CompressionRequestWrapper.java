@@ -0,0 +1,271 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Request wrapper used by {@link CompressionFilter}.
+ *
+ * <p>If the body has a content coding, {@link #getInputStream()} and {@link #getReader()} return
+ * the decompressed body, and the {@code Content-Encoding} and {@code Content-Length} headers are
+ * hidden from the servlet. Reading more than {@code maxSize} decompressed bytes fails with an
+ * {@link IOException}.
+ *
+ * <p>If the response is compressed, an {@link AsyncContext} started through this request finishes
+ * the {@link CompressingResponseWrapper} before it completes the request, so the compressor trailer
+ * is written while the response is still open.
+ */
+class CompressionRequestWrapper extends HttpServletRequestWrapper {
+
+  private static final Logger logger = LogManager.getLogger(CompressionRequestWrapper.class);
+  private final String encoding;
+  private final long maxSize;
+  private final CompressingResponseWrapper response;
+  private ServletInputStream inputStream;
+  private BufferedReader reader;
+
+  /**
+   * Wraps a request.
+   *
+   * @param request the request to wrap
+   * @param encoding the content coding of the body, or null if it is not compressed
+   * @param maxSize the largest decompressed body, in bytes
+   * @param response the compressing response to finish on asynchronous completion, or null
+   */
+  CompressionRequestWrapper(
+      HttpServletRequest request,
+      String encoding,
+      long maxSize,
+      CompressingResponseWrapper response) {
+    super(request);
+    this.encoding = encoding;
+    this.maxSize = maxSize;
+    this.response = response;
+  }
+
+  @Override
+  public String getHeader(String name) {
+    if (encoding != null
+        && ("Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name))) {
+      return null;
+    }
+    return super.getHeader(name);
+  }
+
+  @Override
+  public int getContentLength() {
+    return encoding == null ? super.getContentLength() : -1;
+  }
+
+  @Override
+  public long getContentLengthLong() {
+    return encoding == null ? super.getContentLengthLong() : -1;
+  }
+
+  @Override
+  public ServletInputStream getInputStream() throws IOException {
+    if (encoding == null) {
+      return super.getInputStream();
+    }
+    if (reader != null) {
+      throw new IllegalStateException("getReader() has already been called");
+    }
+    if (inputStream == null) {
+      ServletInputStream raw = super.getInputStream();
+      InputStream inflating =
+          CompressionFilter.DEFLATE.equals(encoding)
+              ? new InflaterInputStream(raw)
+              : new GZIPInputStream(raw);
+      inputStream = new InflatedStream(raw, inflating, maxSize);
+    }
+    return inputStream;
+  }
+
+  @Override
+  public BufferedReader getReader() throws IOException {
+    if (encoding == null) {
+      return super.getReader();
+    }
+    if (reader == null) {
+      if (inputStream != null) {
+        throw new IllegalStateException("getInputStream() has already been called");
+      }
+      String characterEncoding = getCharacterEncoding();
+      Charset charset =
+          characterEncoding == null
+              ? StandardCharsets.ISO_8859_1
+              : Charset.forName(characterEncoding);
+      reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+    return reader;
+  }
+
+  @Override
+  public AsyncContext startAsync() {
+    return finishing(super.startAsync());
+  }
+
+  @Override
+  public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+    return finishing(super.startAsync(servletRequest, servletResponse));
+  }
+
+  private AsyncContext finishing(AsyncContext context) {
+    return response == null ? context : new FinishingAsyncContext(context, response);
+  }
+
+  /** Decompressed body with a size limit. */
+  private static final class InflatedStream extends ServletInputStream {
+    private final ServletInputStream raw;
+    private final InputStream inflating;
+    private final long maxSize;
+    private long read;
+    private boolean finished;
+
+    private InflatedStream(ServletInputStream raw, InputStream inflating, long maxSize) {
+      this.raw = raw;
+      this.inflating = inflating;
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int count = inflating.read(b, off, len);
+      if (count < 0) {
+        finished = true;
+        return -1;
+      }
+      read += count;
+      if (read > maxSize) {
+        throw new IOException("Decompressed request body exceeds " + maxSize + " bytes");
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      inflating.close();
+    }
+
+    @Override
+    public boolean isFinished() {
+      return finished;
+    }
+
+    @Override
+    public boolean isReady() {
+      return raw.isReady();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      throw new UnsupportedOperationException("Non-blocking input is not supported");
+    }
+  }
+
+  /** Finishes the compressed response before completing the asynchronous request. */
+  private static final class FinishingAsyncContext implements AsyncContext {
+    private final AsyncContext delegate;
+    private final CompressingResponseWrapper response;
+
+    private FinishingAsyncContext(AsyncContext delegate, CompressingResponseWrapper response) {
+      this.delegate = delegate;
+      this.response = response;
+    }
+
+    @Override
+    public void complete() {
+      try {
+        response.finish();
+      } catch (IOException e) {
+        logger.debug("Could not finish the compressed response", e);
+      }
+      delegate.complete();
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+      return delegate.getRequest();
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+      return delegate.getResponse();
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+      return delegate.hasOriginalRequestAndResponse();
+    }
+
+    @Override
+    public void dispatch() {
+      delegate.dispatch();
+    }
+
+    @Override
+    public void dispatch(String path) {
+      delegate.dispatch(path);
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+      delegate.dispatch(context, path);
+    }
+
+    @Override
+    public void start(Runnable run) {
+      delegate.start(run);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+      delegate.addListener(listener);
+    }
+
+    @Override
+    public void addListener(
+        AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+      delegate.addListener(listener, servletRequest, servletResponse);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+      return delegate.createListener(clazz);
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+      delegate.setTimeout(timeout);
+    }
+
+    @Override
+    public long getTimeout() {
+      return delegate.getTimeout();
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on the number of requests running at the same time that adapts to the observed latency by
+ * additive increase and multiplicative decrease (AIMD), like TCP congestion control.
+ *
+ * <p>A request finishing within the latency threshold while the limit is at least half used raises
+ * the limit by {@code 1 / limit}, i.e. by about one per limit's worth of requests. A request taking
+ * longer lowers it by {@value #BACKOFF_RATIO}, at most once per round: requests admitted before the
+ * last decrease do not lower it again, so a burst of slow requests that were already running does
+ * not collapse the limit to its minimum. Requests over the limit are rejected immediately instead
+ * of queueing, so a slow backend is not buried under work it cannot finish.
+ *
+ * <p>All state is held in atomics; neither {@link #tryAcquire()} nor {@link #release(long)} locks.
+ */
+public final class ConcurrencyLimiter {
+
+  /** Default latency above which a request counts as a sign of overload. */
+  public static final Duration DEFAULT_LATENCY_THRESHOLD = Duration.ofMillis(250);
+
+  /** Factor applied to the limit when a request exceeds the latency threshold. */
+  static final double BACKOFF_RATIO = 0.9;
+
+  private final int maxLimit;
+  private final long thresholdNanos;
+  private final LongSupplier clock;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong limitBits;
+  private final AtomicLong lastDecrease;
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Creates a limiter measuring time with {@link System#nanoTime()}.
+   *
+   * @param initialLimit the limit to start with
+   * @param maxLimit the highest the limit may grow to
+   * @param latencyThreshold the latency above which the limit is lowered
+   */
+  public ConcurrencyLimiter(int initialLimit, int maxLimit, Duration latencyThreshold) {
+    this(initialLimit, maxLimit, latencyThreshold, System::nanoTime);
+  }
+
+  /**
+   * Creates a limiter with a custom clock.
+   *
+   * @param initialLimit the limit to start with, between 1 and {@code maxLimit}
+   * @param maxLimit the highest the limit may grow to
+   * @param latencyThreshold the latency above which the limit is lowered
+   * @param clock supplies the current time in nanoseconds
+   * @throws IllegalArgumentException if a limit or the threshold is out of range
+   */
+  ConcurrencyLimiter(
+      int initialLimit, int maxLimit, Duration latencyThreshold, LongSupplier clock) {
+    if (initialLimit < 1 || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("initialLimit must be between 1 and maxLimit");
+    }
+    if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+      throw new IllegalArgumentException("latencyThreshold must be positive");
+    }
+    this.maxLimit = maxLimit;
+    this.thresholdNanos = latencyThreshold.toNanos();
+    this.clock = clock;
+    this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    this.lastDecrease = new AtomicLong(clock.getAsLong());
+  }
+
+  /**
+   * Admits a request if fewer requests than the current limit are running. Every successful call
+   * must be followed by exactly one {@link #release(long)}.
+   *
+   * @return true if the request may run, false if it must be rejected
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= getLimit()) {
+        rejected.increment();
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Marks an admitted request as finished and adjusts the limit to its latency.
+   *
+   * @param startedNanos the time the request was admitted, from the same clock as the limiter
+   */
+  public void release(long startedNanos) {
+    int running = inFlight.getAndDecrement();
+    long now = clock.getAsLong();
+    if (now - startedNanos > thresholdNanos) {
+      long last = lastDecrease.get();
+      // Nur einmal pro Runde verringern: vor der letzten Senkung zugelassene Requests zählen nicht
+      if (startedNanos - last > 0 && lastDecrease.compareAndSet(last, now)) {
+        update(limit -> Math.max(1, limit * BACKOFF_RATIO));
+      }
+    } else if (running * 2 >= getLimit()) {
+      update(limit -> Math.min(maxLimit, limit + 1 / limit));
+    }
+  }
+
+  /**
+   * Returns the current limit.
+   *
+   * @return the number of requests that may run at the same time
+   */
+  public int getLimit() {
+    return (int) Double.longBitsToDouble(limitBits.get());
+  }
+
+  /**
+   * Returns the number of admitted requests that have not been released yet.
+   *
+   * @return the number of running requests
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the number of requests rejected so far.
+   *
+   * @return the number of rejected requests
+   */
+  public long rejectedCount() {
+    return rejected.sum();
+  }
+
+  private void update(DoubleUnaryOperator change) {
+    while (true) {
+      long bits = limitBits.get();
+      long updated = Double.doubleToLongBits(change.applyAsDouble(Double.longBitsToDouble(bits)));
+      if (bits == updated || limitBits.compareAndSet(bits, updated)) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of fully encoded response bodies of the latest reading per location.
+ *
+ * <p>Unlike the latest-reading cache of {@link WeatherRepository}, which still requires every
+ * response to be marshalled, this cache keeps the bytes as they are sent, so a hit skips encoding
+ * entirely. Each location can hold several representations, e.g. XML or a compressed variant,
+ * identified by a key chosen by the caller. All representations of a location belong to the same
+ * {@link WeatherVersion}.
+ *
+ * <p>Registered as {@link WeatherRepository.InvalidationListener}, the cache drops a location as
+ * soon as a write through the repository has committed. Like {@link ExpiringCache}, bodies encoded
+ * from data loaded before a concurrent write are not stored: take {@link #generation()} before
+ * loading the reading and pass it to {@link #put(String, String, WeatherVersion, byte[], long)}.
+ */
+public class EncodedResponseCache implements WeatherRepository.InvalidationListener {
+
+  private final ExpiringCache<String, Variants> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a cache.
+   *
+   * @param maximumSize the maximum number of locations
+   * @param ttl how long the bodies of a location may be served
+   */
+  public EncodedResponseCache(int maximumSize, Duration ttl) {
+    this.entries = new ExpiringCache<>(maximumSize, ttl);
+  }
+
+  /**
+   * Returns the current invalidation generation, to be captured before loading a reading.
+   *
+   * @return the current generation
+   */
+  public long generation() {
+    return entries.generation();
+  }
+
+  /**
+   * Returns the encoded body of a location in the given representation.
+   *
+   * @param location the location
+   * @param representation the representation key, e.g. the media type
+   * @return the cached body, or null if it is absent or expired
+   */
+  public Body get(String location, String representation) {
+    Variants variants = entries.getIfPresent(location);
+    byte[] bytes = variants == null ? null : variants.bodies.get(representation);
+    if (bytes == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return new Body(variants.version, bytes);
+  }
+
+  /**
+   * Returns the version of the cached bodies of a location.
+   *
+   * @param location the location
+   * @return the version, or null if nothing is cached for the location
+   */
+  public WeatherVersion version(String location) {
+    Variants variants = entries.getIfPresent(location);
+    return variants == null ? null : variants.version;
+  }
+
+  /**
+   * Stores an encoded body unless the location has been invalidated since {@code stamp} was taken.
+   *
+   * @param location the location
+   * @param representation the representation key
+   * @param version the version of the encoded reading
+   * @param bytes the encoded body, which must not be modified afterwards
+   * @param stamp the generation captured before the reading was loaded
+   * @return the body, whether or not it has been stored
+   */
+  public Body put(
+      String location, String representation, WeatherVersion version, byte[] bytes, long stamp) {
+    Variants variants = entries.getIfPresent(location);
+    if (variants != null && variants.version.equals(version)) {
+      // Weitere Darstellung desselben Messwerts
+      variants.bodies.put(representation, bytes);
+    } else {
+      variants = new Variants(version);
+      variants.bodies.put(representation, bytes);
+      entries.putIfUnchanged(location, variants, stamp);
+    }
+    return new Body(version, bytes);
+  }
+
+  /**
+   * Drops the bodies of the written location and of all locations whose reading was updated.
+   *
+   * @param location the written location, or null
+   * @param updatedIds IDs of updated rows, possibly empty
+   */
+  @Override
+  public void invalidated(String location, Set<Long> updatedIds) {
+    if (location != null) {
+      entries.invalidate(location);
+    }
+    if (!updatedIds.isEmpty()) {
+      entries.invalidateIf(variants -> updatedIds.contains(variants.version.id()));
+    }
+  }
+
+  /** Drops all bodies. */
+  @Override
+  public void invalidatedAll() {
+    entries.invalidateAll();
+  }
+
+  /**
+   * Returns the number of {@link #get(String, String)} calls that found a body.
+   *
+   * @return the hit count
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of {@link #get(String, String)} calls that found no body.
+   *
+   * @return the miss count
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of cached locations.
+   *
+   * @return the number of locations
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * An encoded body together with the version of the reading it was encoded from. The bytes are
+   * shared with the cache, so they are only handed out by writing them.
+   */
+  public static final class Body {
+    private final WeatherVersion version;
+    private final byte[] bytes;
+
+    private Body(WeatherVersion version, byte[] bytes) {
+      this.version = version;
+      this.bytes = bytes;
+    }
+
+    /**
+     * Returns the version of the reading.
+     *
+     * @return the version
+     */
+    public WeatherVersion version() {
+      return version;
+    }
+
+    /**
+     * Returns the length of the encoded body.
+     *
+     * @return the number of bytes
+     */
+    public int length() {
+      return bytes.length;
+    }
+
+    /**
+     * Writes the encoded body.
+     *
+     * @param out the target stream, which is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+      out.write(bytes);
+    }
+  }
+
+  /** The representations of one location, all encoded from the same reading. */
+  private static final class Variants {
+    private final WeatherVersion version;
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>(4);
+
+    private Variants(WeatherVersion version) {
+      this.version = version;
+    }
+  }
+}
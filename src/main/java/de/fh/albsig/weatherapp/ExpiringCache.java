@@ -0,0 +1,262 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded in-process cache with time-to-live expiry and write invalidation.
+ *
+ * <p>Reads are lock-free: entries live in a {@link ConcurrentHashMap} and a hit only updates the
+ * entry's access time. When the cache grows beyond its maximum size, a single thread evicts expired
+ * entries and then the least recently used ones until the cache is back at 90% of its capacity, so
+ * the cost of eviction is spread over many inserts.
+ *
+ * <p>To keep readers from re-inserting a value that was loaded before a concurrent write, every
+ * invalidation bumps a generation counter. {@link #get(Object, Function)} only stores a loaded
+ * value if no invalidation happened while it was being loaded.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class ExpiringCache<K, V> {
+
+  private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final int maximumSize;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicBoolean evicting = new AtomicBoolean();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a cache using {@link System#nanoTime()} as clock.
+   *
+   * @param maximumSize the maximum number of entries
+   * @param ttl how long an entry may be served after it was stored
+   */
+  public ExpiringCache(int maximumSize, Duration ttl) {
+    this(maximumSize, ttl, System::nanoTime);
+  }
+
+  /**
+   * Creates a cache with a custom clock.
+   *
+   * @param maximumSize the maximum number of entries
+   * @param ttl how long an entry may be served after it was stored
+   * @param nanoClock the clock, in nanoseconds
+   */
+  ExpiringCache(int maximumSize, Duration ttl, LongSupplier nanoClock) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    this.maximumSize = maximumSize;
+    this.ttlNanos = ttl.toNanos();
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Returns the cached value for the key, or null if it is absent or expired.
+   *
+   * @param key the key
+   * @return the cached value, or null
+   */
+  public V getIfPresent(K key) {
+    Entry<V> entry = entries.get(key);
+    long now = nanoClock.getAsLong();
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    if (now - entry.expiresAt >= 0) {
+      if (entries.remove(key, entry)) {
+        evictions.increment();
+      }
+      misses.increment();
+      return null;
+    }
+    entry.accessedAt = now;
+    hits.increment();
+    return entry.value;
+  }
+
+  /**
+   * Returns the cached value for the key, loading and storing it on a miss.
+   *
+   * <p>Concurrent misses for the same key may load the value more than once; a null result is not
+   * cached. The loaded value is only stored if the key was not invalidated during loading.
+   *
+   * @param key the key
+   * @param loader computes the value on a miss
+   * @return the cached or loaded value, or null if the loader returned null
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    V value = getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+    long stamp = generation.get();
+    value = loader.apply(key);
+    if (value != null) {
+      putIfUnchanged(key, value, stamp);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the current invalidation generation. Capture it before loading a value and pass it to
+   * {@link #putIfUnchanged(Object, Object, long)}.
+   *
+   * @return the current generation
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Stores a value unless an invalidation happened since {@code stamp} was taken.
+   *
+   * @param key the key
+   * @param value the value to store
+   * @param stamp the generation captured before the value was loaded
+   * @return true if the value has been stored
+   */
+  public boolean putIfUnchanged(K key, V value, long stamp) {
+    long now = nanoClock.getAsLong();
+    Entry<V> entry = new Entry<>(value, now + ttlNanos, now);
+    entries.put(key, entry);
+    // Prüfung nach dem Einfügen: eine parallele Invalidierung entfernt den Eintrag entweder selbst
+    // oder wird hier anhand der geänderten Generation erkannt.
+    if (generation.get() != stamp) {
+      entries.remove(key, entry);
+      return false;
+    }
+    if (entries.size() > maximumSize) {
+      evict();
+    }
+    return true;
+  }
+
+  /**
+   * Removes the entry for the key.
+   *
+   * @param key the key
+   */
+  public void invalidate(K key) {
+    generation.incrementAndGet();
+    entries.remove(key);
+  }
+
+  /**
+   * Removes all entries whose value matches the predicate. This scans the whole cache and is meant
+   * for rare writes whose key is not known.
+   *
+   * @param predicate selects the values to remove
+   */
+  public void invalidateIf(Predicate<? super V> predicate) {
+    generation.incrementAndGet();
+    entries.entrySet().removeIf(e -> predicate.test(e.getValue().value));
+  }
+
+  /** Removes all entries. */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of entries, including expired ones that have not been removed yet.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups that found a live entry.
+   *
+   * @return the hit count
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that found no live entry.
+   *
+   * @return the miss count
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of entries removed because they expired or the cache was full. Invalidations
+   * are not counted.
+   *
+   * @return the eviction count
+   */
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  private void evict() {
+    if (!evicting.compareAndSet(false, true)) {
+      return; // another thread is already evicting
+    }
+    try {
+      long now = nanoClock.getAsLong();
+      List<Candidate<K, V>> live = new ArrayList<>(entries.size());
+      for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+        Entry<V> entry = e.getValue();
+        if (now - entry.expiresAt >= 0) {
+          if (entries.remove(e.getKey(), entry)) {
+            evictions.increment();
+          }
+        } else {
+          // Zugriffszeit einfrieren, damit sich die Sortierreihenfolge nicht mehr ändert
+          live.add(new Candidate<>(e.getKey(), entry, entry.accessedAt));
+        }
+      }
+      int target = Math.max(1, maximumSize * 9 / 10);
+      if (live.size() <= target) {
+        return;
+      }
+      live.sort(Comparator.comparingLong(Candidate::accessedAt));
+      for (int i = 0; i < live.size() - target; i++) {
+        Candidate<K, V> candidate = live.get(i);
+        if (entries.remove(candidate.key(), candidate.entry())) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  private record Candidate<K, V>(K key, Entry<V> entry, long accessedAt) {}
+
+  private static final class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+    private volatile long accessedAt;
+
+    private Entry(V value, long expiresAt, long accessedAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.accessedAt = accessedAt;
+    }
+  }
+}
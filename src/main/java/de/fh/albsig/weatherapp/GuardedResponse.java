@@ -0,0 +1,298 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Response wrapper handed to an asynchronous handler, so that it cannot touch the response once the
+ * request has been completed by someone else.
+ *
+ * <p>The handler, the timeout listener and the rejection path of {@link AsyncDispatcher} race to
+ * complete the request; only the one that wins {@link #finish()} may write to the response and
+ * complete it. After that, the wrapper ignores status and header changes and fails writes with an
+ * {@link IOException}, so a handler that is still running after a timeout never writes into a
+ * response the container has already recycled. {@link #finish()} and every write share one lock: a
+ * timeout waits for a write that is in progress instead of interleaving with it.
+ */
+final class GuardedResponse extends HttpServletResponseWrapper {
+
+  private final Object lock = new Object();
+  private boolean finished;
+  private ServletOutputStream out;
+  private PrintWriter writer;
+
+  /**
+   * Wraps a response.
+   *
+   * @param response the response of the asynchronous request
+   */
+  GuardedResponse(HttpServletResponse response) {
+    super(response);
+  }
+
+  /**
+   * Claims the response for the caller; all later writes through the wrapper fail.
+   *
+   * @return true for the first caller, which must complete the request, false for all others
+   */
+  boolean finish() {
+    synchronized (lock) {
+      if (finished) {
+        return false;
+      }
+      finished = true;
+      return true;
+    }
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    synchronized (lock) {
+      checkOpen();
+      if (out == null) {
+        out = new GuardedOutputStream(super.getOutputStream());
+      }
+      return out;
+    }
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    synchronized (lock) {
+      checkOpen();
+      if (writer == null) {
+        writer = new PrintWriter(new GuardedWriter(super.getWriter()));
+      }
+      return writer;
+    }
+  }
+
+  @Override
+  public void sendError(int sc, String msg) throws IOException {
+    synchronized (lock) {
+      checkOpen();
+      super.sendError(sc, msg);
+    }
+  }
+
+  @Override
+  public void sendError(int sc) throws IOException {
+    synchronized (lock) {
+      checkOpen();
+      super.sendError(sc);
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    synchronized (lock) {
+      checkOpen();
+      super.flushBuffer();
+    }
+  }
+
+  @Override
+  public void reset() {
+    synchronized (lock) {
+      if (!finished) {
+        super.reset();
+      }
+    }
+  }
+
+  @Override
+  public void resetBuffer() {
+    synchronized (lock) {
+      if (!finished) {
+        super.resetBuffer();
+      }
+    }
+  }
+
+  @Override
+  public void setStatus(int sc) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setStatus(sc);
+      }
+    }
+  }
+
+  @Override
+  public void setHeader(String name, String value) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setHeader(name, value);
+      }
+    }
+  }
+
+  @Override
+  public void addHeader(String name, String value) {
+    synchronized (lock) {
+      if (!finished) {
+        super.addHeader(name, value);
+      }
+    }
+  }
+
+  @Override
+  public void setDateHeader(String name, long date) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setDateHeader(name, date);
+      }
+    }
+  }
+
+  @Override
+  public void setIntHeader(String name, int value) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setIntHeader(name, value);
+      }
+    }
+  }
+
+  @Override
+  public void setContentType(String type) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setContentType(type);
+      }
+    }
+  }
+
+  @Override
+  public void setCharacterEncoding(String charset) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setCharacterEncoding(charset);
+      }
+    }
+  }
+
+  @Override
+  public void setContentLength(int len) {
+    setContentLengthLong(len);
+  }
+
+  @Override
+  public void setContentLengthLong(long len) {
+    synchronized (lock) {
+      if (!finished) {
+        super.setContentLengthLong(len);
+      }
+    }
+  }
+
+  @Override
+  public boolean isCommitted() {
+    synchronized (lock) {
+      return finished || super.isCommitted();
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (finished) {
+      throw new IOException("Response has already been completed");
+    }
+  }
+
+  /** Output stream that stops writing once the response is finished. */
+  private final class GuardedOutputStream extends ServletOutputStream {
+    private final ServletOutputStream target;
+
+    private GuardedOutputStream(ServletOutputStream target) {
+      this.target = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.close();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return target.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      target.setWriteListener(writeListener);
+    }
+  }
+
+  /** Writer that stops writing once the response is finished. */
+  private final class GuardedWriter extends Writer {
+    private final Writer target;
+
+    private GuardedWriter(Writer target) {
+      this.target = target;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.write(cbuf, off, len);
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.write(str, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (lock) {
+        checkOpen();
+        target.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,414 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Optional in-memory hot tier holding recent readings in a compact columnar layout.
+ *
+ * <p>Per location, readings are appended to chunks of primitive arrays: IDs and epoch seconds
+ * ({@code long[]}), temperatures ({@code double[]}) and humidity ({@code byte[]}), i.e. 25 bytes
+ * per reading instead of well over 100 bytes for a {@link WeatherData} entity. The first chunk of a
+ * series holds {@value #FIRST_CHUNK_CAPACITY} readings and each further one twice as many as the
+ * previous, up to {@value #CHUNK_CAPACITY}, so rarely written locations stay small. The heap of all
+ * chunks is limited by a memory budget; when it is exceeded, the oldest chunks of the whole store
+ * are dropped.
+ *
+ * <p>The store is fed by {@link JpaWeatherRepository} after each committed write and only answers a
+ * query if it is known to hold every stored reading of the location the query needs. For that, each
+ * series tracks {@code coveredFrom}: every reading with an epoch second at or after it has been
+ * appended. When a series is created, coverage starts after the newest reading the database holds
+ * at that moment (looked up through the function passed to the constructor). Coverage moves forward
+ * when the oldest chunk is evicted or a reading arrives out of order, and a series is dropped
+ * entirely when its history changes through an update or delete.
+ *
+ * <p>Appends to one location are serialized on its series; readers never lock. A reader sees a
+ * consistent prefix of each chunk because the arrays are written before the chunk's volatile size
+ * is published.
+ */
+public final class HotSeriesStore {
+
+  /** Number of readings in the first chunk of a series. */
+  public static final int FIRST_CHUNK_CAPACITY = 16;
+
+  /** Number of readings in the largest chunks. */
+  public static final int CHUNK_CAPACITY = 4096;
+
+  /** Heap bytes of the arrays per reading (8 + 8 + 8 + 1). */
+  public static final int BYTES_PER_READING = 25;
+
+  /** Heap bytes of the arrays of a chunk of the largest size. */
+  public static final long CHUNK_BYTES = (long) CHUNK_CAPACITY * BYTES_PER_READING;
+
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+  private final Queue<Chunk> allocationOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queuedChunks = new AtomicInteger();
+  private final AtomicInteger liveChunks = new AtomicInteger();
+  private final AtomicLong liveBytes = new AtomicLong();
+  private final long budgetBytes;
+  private final Function<String, LocalDateTime> newestPersisted;
+
+  /**
+   * Creates a hot tier.
+   *
+   * @param budgetBytes the maximum heap used by chunk arrays, at least {@link #CHUNK_BYTES}
+   * @param newestPersisted returns the newest stored timestamp of a location, or null if it has no
+   *     readings; called once whenever a series is created
+   */
+  public HotSeriesStore(long budgetBytes, Function<String, LocalDateTime> newestPersisted) {
+    if (budgetBytes < CHUNK_BYTES) {
+      throw new IllegalArgumentException("budgetBytes must be at least " + CHUNK_BYTES);
+    }
+    this.budgetBytes = budgetBytes;
+    this.newestPersisted = newestPersisted;
+  }
+
+  /**
+   * Appends a newly stored reading. Readings without location, ID or timestamp, and humidity values
+   * outside the byte range, are not stored; the coverage of the location is reduced accordingly.
+   *
+   * @param data the committed reading
+   */
+  public void append(WeatherData data) {
+    String location = data.getLocation();
+    if (location == null) {
+      return;
+    }
+    if (track(location).append(data)) {
+      // Budget erst nach dem Anhängen durchsetzen, ohne dabei die Sperre der Serie zu halten
+      while (liveBytes.get() > budgetBytes) {
+        if (!evictOldestChunk()) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts a series for the location unless one exists. Called before a write is committed, so that
+   * the readings of that write lie within the coverage of the series.
+   *
+   * @param location the location
+   */
+  public void prepare(String location) {
+    if (location != null) {
+      track(location);
+    }
+  }
+
+  /**
+   * Returns the newest reading of a location, or null if the hot tier cannot answer reliably.
+   *
+   * @param location the location
+   * @return the newest reading, or null if unknown
+   */
+  public WeatherData latest(String location) {
+    Series s = series.get(location);
+    return s == null ? null : s.latest();
+  }
+
+  /**
+   * Returns whether the hot tier holds every reading of the location from {@code from} on.
+   *
+   * @param location the location
+   * @param from the start of the range
+   * @return true if a range query starting at {@code from} can be answered
+   */
+  public boolean covers(String location, LocalDateTime from) {
+    Series s = series.get(location);
+    return s != null && s.coveredFrom <= toEpochSecond(from);
+  }
+
+  /**
+   * Aggregates the readings of a location within {@code [from, to)} into buckets, with the same
+   * semantics as {@link WeatherRepository#findHistory}. Only whole-second bounds are supported.
+   *
+   * @param location the location
+   * @param from the inclusive start of the range, a whole second
+   * @param to the exclusive end of the range, a whole second
+   * @param bucketSeconds the bucket size in seconds
+   * @return the non-empty buckets ordered by start, or null if the range is not covered
+   */
+  public List<WeatherBucket> history(
+      String location, LocalDateTime from, LocalDateTime to, long bucketSeconds) {
+    Series s = series.get(location);
+    long fromSecond = toEpochSecond(from);
+    if (s == null || s.coveredFrom > fromSecond) {
+      return null;
+    }
+    return s.history(fromSecond, toEpochSecond(to), bucketSeconds);
+  }
+
+  /**
+   * Drops the series of a location, e.g. after one of its readings was deleted.
+   *
+   * @param location the location
+   */
+  public void invalidate(String location) {
+    Series removed = series.remove(location);
+    if (removed != null) {
+      removed.release();
+    }
+  }
+
+  /** Drops every series, e.g. after the table has been changed without going through the store. */
+  public void clear() {
+    series.keySet().forEach(this::invalidate);
+  }
+
+  /**
+   * Drops every series containing a reading with the given ID, e.g. after it was updated.
+   *
+   * @param id the ID of the changed reading
+   */
+  public void invalidateId(long id) {
+    for (Map.Entry<String, Series> entry : series.entrySet()) {
+      if (entry.getValue().containsId(id) && series.remove(entry.getKey(), entry.getValue())) {
+        entry.getValue().release();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of readings currently held.
+   *
+   * @return the number of readings
+   */
+  public long size() {
+    long total = 0;
+    for (Series s : series.values()) {
+      total += s.size();
+    }
+    return total;
+  }
+
+  /**
+   * Returns the heap occupied by chunk arrays.
+   *
+   * @return the allocated bytes
+   */
+  public long memoryBytes() {
+    return liveBytes.get();
+  }
+
+  private Series track(String location) {
+    Series existing = series.get(location);
+    if (existing != null) {
+      return existing;
+    }
+    // Datenbankabfrage außerhalb von computeIfAbsent, um die Map nicht zu blockieren
+    LocalDateTime newest = newestPersisted.apply(location);
+    long coveredFrom = newest == null ? Long.MIN_VALUE : toEpochSecond(newest) + 1;
+    return series.computeIfAbsent(location, key -> new Series(coveredFrom));
+  }
+
+  private boolean evictOldestChunk() {
+    Chunk oldest;
+    while ((oldest = allocationOrder.poll()) != null) {
+      queuedChunks.decrementAndGet();
+      if (oldest.series.evict(oldest)) {
+        return true;
+      }
+      // bereits freigegebener Chunk einer invalidierten Serie, weiter mit dem nächsten
+    }
+    return false;
+  }
+
+  private Chunk allocate(Series owner, int capacity) {
+    Chunk chunk = new Chunk(owner, capacity);
+    liveChunks.incrementAndGet();
+    liveBytes.addAndGet(chunk.bytes());
+    allocationOrder.add(chunk);
+    // Freigegebene Chunks bleiben bis zur Verdrängung in der Queue; gelegentlich aufräumen,
+    // damit sie dort nicht unbegrenzt Speicher halten.
+    if (queuedChunks.incrementAndGet() > 2 * liveChunks.get() + 16) {
+      allocationOrder.removeIf(c -> c.released);
+      queuedChunks.set(allocationOrder.size());
+    }
+    return chunk;
+  }
+
+  private static long toEpochSecond(LocalDateTime timestamp) {
+    return timestamp.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /** Readings of one location, in timestamp order. */
+  private final class Series {
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile long coveredFrom;
+    private volatile WeatherData last;
+    private boolean released;
+
+    private Series(long coveredFrom) {
+      this.coveredFrom = coveredFrom;
+    }
+
+    synchronized boolean append(WeatherData data) {
+      if (released || data.getId() == null || data.getTimestamp() == null) {
+        return false;
+      }
+      long second = toEpochSecond(data.getTimestamp());
+      WeatherData previous = last;
+      boolean outOfOrder =
+          previous != null && data.getTimestamp().isBefore(previous.getTimestamp());
+      if (outOfOrder
+          || data.getHumidity() < Byte.MIN_VALUE
+          || data.getHumidity() > Byte.MAX_VALUE) {
+        // Lücke in der Serie: Abdeckung erst nach dem neuesten bekannten Zeitpunkt fortsetzen
+        long newest = previous == null ? second : toEpochSecond(previous.getTimestamp());
+        coveredFrom = Math.max(coveredFrom, Math.max(newest, second) + 1);
+        return false;
+      }
+      Chunk[] current = chunks;
+      Chunk tail = current.length == 0 ? null : current[current.length - 1];
+      boolean allocated = false;
+      if (tail == null || tail.size == tail.ids.length) {
+        int capacity =
+            tail == null ? FIRST_CHUNK_CAPACITY : Math.min(CHUNK_CAPACITY, 2 * tail.ids.length);
+        tail = allocate(this, capacity);
+        Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = tail;
+        chunks = grown;
+        allocated = true;
+      }
+      int index = tail.size;
+      tail.ids[index] = data.getId();
+      tail.seconds[index] = second;
+      tail.temperatures[index] = data.getTemperature();
+      tail.humidities[index] = (byte) data.getHumidity();
+      tail.size = index + 1; // volatile write veröffentlicht die Werte für Leser
+      last = new WeatherData(data);
+      return allocated;
+    }
+
+    WeatherData latest() {
+      WeatherData newest = last;
+      if (newest == null || toEpochSecond(newest.getTimestamp()) < coveredFrom) {
+        return null;
+      }
+      return new WeatherData(newest);
+    }
+
+    synchronized boolean evict(Chunk chunk) {
+      if (released || chunk.released) {
+        return false;
+      }
+      Chunk[] current = chunks;
+      int index = Arrays.asList(current).indexOf(chunk);
+      if (index < 0) {
+        return false;
+      }
+      Chunk[] remaining = new Chunk[current.length - 1];
+      System.arraycopy(current, 0, remaining, 0, index);
+      System.arraycopy(current, index + 1, remaining, index, remaining.length - index);
+      // Alles bis einschließlich des verdrängten Chunks ist nicht mehr abgedeckt
+      int size = chunk.size;
+      long lastSecond = size == 0 ? coveredFrom : chunk.seconds[size - 1];
+      coveredFrom = Math.max(coveredFrom, lastSecond + 1);
+      chunks = remaining;
+      chunk.released = true;
+      liveChunks.decrementAndGet();
+      liveBytes.addAndGet(-chunk.bytes());
+      return true;
+    }
+
+    synchronized void release() {
+      released = true;
+      for (Chunk chunk : chunks) {
+        chunk.released = true;
+        liveChunks.decrementAndGet();
+        liveBytes.addAndGet(-chunk.bytes());
+      }
+      chunks = new Chunk[0];
+    }
+
+    boolean containsId(long id) {
+      for (Chunk chunk : chunks) {
+        int size = chunk.size;
+        for (int i = 0; i < size; i++) {
+          if (chunk.ids[i] == id) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    long size() {
+      long total = 0;
+      for (Chunk chunk : chunks) {
+        total += chunk.size;
+      }
+      return total;
+    }
+
+    List<WeatherBucket> history(long fromSecond, long toSecond, long bucketSeconds) {
+      Map<Long, WeatherBucket.Accumulator> buckets = new TreeMap<>();
+      for (Chunk chunk : chunks) {
+        int size = chunk.size;
+        if (size == 0 || chunk.seconds[size - 1] < fromSecond || chunk.seconds[0] >= toSecond) {
+          continue;
+        }
+        int start = lowerBound(chunk.seconds, size, fromSecond);
+        for (int i = start; i < size && chunk.seconds[i] < toSecond; i++) {
+          long bucket = Math.floorDiv(chunk.seconds[i], bucketSeconds);
+          buckets
+              .computeIfAbsent(bucket, key -> new WeatherBucket.Accumulator())
+              .add(chunk.temperatures[i], chunk.humidities[i]);
+        }
+      }
+      List<WeatherBucket> result = new ArrayList<>(buckets.size());
+      buckets.forEach((bucket, acc) -> result.add(acc.toBucket(bucket * bucketSeconds)));
+      return result;
+    }
+  }
+
+  private static int lowerBound(long[] values, int size, long key) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (values[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Fixed-capacity column arrays; only the first {@code size} entries are valid. */
+  private static final class Chunk {
+    private final Series series;
+    private final long[] ids;
+    private final long[] seconds;
+    private final double[] temperatures;
+    private final byte[] humidities;
+    private volatile int size;
+    private volatile boolean released;
+
+    private Chunk(Series series, int capacity) {
+      this.series = series;
+      this.ids = new long[capacity];
+      this.seconds = new long[capacity];
+      this.temperatures = new double[capacity];
+      this.humidities = new byte[capacity];
+    }
+
+    long bytes() {
+      return (long) ids.length * BYTES_PER_READING;
+    }
+  }
+}
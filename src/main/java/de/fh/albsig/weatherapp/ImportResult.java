@@ -0,0 +1,183 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Response of a CSV import: how many rows were read, stored and rejected. The first {@value
+ * #MAX_REPORTED_ERRORS} rejected rows are listed with their line number; if storing failed, the
+ * import stopped there and {@code abortedAt} names the first line that was not stored.
+ *
+ * <pre>{@code
+ * <importResult rows="3" imported="2" rejected="1">
+ *   <error line="3" message="Invalid humidity: wet"/>
+ * </importResult>
+ * }</pre>
+ */
+@XmlRootElement(name = "importResult")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ImportResult {
+
+  /** Maximum number of rejected rows listed individually. */
+  public static final int MAX_REPORTED_ERRORS = 100;
+
+  @XmlAttribute private long rows;
+  @XmlAttribute private long imported;
+  @XmlAttribute private long rejected;
+  @XmlAttribute private Long abortedAt;
+  @XmlAttribute private String abortMessage;
+
+  @XmlElement(name = "error")
+  private List<RowError> errors = new ArrayList<>();
+
+  /**
+   * Returns the number of data rows read, excluding the header.
+   *
+   * @return the number of rows
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * Returns the number of rows that have been stored.
+   *
+   * @return the number of stored rows
+   */
+  public long getImported() {
+    return imported;
+  }
+
+  public void setImported(long imported) {
+    this.imported = imported;
+  }
+
+  /**
+   * Returns the number of invalid rows that have been skipped.
+   *
+   * @return the number of rejected rows
+   */
+  public long getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(long rejected) {
+    this.rejected = rejected;
+  }
+
+  /**
+   * Returns the first line that was not stored because storing failed.
+   *
+   * @return the line number, or null if the import was not aborted
+   */
+  public Long getAbortedAt() {
+    return abortedAt;
+  }
+
+  public void setAbortedAt(Long abortedAt) {
+    this.abortedAt = abortedAt;
+  }
+
+  /**
+   * Returns why the import was aborted.
+   *
+   * @return the message, or null if the import was not aborted
+   */
+  public String getAbortMessage() {
+    return abortMessage;
+  }
+
+  public void setAbortMessage(String abortMessage) {
+    this.abortMessage = abortMessage;
+  }
+
+  public List<RowError> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  public void setErrors(List<RowError> errors) {
+    this.errors = new ArrayList<>(errors);
+  }
+
+  /**
+   * Returns whether storing failed and the import stopped early.
+   *
+   * @return true if the import was aborted
+   */
+  public boolean isAborted() {
+    return abortedAt != null;
+  }
+
+  /**
+   * Counts a rejected row and lists it if fewer than {@value #MAX_REPORTED_ERRORS} are listed.
+   *
+   * @param line the line number the row starts at
+   * @param message the problem
+   */
+  void reject(long line, String message) {
+    rejected++;
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add(new RowError(line, message));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return rows
+        + " rows, "
+        + imported
+        + " imported, "
+        + rejected
+        + " rejected"
+        + (isAborted() ? ", aborted at line " + abortedAt + ": " + abortMessage : "");
+  }
+
+  /** A rejected row. */
+  public static class RowError {
+
+    private long line;
+    private String message;
+
+    /** Creates an empty error, required by JAXB. */
+    public RowError() {}
+
+    /**
+     * Creates an error.
+     *
+     * @param line the line number the row starts at
+     * @param message the problem
+     */
+    public RowError(long line, String message) {
+      this.line = line;
+      this.message = message;
+    }
+
+    @XmlAttribute
+    public long getLine() {
+      return line;
+    }
+
+    public void setLine(long line) {
+      this.line = line;
+    }
+
+    @XmlAttribute
+    public String getMessage() {
+      return message;
+    }
+
+    public void setMessage(String message) {
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,1159 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.Query;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+/**
+ * {@link WeatherRepository} backed by the relational database configured in {@code
+ * persistence.xml}, accessed through JPA/Hibernate.
+ *
+ * <p>Lookups by location are served from an in-process {@link ExpiringCache} of the latest reading
+ * per location. Every write through this repository invalidates the affected entries after its
+ * transaction has committed, so a reading is never returned once its deletion has completed. All
+ * servlets share one repository (see {@link WeatherRepository#shared()}) and therefore one cache.
+ *
+ * <p>Optionally, recent readings are additionally kept in a {@link HotSeriesStore}, which answers
+ * latest-reading and history queries from memory whenever it holds all readings a query needs. The
+ * shared repository enables it if the system property {@value #HOT_STORE_BUDGET_PROPERTY} is set to
+ * a memory budget in bytes.
+ */
+public class JpaWeatherRepository implements WeatherRepository, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Maximum number of locations bound to one IN list. Larger requests are split into several
+   * queries, which keeps statements cacheable and below the parameter limits of common databases.
+   */
+  static final int IN_CHUNK_SIZE = 500;
+
+  private static final LatencyHistogram SAVE_TIMER = WeatherRepositories.timer("save");
+  private static final LatencyHistogram SAVE_ALL_TIMER = WeatherRepositories.timer("saveAll");
+  private static final LatencyHistogram FIND_BY_LOCATION_TIMER =
+      WeatherRepositories.timer("findByLocation");
+  private static final LatencyHistogram LOAD_LATEST_TIMER = WeatherRepositories.timer("loadLatest");
+  private static final LatencyHistogram FIND_LATEST_BY_LOCATIONS_TIMER =
+      WeatherRepositories.timer("findLatestByLocations");
+  private static final LatencyHistogram FIND_LATEST_VERSION_TIMER =
+      WeatherRepositories.timer("findLatestVersion");
+  private static final LatencyHistogram FIND_HISTORY_TIMER =
+      WeatherRepositories.timer("findHistory");
+  private static final LatencyHistogram FIND_LOCATIONS_TIMER =
+      WeatherRepositories.timer("findLocations");
+  private static final LatencyHistogram FIND_ALL_TIMER = WeatherRepositories.timer("findAll");
+  private static final LatencyHistogram FIND_PAGE_TIMER = WeatherRepositories.timer("findPage");
+  private static final LatencyHistogram STREAM_AFTER_TIMER =
+      WeatherRepositories.timer("streamAfter");
+  private static final LatencyHistogram UPDATE_TIMER = WeatherRepositories.timer("update");
+  private static final LatencyHistogram DELETE_TIMER = WeatherRepositories.timer("delete");
+  private static final LatencyHistogram DELETE_MATCHING_TIMER =
+      WeatherRepositories.timer("deleteMatching");
+  private static final LatencyHistogram ROLL_UP_READINGS_TIMER =
+      WeatherRepositories.timer("rollUpReadings");
+  private static final LatencyHistogram ROLL_UP_HOURS_TIMER =
+      WeatherRepositories.timer("rollUpHours");
+
+  private final transient ExpiringCache<String, WeatherData> latestByLocation;
+  private final transient HotSeriesStore hotStore;
+  private final transient LocationIndex locationIndex = new LocationIndex();
+  private final transient List<InvalidationListener> invalidationListeners =
+      new CopyOnWriteArrayList<>();
+
+  /** Creates a repository with a latest-reading cache of default size and TTL. */
+  public JpaWeatherRepository() {
+    this(new ExpiringCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL));
+  }
+
+  /**
+   * Creates a repository using the given latest-reading cache.
+   *
+   * @param latestByLocation the cache of the latest reading per location
+   */
+  public JpaWeatherRepository(ExpiringCache<String, WeatherData> latestByLocation) {
+    this(latestByLocation, 0);
+  }
+
+  /**
+   * Creates a repository using the given latest-reading cache and an optional hot tier.
+   *
+   * @param latestByLocation the cache of the latest reading per location
+   * @param hotStoreBudgetBytes the memory budget of the hot tier in bytes, or 0 to disable it
+   */
+  public JpaWeatherRepository(
+      ExpiringCache<String, WeatherData> latestByLocation, long hotStoreBudgetBytes) {
+    this.latestByLocation = latestByLocation;
+    this.hotStore =
+        hotStoreBudgetBytes > 0
+            ? new HotSeriesStore(hotStoreBudgetBytes, this::findNewestTimestamp)
+            : null;
+  }
+
+  /**
+   * Replaces a deserialized repository, e.g. of a servlet restored by the container, with the
+   * shared one. Caches, the hot tier and the invalidation listeners only exist in memory and are
+   * never serialized.
+   *
+   * @return the shared repository
+   */
+  private Object readResolve() {
+    return WeatherRepository.shared();
+  }
+
+  /**
+   * Collects system properties starting with {@code hibernate.} or {@code jakarta.persistence.}, so
+   * settings from {@code persistence.xml} such as {@code hibernate.show_sql} can be overridden at
+   * startup, e.g. with {@code -Dhibernate.show_sql=false}.
+   *
+   * @return the overriding persistence properties
+   */
+  static Map<String, String> persistenceOverrides() {
+    Map<String, String> overrides = new HashMap<>();
+    for (String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("hibernate.") || name.startsWith("jakarta.persistence.")) {
+        overrides.put(name, System.getProperty(name));
+      }
+    }
+    return overrides;
+  }
+
+  /**
+   * Returns the factory of the persistence unit, building it on first use. Building it starts
+   * Hibernate, creates the schema and opens the connection pool, which takes far longer than any
+   * request; {@link #bootstrap()} lets the application do this at deploy time instead.
+   *
+   * @return the entity manager factory
+   */
+  static EntityManagerFactory entityManagerFactory() {
+    return PersistenceUnit.FACTORY;
+  }
+
+  /** Builds the entity manager factory of the persistence unit and loads the location index. */
+  @Override
+  public void bootstrap() {
+    entityManagerFactory();
+    locationIndex.ensureLoaded(this::loadLocations);
+  }
+
+  /**
+   * Returns the hot tier, if enabled.
+   *
+   * @return the hot tier, or null if it is disabled
+   */
+  public HotSeriesStore getHotStore() {
+    return hotStore;
+  }
+
+  /**
+   * Registers a listener that is notified after every committed write, e.g. to drop derived caches.
+   *
+   * @param listener the listener
+   */
+  @Override
+  public void addInvalidationListener(InvalidationListener listener) {
+    invalidationListeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+  }
+
+  /**
+   * Removes a listener registered with {@link #addInvalidationListener(InvalidationListener)}.
+   *
+   * @param listener the listener
+   */
+  @Override
+  public void removeInvalidationListener(InvalidationListener listener) {
+    invalidationListeners.remove(listener);
+  }
+
+  /**
+   * Returns the cache of the latest reading per location, e.g. to read its hit and miss counters.
+   *
+   * @return the latest-reading cache
+   */
+  @Override
+  public ExpiringCache<String, WeatherData> getLatestCache() {
+    return latestByLocation;
+  }
+
+  /**
+   * Drops the latest-reading cache, the hot tier and everything the invalidation listeners derive,
+   * and reloads the location index if it has been loaded.
+   */
+  @Override
+  public void discardCaches() {
+    latestByLocation.invalidateAll();
+    if (hotStore != null) {
+      hotStore.clear();
+    }
+    if (locationIndex.isLoaded()) {
+      locationIndex.rebuild(this::loadLocations);
+    }
+    for (InvalidationListener listener : invalidationListeners) {
+      listener.invalidatedAll();
+    }
+  }
+
+  /**
+   * Saves or updates a WeatherData entity in the database.
+   *
+   * <p>If the entity is new (i.e., its ID is null), it is persisted. If the entity already exists
+   * (i.e., its ID is not null and matches an existing record), it is updated.
+   *
+   * @param weatherData the WeatherData entity to save or update
+   */
+  @Override
+  public void save(WeatherData weatherData) {
+    long started = System.nanoTime();
+    try {
+      Long updatedId = weatherData.getId();
+      if (hotStore != null && updatedId == null) {
+        hotStore.prepare(weatherData.getLocation());
+      }
+      WeatherData saved;
+      String previousLocation = null;
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        em.getTransaction().begin();
+        if (updatedId != null) {
+          // Bisherigen Ort merken; merge() hätte die Zeile ohnehin geladen
+          WeatherData previous = em.find(WeatherData.class, updatedId);
+          previousLocation = previous == null ? null : previous.getLocation();
+        }
+        saved = em.merge(weatherData); // Updates the entity if it already exists
+        em.getTransaction().commit();
+      } finally {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        em.close();
+      }
+      invalidate(weatherData.getLocation(), updatedId == null ? Set.of() : Set.of(updatedId));
+      locationIndex.add(weatherData.getLocation());
+      locationMayHaveVanished(previousLocation, weatherData.getLocation());
+      if (hotStore != null && updatedId == null) {
+        hotStore.append(saved);
+      }
+    } finally {
+      SAVE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Saves many WeatherData entities in a single transaction.
+   *
+   * <p>New entities (ID is null) are persisted and receive their generated ID; existing ones are
+   * merged. The persistence context is flushed and cleared every {@link #BATCH_SIZE} entities, so
+   * Hibernate sends the inserts as JDBC batches and memory use stays flat for large lists. If any
+   * entity cannot be stored, the whole transaction is rolled back.
+   *
+   * @param weatherData the entities to save
+   * @throws jakarta.persistence.PersistenceException if the transaction fails
+   */
+  @Override
+  public void saveAll(List<WeatherData> weatherData) {
+    long started = System.nanoTime();
+    try {
+      Set<String> locations = new HashSet<>();
+      for (WeatherData data : weatherData) {
+        locations.add(data.getLocation());
+      }
+      if (hotStore != null) {
+        locations.forEach(hotStore::prepare);
+      }
+      Set<Long> updatedIds = new HashSet<>();
+      Set<String> previousLocations = new HashSet<>();
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        em.getTransaction().begin();
+        int pending = 0;
+        for (WeatherData data : weatherData) {
+          if (data.getId() == null) {
+            em.persist(data);
+          } else {
+            updatedIds.add(data.getId());
+            WeatherData previous = em.find(WeatherData.class, data.getId());
+            if (previous != null) {
+              previousLocations.add(previous.getLocation());
+            }
+            em.merge(data);
+          }
+          if (++pending == BATCH_SIZE) {
+            em.flush();
+            em.clear();
+            pending = 0;
+          }
+        }
+        em.getTransaction().commit();
+      } finally {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        em.close();
+      }
+      locations.forEach(location -> invalidate(location, Set.of()));
+      locations.forEach(locationIndex::add);
+      if (!updatedIds.isEmpty()) {
+        invalidate(null, updatedIds);
+        previousLocations.removeAll(locations);
+        previousLocations.forEach(previous -> locationMayHaveVanished(previous, null));
+      }
+      if (hotStore != null) {
+        // Die Einträge wurden gemeinsam festgeschrieben und dürfen daher sortiert angehängt werden
+        weatherData.stream()
+            .filter(data -> !updatedIds.contains(data.getId()) && data.getTimestamp() != null)
+            .sorted(Comparator.comparing(WeatherData::getTimestamp))
+            .forEach(hotStore::append);
+      }
+    } finally {
+      SAVE_ALL_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Finds the latest WeatherData entity for a location, i.e. the one with the newest timestamp.
+   *
+   * @param location the location of the weather data
+   * @return the latest WeatherData entity, or null if not found
+   */
+  @Override
+  public WeatherData findByLocation(String location) {
+    long started = System.nanoTime();
+    try {
+      WeatherData latest = latestByLocation.get(location, this::loadByLocation);
+      // Kopie zurückgeben, damit Aufrufer den Cache-Eintrag nicht verändern können
+      return latest == null ? null : new WeatherData(latest);
+    } finally {
+      FIND_BY_LOCATION_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Finds the latest reading of each of many locations.
+   *
+   * <p>Locations held by the latest-reading cache or the hot tier are answered from memory. The
+   * others are loaded with one query per {@value #IN_CHUNK_SIZE} locations instead of one per
+   * location, and the results are added to the cache.
+   *
+   * @param locations the locations; duplicates are ignored
+   * @return copies of the latest readings keyed by location, in the order of {@code locations}
+   */
+  @Override
+  public Map<String, WeatherData> findLatestByLocations(Collection<String> locations) {
+    long started = System.nanoTime();
+    try {
+      long stamp = latestByLocation.generation();
+      Map<String, WeatherData> latest = new LinkedHashMap<>();
+      List<String> missing = new ArrayList<>();
+      for (String location : locations) {
+        if (latest.containsKey(location)) {
+          continue;
+        }
+        WeatherData cached = latestByLocation.getIfPresent(location);
+        if (cached == null && hotStore != null) {
+          cached = hotStore.latest(location);
+          if (cached != null) {
+            latestByLocation.putIfUnchanged(location, cached, stamp);
+          }
+        }
+        // Platzhalter hält die Reihenfolge der Anfrage, fehlende Orte werden unten entfernt
+        latest.put(location, cached);
+        if (cached == null) {
+          missing.add(location);
+        }
+      }
+      if (!missing.isEmpty()) {
+        Map<String, WeatherData> loaded = loadLatest(missing);
+        loaded.forEach((location, data) -> latestByLocation.putIfUnchanged(location, data, stamp));
+        latest.putAll(loaded);
+        latest.values().removeIf(Objects::isNull);
+      }
+      // Kopien zurückgeben, damit Aufrufer die Cache-Einträge nicht verändern können
+      latest.replaceAll((location, data) -> new WeatherData(data));
+      return latest;
+    } finally {
+      FIND_LATEST_BY_LOCATIONS_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Loads the newest reading of each location, {@value #IN_CHUNK_SIZE} locations per query. The
+   * correlated subquery finds the newest timestamp of each location through the index on (location,
+   * timestamp DESC); a location whose readings all lack a timestamp yields one of them, like {@link
+   * #loadByLocation(String)}.
+   */
+  private Map<String, WeatherData> loadLatest(List<String> locations) {
+    Map<String, WeatherData> latest = new HashMap<>();
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      for (int from = 0; from < locations.size(); from += IN_CHUNK_SIZE) {
+        List<String> chunk =
+            locations.subList(from, Math.min(from + IN_CHUNK_SIZE, locations.size()));
+        List<WeatherData> results =
+            em.createQuery(
+                    "SELECT w FROM WeatherData w WHERE w.location IN :locations AND (w.timestamp"
+                        + " = (SELECT MAX(x.timestamp) FROM WeatherData x"
+                        + " WHERE x.location = w.location)"
+                        + " OR w.timestamp IS NULL AND NOT EXISTS (SELECT x FROM WeatherData x"
+                        + " WHERE x.location = w.location AND x.timestamp IS NOT NULL))",
+                    WeatherData.class)
+                .setParameter("locations", chunk)
+                .getResultList();
+        // Bei gleichem Zeitstempel gewinnt wie in loadByLocation ein beliebiger Messwert
+        for (WeatherData data : results) {
+          latest.putIfAbsent(data.getLocation(), data);
+        }
+        em.clear();
+      }
+      return latest;
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Loads the newest reading of a location. The query only reads the first row of the index on
+   * (location, timestamp DESC), so its cost does not grow with the history of the location. The
+   * redundant "location" in ORDER BY lets H2 match the sort order to the index and skip sorting.
+   */
+  private WeatherData loadByLocation(String location) {
+    long started = System.nanoTime();
+    try {
+      if (hotStore != null) {
+        WeatherData latest = hotStore.latest(location);
+        if (latest != null) {
+          return latest;
+        }
+      }
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        List<WeatherData> results =
+            em.createQuery(
+                    "SELECT w FROM WeatherData w WHERE w.location = :location"
+                        + " ORDER BY w.location, w.timestamp DESC",
+                    WeatherData.class)
+                .setParameter("location", location)
+                .setMaxResults(1)
+                .getResultList();
+        return results.isEmpty() ? null : results.get(0);
+      } finally {
+        em.close();
+      }
+    } finally {
+      LOAD_LATEST_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Finds locations by prefix in the in-memory {@link LocationIndex}. The index is loaded with one
+   * {@code SELECT DISTINCT} at startup (see {@link #bootstrap()}) or on first use; after that,
+   * lookups never touch the database.
+   *
+   * @param prefix the prefix, matched ignoring case
+   * @param limit the maximum number of locations to return
+   * @return the matching locations in alphabetical order, ignoring case
+   */
+  @Override
+  public List<String> findLocations(String prefix, int limit) {
+    long started = System.nanoTime();
+    try {
+      locationIndex.ensureLoaded(this::loadLocations);
+      return locationIndex.find(prefix, limit);
+    } finally {
+      FIND_LOCATIONS_TIMER.recordSince(started);
+    }
+  }
+
+  private List<String> loadLocations() {
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      return em.createQuery(
+              "SELECT DISTINCT w.location FROM WeatherData w WHERE w.location IS NOT NULL",
+              String.class)
+          .getResultList();
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Has the location index check in the background whether a location that a reading has been moved
+   * away from or deleted from still has readings.
+   *
+   * @param previous the former location of the reading, or null if unknown or none
+   * @param current the location the reading has now, or null if it has been deleted
+   */
+  private void locationMayHaveVanished(String previous, String current) {
+    if (locationIndex.isLoaded() && previous != null && !previous.equals(current)) {
+      locationIndex.requestCheck(previous, this::locationExists);
+    }
+  }
+
+  /** Looks for one reading of the location through the index on location and timestamp. */
+  private boolean locationExists(String location) {
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      return !em.createQuery(
+              "SELECT w.id FROM WeatherData w WHERE w.location = :location", Long.class)
+          .setParameter("location", location)
+          .setMaxResults(1)
+          .getResultList()
+          .isEmpty();
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Returns the version of the latest reading of a location, e.g. to answer a conditional GET.
+   *
+   * <p>The version comes from the latest-reading cache or the hot tier if they hold the location;
+   * otherwise only the id, timestamp, temperature and humidity of the newest row are read, without
+   * loading an entity or filling the cache.
+   *
+   * @param location the location of the weather data
+   * @return the version of the latest reading, or null if the location has no readings
+   */
+  @Override
+  public WeatherVersion findLatestVersion(String location) {
+    long started = System.nanoTime();
+    try {
+      WeatherData cached = latestByLocation.getIfPresent(location);
+      if (cached == null && hotStore != null) {
+        cached = hotStore.latest(location);
+      }
+      if (cached != null) {
+        return WeatherVersion.of(cached);
+      }
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        List<WeatherVersion> results =
+            em.createQuery(
+                    "SELECT new de.fh.albsig.weatherapp.WeatherVersion("
+                        + "w.id, w.timestamp, w.temperature, w.humidity)"
+                        + " FROM WeatherData w WHERE w.location = :location"
+                        + " ORDER BY w.location, w.timestamp DESC",
+                    WeatherVersion.class)
+                .setParameter("location", location)
+                .setMaxResults(1)
+                .getResultList();
+        return results.isEmpty() ? null : results.get(0);
+      } finally {
+        em.close();
+      }
+    } finally {
+      FIND_LATEST_VERSION_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Aggregates the readings of a location within a time range into fixed-size buckets.
+   *
+   * <p>The aggregation runs in the database as a single grouped query over the index on (location,
+   * timestamp), so only one row per non-empty bucket is transferred, no matter how many raw
+   * readings the range contains. The same query adds the {@link WeatherRollup}s of the range, so
+   * the result spans raw and rolled-up readings alike. Buckets are aligned to multiples of the
+   * bucket size since the epoch; empty buckets are omitted.
+   *
+   * @param location the location of the weather data
+   * @param from the inclusive start of the range
+   * @param to the exclusive end of the range
+   * @param bucket the bucket size, at least one second
+   * @return the non-empty buckets ordered by start time
+   */
+  @Override
+  public List<WeatherBucket> findHistory(
+      String location, LocalDateTime from, LocalDateTime to, Duration bucket) {
+    long started = System.nanoTime();
+    try {
+      long bucketSeconds = bucket.getSeconds();
+      // Der Hot-Tier speichert Sekunden, daher nur für sekundengenaue Bereichsgrenzen
+      if (hotStore != null && from.getNano() == 0 && to.getNano() == 0) {
+        List<WeatherBucket> buckets = hotStore.history(location, from, to, bucketSeconds);
+        if (buckets != null) {
+          return buckets;
+        }
+      }
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        // Ohne CAST leitet H2 für den Parameter einen NUMERIC-Typ mit riesiger Genauigkeit ab,
+        // wodurch die Division pro Zeile um Größenordnungen langsamer wird. Rohdaten und Rollups
+        // werden getrennt gruppiert und erst danach zusammengeführt, daher Summen statt
+        // Mittelwerte.
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows =
+            em.createNativeQuery(
+                    "SELECT bucket, SUM(n), MIN(min_t), MAX(max_t), SUM(sum_t), MIN(min_h),"
+                        + " MAX(max_h), SUM(sum_h) FROM (SELECT FLOOR(EXTRACT(EPOCH FROM timestamp)"
+                        + " / CAST(:bucketSeconds AS BIGINT)) AS bucket, COUNT(*) AS n,"
+                        + " MIN(temperature) AS min_t, MAX(temperature) AS max_t, SUM(temperature)"
+                        + " AS sum_t, MIN(humidity) AS min_h, MAX(humidity) AS max_h,"
+                        + " SUM(CAST(humidity AS BIGINT)) AS sum_h FROM weather_data WHERE location"
+                        + " = :location AND timestamp >= :from AND timestamp < :to GROUP BY bucket"
+                        + " UNION ALL SELECT FLOOR(EXTRACT(EPOCH FROM bucket_start) /"
+                        + " CAST(:bucketSeconds AS BIGINT)) AS bucket, SUM(reading_count),"
+                        + " MIN(min_temperature), MAX(max_temperature), SUM(sum_temperature),"
+                        + " MIN(min_humidity), MAX(max_humidity), SUM(sum_humidity) FROM"
+                        + " weather_rollup WHERE location = :location AND bucket_start >= :from AND"
+                        + " bucket_start < :to GROUP BY bucket) AS tiers GROUP BY bucket ORDER BY"
+                        + " bucket")
+                .setParameter("bucketSeconds", bucketSeconds)
+                .setParameter("location", location)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        List<WeatherBucket> buckets = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+          WeatherBucket result = new WeatherBucket();
+          long start = ((Number) row[0]).longValue() * bucketSeconds;
+          result.setStart(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC));
+          long count = ((Number) row[1]).longValue();
+          result.setCount(count);
+          result.setMinTemperature(((Number) row[2]).doubleValue());
+          result.setMaxTemperature(((Number) row[3]).doubleValue());
+          result.setAvgTemperature(((Number) row[4]).doubleValue() / count);
+          result.setMinHumidity(((Number) row[5]).intValue());
+          result.setMaxHumidity(((Number) row[6]).intValue());
+          result.setAvgHumidity(((Number) row[7]).doubleValue() / count);
+          buckets.add(result);
+        }
+        return buckets;
+      } finally {
+        em.close();
+      }
+    } finally {
+      FIND_HISTORY_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Returns the newest timestamp stored for a location.
+   *
+   * @param location the location of the weather data
+   * @return the newest timestamp, or null if the location has no readings
+   */
+  @Override
+  public LocalDateTime findNewestTimestamp(String location) {
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      return em.createQuery(
+              "SELECT MAX(w.timestamp) FROM WeatherData w WHERE w.location = :location",
+              LocalDateTime.class)
+          .setParameter("location", location)
+          .getSingleResult();
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Finds all WeatherData entities in the database.
+   *
+   * @return a list of WeatherData entities
+   */
+  @Override
+  public List<WeatherData> findAll() {
+    long started = System.nanoTime();
+    try {
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        return em.createQuery("SELECT w FROM WeatherData w", WeatherData.class).getResultList();
+      } finally {
+        em.close();
+      }
+    } finally {
+      FIND_ALL_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Returns one page of WeatherData entities ordered by ID, using keyset pagination.
+   *
+   * <p>Instead of an OFFSET, the page starts after the last ID of the previous page, so the
+   * database seeks directly to the primary key and every page costs the same regardless of how deep
+   * the client has paged.
+   *
+   * @param afterId only entities with an ID greater than this are returned; use 0 for the first
+   *     page
+   * @param limit the maximum number of entities to return
+   * @return the entities of the page, ordered by ID
+   */
+  @Override
+  public List<WeatherData> findPage(long afterId, int limit) {
+    long started = System.nanoTime();
+    try {
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        return em.createQuery(
+                "SELECT w FROM WeatherData w WHERE w.id > :afterId ORDER BY w.id",
+                WeatherData.class)
+            .setParameter("afterId", afterId)
+            .setMaxResults(limit)
+            .getResultList();
+      } finally {
+        em.close();
+      }
+    } finally {
+      FIND_PAGE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Streams all WeatherData entities with an ID greater than {@code afterId}, ordered by ID.
+   *
+   * <p>Rows are read through a forward-only database cursor of a stateless session, so entities are
+   * neither collected in a list nor kept in a persistence context; memory use does not depend on
+   * the size of the table. The returned stream holds a database connection and <b>must be
+   * closed</b>, preferably with try-with-resources.
+   *
+   * @param afterId only entities with an ID greater than this are returned; use 0 for all
+   * @param fetchSize the number of rows the JDBC driver fetches per round trip
+   * @return a stream of entities that must be closed after use
+   */
+  @Override
+  public Stream<WeatherData> streamAfter(long afterId, int fetchSize) {
+    long started = System.nanoTime();
+    try {
+      StatelessSession session =
+          entityManagerFactory().unwrap(SessionFactory.class).openStatelessSession();
+      try {
+        return session
+            .createSelectionQuery(
+                "SELECT w FROM WeatherData w WHERE w.id > :afterId ORDER BY w.id",
+                WeatherData.class)
+            .setParameter("afterId", afterId)
+            .setFetchSize(fetchSize)
+            .getResultStream()
+            .onClose(session::close);
+      } catch (RuntimeException e) {
+        session.close();
+        throw e;
+      }
+    } finally {
+      STREAM_AFTER_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Replaces the WeatherData entity with the ID of the given one with a single UPDATE statement,
+   * without reading it first and without inserting it if it does not exist. The statement is
+   * wrapped in an H2 data-change delta table ({@code OLD TABLE}), so the same round trip returns
+   * the former location for the location index.
+   *
+   * @param weatherData the new state of the reading, including its ID
+   * @return true if the reading was replaced, false if no reading has that ID
+   */
+  @Override
+  public boolean update(WeatherData weatherData) {
+    long started = System.nanoTime();
+    try {
+      Long id = Objects.requireNonNull(weatherData.getId(), "id must not be null");
+      List<String> previous =
+          executeReturning(
+              em ->
+                  em.createNativeQuery(
+                          "SELECT location FROM OLD TABLE (UPDATE weather_data"
+                              + " SET location = :location, temperature = :temperature,"
+                              + " humidity = :humidity, timestamp = :timestamp WHERE id = :id)",
+                          String.class)
+                      .setParameter("location", weatherData.getLocation())
+                      .setParameter("temperature", weatherData.getTemperature())
+                      .setParameter("humidity", weatherData.getHumidity())
+                      .setParameter("timestamp", weatherData.getTimestamp())
+                      .setParameter("id", id));
+      if (previous.isEmpty()) {
+        return false;
+      }
+      invalidate(weatherData.getLocation(), Set.of(id));
+      locationIndex.add(weatherData.getLocation());
+      locationMayHaveVanished(previous.get(0), weatherData.getLocation());
+      return true;
+    } finally {
+      UPDATE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Deletes the WeatherData entity with the ID of the given one.
+   *
+   * @param weatherData the reading to delete; only its ID is used
+   * @throws IllegalArgumentException if no reading with that ID exists
+   */
+  @Override
+  public void delete(WeatherData weatherData) {
+    Long id = weatherData.getId();
+    if (id == null || !deleteById(id)) {
+      throw new IllegalArgumentException("No weather data with ID " + id);
+    }
+  }
+
+  /**
+   * Deletes the WeatherData entity with the given ID with a single DELETE statement. Wrapped in an
+   * H2 data-change delta table ({@code OLD TABLE}), the statement also returns the location of the
+   * deleted row, so the location index can check that location alone; cached entries are found by
+   * their ID.
+   *
+   * @param id the ID of the reading
+   * @return true if the reading was deleted, false if no reading has that ID
+   */
+  @Override
+  public boolean deleteById(long id) {
+    long started = System.nanoTime();
+    try {
+      List<String> previous =
+          executeReturning(
+              em ->
+                  em.createNativeQuery(
+                          "SELECT location FROM OLD TABLE"
+                              + " (DELETE FROM weather_data WHERE id = :id)",
+                          String.class)
+                      .setParameter("id", id));
+      if (previous.isEmpty()) {
+        return false;
+      }
+      invalidate(null, Set.of(id));
+      locationMayHaveVanished(previous.get(0), null);
+      return true;
+    } finally {
+      DELETE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Deletes all readings matching the criteria with a single set-based DELETE statement, together
+   * with the rollups of the location starting within the range. Without a location, the affected
+   * locations are read first in the same transaction, so their cached entries can be dropped.
+   *
+   * @param location the location, or null for all locations
+   * @param from the inclusive start of the range, or null for no lower bound
+   * @param to the exclusive end of the range, or null for no upper bound
+   * @return the number of readings deleted
+   * @throws IllegalArgumentException if no criterion is given
+   */
+  @Override
+  public long deleteMatching(String location, LocalDateTime from, LocalDateTime to) {
+    if (location == null && from == null && to == null) {
+      throw new IllegalArgumentException("At least one criterion is required");
+    }
+    long started = System.nanoTime();
+    try {
+      StringBuilder readings = new StringBuilder(" FROM WeatherData w WHERE 1 = 1");
+      StringBuilder rollups = new StringBuilder("DELETE FROM WeatherRollup r WHERE 1 = 1");
+      if (location != null) {
+        readings.append(" AND w.location = :location");
+        rollups.append(" AND r.location = :location");
+      }
+      if (from != null) {
+        readings.append(" AND w.timestamp >= :from");
+        rollups.append(" AND r.bucketStart >= :from");
+      }
+      if (to != null) {
+        readings.append(" AND w.timestamp < :to");
+        rollups.append(" AND r.bucketStart < :to");
+      }
+      Set<String> locations = new HashSet<>();
+      if (location != null) {
+        locations.add(location);
+      }
+      int deleted =
+          executeUpdate(
+              em -> {
+                if (location == null) {
+                  locations.addAll(
+                      bind(
+                              em.createQuery("SELECT DISTINCT w.location" + readings, String.class),
+                              null,
+                              from,
+                              to)
+                          .getResultList());
+                }
+                bind(em.createQuery(rollups.toString()), location, from, to).executeUpdate();
+                return bind(em.createQuery("DELETE" + readings), location, from, to)
+                    .executeUpdate();
+              });
+      locations.remove(null);
+      for (String affected : locations) {
+        invalidate(affected, Set.of());
+        if (hotStore != null) {
+          hotStore.invalidate(affected);
+        }
+      }
+      if (from == null && to == null) {
+        locationIndex.remove(location);
+      } else if (deleted > 0) {
+        locations.forEach(affected -> locationMayHaveVanished(affected, null));
+      }
+      return deleted;
+    } finally {
+      DELETE_MATCHING_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Rolls raw readings older than a point in time into hourly rollups and deletes them.
+   *
+   * <p>The oldest readings are read through the index on the timestamp, aggregated per location and
+   * hour, added to existing rollups of the same hours or stored as new ones, and deleted by ID, all
+   * in one transaction of at most {@code limit} rows. The newest reading of each location is kept,
+   * as are readings without a location or timestamp.
+   *
+   * @param before only readings with an earlier timestamp are rolled up
+   * @param limit the maximum number of readings to roll up
+   * @return the number of readings rolled up
+   */
+  @Override
+  public int rollUpReadings(LocalDateTime before, int limit) {
+    long started = System.nanoTime();
+    try {
+      Map<RollupKey, WeatherRollup> hours = new HashMap<>();
+      List<Long> ids = new ArrayList<>();
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        em.getTransaction().begin();
+        List<Object[]> rows =
+            em.createQuery(
+                    "SELECT w.id, w.location, w.timestamp, w.temperature, w.humidity"
+                        + " FROM WeatherData w WHERE w.timestamp < :before"
+                        + " AND w.timestamp < (SELECT MAX(n.timestamp) FROM WeatherData n"
+                        + " WHERE n.location = w.location)"
+                        + " ORDER BY w.timestamp",
+                    Object[].class)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        for (Object[] row : rows) {
+          ids.add((Long) row[0]);
+          String location = (String) row[1];
+          LocalDateTime start = WeatherRollup.Resolution.HOUR.bucketStart((LocalDateTime) row[2]);
+          hours
+              .computeIfAbsent(
+                  new RollupKey(location, start),
+                  key -> new WeatherRollup(location, WeatherRollup.Resolution.HOUR, start))
+              .add(((Number) row[3]).doubleValue(), ((Number) row[4]).intValue());
+        }
+        if (!ids.isEmpty()) {
+          mergeRollups(em, WeatherRollup.Resolution.HOUR, hours);
+          em.createQuery("DELETE FROM WeatherData w WHERE w.id IN :ids")
+              .setParameter("ids", ids)
+              .executeUpdate();
+        }
+        em.getTransaction().commit();
+      } finally {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        em.close();
+      }
+      // Der neueste Messwert bleibt erhalten und der Hot-Tier hält weiterhin alle Messwerte seines
+      // Bereichs; abgeleitete Caches wie gecachte Verläufe müssen aber verworfen werden.
+      hours.keySet().stream()
+          .map(RollupKey::location)
+          .distinct()
+          .forEach(location -> invalidate(location, Set.of()));
+      return ids.size();
+    } finally {
+      ROLL_UP_READINGS_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Rolls hourly rollups starting before a point in time into daily rollups and deletes them, the
+   * oldest first and at most {@code limit} in one transaction.
+   *
+   * @param before only hourly rollups starting earlier are rolled up
+   * @param limit the maximum number of hourly rollups to roll up
+   * @return the number of hourly rollups rolled up
+   */
+  @Override
+  public int rollUpHours(LocalDateTime before, int limit) {
+    long started = System.nanoTime();
+    try {
+      Map<RollupKey, WeatherRollup> days = new HashMap<>();
+      int rolledUp;
+      EntityManager em = entityManagerFactory().createEntityManager();
+      try {
+        em.getTransaction().begin();
+        List<WeatherRollup> hours =
+            em.createQuery(
+                    "SELECT r FROM WeatherRollup r WHERE r.resolution = :resolution"
+                        + " AND r.bucketStart < :before ORDER BY r.resolution, r.bucketStart",
+                    WeatherRollup.class)
+                .setParameter("resolution", WeatherRollup.Resolution.HOUR)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        for (WeatherRollup hour : hours) {
+          String location = hour.getLocation();
+          LocalDateTime start = WeatherRollup.Resolution.DAY.bucketStart(hour.getBucketStart());
+          days.computeIfAbsent(
+                  new RollupKey(location, start),
+                  key -> new WeatherRollup(location, WeatherRollup.Resolution.DAY, start))
+              .add(hour);
+          em.remove(hour);
+        }
+        mergeRollups(em, WeatherRollup.Resolution.DAY, days);
+        em.getTransaction().commit();
+        rolledUp = hours.size();
+      } finally {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        em.close();
+      }
+      days.keySet().stream()
+          .map(RollupKey::location)
+          .distinct()
+          .forEach(location -> invalidate(location, Set.of()));
+      return rolledUp;
+    } finally {
+      ROLL_UP_HOURS_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Adds freshly aggregated rollups to the stored ones of the same location and bucket, loaded with
+   * a single query, and persists the rest as new rollups.
+   */
+  private static void mergeRollups(
+      EntityManager em, WeatherRollup.Resolution resolution, Map<RollupKey, WeatherRollup> added) {
+    if (added.isEmpty()) {
+      return;
+    }
+    Set<String> locations = new HashSet<>();
+    LocalDateTime first = null;
+    LocalDateTime last = null;
+    for (RollupKey key : added.keySet()) {
+      locations.add(key.location());
+      if (first == null || key.bucketStart().isBefore(first)) {
+        first = key.bucketStart();
+      }
+      if (last == null || key.bucketStart().isAfter(last)) {
+        last = key.bucketStart();
+      }
+    }
+    List<WeatherRollup> stored =
+        em.createQuery(
+                "SELECT r FROM WeatherRollup r WHERE r.location IN :locations"
+                    + " AND r.bucketStart >= :first AND r.bucketStart <= :last"
+                    + " AND r.resolution = :resolution",
+                WeatherRollup.class)
+            .setParameter("locations", locations)
+            .setParameter("first", first)
+            .setParameter("last", last)
+            .setParameter("resolution", resolution)
+            .getResultList();
+    Map<RollupKey, WeatherRollup> pending = new HashMap<>(added);
+    for (WeatherRollup rollup : stored) {
+      WeatherRollup delta =
+          pending.remove(new RollupKey(rollup.getLocation(), rollup.getBucketStart()));
+      if (delta != null) {
+        rollup.add(delta);
+      }
+    }
+    pending.values().forEach(em::persist);
+  }
+
+  /**
+   * Runs bulk statements in one transaction and returns the number of affected rows. The entity
+   * manager is closed and an unfinished transaction rolled back in any case.
+   */
+  private static int executeUpdate(ToIntFunction<EntityManager> statements) {
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      em.getTransaction().begin();
+      int affected = statements.applyAsInt(em);
+      em.getTransaction().commit();
+      return affected;
+    } finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+      em.close();
+    }
+  }
+
+  /**
+   * Runs a data-change statement wrapped in a delta table in one transaction and returns the rows
+   * it reports, with the same transaction handling as {@link #executeUpdate}.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<String> executeReturning(Function<EntityManager, Query> statement) {
+    EntityManager em = entityManagerFactory().createEntityManager();
+    try {
+      em.getTransaction().begin();
+      List<String> rows = statement.apply(em).getResultList();
+      em.getTransaction().commit();
+      return rows;
+    } finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+      em.close();
+    }
+  }
+
+  /** Sets the parameters of the criteria given to {@link #deleteMatching}. */
+  private static <Q extends Query> Q bind(
+      Q query, String location, LocalDateTime from, LocalDateTime to) {
+    if (location != null) {
+      query.setParameter("location", location);
+    }
+    if (from != null) {
+      query.setParameter("from", from);
+    }
+    if (to != null) {
+      query.setParameter("to", to);
+    }
+    return query;
+  }
+
+  /**
+   * Drops cached readings affected by a committed write. For updated rows the previous location is
+   * unknown, so every cache entry holding one of their IDs is dropped as well.
+   */
+  private void invalidate(String location, Set<Long> updatedIds) {
+    if (location != null) {
+      latestByLocation.invalidate(location);
+    }
+    if (!updatedIds.isEmpty()) {
+      latestByLocation.invalidateIf(cached -> updatedIds.contains(cached.getId()));
+      if (hotStore != null) {
+        updatedIds.forEach(hotStore::invalidateId);
+        if (location != null) {
+          hotStore.invalidate(location);
+        }
+      }
+    }
+    for (InvalidationListener listener : invalidationListeners) {
+      listener.invalidated(location, updatedIds);
+    }
+  }
+
+  /** Location and bucket start identifying a rollup of a given resolution. */
+  private record RollupKey(String location, LocalDateTime bucketStart) {}
+
+  /** Holds the entity manager factory, which is built when this class is first accessed. */
+  private static final class PersistenceUnit {
+    static final EntityManagerFactory FACTORY =
+        Persistence.createEntityManagerFactory("weatherPU", persistenceOverrides());
+  }
+}
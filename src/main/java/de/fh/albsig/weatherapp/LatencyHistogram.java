@@ -0,0 +1,156 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so a recorded value
+ * is known to within 12.5% over the whole range from 1 ns to about 18 minutes; larger values are
+ * counted in the last bucket. Recording is one atomic increment on a fixed {@link AtomicLongArray}
+ * plus two {@link LongAdder} updates and does not allocate, so it can be used on every request.
+ *
+ * <p>All values are kept since the histogram was created, so {@link #quantileNanos(double)} is an
+ * all-time quantile. For quantiles over a recent window, export {@link #cumulativeCounts(long[])}
+ * as Prometheus histogram buckets and let the server compute them from the rate of each bucket.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /** Number of linear sub-buckets per power of two. */
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds; negative values are recorded as 0
+   */
+  public void recordNanos(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(indexOf(value));
+    count.increment();
+    sumNanos.add(value);
+  }
+
+  /**
+   * Records the time elapsed since {@code startNanos}.
+   *
+   * @param startNanos a value previously returned by {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    recordNanos(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return the count
+   */
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the sum of all recorded values.
+   *
+   * @return the sum in nanoseconds
+   */
+  public long sumNanos() {
+    return sumNanos.sum();
+  }
+
+  /**
+   * Returns an upper bound of the given quantile, i.e. the highest value of the bucket in which the
+   * quantile falls.
+   *
+   * @param quantile the quantile between 0 and 1, e.g. 0.99
+   * @return the quantile in nanoseconds, or 0 if nothing has been recorded
+   */
+  public long quantileNanos(double quantile) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return highestValueOf(i);
+      }
+    }
+    return highestValueOf(BUCKETS - 1);
+  }
+
+  /**
+   * Returns, for each bound, how many values are known to be at most that bound, i.e. lie in a
+   * bucket whose highest value does not exceed it. A value in a bucket that straddles a bound is
+   * counted with the next bound, so the counts are exact up to the bucket width of 12.5%.
+   *
+   * @param boundsNanos ascending upper bounds in nanoseconds
+   * @return one cumulative count per bound, followed by the total count; all taken from the same
+   *     snapshot of the buckets
+   */
+  public long[] cumulativeCounts(long[] boundsNanos) {
+    long[] cumulative = new long[boundsNanos.length + 1];
+    long seen = 0;
+    int bound = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      while (bound < boundsNanos.length && highestValueOf(i) > boundsNanos[bound]) {
+        cumulative[bound++] = seen;
+      }
+      seen += counts.get(i);
+    }
+    while (bound < boundsNanos.length) {
+      cumulative[bound++] = seen;
+    }
+    cumulative[boundsNanos.length] = seen;
+    return cumulative;
+  }
+
+  /**
+   * Returns the given quantile in seconds.
+   *
+   * @param quantile the quantile between 0 and 1
+   * @return the quantile in seconds
+   */
+  public double quantileSeconds(double quantile) {
+    return quantileNanos(quantile) / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value; // kleine Werte exakt
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,24 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.adapters.XmlAdapter;
+import java.time.LocalDateTime;
+
+/**
+ * JAXB adapter that maps {@link LocalDateTime} to its ISO-8601 representation (for example {@code
+ * 2024-05-01T12:30:00}).
+ *
+ * <p>JAXB has no built-in binding for {@code java.time} types, so without this adapter timestamps
+ * would be written as empty elements and could not be read back.
+ */
+public class LocalDateTimeAdapter extends XmlAdapter<String, LocalDateTime> {
+
+  @Override
+  public LocalDateTime unmarshal(String value) {
+    return value == null || value.isBlank() ? null : LocalDateTime.parse(value.trim());
+  }
+
+  @Override
+  public String marshal(LocalDateTime value) {
+    return value == null ? null : value.toString();
+  }
+}
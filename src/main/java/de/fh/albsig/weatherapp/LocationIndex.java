@@ -0,0 +1,348 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sorted in-memory index of the distinct locations of all readings, answering case-insensitive
+ * prefix queries for type-ahead without touching the database.
+ *
+ * <p>The locations are kept in an array sorted by their lower-case form, so a prefix query is a
+ * binary search followed by a scan over the matches. Readers never lock: every change replaces the
+ * array with an updated copy (copy-on-write), which is cheap because new locations are rare
+ * compared to readings.
+ *
+ * <p>The repository owning the index adds the location of every stored reading. When a delete or
+ * update may have removed the last reading of a location, it asks the index to check just that
+ * location with {@link #requestCheck(String, Predicate)}, e.g. with an indexed {@code EXISTS}
+ * query; until the check has run, the location may still be suggested. Changes made while a rebuild
+ * is loading are applied on top of its result, so none are lost, and a location added while it is
+ * being checked is kept.
+ *
+ * <p>Checks and background rebuilds run one after another on a single daemon thread per index,
+ * which ends when there is nothing left to do. A location requested again before its check has
+ * started is checked only once.
+ */
+public final class LocationIndex {
+
+  private static final Logger logger = LogManager.getLogger(LocationIndex.class);
+
+  private volatile Snapshot snapshot = new Snapshot(new String[0], new String[0]);
+  private volatile boolean loaded;
+  private Map<String, Boolean> changesDuringRebuild; // guarded by this
+  private final Object rebuildLock = new Object();
+  private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+  private final Set<String> pendingChecks = ConcurrentHashMap.newKeySet();
+  private String checking; // guarded by this
+  private boolean checkingAdded; // guarded by this
+  private final ThreadPoolExecutor background =
+      new ThreadPoolExecutor(
+          0,
+          1,
+          30,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          runnable -> {
+            Thread thread = new Thread(runnable, "weather-location-index");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Locations and their lower-case keys, both sorted by key and then by location. */
+  private record Snapshot(String[] keys, String[] locations) {
+
+    /** Returns the index of the first key not less than {@code key}. */
+    int lowerBound(String key) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle].compareTo(key) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /** Returns the position of the location, or {@code -(insertion point) - 1} if absent. */
+    int search(String location) {
+      String key = key(location);
+      int i = lowerBound(key);
+      while (i < keys.length && keys[i].equals(key)) {
+        int order = locations[i].compareTo(location);
+        if (order == 0) {
+          return i;
+        }
+        if (order > 0) {
+          break;
+        }
+        i++;
+      }
+      return -i - 1;
+    }
+  }
+
+  /**
+   * Returns whether the index has been loaded at least once.
+   *
+   * @return true after the first {@link #rebuild(Supplier)}
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Returns the number of indexed locations.
+   *
+   * @return the number of locations
+   */
+  public int size() {
+    return snapshot.locations().length;
+  }
+
+  /**
+   * Finds the locations starting with a prefix, ignoring case.
+   *
+   * @param prefix the prefix; an empty prefix matches every location
+   * @param limit the maximum number of locations to return
+   * @return the matching locations in alphabetical order, ignoring case
+   */
+  public List<String> find(String prefix, int limit) {
+    Snapshot current = snapshot;
+    String key = key(prefix);
+    List<String> matches = new ArrayList<>(Math.min(limit, 16));
+    for (int i = current.lowerBound(key);
+        i < current.keys().length && matches.size() < limit && current.keys()[i].startsWith(key);
+        i++) {
+      matches.add(current.locations()[i]);
+    }
+    return matches;
+  }
+
+  /**
+   * Adds a location unless it is indexed already.
+   *
+   * @param location the location; null is ignored
+   */
+  public synchronized void add(String location) {
+    if (location == null) {
+      return;
+    }
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(location, Boolean.TRUE);
+    }
+    if (location.equals(checking)) {
+      checkingAdded = true;
+    }
+    Snapshot current = snapshot;
+    int position = current.search(location);
+    if (position >= 0) {
+      return;
+    }
+    int insertAt = -position - 1;
+    snapshot =
+        new Snapshot(
+            insert(current.keys(), insertAt, key(location)),
+            insert(current.locations(), insertAt, location));
+  }
+
+  /**
+   * Removes a location, e.g. after its last reading has been deleted.
+   *
+   * @param location the location; null is ignored
+   */
+  public synchronized void remove(String location) {
+    if (location == null) {
+      return;
+    }
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.put(location, Boolean.FALSE);
+    }
+    Snapshot current = snapshot;
+    int position = current.search(location);
+    if (position >= 0) {
+      snapshot =
+          new Snapshot(delete(current.keys(), position), delete(current.locations(), position));
+    }
+  }
+
+  /**
+   * Replaces the indexed locations with those loaded from the backend. Adds and removes made while
+   * the locations are loaded are applied on top, so the result reflects all changes up to now.
+   *
+   * @param source loads all distinct locations, e.g. with a {@code SELECT DISTINCT}
+   */
+  public void rebuild(Supplier<? extends Collection<String>> source) {
+    synchronized (rebuildLock) {
+      long started = System.nanoTime();
+      Set<String> locations = load(source);
+      synchronized (this) {
+        // Während des Ladens gemeldete Änderungen sind mindestens so neu wie die geladenen Orte
+        changesDuringRebuild.forEach(
+            (location, present) -> {
+              if (present) {
+                locations.add(location);
+              } else {
+                locations.remove(location);
+              }
+            });
+        changesDuringRebuild = null;
+        locations.remove(null);
+        snapshot = sorted(locations);
+        loaded = true;
+      }
+      logger.info(
+          "Indexed {} locations in {} ms",
+          locations.size(),
+          (System.nanoTime() - started) / 1_000_000);
+    }
+  }
+
+  /** Loads the locations, recording changes made meanwhile for {@link #rebuild(Supplier)}. */
+  private Set<String> load(Supplier<? extends Collection<String>> source) {
+    synchronized (this) {
+      changesDuringRebuild = new HashMap<>();
+    }
+    try {
+      return new HashSet<>(source.get());
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        changesDuringRebuild = null;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Loads the index unless it has been loaded already.
+   *
+   * @param source loads all distinct locations
+   */
+  public void ensureLoaded(Supplier<? extends Collection<String>> source) {
+    synchronized (rebuildLock) {
+      if (!loaded) {
+        rebuild(source);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the index in the background. Requests arriving before the rebuild has started loading
+   * are served by the same rebuild, so a burst of requests reloads the locations only once or
+   * twice.
+   *
+   * @param source loads all distinct locations
+   */
+  public void requestRebuild(Supplier<? extends Collection<String>> source) {
+    if (!rebuildRequested.compareAndSet(false, true)) {
+      return;
+    }
+    background.execute(
+        () -> {
+          rebuildRequested.set(false);
+          try {
+            rebuild(source);
+          } catch (RuntimeException e) {
+            logger.warn("Could not rebuild the location index", e);
+          }
+        });
+  }
+
+  /**
+   * Checks in the background whether a location still has readings and removes it if not.
+   *
+   * @param location the location that may have lost its last reading; null is ignored
+   * @param exists tells whether the backend still holds a reading of the location
+   */
+  public void requestCheck(String location, Predicate<String> exists) {
+    if (location == null || !pendingChecks.add(location)) {
+      return;
+    }
+    background.execute(
+        () -> {
+          pendingChecks.remove(location);
+          try {
+            check(location, exists);
+          } catch (RuntimeException e) {
+            logger.warn("Could not check location {} for the location index", location, e);
+          }
+        });
+  }
+
+  /**
+   * Removes a location unless the backend still holds a reading of it. If the location is added
+   * while the backend is asked, it is kept.
+   *
+   * @param location the location to check
+   * @param exists tells whether the backend still holds a reading of the location
+   */
+  void check(String location, Predicate<String> exists) {
+    synchronized (this) {
+      checking = location;
+      checkingAdded = false;
+    }
+    boolean present = true;
+    try {
+      present = exists.test(location);
+    } finally {
+      synchronized (this) {
+        if (!present && !checkingAdded) {
+          remove(location);
+        }
+        checking = null;
+      }
+    }
+  }
+
+  private static Snapshot sorted(Collection<String> locations) {
+    String[] sorted = locations.toArray(new String[0]);
+    Arrays.sort(
+        sorted,
+        (a, b) -> {
+          int order = key(a).compareTo(key(b));
+          return order != 0 ? order : a.compareTo(b);
+        });
+    String[] keys = new String[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      keys[i] = key(sorted[i]);
+    }
+    return new Snapshot(keys, sorted);
+  }
+
+  private static String key(String location) {
+    return location.toLowerCase(Locale.ROOT);
+  }
+
+  private static String[] insert(String[] array, int index, String value) {
+    String[] copy = new String[array.length + 1];
+    System.arraycopy(array, 0, copy, 0, index);
+    copy[index] = value;
+    System.arraycopy(array, index, copy, index + 1, array.length - index);
+    return copy;
+  }
+
+  private static String[] delete(String[] array, int index) {
+    String[] copy = new String[array.length - 1];
+    System.arraycopy(array, 0, copy, 0, index);
+    System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+    return copy;
+  }
+}
@@ -0,0 +1,46 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Locations matching a prefix, as returned by the location search endpoint.
+ *
+ * <pre>{@code
+ * <locations prefix="ber">
+ *   <location>Berlin</location>
+ *   <location>Bern</location>
+ * </locations>
+ * }</pre>
+ */
+@XmlRootElement(name = "locations")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class LocationList {
+
+  @XmlAttribute private String prefix;
+
+  @XmlElement(name = "location")
+  private List<String> locations = new ArrayList<>();
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public List<String> getLocations() {
+    return Collections.unmodifiableList(locations);
+  }
+
+  public void setLocations(List<String> locations) {
+    this.locations = new ArrayList<>(locations);
+  }
+}
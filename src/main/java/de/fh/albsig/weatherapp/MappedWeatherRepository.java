@@ -0,0 +1,1271 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link WeatherRepository} storing readings in append-only, memory-mapped segment files.
+ *
+ * <p>Every write appends fixed-width records of {@value #RECORD_SIZE} bytes: a new version of a
+ * reading, or a tombstone for a deleted one. Nothing is ever overwritten, so a crash can only lose
+ * or tear the last records, which are detected by their CRC-32C checksum and discarded when the
+ * repository is opened again. Records written by one {@link #saveAll(List)} are linked, so a batch
+ * survives a crash either completely or not at all. Locations are limited to {@value
+ * #MAX_LOCATION_BYTES} bytes of UTF-8.
+ *
+ * <p>Segment files ({@code segment-<first record>.dat}) are preallocated to {@link
+ * Options#segmentBytes()} and mapped into memory; when one is full, the next is created ("rolled").
+ * Readings are found through an in-memory index of record positions per location (ordered by
+ * timestamp) and per ID. On {@link #close()} the index is written to a checkpoint file, so the next
+ * start only has to read the checkpoint and replay records appended after it; without a valid
+ * checkpoint the index is rebuilt by scanning all segments.
+ *
+ * <p>When written records reach the disk is controlled by the {@link FsyncPolicy}. Reads and writes
+ * are guarded by a read-write lock: lookups run in parallel, writes are serialized.
+ *
+ * <p>The backend keeps no rollups: it inherits the defaults of {@link
+ * WeatherRepository#rollUpReadings} and {@link WeatherRepository#rollUpHours}, which throw {@link
+ * UnsupportedOperationException}. A retention policy configured together with this backend is
+ * therefore rejected at deploy time (see {@link RetentionJob.Policy#fromProperties}).
+ */
+public final class MappedWeatherRepository implements WeatherRepository {
+
+  /** Size of one record in bytes. */
+  public static final int RECORD_SIZE = 128;
+
+  /** Largest location, in bytes of UTF-8, that fits into a record. */
+  public static final int MAX_LOCATION_BYTES = 88;
+
+  static final String CHECKPOINT_FILE = "index.checkpoint";
+
+  private static final Logger logger = LogManager.getLogger(MappedWeatherRepository.class);
+
+  private static final LatencyHistogram SAVE_TIMER = WeatherRepositories.timer("save");
+  private static final LatencyHistogram SAVE_ALL_TIMER = WeatherRepositories.timer("saveAll");
+  private static final LatencyHistogram FIND_BY_LOCATION_TIMER =
+      WeatherRepositories.timer("findByLocation");
+  private static final LatencyHistogram FIND_LATEST_VERSION_TIMER =
+      WeatherRepositories.timer("findLatestVersion");
+  private static final LatencyHistogram FIND_LATEST_BY_LOCATIONS_TIMER =
+      WeatherRepositories.timer("findLatestByLocations");
+  private static final LatencyHistogram FIND_HISTORY_TIMER =
+      WeatherRepositories.timer("findHistory");
+  private static final LatencyHistogram FIND_LOCATIONS_TIMER =
+      WeatherRepositories.timer("findLocations");
+  private static final LatencyHistogram FIND_ALL_TIMER = WeatherRepositories.timer("findAll");
+  private static final LatencyHistogram FIND_PAGE_TIMER = WeatherRepositories.timer("findPage");
+  private static final LatencyHistogram UPDATE_TIMER = WeatherRepositories.timer("update");
+  private static final LatencyHistogram DELETE_TIMER = WeatherRepositories.timer("delete");
+  private static final LatencyHistogram DELETE_MATCHING_TIMER =
+      WeatherRepositories.timer("deleteMatching");
+
+  // Aufbau eines Datensatzes (Offsets in Bytes)
+  private static final int TYPE = 0;
+  private static final int FLAGS = 1;
+  private static final int LOCATION_LENGTH = 2;
+  private static final int ID = 4;
+  private static final int EPOCH_SECOND = 12;
+  private static final int NANOS = 20;
+  private static final int TEMPERATURE = 24;
+  private static final int HUMIDITY = 32;
+  private static final int CHECKSUM = 36;
+  private static final int LOCATION = 40;
+
+  private static final byte EMPTY = 0;
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  private static final int HAS_TIMESTAMP = 0x01;
+  private static final int HAS_LOCATION = 0x02;
+  private static final int CONTINUED = 0x04;
+
+  private static final int CHECKPOINT_MAGIC = 0x57434B50;
+  private static final int CHECKPOINT_VERSION = 1;
+
+  private final Options options;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final TreeMap<Long, Segment> segments = new TreeMap<>();
+  private final Map<String, NavigableMap<TimeKey, Long>> byLocation = new HashMap<>();
+  private final LocationIndex locationIndex = new LocationIndex();
+  private final TreeMap<Long, Long> slotById = new TreeMap<>();
+  private final List<InvalidationListener> invalidationListeners = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService fsyncExecutor;
+  private Segment active;
+  private long nextSlot;
+  private long nextId = 1;
+  private boolean closed;
+
+  /** When written records are forced to disk. */
+  public enum FsyncPolicy {
+    /** After every write call, before it returns; the safest and slowest policy. */
+    ALWAYS,
+    /** Periodically in the background (see {@link Options#fsyncInterval()}) and when rolling. */
+    INTERVAL,
+    /** Only when rolling a segment and on close; otherwise the operating system decides. */
+    NEVER
+  }
+
+  /**
+   * Settings of the repository.
+   *
+   * @param directory the directory holding segments and checkpoint; created if missing
+   * @param segmentBytes the size of a new segment file, rounded down to whole records
+   * @param fsyncPolicy when written records are forced to disk
+   * @param fsyncInterval the period of background syncs with {@link FsyncPolicy#INTERVAL}
+   */
+  public record Options(
+      Path directory, long segmentBytes, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+
+    /** Default size of a segment file. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /** Default period of background syncs. */
+    public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /** System property holding the storage directory. */
+    public static final String DIRECTORY_PROPERTY = "weatherapp.mapped.directory";
+
+    /** System property holding the segment size in bytes. */
+    public static final String SEGMENT_BYTES_PROPERTY = "weatherapp.mapped.segmentBytes";
+
+    /**
+     * System property holding the fsync policy: {@code always}, {@code interval} or {@code never}.
+     */
+    public static final String FSYNC_PROPERTY = "weatherapp.mapped.fsync";
+
+    /** System property holding the period of background syncs in milliseconds. */
+    public static final String FSYNC_INTERVAL_PROPERTY = "weatherapp.mapped.fsyncIntervalMillis";
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if a segment cannot hold one record or exceeds 2 GiB, or the
+     *     interval is not positive
+     */
+    public Options {
+      Objects.requireNonNull(directory, "directory must not be null");
+      Objects.requireNonNull(fsyncPolicy, "fsyncPolicy must not be null");
+      if (segmentBytes < RECORD_SIZE || segmentBytes > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid segment size: " + segmentBytes);
+      }
+      if (fsyncInterval == null || fsyncInterval.isNegative() || fsyncInterval.isZero()) {
+        throw new IllegalArgumentException("fsyncInterval must be positive");
+      }
+    }
+
+    /**
+     * Returns the default settings for a directory: 64 MiB segments, synced every second.
+     *
+     * @param directory the storage directory
+     * @return the settings
+     */
+    public static Options defaults(Path directory) {
+      return new Options(
+          directory, DEFAULT_SEGMENT_BYTES, FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL);
+    }
+
+    /**
+     * Reads the settings from properties, falling back to the defaults; the directory defaults to
+     * {@code weather-data} in the working directory.
+     *
+     * @param properties the configuration, usually the system properties
+     * @return the settings
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    static Options fromProperties(Properties properties) {
+      Path directory = Paths.get(properties.getProperty(DIRECTORY_PROPERTY, "weather-data"));
+      long segmentBytes =
+          Long.parseLong(
+              properties.getProperty(
+                  SEGMENT_BYTES_PROPERTY, String.valueOf(DEFAULT_SEGMENT_BYTES)));
+      FsyncPolicy policy =
+          FsyncPolicy.valueOf(
+              properties.getProperty(FSYNC_PROPERTY, "interval").trim().toUpperCase(Locale.ROOT));
+      Duration interval =
+          Duration.ofMillis(
+              Long.parseLong(
+                  properties.getProperty(
+                      FSYNC_INTERVAL_PROPERTY, String.valueOf(DEFAULT_FSYNC_INTERVAL.toMillis()))));
+      return new Options(directory, segmentBytes, policy, interval);
+    }
+  }
+
+  /**
+   * Opens the repository in a directory, creating it if needed, and loads or rebuilds the index.
+   *
+   * @param options the settings
+   * @throws IOException if the files cannot be opened, or a record before the last segment is
+   *     corrupt
+   */
+  public MappedWeatherRepository(Options options) throws IOException {
+    this.options = Objects.requireNonNull(options, "options must not be null");
+    Files.createDirectories(options.directory());
+    openSegments();
+    long replayFrom = loadCheckpoint();
+    replay(replayFrom);
+    locationIndex.rebuild(byLocation::keySet);
+    if (options.fsyncPolicy() == FsyncPolicy.INTERVAL) {
+      fsyncExecutor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "weather-mapped-fsync");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long period = options.fsyncInterval().toMillis();
+      fsyncExecutor.scheduleWithFixedDelay(this::forceDirty, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      fsyncExecutor = null;
+    }
+    logger.info(
+        "Opened {} readings of {} locations in {} segments",
+        slotById.size(),
+        byLocation.size(),
+        segments.size());
+  }
+
+  /**
+   * Returns the settings the repository was opened with.
+   *
+   * @return the settings
+   */
+  public Options getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns the number of segment files.
+   *
+   * @return the number of segments
+   */
+  public int segmentCount() {
+    lock.readLock().lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void addInvalidationListener(InvalidationListener listener) {
+    invalidationListeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+  }
+
+  @Override
+  public void removeInvalidationListener(InvalidationListener listener) {
+    invalidationListeners.remove(listener);
+  }
+
+  /**
+   * Returns null: lookups read the mapped record directly, so there is no latest-reading cache.
+   *
+   * @return null
+   */
+  @Override
+  public ExpiringCache<String, WeatherData> getLatestCache() {
+    return null;
+  }
+
+  /**
+   * Appends a new version of the reading. A new reading receives the next free ID, which is also
+   * set on the given object.
+   *
+   * @param weatherData the reading to save or update
+   * @throws IllegalArgumentException if the location is longer than {@value #MAX_LOCATION_BYTES}
+   *     bytes
+   * @throws UncheckedIOException if a new segment cannot be created
+   */
+  @Override
+  public void save(WeatherData weatherData) {
+    long started = System.nanoTime();
+    try {
+      saveAll(List.of(weatherData));
+    } finally {
+      SAVE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Appends new versions of all readings as one batch that survives a crash completely or not at
+   * all. All locations are checked before anything is written.
+   *
+   * @param weatherData the readings to save
+   * @throws IllegalArgumentException if a location is longer than {@value #MAX_LOCATION_BYTES}
+   *     bytes
+   * @throws UncheckedIOException if a new segment cannot be created
+   */
+  @Override
+  public void saveAll(List<WeatherData> weatherData) {
+    long started = System.nanoTime();
+    try {
+      write(weatherData, false);
+    } finally {
+      SAVE_ALL_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Appends a new version of the reading if its ID exists; the check and the append happen under
+   * the same lock.
+   *
+   * @param weatherData the new state of the reading, including its ID
+   * @return true if the reading was replaced, false if no reading has that ID
+   * @throws IllegalArgumentException if the location is longer than {@value #MAX_LOCATION_BYTES}
+   *     bytes
+   * @throws UncheckedIOException if a new segment cannot be created
+   */
+  @Override
+  public boolean update(WeatherData weatherData) {
+    long started = System.nanoTime();
+    try {
+      Objects.requireNonNull(weatherData.getId(), "id must not be null");
+      return write(List.of(weatherData), true);
+    } finally {
+      UPDATE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Appends the readings as one linked batch and notifies the listeners.
+   *
+   * @param existingOnly if true, nothing is written unless every reading has an existing ID
+   * @return false if nothing was written because of {@code existingOnly}
+   */
+  private boolean write(List<WeatherData> weatherData, boolean existingOnly) {
+    byte[][] locations = new byte[weatherData.size()][];
+    for (int i = 0; i < locations.length; i++) {
+      locations[i] = encodeLocation(weatherData.get(i).getLocation());
+    }
+    Set<String> changedLocations = new HashSet<>();
+    Set<Long> updatedIds = new HashSet<>();
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      if (existingOnly
+          && !weatherData.stream().allMatch(data -> slotById.containsKey(data.getId()))) {
+        return false;
+      }
+      long batchStart = nextSlot;
+      try {
+        for (int i = 0; i < locations.length; i++) {
+          WeatherData data = weatherData.get(i);
+          if (data.getId() == null) {
+            data.setId(nextId);
+          } else {
+            updatedIds.add(data.getId());
+          }
+          nextId = Math.max(nextId, data.getId() + 1);
+          boolean last = i == locations.length - 1;
+          append(PUT, last ? 0 : CONTINUED, data.getId(), locations[i], data);
+        }
+      } catch (IOException e) {
+        // Unvollständigen Batch verwerfen, damit ihn ein späterer Batch nicht "abschließt"
+        truncate(batchStart);
+        throw e;
+      }
+      // Erst nach dem letzten Datensatz sichtbar machen, wie bei einem Commit
+      for (long slot = batchStart; slot < nextSlot; slot++) {
+        String previous = apply(slot);
+        if (previous != null) {
+          changedLocations.add(previous);
+        }
+      }
+      weatherData.forEach(data -> changedLocations.add(data.getLocation()));
+      syncLocationIndex(changedLocations);
+      if (options.fsyncPolicy() == FsyncPolicy.ALWAYS) {
+        active.buffer.force();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not append weather data", e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    changedLocations.forEach(location -> notifyListeners(location, Set.of()));
+    if (!updatedIds.isEmpty()) {
+      notifyListeners(null, updatedIds);
+    }
+    return true;
+  }
+
+  @Override
+  public WeatherData findByLocation(String location) {
+    long started = System.nanoTime();
+    lock.readLock().lock();
+    try {
+      Long slot = latestSlot(location);
+      return slot == null ? null : read(slot);
+    } finally {
+      lock.readLock().unlock();
+      FIND_BY_LOCATION_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Finds the latest reading of each location under a single read lock, so the result is a
+   * consistent snapshot across all requested locations.
+   *
+   * @param locations the locations; duplicates are ignored
+   * @return copies of the latest readings keyed by location, in the order of {@code locations}
+   */
+  @Override
+  public Map<String, WeatherData> findLatestByLocations(Collection<String> locations) {
+    long started = System.nanoTime();
+    Map<String, WeatherData> latest = new LinkedHashMap<>();
+    lock.readLock().lock();
+    try {
+      for (String location : locations) {
+        Long slot = latest.containsKey(location) ? null : latestSlot(location);
+        if (slot != null) {
+          latest.put(location, read(slot));
+        }
+      }
+      return latest;
+    } finally {
+      lock.readLock().unlock();
+      FIND_LATEST_BY_LOCATIONS_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Finds locations by prefix in the in-memory {@link LocationIndex}, which is built from the index
+   * when the repository is opened and kept up to date by every write. No lock is taken.
+   *
+   * @param prefix the prefix, matched ignoring case
+   * @param limit the maximum number of locations to return
+   * @return the matching locations in alphabetical order, ignoring case
+   */
+  @Override
+  public List<String> findLocations(String prefix, int limit) {
+    long started = System.nanoTime();
+    try {
+      return locationIndex.find(prefix, limit);
+    } finally {
+      FIND_LOCATIONS_TIMER.recordSince(started);
+    }
+  }
+
+  @Override
+  public WeatherVersion findLatestVersion(String location) {
+    long started = System.nanoTime();
+    lock.readLock().lock();
+    try {
+      Long slot = latestSlot(location);
+      return slot == null ? null : WeatherVersion.of(read(slot));
+    } finally {
+      lock.readLock().unlock();
+      FIND_LATEST_VERSION_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Aggregates the readings of a location within a time range into fixed-size buckets. Only the
+   * temperature and humidity of the matching records are read from the mapped segments; no {@link
+   * WeatherData} objects are created.
+   *
+   * @param location the location of the weather data
+   * @param from the inclusive start of the range
+   * @param to the exclusive end of the range
+   * @param bucket the bucket size, at least one second
+   * @return the non-empty buckets ordered by start time
+   */
+  @Override
+  public List<WeatherBucket> findHistory(
+      String location, LocalDateTime from, LocalDateTime to, Duration bucket) {
+    long started = System.nanoTime();
+    long bucketSeconds = bucket.getSeconds();
+    List<WeatherBucket> buckets = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      NavigableMap<TimeKey, Long> series = byLocation.get(location);
+      if (series == null) {
+        return buckets;
+      }
+      long current = 0;
+      WeatherBucket.Accumulator accumulator = null;
+      // Die Einträge sind nach Zeit sortiert, daher werden die Buckets nacheinander gefüllt
+      for (Map.Entry<TimeKey, Long> entry :
+          series.subMap(TimeKey.lowest(from), true, TimeKey.lowest(to), false).entrySet()) {
+        long index = Math.floorDiv(entry.getKey().epochSecond(), bucketSeconds);
+        if (accumulator == null || index != current) {
+          if (accumulator != null) {
+            buckets.add(accumulator.toBucket(current * bucketSeconds));
+          }
+          current = index;
+          accumulator = new WeatherBucket.Accumulator();
+        }
+        long slot = entry.getValue();
+        ByteBuffer buffer = segmentContaining(slot).buffer;
+        int offset = offset(slot);
+        accumulator.add(buffer.getDouble(offset + TEMPERATURE), buffer.getInt(offset + HUMIDITY));
+      }
+      if (accumulator != null) {
+        buckets.add(accumulator.toBucket(current * bucketSeconds));
+      }
+      return buckets;
+    } finally {
+      lock.readLock().unlock();
+      FIND_HISTORY_TIMER.recordSince(started);
+    }
+  }
+
+  @Override
+  public LocalDateTime findNewestTimestamp(String location) {
+    lock.readLock().lock();
+    try {
+      NavigableMap<TimeKey, Long> series = byLocation.get(location);
+      return series == null || series.isEmpty() ? null : series.lastKey().timestamp();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds all stored readings, ordered by ID.
+   *
+   * @return a list of readings
+   */
+  @Override
+  public List<WeatherData> findAll() {
+    long started = System.nanoTime();
+    lock.readLock().lock();
+    try {
+      List<WeatherData> results = new ArrayList<>(slotById.size());
+      for (long slot : slotById.values()) {
+        results.add(read(slot));
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+      FIND_ALL_TIMER.recordSince(started);
+    }
+  }
+
+  @Override
+  public List<WeatherData> findPage(long afterId, int limit) {
+    long started = System.nanoTime();
+    lock.readLock().lock();
+    try {
+      List<WeatherData> page = new ArrayList<>(Math.min(limit, slotById.size()));
+      for (long slot : slotById.tailMap(afterId, false).values()) {
+        if (page.size() == limit) {
+          break;
+        }
+        page.add(read(slot));
+      }
+      return page;
+    } finally {
+      lock.readLock().unlock();
+      FIND_PAGE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Streams all readings with an ID greater than {@code afterId}, ordered by ID. The stream reads
+   * {@code fetchSize} readings at a time through {@link #findPage(long, int)}, so writers are only
+   * blocked while a page is read, and readings saved meanwhile with a greater ID are included.
+   *
+   * @param afterId only readings with an ID greater than this are returned; use 0 for all
+   * @param fetchSize the number of readings read per page
+   * @return a stream of readings
+   */
+  @Override
+  public Stream<WeatherData> streamAfter(long afterId, int fetchSize) {
+    return Stream.iterate(
+            findPage(afterId, fetchSize),
+            page -> !page.isEmpty(),
+            page ->
+                page.size() < fetchSize
+                    ? List.of()
+                    : findPage(page.get(page.size() - 1).getId(), fetchSize))
+        .flatMap(List::stream);
+  }
+
+  /**
+   * Appends a tombstone for the reading with the given ID.
+   *
+   * @param weatherData the reading to delete; only its ID is used
+   * @throws IllegalArgumentException if no reading with that ID exists
+   */
+  @Override
+  public void delete(WeatherData weatherData) {
+    Long id = weatherData.getId();
+    if (id == null || !deleteById(id)) {
+      throw new IllegalArgumentException("No weather data with ID " + id);
+    }
+  }
+
+  /**
+   * Appends a tombstone for the reading with the given ID if it exists.
+   *
+   * @param id the ID of the reading
+   * @return true if the reading was deleted, false if no reading has that ID
+   * @throws UncheckedIOException if a new segment cannot be created
+   */
+  @Override
+  public boolean deleteById(long id) {
+    long started = System.nanoTime();
+    try {
+      Set<String> locations;
+      lock.writeLock().lock();
+      try {
+        ensureOpen();
+        if (!slotById.containsKey(id)) {
+          return false;
+        }
+        locations = tombstone(List.of(id));
+        syncLocationIndex(locations);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      locations.forEach(location -> notifyListeners(location, Set.of()));
+      return true;
+    } finally {
+      DELETE_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Appends tombstones for all matching readings as one linked batch, so they are deleted
+   * completely or not at all. The readings are found through the index without reading any records.
+   *
+   * @param location the location, or null for all locations
+   * @param from the inclusive start of the range, or null for no lower bound
+   * @param to the exclusive end of the range, or null for no upper bound
+   * @return the number of readings deleted
+   * @throws IllegalArgumentException if no criterion is given
+   * @throws UncheckedIOException if a new segment cannot be created
+   */
+  @Override
+  public long deleteMatching(String location, LocalDateTime from, LocalDateTime to) {
+    if (location == null && from == null && to == null) {
+      throw new IllegalArgumentException("At least one criterion is required");
+    }
+    long started = System.nanoTime();
+    try {
+      List<Long> ids = new ArrayList<>();
+      Set<String> locations;
+      lock.writeLock().lock();
+      try {
+        ensureOpen();
+        List<NavigableMap<TimeKey, Long>> candidates = new ArrayList<>();
+        if (location == null) {
+          candidates.addAll(byLocation.values());
+        } else if (byLocation.containsKey(location)) {
+          candidates.add(byLocation.get(location));
+        }
+        for (NavigableMap<TimeKey, Long> series : candidates) {
+          NavigableMap<TimeKey, Long> range = series;
+          if (from != null || to != null) {
+            // Messwerte ohne Zeitstempel liegen vor allen anderen und passen zu keinem Bereich
+            range = range.tailMap(TimeKey.lowest(from == null ? LocalDateTime.MIN : from), true);
+          }
+          if (to != null) {
+            range = range.headMap(TimeKey.lowest(to), false);
+          }
+          range.keySet().forEach(key -> ids.add(key.id()));
+        }
+        locations = ids.isEmpty() ? Set.of() : tombstone(ids);
+        syncLocationIndex(locations);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      locations.forEach(affected -> notifyListeners(affected, Set.of()));
+      return ids.size();
+    } finally {
+      DELETE_MATCHING_TIMER.recordSince(started);
+    }
+  }
+
+  /**
+   * Appends and applies tombstones for existing readings as one linked batch and returns their
+   * locations. Requires the write lock.
+   */
+  private Set<String> tombstone(List<Long> ids) {
+    long batchStart = nextSlot;
+    try {
+      try {
+        for (int i = 0; i < ids.size(); i++) {
+          append(DELETE, i == ids.size() - 1 ? 0 : CONTINUED, ids.get(i), null, null);
+        }
+      } catch (IOException e) {
+        truncate(batchStart);
+        throw e;
+      }
+      Set<String> locations = new HashSet<>();
+      for (long slot = batchStart; slot < nextSlot; slot++) {
+        String previous = apply(slot);
+        if (previous != null) {
+          locations.add(previous);
+        }
+      }
+      if (options.fsyncPolicy() == FsyncPolicy.ALWAYS) {
+        active.buffer.force();
+      }
+      return locations;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not append tombstone", e);
+    }
+  }
+
+  /**
+   * Writes the index to the checkpoint file, atomically replacing the previous one. Called by
+   * {@link #close()}; may also be called periodically to shorten the replay after a crash.
+   *
+   * @throws UncheckedIOException if the checkpoint cannot be written
+   */
+  public void checkpoint() {
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      forceAll();
+      writeCheckpoint();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write checkpoint", e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Forces all segments to disk, writes a checkpoint and closes the files. The mappings are
+   * released by the garbage collector. Later calls do nothing.
+   */
+  @Override
+  public void close() {
+    if (fsyncExecutor != null) {
+      fsyncExecutor.shutdownNow();
+    }
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      forceAll();
+      try {
+        writeCheckpoint();
+      } catch (IOException e) {
+        logger.warn("Could not write checkpoint, the index will be rebuilt on the next start", e);
+      }
+      for (Segment segment : segments.values()) {
+        try {
+          segment.channel.close();
+        } catch (IOException e) {
+          logger.warn("Could not close {}", segment.path, e);
+        }
+      }
+      closed = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Repository has been closed");
+    }
+  }
+
+  private void notifyListeners(String location, Set<Long> updatedIds) {
+    for (InvalidationListener listener : invalidationListeners) {
+      listener.invalidated(location, updatedIds);
+    }
+  }
+
+  /** Adds or removes locations whose readings have changed. Requires the write lock. */
+  private void syncLocationIndex(Set<String> locations) {
+    for (String location : locations) {
+      if (byLocation.containsKey(location)) {
+        locationIndex.add(location);
+      } else {
+        locationIndex.remove(location);
+      }
+    }
+  }
+
+  private Long latestSlot(String location) {
+    NavigableMap<TimeKey, Long> series = byLocation.get(location);
+    return series == null || series.isEmpty() ? null : series.lastEntry().getValue();
+  }
+
+  // ---- Datensätze ----
+
+  private static byte[] encodeLocation(String location) {
+    if (location == null) {
+      return null;
+    }
+    byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_LOCATION_BYTES) {
+      throw new IllegalArgumentException(
+          "Location exceeds " + MAX_LOCATION_BYTES + " bytes: " + location);
+    }
+    return bytes;
+  }
+
+  /** Writes a record at the end of the log and returns its slot. Requires the write lock. */
+  private long append(byte type, int flags, long id, byte[] location, WeatherData data)
+      throws IOException {
+    if (nextSlot == active.base + active.capacity) {
+      roll();
+    }
+    MappedByteBuffer buffer = active.buffer;
+    int offset = offset(nextSlot);
+    int recordFlags = flags;
+    if (location != null) {
+      recordFlags |= HAS_LOCATION;
+      buffer.put(offset + LOCATION, location);
+    }
+    if (data != null) {
+      buffer.putDouble(offset + TEMPERATURE, data.getTemperature());
+      buffer.putInt(offset + HUMIDITY, data.getHumidity());
+      if (data.getTimestamp() != null) {
+        recordFlags |= HAS_TIMESTAMP;
+        buffer.putLong(offset + EPOCH_SECOND, data.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(offset + NANOS, data.getTimestamp().getNano());
+      }
+    }
+    buffer.put(offset + FLAGS, (byte) recordFlags);
+    buffer.putShort(offset + LOCATION_LENGTH, (short) (location == null ? 0 : location.length));
+    buffer.putLong(offset + ID, id);
+    buffer.put(offset + TYPE, type);
+    buffer.putInt(offset + CHECKSUM, checksum(buffer, offset));
+    active.dirty = true;
+    return nextSlot++;
+  }
+
+  private static int checksum(ByteBuffer buffer, int offset) {
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(offset, CHECKSUM));
+    crc.update(
+        buffer.slice(
+            offset + LOCATION, Short.toUnsignedInt(buffer.getShort(offset + LOCATION_LENGTH))));
+    return (int) crc.getValue();
+  }
+
+  private static boolean isValid(ByteBuffer buffer, int offset) {
+    byte type = buffer.get(offset + TYPE);
+    int length = Short.toUnsignedInt(buffer.getShort(offset + LOCATION_LENGTH));
+    return (type == PUT || type == DELETE)
+        && length <= MAX_LOCATION_BYTES
+        && buffer.getInt(offset + CHECKSUM) == checksum(buffer, offset);
+  }
+
+  private WeatherData read(long slot) {
+    ByteBuffer buffer = segmentContaining(slot).buffer;
+    int offset = offset(slot);
+    int flags = buffer.get(offset + FLAGS);
+    WeatherData data = new WeatherData();
+    data.setId(buffer.getLong(offset + ID));
+    if ((flags & HAS_LOCATION) != 0) {
+      data.setLocation(location(buffer, offset));
+    }
+    data.setTemperature(buffer.getDouble(offset + TEMPERATURE));
+    data.setHumidity(buffer.getInt(offset + HUMIDITY));
+    if ((flags & HAS_TIMESTAMP) != 0) {
+      data.setTimestamp(
+          LocalDateTime.ofEpochSecond(
+              buffer.getLong(offset + EPOCH_SECOND),
+              buffer.getInt(offset + NANOS),
+              ZoneOffset.UTC));
+    }
+    return data;
+  }
+
+  private static String location(ByteBuffer buffer, int offset) {
+    byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(offset + LOCATION_LENGTH))];
+    buffer.get(offset + LOCATION, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static TimeKey key(ByteBuffer buffer, int offset) {
+    long id = buffer.getLong(offset + ID);
+    if ((buffer.get(offset + FLAGS) & HAS_TIMESTAMP) == 0) {
+      return new TimeKey(Long.MIN_VALUE, 0, id);
+    }
+    return new TimeKey(buffer.getLong(offset + EPOCH_SECOND), buffer.getInt(offset + NANOS), id);
+  }
+
+  // ---- Index ----
+
+  /**
+   * Applies the record in a slot to the index and returns the location of the version it replaced,
+   * or null.
+   */
+  private String apply(long slot) {
+    ByteBuffer buffer = segmentContaining(slot).buffer;
+    int offset = offset(slot);
+    long id = buffer.getLong(offset + ID);
+    Long previous = buffer.get(offset + TYPE) == PUT ? slotById.put(id, slot) : slotById.remove(id);
+    String previousLocation = null;
+    if (previous != null) {
+      ByteBuffer previousBuffer = segmentContaining(previous).buffer;
+      int previousOffset = offset(previous);
+      if ((previousBuffer.get(previousOffset + FLAGS) & HAS_LOCATION) != 0) {
+        previousLocation = location(previousBuffer, previousOffset);
+        NavigableMap<TimeKey, Long> series = byLocation.get(previousLocation);
+        series.remove(key(previousBuffer, previousOffset));
+        if (series.isEmpty()) {
+          byLocation.remove(previousLocation);
+        }
+      }
+    }
+    if (buffer.get(offset + TYPE) == PUT && (buffer.get(offset + FLAGS) & HAS_LOCATION) != 0) {
+      index(location(buffer, offset), key(buffer, offset), slot);
+    }
+    nextId = Math.max(nextId, id + 1);
+    return previousLocation;
+  }
+
+  private void index(String location, TimeKey key, long slot) {
+    byLocation.computeIfAbsent(location, l -> new TreeMap<>()).put(key, slot);
+  }
+
+  // ---- Segmente ----
+
+  private void openSegments() throws IOException {
+    try (Stream<Path> files = Files.list(options.directory())) {
+      for (Path path : (Iterable<Path>) files::iterator) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+          continue;
+        }
+        String name = fileName.toString();
+        if (name.startsWith("segment-") && name.endsWith(".dat")) {
+          long base = Long.parseLong(name.substring(8, name.length() - 4));
+          int capacity = (int) (Files.size(path) / RECORD_SIZE);
+          if (capacity == 0) {
+            Files.delete(path); // beim Anlegen abgebrochen, enthält keine Datensätze
+          } else {
+            segments.put(base, map(path, base, capacity));
+          }
+        }
+      }
+    }
+    long expected = 0;
+    for (Segment segment : segments.values()) {
+      if (segment.base != expected) {
+        throw new IOException("Missing segment before " + segment.path);
+      }
+      expected = segment.base + segment.capacity;
+    }
+    if (segments.isEmpty()) {
+      createSegment(0);
+    }
+    active = segments.lastEntry().getValue();
+  }
+
+  private Segment map(Path path, long base, int capacity) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+      return new Segment(path, base, capacity, channel, buffer);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Segment createSegment(long base) throws IOException {
+    Path path = options.directory().resolve(String.format("segment-%020d.dat", base));
+    Segment segment = map(path, base, (int) (options.segmentBytes() / RECORD_SIZE));
+    segments.put(base, segment);
+    return segment;
+  }
+
+  /** Completes the active segment and continues in a new one. Requires the write lock. */
+  private void roll() throws IOException {
+    active.buffer.force();
+    active.dirty = false;
+    active = createSegment(nextSlot);
+    logger.info("Rolled to segment {}", active.path.getFileName());
+  }
+
+  private Segment segmentContaining(long slot) {
+    Map.Entry<Long, Segment> entry = segments.floorEntry(slot);
+    if (entry == null || slot >= entry.getKey() + entry.getValue().capacity) {
+      return null;
+    }
+    return entry.getValue();
+  }
+
+  private static int offset(long slot, Segment segment) {
+    return (int) ((slot - segment.base) * RECORD_SIZE);
+  }
+
+  private int offset(long slot) {
+    return offset(slot, segments.floorEntry(slot).getValue());
+  }
+
+  private void forceDirty() {
+    lock.readLock().lock();
+    try {
+      for (Segment segment : segments.values()) {
+        if (segment.dirty) {
+          segment.dirty = false;
+          segment.buffer.force();
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Background sync failed", e);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void forceAll() {
+    for (Segment segment : segments.values()) {
+      segment.buffer.force();
+      segment.dirty = false;
+    }
+  }
+
+  // ---- Wiederherstellung ----
+
+  /**
+   * Applies all complete records from a slot on and discards a torn tail or an incomplete batch, so
+   * new records are appended right after the last complete one.
+   */
+  private void replay(long fromSlot) throws IOException {
+    List<Long> batch = new ArrayList<>();
+    long slot = fromSlot;
+    boolean corrupt = false;
+    for (Segment segment = segmentContaining(slot); segment != null; ) {
+      int offset = offset(slot, segment);
+      ByteBuffer buffer = segment.buffer;
+      if (buffer.get(offset + TYPE) == EMPTY) {
+        break;
+      }
+      if (!isValid(buffer, offset)) {
+        corrupt = true;
+        break;
+      }
+      batch.add(slot);
+      if ((buffer.get(offset + FLAGS) & CONTINUED) == 0) {
+        batch.forEach(this::apply);
+        batch.clear();
+      }
+      slot++;
+      if (slot == segment.base + segment.capacity) {
+        segment = segments.get(slot);
+      }
+    }
+    long end = slot - batch.size();
+    if (corrupt && segmentContaining(slot) != segments.lastEntry().getValue()) {
+      throw new IOException("Corrupt record at position " + slot + " before the last segment");
+    }
+    if (corrupt || !batch.isEmpty()) {
+      logger.warn("Discarding records from position {} on (torn write or incomplete batch)", end);
+    }
+    truncate(end);
+  }
+
+  /** Clears the records from a slot on and deletes the segments after it. */
+  private void truncate(long end) throws IOException {
+    Segment last = segmentContaining(end);
+    if (last == null) {
+      last = segments.floorEntry(end).getValue(); // end liegt genau hinter einem vollen Segment
+    } else {
+      for (int offset = offset(end, last);
+          offset < last.capacity * RECORD_SIZE && last.buffer.get(offset + TYPE) != EMPTY;
+          offset += RECORD_SIZE) {
+        last.buffer.put(offset, new byte[RECORD_SIZE]);
+      }
+    }
+    while (segments.lastKey() > last.base) {
+      Segment removed = segments.pollLastEntry().getValue();
+      removed.channel.close();
+      Files.delete(removed.path);
+    }
+    active = last;
+    nextSlot = end;
+  }
+
+  /** Loads the checkpoint into the index and returns the slot to replay from, or 0 without one. */
+  private long loadCheckpoint() {
+    Path path = options.directory().resolve(CHECKPOINT_FILE);
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    try {
+      byte[] bytes = Files.readAllBytes(path);
+      if (bytes.length < Long.BYTES) {
+        logger.warn("Ignoring truncated checkpoint {}", path);
+        return 0;
+      }
+      CRC32C crc = new CRC32C();
+      crc.update(bytes, 0, bytes.length - Long.BYTES);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      if (ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()
+          || in.readInt() != CHECKPOINT_MAGIC
+          || in.readInt() != CHECKPOINT_VERSION) {
+        logger.warn("Ignoring invalid checkpoint {}", path);
+        return 0;
+      }
+      long endSlot = in.readLong();
+      Map.Entry<Long, Segment> last = segments.lastEntry();
+      if (endSlot > last.getKey() + last.getValue().capacity) {
+        logger.warn("Ignoring checkpoint {} beyond the last segment", path);
+        return 0;
+      }
+      nextId = in.readLong();
+      int locations = in.readInt();
+      for (int i = 0; i < locations; i++) {
+        String location = in.readUTF();
+        int entries = in.readInt();
+        for (int j = 0; j < entries; j++) {
+          TimeKey key = new TimeKey(in.readLong(), in.readInt(), in.readLong());
+          long slot = in.readLong();
+          index(location, key, slot);
+          slotById.put(key.id(), slot);
+        }
+      }
+      int unlocated = in.readInt();
+      for (int i = 0; i < unlocated; i++) {
+        slotById.put(in.readLong(), in.readLong());
+      }
+      logger.info("Loaded index checkpoint up to position {}", endSlot);
+      return endSlot;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not read checkpoint {}, rebuilding the index", path, e);
+      byLocation.clear();
+      slotById.clear();
+      nextId = 1;
+      return 0;
+    }
+  }
+
+  private void writeCheckpoint() throws IOException {
+    Path path = options.directory().resolve(CHECKPOINT_FILE);
+    Path temporary = options.directory().resolve(CHECKPOINT_FILE + ".tmp");
+    CRC32C crc = new CRC32C();
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temporary), crc)))) {
+      out.writeInt(CHECKPOINT_MAGIC);
+      out.writeInt(CHECKPOINT_VERSION);
+      out.writeLong(nextSlot);
+      out.writeLong(nextId);
+      out.writeInt(byLocation.size());
+      Set<Long> located = new HashSet<>();
+      for (Map.Entry<String, NavigableMap<TimeKey, Long>> series : byLocation.entrySet()) {
+        out.writeUTF(series.getKey());
+        out.writeInt(series.getValue().size());
+        for (Map.Entry<TimeKey, Long> entry : series.getValue().entrySet()) {
+          TimeKey key = entry.getKey();
+          out.writeLong(key.epochSecond());
+          out.writeInt(key.nano());
+          out.writeLong(key.id());
+          out.writeLong(entry.getValue());
+          located.add(key.id());
+        }
+      }
+      // Messwerte ohne Ort stehen nur im ID-Index
+      List<Map.Entry<Long, Long>> unlocated = new ArrayList<>();
+      for (Map.Entry<Long, Long> entry : slotById.entrySet()) {
+        if (!located.contains(entry.getKey())) {
+          unlocated.add(entry);
+        }
+      }
+      out.writeInt(unlocated.size());
+      for (Map.Entry<Long, Long> entry : unlocated) {
+        out.writeLong(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+      // Erst nach dem Flush hat die Prüfsumme alle Bytes gesehen; ihre eigenen zählen nicht mit
+      out.flush();
+      out.writeLong(crc.getValue());
+    }
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(
+        temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Position of a reading in the per-location index: timestamp, then ID. */
+  private record TimeKey(long epochSecond, int nano, long id) implements Comparable<TimeKey> {
+
+    /** The smallest key at a timestamp, for range bounds. */
+    static TimeKey lowest(LocalDateTime timestamp) {
+      return new TimeKey(
+          timestamp.toEpochSecond(ZoneOffset.UTC), timestamp.getNano(), Long.MIN_VALUE);
+    }
+
+    LocalDateTime timestamp() {
+      return epochSecond == Long.MIN_VALUE
+          ? null
+          : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    @Override
+    public int compareTo(TimeKey other) {
+      int result = Long.compare(epochSecond, other.epochSecond);
+      if (result == 0) {
+        result = Integer.compare(nano, other.nano);
+      }
+      return result != 0 ? result : Long.compare(id, other.id);
+    }
+  }
+
+  /** One mapped segment file covering the slots {@code [base, base + capacity)}. */
+  private static final class Segment {
+    private final Path path;
+    private final long base;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private volatile boolean dirty;
+
+    private Segment(
+        Path path, long base, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+      this.path = path;
+      this.base = base;
+      this.capacity = capacity;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+}
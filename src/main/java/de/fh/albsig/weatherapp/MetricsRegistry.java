@@ -0,0 +1,237 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the application's metrics, written in the Prometheus text exposition format.
+ *
+ * <p>Metrics are registered once, typically into static fields, and then updated without any
+ * lookup: a {@link LatencyHistogram} is exported as a Prometheus histogram with cumulative {@code
+ * _bucket} series, a {@link LongAdder} as a counter, and a {@link DoubleSupplier} as a gauge or
+ * counter that is read on each scrape. Registering the same name and labels again returns the
+ * existing histogram or counter, and replaces a supplier.
+ *
+ * <p>Histograms are exported as buckets rather than precomputed quantiles because the latter could
+ * only cover everything since startup. From the buckets, Prometheus computes quantiles over any
+ * window, e.g. {@code histogram_quantile(0.99,
+ * rate(weather_http_request_duration_seconds_bucket[5m]))}.
+ */
+public final class MetricsRegistry {
+
+  /** Upper bounds of the exported histogram buckets in seconds, besides {@code +Inf}. */
+  private static final double[] BUCKET_BOUNDS = {
+    0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+  };
+
+  private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS.length];
+
+  static {
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      BUCKET_BOUNDS_NANOS[i] = Math.round(BUCKET_BOUNDS[i] * 1e9);
+    }
+  }
+
+  private final Map<String, Family> families = new LinkedHashMap<>();
+
+  /** Creates an empty registry; the application uses {@link #shared()}, tests their own. */
+  MetricsRegistry() {}
+
+  /**
+   * Returns the registry shared by the whole application.
+   *
+   * @return the shared registry
+   */
+  public static MetricsRegistry shared() {
+    return Shared.INSTANCE;
+  }
+
+  /**
+   * Returns the latency histogram with the given name and labels, registering it if needed.
+   *
+   * @param name the metric name, ending in {@code _seconds}
+   * @param help the description
+   * @param labels alternating label names and values
+   * @return the histogram
+   */
+  public LatencyHistogram histogram(String name, String help, String... labels) {
+    return (LatencyHistogram)
+        register(name, help, "histogram", labels, null, LatencyHistogram::new);
+  }
+
+  /**
+   * Returns the counter with the given name and labels, registering it if needed.
+   *
+   * @param name the metric name, ending in {@code _total}
+   * @param help the description
+   * @param labels alternating label names and values
+   * @return the counter
+   */
+  public LongAdder counter(String name, String help, String... labels) {
+    return (LongAdder) register(name, help, "counter", labels, null, LongAdder::new);
+  }
+
+  /**
+   * Registers a gauge read on each scrape. A supplier returning NaN is skipped.
+   *
+   * @param name the metric name
+   * @param help the description
+   * @param value supplies the current value
+   * @param labels alternating label names and values
+   */
+  public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+    register(name, help, "gauge", labels, value, null);
+  }
+
+  /**
+   * Registers a counter maintained elsewhere and read on each scrape, e.g. a cache hit count.
+   *
+   * @param name the metric name, ending in {@code _total}
+   * @param help the description
+   * @param value supplies the current count
+   * @param labels alternating label names and values
+   */
+  public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+    register(name, help, "counter", labels, value, null);
+  }
+
+  /**
+   * Writes all metrics in the Prometheus text format.
+   *
+   * @param out the writer
+   * @throws IOException if writing fails
+   */
+  public void writeTo(Writer out) throws IOException {
+    List<Family> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(families.size());
+      for (Family family : families.values()) {
+        snapshot.add(family.copy());
+      }
+    }
+    StringBuilder text = new StringBuilder(4096);
+    for (Family family : snapshot) {
+      family.appendTo(text);
+    }
+    out.write(text.toString());
+  }
+
+  private synchronized Object register(
+      String name,
+      String help,
+      String type,
+      String[] labels,
+      DoubleSupplier supplier,
+      Supplier<Object> factory) {
+    Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException(name + " is already registered as " + family.type);
+    }
+    String renderedLabels = renderLabels(labels);
+    if (supplier != null) {
+      family.metrics.put(renderedLabels, supplier);
+      return supplier;
+    }
+    return family.metrics.computeIfAbsent(renderedLabels, key -> factory.get());
+  }
+
+  private static String renderLabels(String[] labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be name/value pairs");
+    }
+    StringBuilder rendered = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        rendered.append(',');
+      }
+      rendered.append(labels[i]).append("=\"");
+      for (char c : labels[i + 1].toCharArray()) {
+        switch (c) {
+          case '\\' -> rendered.append("\\\\");
+          case '"' -> rendered.append("\\\"");
+          case '\n' -> rendered.append("\\n");
+          default -> rendered.append(c);
+        }
+      }
+      rendered.append('"');
+    }
+    return rendered.toString();
+  }
+
+  /** Holds the shared registry, created on first use. */
+  private static final class Shared {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+  }
+
+  /** All metrics sharing one name, keyed by their rendered labels. */
+  private static final class Family {
+    private final String name;
+    private final String help;
+    private final String type;
+    private final Map<String, Object> metrics = new LinkedHashMap<>();
+
+    private Family(String name, String help, String type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+
+    Family copy() {
+      Family copy = new Family(name, help, type);
+      copy.metrics.putAll(metrics);
+      return copy;
+    }
+
+    void appendTo(StringBuilder text) {
+      text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+      text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+        String labels = entry.getKey();
+        Object metric = entry.getValue();
+        if (metric instanceof LatencyHistogram histogram) {
+          long[] cumulative = histogram.cumulativeCounts(BUCKET_BOUNDS_NANOS);
+          for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            String le = "le=\"" + BUCKET_BOUNDS[i] + "\"";
+            sample(text, name + "_bucket", join(labels, le), cumulative[i]);
+          }
+          long count = cumulative[BUCKET_BOUNDS.length];
+          sample(text, name + "_bucket", join(labels, "le=\"+Inf\""), count);
+          sample(text, name + "_sum", labels, histogram.sumNanos() / 1e9);
+          sample(text, name + "_count", labels, count);
+        } else if (metric instanceof LongAdder counter) {
+          sample(text, name, labels, counter.sum());
+        } else {
+          double value = ((DoubleSupplier) metric).getAsDouble();
+          if (!Double.isNaN(value)) {
+            sample(text, name, labels, value);
+          }
+        }
+      }
+    }
+
+    private static String join(String labels, String extra) {
+      return labels.isEmpty() ? extra : labels + "," + extra;
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+      text.append(name);
+      if (!labels.isEmpty()) {
+        text.append('{').append(labels).append('}');
+      }
+      text.append(' ');
+      if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+        text.append((long) value);
+      } else {
+        text.append(value);
+      }
+      text.append('\n');
+    }
+  }
+}
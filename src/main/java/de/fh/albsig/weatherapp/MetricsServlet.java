@@ -0,0 +1,117 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Servlet exposing all metrics of the {@link MetricsRegistry} in the Prometheus text format.
+ *
+ * <p>Besides the latency histograms recorded by the servlets and the repository, it registers
+ * counters of the latest-reading cache (if the repository backend has one) and, if write-behind
+ * mode is enabled, gauges of the {@link WriteBehindQueue}. Both are read at scrape time.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Content type of the Prometheus text exposition format. */
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+  private final transient MetricsRegistry registry;
+  private final WeatherRepository weatherRepository;
+
+  /** Default constructor, used by the servlet container. */
+  public MetricsServlet() {
+    this(MetricsRegistry.shared(), WeatherRepository.shared());
+  }
+
+  /**
+   * Constructor for initializing the servlet with a registry and the repository whose cache is
+   * reported.
+   *
+   * @param registry the registry to expose
+   * @param weatherRepository the repository whose cache counters are registered
+   */
+  public MetricsServlet(MetricsRegistry registry, WeatherRepository weatherRepository) {
+    this.registry = Objects.requireNonNull(registry, "registry must not be null");
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+  }
+
+  /** Registers the cache and write-behind metrics that are read at scrape time. */
+  @Override
+  public void init() {
+    ExpiringCache<String, WeatherData> cache = weatherRepository.getLatestCache();
+    if (cache != null) {
+      registry.counterFunction(
+          "weather_cache_hits_total", "Latest-reading cache hits", cache::hitCount);
+      registry.counterFunction(
+          "weather_cache_misses_total", "Latest-reading cache misses", cache::missCount);
+      registry.counterFunction(
+          "weather_cache_evictions_total", "Latest-reading cache evictions", cache::evictionCount);
+      registry.gauge("weather_cache_size", "Entries in the latest-reading cache", cache::size);
+    }
+
+    queueGauge(
+        "weather_write_queue_depth",
+        "Readings waiting in the write-behind queue",
+        WriteBehindStats::getDepth);
+    queueGauge(
+        "weather_write_queue_accepted_total",
+        "Readings accepted by the write-behind queue",
+        WriteBehindStats::getAccepted);
+    queueGauge(
+        "weather_write_queue_rejected_total",
+        "Readings rejected by the full write-behind queue",
+        WriteBehindStats::getRejected);
+    queueGauge(
+        "weather_write_queue_written_total",
+        "Readings written by the write-behind queue",
+        WriteBehindStats::getWritten);
+    queueGauge(
+        "weather_write_queue_failed_total",
+        "Readings the write-behind queue could not store",
+        WriteBehindStats::getFailed);
+    queueGauge(
+        "weather_write_queue_batch_size",
+        "Size of the last write-behind batch",
+        WriteBehindStats::getLastBatchSize);
+    queueGauge(
+        "weather_write_queue_drain_rate",
+        "Readings written per second by the write-behind queue",
+        WriteBehindStats::getDrainRate);
+  }
+
+  /**
+   * Handles HTTP GET requests for the metrics.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs while writing the metrics
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    resp.setContentType(CONTENT_TYPE);
+    resp.setCharacterEncoding("UTF-8");
+    registry.writeTo(resp.getWriter());
+  }
+
+  private void queueGauge(String name, String help, ToDoubleFunction<WriteBehindStats> value) {
+    // Queue bei jedem Abruf nachschlagen: sie existiert nur im Write-behind-Modus
+    registry.gauge(
+        name,
+        help,
+        () -> {
+          Object queue = getServletContext().getAttribute(WriteBehindQueue.CONTEXT_ATTRIBUTE);
+          return queue == null
+              ? Double.NaN
+              : value.applyAsDouble(((WriteBehindQueue) queue).stats());
+        });
+  }
+}
@@ -0,0 +1,91 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Small bounded pool for objects that are not thread-safe but worth reusing, such as JAXB
+ * marshallers or encoding buffers.
+ *
+ * <p>Unlike a {@link ThreadLocal}, the pool does not rely on threads living long: with one virtual
+ * thread per request, a thread-local instance would be created for every request and then thrown
+ * away. {@link #acquire()} takes an idle instance or creates a new one if none is left, so callers
+ * never wait; {@link #release(Object)} keeps at most {@code capacity} idle instances and drops the
+ * rest. An instance that was left in an unknown state, e.g. by an exception, is simply not
+ * released.
+ *
+ * @param <T> the type of the pooled objects
+ */
+final class ObjectPool<T> {
+
+  /** Default number of idle instances kept, enough for one in use per core and some headroom. */
+  static final int DEFAULT_CAPACITY = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  private final ArrayBlockingQueue<T> idle;
+  private final Supplier<T> factory;
+  private final AtomicLong created = new AtomicLong();
+
+  /**
+   * Creates a pool keeping {@link #DEFAULT_CAPACITY} idle instances.
+   *
+   * @param factory creates new instances
+   */
+  ObjectPool(Supplier<T> factory) {
+    this(DEFAULT_CAPACITY, factory);
+  }
+
+  /**
+   * Creates a pool.
+   *
+   * @param capacity the maximum number of idle instances kept
+   * @param factory creates new instances
+   */
+  ObjectPool(int capacity, Supplier<T> factory) {
+    this.idle = new ArrayBlockingQueue<>(capacity);
+    this.factory = Objects.requireNonNull(factory, "factory must not be null");
+  }
+
+  /**
+   * Takes an idle instance, or creates one if the pool is empty.
+   *
+   * @return an instance owned by the caller until it is released
+   */
+  T acquire() {
+    T instance = idle.poll();
+    if (instance == null) {
+      created.incrementAndGet();
+      instance = factory.get();
+    }
+    return instance;
+  }
+
+  /**
+   * Returns an instance to the pool; it is dropped if the pool is full.
+   *
+   * @param instance an instance obtained from {@link #acquire()} that is no longer used
+   * @return true if the instance was kept, false if it was dropped
+   */
+  boolean release(T instance) {
+    return idle.offer(instance);
+  }
+
+  /**
+   * Returns the number of instances created so far.
+   *
+   * @return the number of instances the factory has built
+   */
+  long created() {
+    return created.get();
+  }
+
+  /**
+   * Returns the number of idle instances.
+   *
+   * @return the number of instances waiting in the pool
+   */
+  int idle() {
+    return idle.size();
+  }
+}
@@ -0,0 +1,87 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Readiness probe for load balancers and orchestrators.
+ *
+ * <p>Answers with 200 (OK) once {@link ApplicationLifecycleListener} has finished the startup
+ * phases, and with 503 (Service Unavailable) and a {@code Retry-After} header before that or if the
+ * startup has failed. The plain-text body names the state and lists the duration of every finished
+ * phase in milliseconds.
+ */
+@WebServlet("/ready")
+public class ReadinessServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Seconds a client should wait before asking again while the application is starting. */
+  static final int RETRY_AFTER_SECONDS = 1;
+
+  private transient Supplier<StartupReport> report;
+
+  /** Default constructor, used by the servlet container. */
+  public ReadinessServlet() {
+    // Der Bericht wird in init() ermittelt
+  }
+
+  /**
+   * Constructor for initializing the servlet with a fixed startup report.
+   *
+   * @param report the startup report to expose
+   */
+  public ReadinessServlet(StartupReport report) {
+    Objects.requireNonNull(report, "report must not be null");
+    this.report = () -> report;
+  }
+
+  /** Looks up the startup report in the servlet context, unless one has been injected already. */
+  @Override
+  public void init() {
+    if (report == null) {
+      report =
+          () -> (StartupReport) getServletContext().getAttribute(StartupReport.CONTEXT_ATTRIBUTE);
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests for the readiness state.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs while writing the state
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    resp.setContentType("text/plain");
+    resp.setCharacterEncoding("UTF-8");
+    resp.setHeader("Cache-Control", "no-store");
+    StartupReport current = report.get();
+    StartupReport.State state = current == null ? StartupReport.State.STARTING : current.getState();
+    if (state != StartupReport.State.READY) {
+      resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      resp.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+    }
+    PrintWriter out = resp.getWriter();
+    if (state == StartupReport.State.FAILED) {
+      out.println("failed: " + current.getFailure());
+    } else {
+      out.println(state.name().toLowerCase(Locale.ROOT));
+    }
+    if (current != null) {
+      for (Map.Entry<String, Duration> phase : current.getPhases().entrySet()) {
+        out.println(phase.getKey() + ' ' + phase.getValue().toMillis() + " ms");
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Maintenance job enforcing the retention {@link Policy}: raw readings older than the raw retention
+ * age are rolled up into hourly {@link WeatherRollup}s, and hourly rollups older than the hourly
+ * retention age into daily ones. Daily rollups are kept.
+ *
+ * <p>Each run works through the backlog in batches of {@link Policy#batchSize()} rows (see {@link
+ * WeatherRepository#rollUpReadings(LocalDateTime, int)}), each in its own short transaction, so
+ * live requests are never blocked for long, and stops between batches when its thread is
+ * interrupted. The cutoffs are aligned to whole hours and days, so an hour or day is rolled up once
+ * it is complete. {@link ApplicationLifecycleListener} runs the job periodically if the system
+ * property {@value #RAW_RETENTION_PROPERTY} is set.
+ *
+ * <p>Rolled-up rows are counted in {@code weather_retention_rows_total}, the duration of each run
+ * in {@code weather_retention_duration_seconds} and failed runs in {@code
+ * weather_retention_failures_total}.
+ */
+final class RetentionJob implements Runnable {
+
+  /**
+   * System property holding the age after which raw readings are rolled up into hours, as an
+   * ISO-8601 duration such as {@code P7D}; unset disables the job.
+   */
+  static final String RAW_RETENTION_PROPERTY = "weatherapp.retention.raw";
+
+  /** System property holding the age after which hourly rollups are rolled up into days. */
+  static final String HOURLY_RETENTION_PROPERTY = "weatherapp.retention.hourly";
+
+  /** System property holding the delay between two runs. */
+  static final String INTERVAL_PROPERTY = "weatherapp.retention.interval";
+
+  /** System property holding the number of rows rolled up per transaction. */
+  static final String BATCH_SIZE_PROPERTY = "weatherapp.retention.batchSize";
+
+  private static final Logger logger = LogManager.getLogger(RetentionJob.class);
+
+  private final WeatherRepository repository;
+  private final Policy policy;
+  private final Clock clock;
+  private final LongAdder readingsRolledUp;
+  private final LongAdder hoursRolledUp;
+  private final LongAdder failures;
+  private final LatencyHistogram duration;
+
+  /**
+   * Settings of the job.
+   *
+   * @param rawRetention the age after which raw readings are rolled up into hours
+   * @param hourlyRetention the age after which hourly rollups are rolled up into days; at least the
+   *     raw retention
+   * @param interval the delay between two runs
+   * @param batchSize the maximum number of rows rolled up per transaction
+   * @throws IllegalArgumentException if a duration is not positive, the hourly retention is shorter
+   *     than the raw retention, or the batch size is not positive
+   */
+  record Policy(Duration rawRetention, Duration hourlyRetention, Duration interval, int batchSize) {
+
+    /** Default age after which hourly rollups are rolled up into days. */
+    static final Duration DEFAULT_HOURLY_RETENTION = Duration.ofDays(90);
+
+    /** Default delay between two runs. */
+    static final Duration DEFAULT_INTERVAL = Duration.ofHours(1);
+
+    /** Default number of rows rolled up per transaction. */
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Prüft die Einstellungen; die Bedingungen stehen in der Dokumentation des Records
+    Policy {
+      requirePositive(rawRetention, "rawRetention");
+      requirePositive(hourlyRetention, "hourlyRetention");
+      requirePositive(interval, "interval");
+      if (hourlyRetention.compareTo(rawRetention) < 0) {
+        throw new IllegalArgumentException("hourlyRetention must not be shorter than rawRetention");
+      }
+      if (batchSize < 1) {
+        throw new IllegalArgumentException("batchSize must be positive");
+      }
+    }
+
+    /**
+     * Reads the settings from properties, falling back to the defaults for all but the raw
+     * retention.
+     *
+     * @param properties the configuration, usually the system properties
+     * @return the settings, or null if {@value #RAW_RETENTION_PROPERTY} is not set
+     * @throws IllegalArgumentException if a value is invalid, or if the repository backend selected
+     *     by {@value WeatherRepository#BACKEND_PROPERTY} keeps no rollups
+     */
+    static Policy fromProperties(Properties properties) {
+      String raw = properties.getProperty(RAW_RETENTION_PROPERTY);
+      if (raw == null || raw.isBlank()) {
+        return null;
+      }
+      String backend = WeatherRepositories.backend(properties);
+      if ("mapped".equals(backend)) {
+        throw new IllegalArgumentException(
+            RAW_RETENTION_PROPERTY
+                + " is set, but the "
+                + backend
+                + " repository backend keeps no rollups; unset it or use "
+                + WeatherRepository.BACKEND_PROPERTY
+                + "=jpa");
+      }
+      try {
+        return new Policy(
+            Duration.parse(raw.trim()),
+            Duration.parse(
+                properties.getProperty(
+                    HOURLY_RETENTION_PROPERTY, DEFAULT_HOURLY_RETENTION.toString())),
+            Duration.parse(properties.getProperty(INTERVAL_PROPERTY, DEFAULT_INTERVAL.toString())),
+            Integer.parseInt(
+                properties.getProperty(BATCH_SIZE_PROPERTY, String.valueOf(DEFAULT_BATCH_SIZE))));
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid retention duration: " + e.getParsedString(), e);
+      }
+    }
+
+    private static void requirePositive(Duration value, String name) {
+      if (value == null || value.isNegative() || value.isZero()) {
+        throw new IllegalArgumentException(name + " must be positive");
+      }
+    }
+  }
+
+  /**
+   * Creates a job.
+   *
+   * @param repository the repository to compact
+   * @param policy the retention settings
+   * @param clock the clock the retention ages are measured against; timestamps are read as UTC
+   * @param registry the registry the metrics are exported to
+   */
+  RetentionJob(WeatherRepository repository, Policy policy, Clock clock, MetricsRegistry registry) {
+    this.repository = Objects.requireNonNull(repository, "repository must not be null");
+    this.policy = Objects.requireNonNull(policy, "policy must not be null");
+    this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    String rowsHelp = "Rows rolled up and deleted by the retention job";
+    this.readingsRolledUp =
+        registry.counter("weather_retention_rows_total", rowsHelp, "tier", "raw");
+    this.hoursRolledUp = registry.counter("weather_retention_rows_total", rowsHelp, "tier", "hour");
+    this.failures =
+        registry.counter("weather_retention_failures_total", "Failed runs of the retention job");
+    this.duration =
+        registry.histogram(
+            "weather_retention_duration_seconds", "Duration of runs of the retention job");
+  }
+
+  /**
+   * Rolls up everything past its retention age. Failures are logged and counted, so a periodic
+   * schedule keeps running, except when the backend does not support rollups at all.
+   *
+   * @throws UnsupportedOperationException if the repository has no rollups, which ends a periodic
+   *     schedule
+   */
+  @Override
+  public void run() {
+    long started = System.nanoTime();
+    try {
+      LocalDateTime now = LocalDateTime.now(clock);
+      LocalDateTime rawCutoff = now.minus(policy.rawRetention()).truncatedTo(ChronoUnit.HOURS);
+      LocalDateTime hourlyCutoff = now.minus(policy.hourlyRetention()).truncatedTo(ChronoUnit.DAYS);
+      long readings = drain(limit -> repository.rollUpReadings(rawCutoff, limit), readingsRolledUp);
+      long hours = drain(limit -> repository.rollUpHours(hourlyCutoff, limit), hoursRolledUp);
+      logger.info(
+          "Rolled up {} readings before {} and {} hourly rollups before {} in {} ms",
+          readings,
+          rawCutoff,
+          hours,
+          hourlyCutoff,
+          (System.nanoTime() - started) / 1_000_000);
+    } catch (UnsupportedOperationException e) {
+      logger.warn(
+          "Retention disabled, the repository does not support rollups: {}", e.getMessage());
+      throw e;
+    } catch (RuntimeException e) {
+      failures.increment();
+      logger.error("Retention run failed", e);
+    } finally {
+      duration.recordSince(started);
+    }
+  }
+
+  /** Rolls up batches until a batch comes back short or the thread is interrupted. */
+  private long drain(IntUnaryOperator batch, LongAdder counter) {
+    long total = 0;
+    int rolledUp;
+    do {
+      rolledUp = batch.applyAsInt(policy.batchSize());
+      counter.add(rolledUp);
+      total += rolledUp;
+    } while (rolledUp == policy.batchSize() && !Thread.currentThread().isInterrupted());
+    return total;
+  }
+}
@@ -0,0 +1,154 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Progress of the application startup: how long each phase took and whether the application is
+ * ready to serve requests. Filled in by {@link ApplicationLifecycleListener} and read by {@link
+ * ReadinessServlet}.
+ *
+ * <p>Every finished phase is exported as the gauge {@code weather_startup_phase_seconds}. The phase
+ * {@value #TOTAL_PHASE} is the time from deployment until the application became ready, i.e. until
+ * the first request can be served at full speed.
+ */
+public final class StartupReport {
+
+  /** Name of the servlet context attribute holding the report of the running application. */
+  public static final String CONTEXT_ATTRIBUTE = StartupReport.class.getName();
+
+  /** Name of the phase spanning the whole startup. */
+  public static final String TOTAL_PHASE = "total";
+
+  private static final Logger logger = LogManager.getLogger(StartupReport.class);
+
+  /** State of the startup. */
+  public enum State {
+    /** Phases are still running. */
+    STARTING,
+    /** All phases have finished. */
+    READY,
+    /** A phase has failed; the application will not become ready. */
+    FAILED
+  }
+
+  private final MetricsRegistry registry;
+  private final long startedNanos = System.nanoTime();
+  private final Map<String, Duration> phases = new LinkedHashMap<>();
+  private volatile State state = State.STARTING;
+  private volatile String failure;
+
+  /**
+   * Starts a report; the total startup time is measured from now.
+   *
+   * @param registry the registry the phase durations are exported to
+   */
+  public StartupReport(MetricsRegistry registry) {
+    this.registry = registry;
+    registry.gauge(
+        "weather_ready",
+        "1 once the application has finished starting, otherwise 0",
+        () -> state == State.READY ? 1 : 0);
+  }
+
+  /**
+   * Runs a phase and records its duration.
+   *
+   * @param phase the name of the phase
+   * @param action the work of the phase
+   * @param <T> the type of the result
+   * @return the result of the action
+   */
+  public <T> T call(String phase, Supplier<T> action) {
+    long started = System.nanoTime();
+    T result = action.get();
+    record(phase, Duration.ofNanos(System.nanoTime() - started));
+    return result;
+  }
+
+  /**
+   * Runs a phase without a result and records its duration.
+   *
+   * @param phase the name of the phase
+   * @param action the work of the phase
+   */
+  public void run(String phase, Runnable action) {
+    call(
+        phase,
+        () -> {
+          action.run();
+          return null;
+        });
+  }
+
+  /** Marks the startup as finished and records the {@value #TOTAL_PHASE} phase. */
+  public void ready() {
+    record(TOTAL_PHASE, Duration.ofNanos(System.nanoTime() - startedNanos));
+    state = State.READY;
+  }
+
+  /**
+   * Marks the startup as failed.
+   *
+   * @param cause the error of the failed phase
+   */
+  public void failed(Throwable cause) {
+    failure = String.valueOf(cause);
+    state = State.FAILED;
+    logger.error("Startup failed", cause);
+  }
+
+  /**
+   * Returns the state of the startup.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether all phases have finished.
+   *
+   * @return true if the application is ready
+   */
+  public boolean isReady() {
+    return state == State.READY;
+  }
+
+  /**
+   * Returns the error that made the startup fail; the stack trace has been logged by {@link
+   * #failed(Throwable)}.
+   *
+   * @return the type and message of the error, or null if no phase has failed
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  /**
+   * Returns the durations of the phases finished so far, in the order they finished.
+   *
+   * @return a copy of the phase durations
+   */
+  public synchronized Map<String, Duration> getPhases() {
+    return new LinkedHashMap<>(phases);
+  }
+
+  private void record(String phase, Duration duration) {
+    synchronized (this) {
+      phases.put(phase, duration);
+    }
+    registry.gauge(
+        "weather_startup_phase_seconds",
+        "Duration of the startup phases",
+        () -> duration.toNanos() / 1e9,
+        "phase",
+        phase);
+    logger.info("Startup phase {} took {} ms", phase, duration.toMillis());
+  }
+}
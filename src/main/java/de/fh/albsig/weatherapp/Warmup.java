@@ -0,0 +1,96 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Exercises the hot paths of the application at deploy time, so the first requests neither pay for
+ * query compilation nor run in the interpreter.
+ *
+ * <p>The repository reads are run a few times for a location that does not exist: the first run
+ * makes Hibernate translate each query and the database prepare its statement, later runs let the
+ * JIT compiler see the code. Encoding, decoding and content negotiation do not touch the database
+ * and are repeated far more often, until they have been compiled. The warm-up never writes, so it
+ * leaves no data behind; its reads are recorded in the repository metrics like any other.
+ */
+final class Warmup {
+
+  /** System property holding the number of codec rounds; 0 skips them. */
+  static final String ITERATIONS_PROPERTY = "weatherapp.warmup.iterations";
+
+  /** Default number of codec rounds, enough for the JIT compiler to compile the codecs. */
+  static final int DEFAULT_ITERATIONS = 10_000;
+
+  /** Number of rounds of repository reads; each one queries the database. */
+  static final int QUERY_ROUNDS = 20;
+
+  /** Location read by the warm-up; no real reading has it. */
+  static final String LOCATION = "__warmup__";
+
+  private static final LocalDateTime HISTORY_FROM = LocalDateTime.of(2000, 1, 1, 0, 0);
+  private static final String[] ACCEPT_HEADERS = {
+    null,
+    WeatherJsonCodec.MEDIA_TYPE,
+    "application/xml;q=0.9, */*;q=0.1",
+    WeatherBinaryCodec.MEDIA_TYPE
+  };
+
+  private Warmup() {}
+
+  /**
+   * Returns the number of codec rounds configured by {@value #ITERATIONS_PROPERTY}.
+   *
+   * @return the number of rounds, at least 0
+   */
+  static int iterations() {
+    return Math.max(0, Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+  }
+
+  /**
+   * Runs every read query of the repository the given number of times.
+   *
+   * @param repository the repository to read from
+   * @param rounds the number of rounds
+   */
+  static void readRepository(WeatherRepository repository, int rounds) {
+    for (int i = 0; i < rounds && !Thread.currentThread().isInterrupted(); i++) {
+      repository.findByLocation(LOCATION);
+      repository.findLatestVersion(LOCATION);
+      repository.findNewestTimestamp(LOCATION);
+      repository.findHistory(LOCATION, HISTORY_FROM, HISTORY_FROM.plusDays(1), Duration.ofHours(1));
+      repository.findPage(Long.MAX_VALUE - 1, 1);
+    }
+  }
+
+  /**
+   * Negotiates, encodes and decodes a reading in every representation, as GET, POST and PUT do.
+   *
+   * @param codecs the representations to exercise
+   * @param iterations the number of rounds
+   */
+  static void exerciseCodecs(WeatherCodecs codecs, int iterations) {
+    WeatherData sample = new WeatherData();
+    sample.setId(1L);
+    sample.setLocation(LOCATION);
+    sample.setTemperature(21.5);
+    sample.setHumidity(40);
+    sample.setTimestamp(HISTORY_FROM);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+    try {
+      for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+        WeatherCodec codec = codecs.forAccept(ACCEPT_HEADERS[i % ACCEPT_HEADERS.length]);
+        out.reset();
+        codec.encode(sample, out);
+        codec.decode(new ByteArrayInputStream(out.toByteArray()));
+        WeatherVersion.of(sample).etag(codec.mediaType());
+        CompressionFilter.negotiate("gzip, deflate, br");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Warm-up could not encode a reading", e);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of {@link WeatherData} for machine clients.
+ *
+ * <p>Each reading is one frame: a 4-byte big-endian length of the rest of the frame, a format
+ * version byte, a flag byte telling which optional fields follow, and then the fields in fixed
+ * order:
+ *
+ * <ul>
+ *   <li>id: 8 bytes, if flag {@code 0x01} is set
+ *   <li>location: 2-byte length and UTF-8 bytes, if flag {@code 0x02} is set
+ *   <li>temperature: 8-byte IEEE 754 double
+ *   <li>humidity: 4-byte integer
+ *   <li>timestamp: 8 bytes of epoch seconds and 4 bytes of nanoseconds in UTC, if flag {@code 0x04}
+ *       is set
+ * </ul>
+ *
+ * <p>A typical reading takes less than 50 bytes. Because every frame carries its length, frames can
+ * be concatenated into a stream of readings and read back by calling {@link #decode(InputStream)}
+ * repeatedly on the same stream.
+ */
+public class WeatherBinaryCodec implements WeatherCodec {
+
+  /** Media type of this encoding. */
+  public static final String MEDIA_TYPE = "application/x-weather-binary";
+
+  /** Version of the frame layout written by this codec. */
+  static final byte FORMAT_VERSION = 1;
+
+  private static final int HAS_ID = 0x01;
+  private static final int HAS_LOCATION = 0x02;
+  private static final int HAS_TIMESTAMP = 0x04;
+  private static final int MAX_FRAME_BYTES = 2 + 8 + 2 + 0xFFFF + 8 + 4 + 12;
+
+  @Override
+  public String mediaType() {
+    return MEDIA_TYPE;
+  }
+
+  @Override
+  public boolean isText() {
+    return false;
+  }
+
+  @Override
+  public void encode(WeatherData weatherData, OutputStream out) throws IOException {
+    byte[] location =
+        weatherData.getLocation() == null
+            ? null
+            : weatherData.getLocation().getBytes(StandardCharsets.UTF_8);
+    if (location != null && location.length > 0xFFFF) {
+      throw new IOException("Location exceeds 65535 bytes");
+    }
+    int flags = 0;
+    int length = 2 + 8 + 4;
+    if (weatherData.getId() != null) {
+      flags |= HAS_ID;
+      length += 8;
+    }
+    if (location != null) {
+      flags |= HAS_LOCATION;
+      length += 2 + location.length;
+    }
+    if (weatherData.getTimestamp() != null) {
+      flags |= HAS_TIMESTAMP;
+      length += 12;
+    }
+
+    ByteBuffer frame = ByteBuffer.allocate(4 + length);
+    frame.putInt(length).put(FORMAT_VERSION).put((byte) flags);
+    if (weatherData.getId() != null) {
+      frame.putLong(weatherData.getId());
+    }
+    if (location != null) {
+      frame.putShort((short) location.length).put(location);
+    }
+    frame.putDouble(weatherData.getTemperature()).putInt(weatherData.getHumidity());
+    if (weatherData.getTimestamp() != null) {
+      LocalDateTime timestamp = weatherData.getTimestamp();
+      frame.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+    }
+    out.write(frame.array());
+  }
+
+  @Override
+  public WeatherData decode(InputStream in) throws IOException {
+    byte[] header = in.readNBytes(4);
+    if (header.length < 4) {
+      throw new EOFException("Missing frame length");
+    }
+    int length = ByteBuffer.wrap(header).getInt();
+    if (length < 2 || length > MAX_FRAME_BYTES) {
+      throw new IOException("Invalid frame length " + length);
+    }
+    byte[] body = in.readNBytes(length);
+    if (body.length < length) {
+      throw new EOFException("Frame truncated after " + body.length + " of " + length + " bytes");
+    }
+
+    ByteBuffer frame = ByteBuffer.wrap(body);
+    try {
+      byte version = frame.get();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported format version " + version);
+      }
+      int flags = frame.get();
+      WeatherData data = new WeatherData();
+      if ((flags & HAS_ID) != 0) {
+        data.setId(frame.getLong());
+      }
+      if ((flags & HAS_LOCATION) != 0) {
+        int locationLength = Short.toUnsignedInt(frame.getShort());
+        data.setLocation(
+            new String(body, frame.position(), locationLength, StandardCharsets.UTF_8));
+        frame.position(frame.position() + locationLength);
+      }
+      data.setTemperature(frame.getDouble());
+      data.setHumidity(frame.getInt());
+      if ((flags & HAS_TIMESTAMP) != 0) {
+        data.setTimestamp(
+            LocalDateTime.ofEpochSecond(frame.getLong(), frame.getInt(), ZoneOffset.UTC));
+      }
+      if (frame.hasRemaining()) {
+        throw new IOException("Unexpected " + frame.remaining() + " bytes at the end of the frame");
+      }
+      return data;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Malformed frame", e);
+    } catch (DateTimeException e) {
+      throw new IOException("Invalid timestamp in frame", e);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlType;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Aggregated weather readings of one location within one time bucket.
+ *
+ * <p>A bucket covers the half-open interval {@code [start, start + bucket size)}; bucket starts are
+ * aligned to multiples of the bucket size since the epoch.
+ */
+@XmlType(
+    propOrder = {
+      "start",
+      "count",
+      "minTemperature",
+      "maxTemperature",
+      "avgTemperature",
+      "minHumidity",
+      "maxHumidity",
+      "avgHumidity"
+    })
+public class WeatherBucket {
+
+  private LocalDateTime start;
+  private long count;
+  private double minTemperature;
+  private double maxTemperature;
+  private double avgTemperature;
+  private int minHumidity;
+  private int maxHumidity;
+  private double avgHumidity;
+
+  @XmlJavaTypeAdapter(LocalDateTimeAdapter.class)
+  public LocalDateTime getStart() {
+    return start;
+  }
+
+  public void setStart(LocalDateTime start) {
+    this.start = start;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public double getMinTemperature() {
+    return minTemperature;
+  }
+
+  public void setMinTemperature(double minTemperature) {
+    this.minTemperature = minTemperature;
+  }
+
+  public double getMaxTemperature() {
+    return maxTemperature;
+  }
+
+  public void setMaxTemperature(double maxTemperature) {
+    this.maxTemperature = maxTemperature;
+  }
+
+  public double getAvgTemperature() {
+    return avgTemperature;
+  }
+
+  public void setAvgTemperature(double avgTemperature) {
+    this.avgTemperature = avgTemperature;
+  }
+
+  public int getMinHumidity() {
+    return minHumidity;
+  }
+
+  public void setMinHumidity(int minHumidity) {
+    this.minHumidity = minHumidity;
+  }
+
+  public int getMaxHumidity() {
+    return maxHumidity;
+  }
+
+  public void setMaxHumidity(int maxHumidity) {
+    this.maxHumidity = maxHumidity;
+  }
+
+  public double getAvgHumidity() {
+    return avgHumidity;
+  }
+
+  public void setAvgHumidity(double avgHumidity) {
+    this.avgHumidity = avgHumidity;
+  }
+
+  /** Running min/max/sum of one bucket, used by the in-memory stores to build buckets. */
+  static final class Accumulator {
+    private long count;
+    private double minTemperature = Double.POSITIVE_INFINITY;
+    private double maxTemperature = Double.NEGATIVE_INFINITY;
+    private double sumTemperature;
+    private int minHumidity = Integer.MAX_VALUE;
+    private int maxHumidity = Integer.MIN_VALUE;
+    private long sumHumidity;
+
+    void add(double temperature, int humidity) {
+      count++;
+      minTemperature = Math.min(minTemperature, temperature);
+      maxTemperature = Math.max(maxTemperature, temperature);
+      sumTemperature += temperature;
+      minHumidity = Math.min(minHumidity, humidity);
+      maxHumidity = Math.max(maxHumidity, humidity);
+      sumHumidity += humidity;
+    }
+
+    WeatherBucket toBucket(long startSecond) {
+      WeatherBucket bucket = new WeatherBucket();
+      bucket.setStart(LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC));
+      bucket.setCount(count);
+      bucket.setMinTemperature(minTemperature);
+      bucket.setMaxTemperature(maxTemperature);
+      bucket.setAvgTemperature(sumTemperature / count);
+      bucket.setMinHumidity(minHumidity);
+      bucket.setMaxHumidity(maxHumidity);
+      bucket.setAvgHumidity((double) sumHumidity / count);
+      return bucket;
+    }
+  }
+}
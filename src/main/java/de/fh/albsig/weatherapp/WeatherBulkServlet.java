@@ -0,0 +1,244 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet for ingesting many weather readings with a single HTTP request.
+ *
+ * <p>POST expects a {@code <weatherDataList>} document or, with {@code Content-Type: {@value
+ * WeatherBinaryCodec#MEDIA_TYPE}}, a stream of concatenated {@link WeatherBinaryCodec} frames. The
+ * response is XML in both cases. Every item is validated on its own; all valid items are stored in
+ * one transaction using JDBC batch inserts (see {@link WeatherRepository#saveAll(List)}). Items
+ * carrying an ID update that reading and are reported as {@code updated}, the others as {@code
+ * created}. The response is a {@link BulkResult} listing the outcome of each item in input order.
+ *
+ * <p>Both formats are read item by item and reading stops after one item more than {@link
+ * #MAX_ITEMS}, so an over-long request is rejected without being held in memory.
+ *
+ * <p>DELETE removes all readings matching the query parameters {@code location}, {@code from} and
+ * {@code to} with a single set-based statement (see {@link WeatherRepository#deleteMatching}).
+ */
+@WebServlet("/weather/bulk")
+public class WeatherBulkServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Maximum number of readings accepted in a single bulk request. */
+  static final int MAX_ITEMS = 10_000;
+
+  private static final Logger logger = LogManager.getLogger(WeatherBulkServlet.class);
+  private static final WeatherBinaryCodec BINARY_CODEC = new WeatherBinaryCodec();
+  private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherBulkServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository and an XML codec.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for reading and writing XML
+   */
+  public WeatherBulkServlet(WeatherRepository weatherRepository, WeatherXmlCodec codec) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+  }
+
+  /**
+   * Builds the XML codec once, unless one has been injected already.
+   *
+   * @throws ServletException if the JAXB context cannot be created
+   */
+  @Override
+  public void init() throws ServletException {
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP POST requests carrying a list of weather readings.
+   *
+   * <p>Responds with 201 (Created) if every item was stored, with 200 (OK) if some items failed
+   * (see the per-item results), with 400 (Bad Request) if the document cannot be parsed or is too
+   * large, and with 415 (Unsupported Media Type) for a body that is neither XML nor binary frames.
+   *
+   * @param req the HttpServletRequest containing the {@code <weatherDataList>} document or frames
+   * @param resp the HttpServletResponse receiving the {@code <bulkResult>} document
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    WeatherCodec format =
+        new WeatherCodecs(codec, BINARY_CODEC).forContentType(req.getContentType());
+    if (format == null) {
+      resp.sendError(
+          HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+          "Bulk requests must be "
+              + WeatherXmlCodec.MEDIA_TYPE
+              + " or "
+              + BINARY_CODEC.mediaType());
+      return;
+    }
+    List<WeatherData> items;
+    if (format == BINARY_CODEC) {
+      try {
+        items = readFrames(req.getInputStream());
+      } catch (IOException e) {
+        logger.warn("Rejected malformed binary bulk request", e);
+        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid weather data frames");
+        return;
+      }
+    } else {
+      try {
+        items = codec.readList(req.getReader(), MAX_ITEMS);
+      } catch (JAXBException e) {
+        logger.warn("Rejected malformed bulk request", e);
+        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid weather data list format");
+        return;
+      }
+    }
+
+    if (items.size() > MAX_ITEMS) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "Too many items, at most " + MAX_ITEMS + " allowed");
+      return;
+    }
+    logger.info("Received a bulk request with {} items", items.size());
+
+    BulkResult.Item[] outcomes = new BulkResult.Item[items.size()];
+    // Vor dem Speichern merken, welche Einträge schon eine ID haben; neue erhalten erst dabei eine
+    String[] statuses = new String[items.size()];
+    List<WeatherData> valid = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      WeatherData data = items.get(i);
+      if (data == null || data.getLocation() == null || data.getLocation().isEmpty()) {
+        outcomes[i] = new BulkResult.Item(i, BulkResult.FAILED, null, "Missing location");
+      } else {
+        statuses[i] = data.getId() == null ? BulkResult.CREATED : BulkResult.UPDATED;
+        valid.add(data);
+      }
+    }
+
+    String storeError = null;
+    if (!valid.isEmpty()) {
+      try {
+        weatherRepository.saveAll(valid);
+      } catch (RuntimeException e) {
+        logger.error("Error while saving bulk weather data", e);
+        storeError = "Could not store weather data";
+      }
+    }
+    for (int i = 0; i < outcomes.length; i++) {
+      if (outcomes[i] == null) {
+        outcomes[i] =
+            storeError == null
+                ? new BulkResult.Item(i, statuses[i], items.get(i).getId(), null)
+                : new BulkResult.Item(i, BulkResult.FAILED, null, storeError);
+      }
+    }
+    BulkResult result = new BulkResult();
+    result.setItems(List.of(outcomes));
+
+    logger.info(
+        "Bulk request stored {} of {} items", result.getSucceeded(), result.getItems().size());
+    resp.setStatus(
+        result.getFailed() == 0 ? HttpServletResponse.SC_CREATED : HttpServletResponse.SC_OK);
+    resp.setContentType("application/xml");
+    resp.setCharacterEncoding("UTF-8");
+    try {
+      codec.writeDocument(result, resp.getOutputStream());
+    } catch (JAXBException e) {
+      logger.error("Error while writing bulk result", e);
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "An error occurred while processing the request");
+    }
+  }
+
+  /**
+   * Handles HTTP DELETE requests removing all readings of a location, of a time range, or of a
+   * location within a time range. The range is given as ISO-8601 date-times {@code from}
+   * (inclusive) and {@code to} (exclusive); either bound may be omitted.
+   *
+   * <p>Responds with 200 (OK) and the number of deleted readings, and with 400 (Bad Request) if no
+   * criterion is given or a date-time is invalid.
+   *
+   * @param req the HttpServletRequest carrying the criteria as query parameters
+   * @param resp the HttpServletResponse receiving the number of deleted readings
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String location = req.getParameter("location");
+    LocalDateTime from;
+    LocalDateTime to;
+    try {
+      from = dateTimeParameter(req, "from");
+      to = dateTimeParameter(req, "to");
+    } catch (DateTimeParseException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "from and to must be ISO-8601 date-times");
+      return;
+    }
+    if (location == null && from == null && to == null) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "location, from or to parameter is required");
+      return;
+    }
+    if (from != null && to != null && !from.isBefore(to)) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "from must be before to");
+      return;
+    }
+
+    try {
+      long deleted = weatherRepository.deleteMatching(location, from, to);
+      logger.info("Deleted {} readings of {} from {} to {}", deleted, location, from, to);
+      resp.setContentType("text/plain");
+      resp.setCharacterEncoding("UTF-8");
+      resp.getWriter().write("Deleted " + deleted + " weather readings.");
+    } catch (RuntimeException e) {
+      logger.error("Error while deleting weather data", e);
+      resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error deleting weather data");
+    }
+  }
+
+  /** Reads frames up to the end of the body, but stops after one frame more than allowed. */
+  private static List<WeatherData> readFrames(InputStream body) throws IOException {
+    PushbackInputStream in = new PushbackInputStream(body);
+    List<WeatherData> items = new ArrayList<>();
+    int next;
+    while (items.size() <= MAX_ITEMS && (next = in.read()) >= 0) {
+      in.unread(next);
+      items.add(BINARY_CODEC.decode(in));
+    }
+    return items;
+  }
+
+  private static LocalDateTime dateTimeParameter(HttpServletRequest req, String name) {
+    String value = req.getParameter(name);
+    return value == null ? null : LocalDateTime.parse(value);
+  }
+}
@@ -0,0 +1,48 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encoding of a single {@link WeatherData} reading in one media type.
+ *
+ * <p>Implementations are thread-safe and meant to be shared; {@link WeatherCodecs} selects one per
+ * request from the {@code Accept} and {@code Content-Type} headers.
+ */
+public interface WeatherCodec {
+
+  /**
+   * Returns the media type of this encoding, without parameters.
+   *
+   * @return the media type, e.g. {@code application/json}
+   */
+  String mediaType();
+
+  /**
+   * Returns whether the encoding is text, so the response needs a character encoding.
+   *
+   * @return true for text formats, which are always UTF-8
+   */
+  default boolean isText() {
+    return true;
+  }
+
+  /**
+   * Writes the reading to the given stream.
+   *
+   * @param weatherData the reading to write
+   * @param out the target stream, which is not closed
+   * @throws IOException if the reading cannot be encoded or written
+   */
+  void encode(WeatherData weatherData, OutputStream out) throws IOException;
+
+  /**
+   * Reads one reading from the given stream.
+   *
+   * @param in the source stream, which is not closed
+   * @return the decoded reading
+   * @throws IOException if the input is malformed or cannot be read
+   */
+  WeatherData decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,142 @@
+package de.fh.albsig.weatherapp;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The representations a servlet supports, with content negotiation.
+ *
+ * <p>The first codec is the default: it is used if a request has no {@code Content-Type} or no
+ * {@code Accept} header, or if the client accepts any type. Otherwise the codec with the highest
+ * quality value wins; each codec is rated by the most specific media range that matches it, and
+ * ties go to the earlier codec.
+ */
+public final class WeatherCodecs {
+
+  private final List<WeatherCodec> codecs;
+
+  /**
+   * Creates the supported representations.
+   *
+   * @param codecs the codecs in order of preference; the first is the default
+   */
+  public WeatherCodecs(WeatherCodec... codecs) {
+    if (codecs.length == 0) {
+      throw new IllegalArgumentException("At least one codec is required");
+    }
+    this.codecs = List.of(codecs);
+  }
+
+  /**
+   * Returns XML (the default), JSON and the binary format.
+   *
+   * @param xml the XML codec to use
+   * @return the standard representations
+   */
+  public static WeatherCodecs standard(WeatherXmlCodec xml) {
+    return new WeatherCodecs(xml, new WeatherJsonCodec(), new WeatherBinaryCodec());
+  }
+
+  /**
+   * Returns the default codec.
+   *
+   * @return the first codec
+   */
+  public WeatherCodec defaultCodec() {
+    return codecs.get(0);
+  }
+
+  /**
+   * Selects the codec for a request body.
+   *
+   * @param contentType the {@code Content-Type} header, or null
+   * @return the matching codec, the default codec if the header is absent, or null if the type is
+   *     not supported
+   */
+  public WeatherCodec forContentType(String contentType) {
+    if (contentType == null || contentType.isBlank()) {
+      return defaultCodec();
+    }
+    String type = mediaType(contentType);
+    for (WeatherCodec codec : codecs) {
+      if (matches(codec, type)) {
+        return codec;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Selects the codec for a response.
+   *
+   * @param accept the {@code Accept} header, or null
+   * @return the preferred acceptable codec, or null if the client accepts none of them
+   */
+  public WeatherCodec forAccept(String accept) {
+    if (accept == null || accept.isBlank()) {
+      return defaultCodec();
+    }
+    String[] ranges = accept.split(",");
+    WeatherCodec best = null;
+    double bestQuality = 0;
+    for (WeatherCodec codec : codecs) {
+      double quality = quality(codec, ranges);
+      if (quality > bestQuality) {
+        best = codec;
+        bestQuality = quality;
+      }
+    }
+    return best;
+  }
+
+  /** Quality of the most specific range matching the codec, or 0. */
+  private static double quality(WeatherCodec codec, String[] ranges) {
+    int bestSpecificity = -1;
+    double quality = 0;
+    for (String range : ranges) {
+      String type = mediaType(range);
+      int specificity;
+      if (matches(codec, type)) {
+        specificity = 2;
+      } else if (type.endsWith("/*")
+          && codec.mediaType().startsWith(type.substring(0, type.length() - 1))) {
+        specificity = 1;
+      } else if (type.equals("*/*") || type.equals("*")) {
+        specificity = 0;
+      } else {
+        continue;
+      }
+      if (specificity > bestSpecificity) {
+        bestSpecificity = specificity;
+        quality = qualityParameter(range);
+      }
+    }
+    return quality;
+  }
+
+  private static boolean matches(WeatherCodec codec, String type) {
+    // text/xml ist ein verbreiteter Alias für application/xml
+    return codec.mediaType().equals(type)
+        || (type.equals("text/xml") && codec.mediaType().equals(WeatherXmlCodec.MEDIA_TYPE));
+  }
+
+  private static String mediaType(String header) {
+    int parameters = header.indexOf(';');
+    String type = parameters < 0 ? header : header.substring(0, parameters);
+    return type.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static double qualityParameter(String range) {
+    for (String parameter : range.split(";")) {
+      String trimmed = parameter.trim();
+      if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+        try {
+          return Math.max(0, Math.min(1, Double.parseDouble(trimmed.substring(2))));
+        } catch (NumberFormatException e) {
+          return 0; // ungültige Angabe wie "nicht akzeptabel" behandeln
+        }
+      }
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,347 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * CSV representation of {@link WeatherData}, used to import and export large amounts of readings.
+ *
+ * <pre>
+ * id,location,timestamp,temperature,humidity
+ * 1,Berlin,2024-01-01T12:00,21.5,40
+ * 2,"Frankfurt, Main",2024-01-01T12:00,19.0,55
+ * </pre>
+ *
+ * <p>The first line names the columns; their order is free and the {@code id} column is optional.
+ * Fields containing a comma, a quote or a line break are quoted as in RFC 4180. Timestamps are ISO
+ * 8601 local date-times in UTC; an empty timestamp means none. Lines end with {@code \n}, {@code
+ * \r\n} is accepted as well.
+ *
+ * <p>Both {@link RowReader} and {@link RowWriter} work on one row at a time, so files of any size
+ * can be processed with constant memory. To keep it that way for malformed input, such as a stray
+ * quote that turns the rest of the file into one field, the reader rejects fields longer than
+ * {@value #MAX_FIELD_LENGTH} and rows longer than {@value #MAX_RECORD_LENGTH} characters.
+ */
+public final class WeatherCsv {
+
+  /** Media type of this encoding. */
+  public static final String MEDIA_TYPE = "text/csv";
+
+  /** Header line written by {@link RowWriter#writeHeader()}. */
+  public static final String HEADER = "id,location,timestamp,temperature,humidity";
+
+  /** Longest accepted field in characters; a location is far shorter. */
+  public static final int MAX_FIELD_LENGTH = 1024;
+
+  /** Longest accepted row in characters, including separators and quotes. */
+  public static final int MAX_RECORD_LENGTH = 4096;
+
+  private static final String[] REQUIRED_COLUMNS = {
+    "location", "timestamp", "temperature", "humidity"
+  };
+
+  private WeatherCsv() {}
+
+  /** A row or the header of a CSV document is invalid. */
+  public static class FormatException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+
+    /**
+     * Creates an exception for an invalid row.
+     *
+     * @param line the line number the row starts at, counting from 1
+     * @param message the problem
+     */
+    public FormatException(long line, String message) {
+      super(message);
+      this.line = line;
+    }
+
+    /**
+     * Returns the line number the invalid row starts at.
+     *
+     * @return the line number, counting from 1
+     */
+    public long getLine() {
+      return line;
+    }
+  }
+
+  /** Parses readings from a CSV document row by row. */
+  public static final class RowReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int columnCount;
+    private int idColumn = -1;
+    private final int[] columns = new int[REQUIRED_COLUMNS.length];
+
+    /**
+     * Creates a reader and reads the header line.
+     *
+     * @param in the CSV source; buffering it is not necessary
+     * @throws IOException if reading fails
+     * @throws FormatException if the header is missing or lacks a required column
+     */
+    public RowReader(Reader in) throws IOException, FormatException {
+      this.in = in;
+      if (!readRecord()) {
+        throw new FormatException(1, "Missing header line");
+      }
+      columnCount = fields.size();
+      Arrays.fill(columns, -1);
+      for (int i = 0; i < fields.size(); i++) {
+        // Byte Order Mark, wie ihn z. B. Tabellenkalkulationen schreiben, ignorieren
+        String name = fields.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+        if (name.equals("id")) {
+          idColumn = i;
+        }
+        for (int c = 0; c < REQUIRED_COLUMNS.length; c++) {
+          if (name.equals(REQUIRED_COLUMNS[c])) {
+            columns[c] = i;
+          }
+        }
+      }
+      for (int c = 0; c < REQUIRED_COLUMNS.length; c++) {
+        if (columns[c] < 0) {
+          throw new FormatException(1, "Missing column " + REQUIRED_COLUMNS[c]);
+        }
+      }
+    }
+
+    /**
+     * Reads the next reading. Its ID is always null: imported rows are stored as new readings. An
+     * invalid row is consumed, so the next call continues with the row after it.
+     *
+     * @return the next reading, or null at the end of the document
+     * @throws IOException if reading fails
+     * @throws FormatException if the row is invalid
+     */
+    public WeatherData next() throws IOException, FormatException {
+      do {
+        if (!readRecord()) {
+          return null;
+        }
+      } while (fields.size() == 1 && fields.get(0).isBlank()); // Leerzeilen überspringen
+      if (fields.size() != columnCount) {
+        throw new FormatException(
+            recordLine, "Expected " + columnCount + " fields but got " + fields.size());
+      }
+      String location = fields.get(columns[0]);
+      if (location.isBlank()) {
+        throw new FormatException(recordLine, "Missing location");
+      }
+      WeatherData data = new WeatherData();
+      data.setLocation(location);
+      String timestamp = fields.get(columns[1]).trim();
+      String temperature = fields.get(columns[2]).trim();
+      String humidity = fields.get(columns[3]).trim();
+      try {
+        data.setTimestamp(timestamp.isEmpty() ? null : LocalDateTime.parse(timestamp));
+      } catch (DateTimeParseException e) {
+        throw new FormatException(recordLine, "Invalid timestamp: " + timestamp);
+      }
+      try {
+        double value = Double.parseDouble(temperature);
+        if (!Double.isFinite(value)) {
+          throw new NumberFormatException();
+        }
+        data.setTemperature(value);
+      } catch (NumberFormatException e) {
+        throw new FormatException(recordLine, "Invalid temperature: " + temperature);
+      }
+      try {
+        data.setHumidity(Integer.parseInt(humidity));
+      } catch (NumberFormatException e) {
+        throw new FormatException(recordLine, "Invalid humidity: " + humidity);
+      }
+      return data;
+    }
+
+    /**
+     * Returns whether the header names an {@code id} column. Its values are not imported.
+     *
+     * @return true if the document has an id column
+     */
+    public boolean hasIdColumn() {
+      return idColumn >= 0;
+    }
+
+    /**
+     * Returns the line number the last row read starts at.
+     *
+     * @return the line number, counting from 1
+     */
+    public long getLine() {
+      return recordLine;
+    }
+
+    /**
+     * Reads the fields of the next record, or returns false at the end of the input. A record that
+     * is too long is read to its end without keeping its content and then rejected.
+     */
+    private boolean readRecord() throws IOException, FormatException {
+      fields.clear();
+      int c = read();
+      if (c < 0) {
+        return false;
+      }
+      recordLine = line;
+      field.setLength(0);
+      boolean quoted = false;
+      int length = 0;
+      boolean tooLong = false;
+      while (true) {
+        if (++length > MAX_RECORD_LENGTH || field.length() > MAX_FIELD_LENGTH) {
+          // Rest des Datensatzes nur noch überlesen
+          tooLong = true;
+          fields.clear();
+          field.setLength(0);
+        }
+        if (quoted) {
+          if (c < 0) {
+            throw new FormatException(recordLine, "Unterminated quoted field");
+          }
+          if (c == '"') {
+            c = read();
+            if (c != '"') {
+              quoted = false;
+              continue; // Zeichen nach dem schließenden Anführungszeichen normal verarbeiten
+            }
+          } else if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        } else if (c == ',') {
+          if (!tooLong) {
+            fields.add(field.toString());
+          }
+          field.setLength(0);
+        } else if (c == '\n' || c < 0) {
+          if (c == '\n') {
+            line++;
+          }
+          if (tooLong) {
+            throw new FormatException(
+                recordLine,
+                "Row exceeds "
+                    + MAX_RECORD_LENGTH
+                    + " characters or a field exceeds "
+                    + MAX_FIELD_LENGTH);
+          }
+          fields.add(field.toString());
+          return true;
+        } else if (c == '"' && field.length() == 0) {
+          quoted = true;
+        } else if (c != '\r') {
+          field.append((char) c);
+        }
+        c = read();
+      }
+    }
+
+    private int read() throws IOException {
+      if (position == limit) {
+        limit = in.read(buffer);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffer[position++];
+    }
+  }
+
+  /** Writes readings as a CSV document row by row. */
+  public static final class RowWriter {
+
+    private final Writer out;
+
+    /**
+     * Creates a writer.
+     *
+     * @param out the target, preferably buffered; it is neither flushed nor closed by this class
+     *     except through {@link #flush()}
+     */
+    public RowWriter(Writer out) {
+      this.out = out;
+    }
+
+    /**
+     * Writes the {@link #HEADER} line.
+     *
+     * @throws IOException if writing fails
+     */
+    public void writeHeader() throws IOException {
+      out.write(HEADER);
+      out.write('\n');
+    }
+
+    /**
+     * Writes one reading as a row.
+     *
+     * @param data the reading
+     * @throws IOException if writing fails
+     */
+    public void write(WeatherData data) throws IOException {
+      if (data.getId() != null) {
+        out.write(Long.toString(data.getId()));
+      }
+      out.write(',');
+      writeText(data.getLocation());
+      out.write(',');
+      if (data.getTimestamp() != null) {
+        out.write(data.getTimestamp().toString());
+      }
+      out.write(',');
+      out.write(Double.toString(data.getTemperature()));
+      out.write(',');
+      out.write(Integer.toString(data.getHumidity()));
+      out.write('\n');
+    }
+
+    /**
+     * Flushes the underlying writer.
+     *
+     * @throws IOException if flushing fails
+     */
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    private void writeText(String text) throws IOException {
+      if (text == null) {
+        return;
+      }
+      boolean quote = false;
+      for (int i = 0; i < text.length() && !quote; i++) {
+        char c = text.charAt(i);
+        quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+      }
+      if (!quote) {
+        out.write(text);
+        return;
+      }
+      out.write('"');
+      out.write(text.replace("\"", "\"\""));
+      out.write('"');
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.xml.bind.JAXBException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet for importing and exporting historical weather data as CSV (see {@link WeatherCsv}).
+ *
+ * <ul>
+ *   <li>GET streams all readings, or those with an ID greater than the query parameter {@code
+ *       afterId}, as a CSV document.
+ *   <li>POST imports a CSV document of any size as new readings and answers with an {@link
+ *       ImportResult}.
+ * </ul>
+ *
+ * <p>Both directions are streamed through a {@link WeatherCsvTransfer}, so neither the request nor
+ * the response is held in memory. Unlike {@code /weather/bulk}, an import is not limited in size
+ * and is not atomic: it is stored in chunks, invalid rows are skipped and reported, and if storing
+ * fails the chunks stored so far remain.
+ */
+@WebServlet("/weather/csv")
+public class WeatherCsvServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Size of the buffer between the CSV writer and the response. */
+  static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+  private static final Logger logger = LogManager.getLogger(WeatherCsvServlet.class);
+  private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+  private transient WeatherCsvTransfer transfer;
+  private int fetchSize = WeatherRepository.DEFAULT_FETCH_SIZE;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherCsvServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository, an XML codec and the transfer doing
+   * the import and export.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for writing the import result
+   * @param transfer the transfer used for importing and exporting
+   */
+  public WeatherCsvServlet(
+      WeatherRepository weatherRepository, WeatherXmlCodec codec, WeatherCsvTransfer transfer) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+    this.transfer = Objects.requireNonNull(transfer, "transfer must not be null");
+  }
+
+  /**
+   * Builds the XML codec and the transfer once, unless they have been injected already, and reads
+   * the optional init parameters {@code fetchSize} used when exporting and {@code chunkSize} used
+   * when importing.
+   *
+   * @throws ServletException if the JAXB context cannot be created or an init parameter is invalid
+   */
+  @Override
+  public void init() throws ServletException {
+    fetchSize = intInitParameter("fetchSize", fetchSize);
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+    if (transfer == null) {
+      try {
+        transfer =
+            new WeatherCsvTransfer(
+                weatherRepository,
+                intInitParameter("chunkSize", WeatherCsvTransfer.DEFAULT_CHUNK_SIZE));
+      } catch (IllegalArgumentException e) {
+        throw new ServletException("Invalid chunkSize", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests exporting weather data as CSV.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse receiving the CSV document
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    long afterId;
+    try {
+      String afterIdParam = req.getParameter("afterId");
+      afterId = afterIdParam == null ? 0 : Long.parseLong(afterIdParam);
+    } catch (NumberFormatException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "afterId must be a number");
+      return;
+    }
+
+    resp.setContentType(WeatherCsv.MEDIA_TYPE);
+    resp.setCharacterEncoding("UTF-8");
+    resp.setHeader("Content-Disposition", "attachment; filename=\"weather.csv\"");
+    try {
+      Writer out =
+          new BufferedWriter(
+              new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8),
+              EXPORT_BUFFER_SIZE);
+      transfer.exportTo(out, afterId, fetchSize);
+    } catch (IOException e) {
+      // Meist hat der Client die Verbindung abgebrochen
+      logger.warn("CSV export aborted", e);
+    } catch (RuntimeException e) {
+      logger.error("Error while exporting weather data", e);
+      if (!resp.isCommitted()) {
+        resp.reset();
+        resp.sendError(
+            HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            "An error occurred while processing the request");
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP POST requests importing a CSV document.
+   *
+   * <p>Responds with 201 (Created) if every row was stored, with 200 (OK) if invalid rows were
+   * skipped, with 500 (Internal Server Error) if storing failed, and with 400 (Bad Request) if the
+   * header line is invalid. Except for the last case, the body is an {@link ImportResult}.
+   *
+   * @param req the HttpServletRequest containing the CSV document, UTF-8 unless stated otherwise
+   * @param resp the HttpServletResponse receiving the {@code <importResult>} document
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (req.getCharacterEncoding() == null) {
+      req.setCharacterEncoding("UTF-8");
+    }
+    ImportResult result;
+    try {
+      result =
+          transfer.importFrom(
+              req.getReader(), progress -> logger.info("CSV import progress: {}", progress));
+    } catch (WeatherCsv.FormatException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid CSV: " + e.getMessage());
+      return;
+    }
+
+    if (result.isAborted()) {
+      resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    } else {
+      resp.setStatus(
+          result.getRejected() == 0 ? HttpServletResponse.SC_CREATED : HttpServletResponse.SC_OK);
+    }
+    resp.setContentType("application/xml");
+    resp.setCharacterEncoding("UTF-8");
+    try {
+      codec.writeDocument(result, resp.getOutputStream());
+    } catch (JAXBException e) {
+      logger.error("Error while writing import result", e);
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "An error occurred while processing the request");
+    }
+  }
+
+  private int intInitParameter(String name, int defaultValue) throws ServletException {
+    String value = getInitParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid " + name + ": " + value, e);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Command line tool for importing and exporting weather data as CSV (see {@link WeatherCsv}).
+ *
+ * <pre>
+ * java -cp ... de.fh.albsig.weatherapp.WeatherCsvTool import history.csv
+ * java -cp ... de.fh.albsig.weatherapp.WeatherCsvTool export all.csv [afterId]
+ * </pre>
+ *
+ * <p>A file name of {@code -} stands for standard input or output. The tool works on the shared
+ * repository, so the backend and database are configured with the same system properties as the web
+ * application, e.g. {@code -Djakarta.persistence.jdbc.url=jdbc:h2:tcp://...} or {@code
+ * -Dweatherapp.repository=mapped -Dweatherapp.mapped.directory=...}. SQL logging is off unless
+ * {@code hibernate.show_sql} is set explicitly. The progress of an import is printed to standard
+ * error.
+ */
+public final class WeatherCsvTool {
+
+  private static final String USAGE =
+      "Usage: WeatherCsvTool import <file.csv|-> | export <file.csv|-> [afterId]";
+
+  private WeatherCsvTool() {}
+
+  /**
+   * Runs the tool and exits with 0 on success, 1 if the import or export failed and 2 on invalid
+   * arguments.
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    if (System.getProperty("hibernate.show_sql") == null) {
+      // Sonst schreibt Hibernate jede einzelne INSERT-Anweisung auf die Konsole
+      System.setProperty("hibernate.show_sql", "false");
+    }
+    int status;
+    try {
+      status = run(args, WeatherRepository::shared, System.in, System.out, System.err);
+    } finally {
+      WeatherRepositories.closeShared();
+    }
+    System.exit(status);
+  }
+
+  /**
+   * Runs one command.
+   *
+   * @param args the command line arguments
+   * @param repository supplies the repository, only called for valid arguments
+   * @param stdin the stream read for the file name {@code -} when importing
+   * @param stdout the stream written for the file name {@code -} when exporting
+   * @param stderr receives progress, results and errors
+   * @return the exit status
+   */
+  static int run(
+      String[] args,
+      Supplier<WeatherRepository> repository,
+      InputStream stdin,
+      OutputStream stdout,
+      PrintStream stderr) {
+    boolean isImport = args.length == 2 && args[0].equals("import");
+    boolean isExport = (args.length == 2 || args.length == 3) && args[0].equals("export");
+    if (!isImport && !isExport) {
+      stderr.println(USAGE);
+      return 2;
+    }
+    long afterId;
+    try {
+      afterId = args.length == 3 ? Long.parseLong(args[2]) : 0;
+    } catch (NumberFormatException e) {
+      stderr.println(USAGE);
+      return 2;
+    }
+    WeatherCsvTransfer transfer = new WeatherCsvTransfer(repository.get());
+    try {
+      if (isImport) {
+        return importFrom(transfer, args[1], stdin, stderr);
+      }
+      stderr.println("Exported " + exportTo(transfer, args[1], afterId, stdout) + " readings");
+      return 0;
+    } catch (IOException | WeatherCsv.FormatException | RuntimeException e) {
+      stderr.println(args[0] + " failed: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static int importFrom(
+      WeatherCsvTransfer transfer, String file, InputStream stdin, PrintStream stderr)
+      throws IOException, WeatherCsv.FormatException {
+    try (Reader in =
+        file.equals("-")
+            ? new BufferedReader(new InputStreamReader(stdin, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+      ImportResult result =
+          transfer.importFrom(
+              in,
+              progress ->
+                  stderr.print(
+                      "\rRead "
+                          + progress.getRows()
+                          + " rows, imported "
+                          + progress.getImported()
+                          + ", rejected "
+                          + progress.getRejected()));
+      stderr.println();
+      for (ImportResult.RowError error : result.getErrors()) {
+        stderr.println("Line " + error.getLine() + ": " + error.getMessage());
+      }
+      if (result.getRejected() > result.getErrors().size()) {
+        stderr.println("... " + (result.getRejected() - result.getErrors().size()) + " more");
+      }
+      stderr.println(result);
+      return result.isAborted() ? 1 : 0;
+    }
+  }
+
+  private static long exportTo(
+      WeatherCsvTransfer transfer, String file, long afterId, OutputStream stdout)
+      throws IOException {
+    if (file.equals("-")) {
+      // Standardausgabe nicht schließen, exportTo() leert den Puffer
+      Writer out =
+          new BufferedWriter(
+              new OutputStreamWriter(stdout, StandardCharsets.UTF_8),
+              WeatherCsvServlet.EXPORT_BUFFER_SIZE);
+      return transfer.exportTo(out, afterId, WeatherRepository.DEFAULT_FETCH_SIZE);
+    }
+    try (Writer out = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8)) {
+      return transfer.exportTo(out, afterId, WeatherRepository.DEFAULT_FETCH_SIZE);
+    }
+  }
+}
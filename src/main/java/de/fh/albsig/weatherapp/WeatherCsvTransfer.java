@@ -0,0 +1,162 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Imports and exports readings in the {@link WeatherCsv} format, for {@link WeatherCsvServlet} and
+ * the command line ({@link WeatherCsvTool}).
+ *
+ * <p>The import reads one row at a time and stores the valid rows in chunks through {@link
+ * WeatherRepository#saveAll(List)}, which sends them to the database as JDBC batches of {@link
+ * WeatherRepository#BATCH_SIZE}. Each chunk is its own transaction: invalid rows are skipped and
+ * reported, and if storing a chunk fails, the import stops and the chunks stored before remain. The
+ * export streams the readings through a database cursor ({@link WeatherRepository#streamAfter(long,
+ * int)}) straight into the writer. Neither holds more than one chunk in memory, whatever the size
+ * of the data.
+ */
+public final class WeatherCsvTransfer {
+
+  /** Default number of rows stored per transaction. */
+  public static final int DEFAULT_CHUNK_SIZE = 100 * WeatherRepository.BATCH_SIZE;
+
+  private static final Logger logger = LogManager.getLogger(WeatherCsvTransfer.class);
+  private final WeatherRepository weatherRepository;
+  private final int chunkSize;
+
+  /** Receives the progress of an import after every stored chunk. */
+  @FunctionalInterface
+  public interface ProgressListener {
+
+    /**
+     * Reports the progress of an import.
+     *
+     * @param progress the counts so far; only valid during the call
+     */
+    void progress(ImportResult progress);
+  }
+
+  /**
+   * Creates a transfer storing {@value #DEFAULT_CHUNK_SIZE} rows per transaction.
+   *
+   * @param weatherRepository the repository to import into and export from
+   */
+  public WeatherCsvTransfer(WeatherRepository weatherRepository) {
+    this(weatherRepository, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a transfer.
+   *
+   * @param weatherRepository the repository to import into and export from
+   * @param chunkSize the number of rows stored per transaction
+   */
+  public WeatherCsvTransfer(WeatherRepository weatherRepository, int chunkSize) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Imports all rows of a CSV document as new readings.
+   *
+   * @param in the CSV source
+   * @param listener notified after every stored chunk
+   * @return the counts of read, stored and rejected rows
+   * @throws IOException if reading fails
+   * @throws WeatherCsv.FormatException if the header is invalid
+   */
+  public ImportResult importFrom(Reader in, ProgressListener listener)
+      throws IOException, WeatherCsv.FormatException {
+    WeatherCsv.RowReader reader = new WeatherCsv.RowReader(in);
+    ImportResult result = new ImportResult();
+    List<WeatherData> chunk = new ArrayList<>(chunkSize);
+    long chunkStart = 0;
+    while (true) {
+      WeatherData data;
+      try {
+        data = reader.next();
+      } catch (WeatherCsv.FormatException e) {
+        result.setRows(result.getRows() + 1);
+        result.reject(e.getLine(), e.getMessage());
+        continue;
+      }
+      if (data == null) {
+        break;
+      }
+      result.setRows(result.getRows() + 1);
+      if (chunk.isEmpty()) {
+        chunkStart = reader.getLine();
+      }
+      chunk.add(data);
+      if (chunk.size() == chunkSize) {
+        if (!store(chunk, chunkStart, result, listener)) {
+          return result;
+        }
+        // Neue Liste statt clear(): das Repository darf die übergebene Liste behalten
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty() && !store(chunk, chunkStart, result, listener)) {
+      return result;
+    }
+    logger.info("CSV import finished: {}", result);
+    return result;
+  }
+
+  /**
+   * Exports the readings with an ID greater than {@code afterId}, ordered by ID, with a header
+   * line.
+   *
+   * @param out the target; it is flushed but not closed
+   * @param afterId only readings with a greater ID are exported; use 0 for all
+   * @param fetchSize the number of readings fetched from the database at a time
+   * @return the number of exported readings
+   * @throws IOException if writing fails
+   */
+  public long exportTo(Writer out, long afterId, int fetchSize) throws IOException {
+    WeatherCsv.RowWriter writer = new WeatherCsv.RowWriter(out);
+    writer.writeHeader();
+    long written = 0;
+    try (Stream<WeatherData> readings = weatherRepository.streamAfter(afterId, fetchSize)) {
+      for (Iterator<WeatherData> it = readings.iterator(); it.hasNext(); ) {
+        writer.write(it.next());
+        written++;
+      }
+    }
+    writer.flush();
+    logger.info("CSV export finished: {} readings", written);
+    return written;
+  }
+
+  /**
+   * Stores a chunk and reports the progress; on failure records the abort in the result and returns
+   * false.
+   */
+  private boolean store(
+      List<WeatherData> chunk, long chunkStart, ImportResult result, ProgressListener listener) {
+    try {
+      weatherRepository.saveAll(chunk);
+    } catch (RuntimeException e) {
+      logger.error("CSV import aborted at line {}", chunkStart, e);
+      result.setAbortedAt(chunkStart);
+      result.setAbortMessage("Could not store weather data");
+      return false;
+    }
+    result.setImported(result.getImported() + chunk.size());
+    logger.debug("CSV import progress: {}", result);
+    listener.progress(result);
+    return true;
+  }
+}
@@ -5,8 +5,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import java.time.LocalDateTime;
 
 /**
@@ -24,11 +27,23 @@ import java.time.LocalDateTime;
  */
 @XmlRootElement
 @Entity
-@Table(name = "weather_data")
+@Table(
+    name = "weather_data",
+    indexes = {
+      @Index(name = "idx_weather_data_location_timestamp", columnList = "location, timestamp DESC"),
+      // Für den Retention-Job, der die ältesten Messwerte aller Orte sucht
+      @Index(name = "idx_weather_data_timestamp", columnList = "timestamp")
+    })
 public class WeatherData {
 
+  // Sequence statt IDENTITY: Hibernate kann Inserts nur so per JDBC-Batch bündeln. Mit
+  // allocationSize > 1 nutzt Hibernate den pooled-Optimizer (ein Sequenzaufruf pro 50 IDs).
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_seq")
+  @SequenceGenerator(
+      name = "weather_data_seq",
+      sequenceName = "weather_data_seq",
+      allocationSize = WeatherRepository.BATCH_SIZE)
   private Long id;
 
   @Column(name = "location")
@@ -43,6 +58,22 @@ public class WeatherData {
   @Column(name = "timestamp")
   private LocalDateTime timestamp;
 
+  /** Creates empty weather data, required by JPA and JAXB. */
+  public WeatherData() {}
+
+  /**
+   * Creates a copy of the given weather data.
+   *
+   * @param other the weather data to copy
+   */
+  public WeatherData(WeatherData other) {
+    this.id = other.id;
+    this.location = other.location;
+    this.temperature = other.temperature;
+    this.humidity = other.humidity;
+    this.timestamp = other.timestamp;
+  }
+
   public Long getId() {
     return id;
   }
@@ -75,6 +106,7 @@ public class WeatherData {
     this.humidity = humidity;
   }
 
+  @XmlJavaTypeAdapter(LocalDateTimeAdapter.class)
   public LocalDateTime getTimestamp() {
     return timestamp;
   }
@@ -0,0 +1,47 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XML wrapper for a list of weather readings, used by the bulk endpoints.
+ *
+ * <pre>{@code
+ * <weatherDataList>
+ *   <weatherData>...</weatherData>
+ *   <weatherData>...</weatherData>
+ * </weatherDataList>
+ * }</pre>
+ */
+@XmlRootElement(name = "weatherDataList")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class WeatherDataList {
+
+  @XmlElement(name = "weatherData")
+  private List<WeatherData> items = new ArrayList<>();
+
+  /** Creates an empty list. */
+  public WeatherDataList() {}
+
+  /**
+   * Creates a list holding the given readings.
+   *
+   * @param items the readings
+   */
+  public WeatherDataList(List<WeatherData> items) {
+    this.items = new ArrayList<>(items);
+  }
+
+  public List<WeatherData> getItems() {
+    return Collections.unmodifiableList(items);
+  }
+
+  public void setItems(List<WeatherData> items) {
+    this.items = new ArrayList<>(items);
+  }
+}
@@ -0,0 +1,443 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Pushes new readings to clients subscribed to a location as Server-Sent Events.
+ *
+ * <p>The hub listens for committed writes through {@link WeatherRepository.InvalidationListener}.
+ * Notifications only mark the subscribed locations as dirty and schedule a flush on the hub's own
+ * thread, so the writing thread never waits for subscribers. The flush loads the latest readings of
+ * all dirty locations with one {@link WeatherRepository#findLatestByLocations} call and, for each
+ * location whose latest reading has a new {@link WeatherVersion}, encodes one event that is shared
+ * by all its subscribers.
+ *
+ * <p>Subscribers hold no thread: each one is an {@link AsyncContext} writing with non-blocking I/O
+ * ({@link WriteListener}). A subscriber keeps at most one event pending; a newer event replaces one
+ * the client has not taken yet, so slow consumers get the latest reading instead of a growing
+ * backlog. A subscriber whose connection has not accepted data for the stall timeout is dropped. A
+ * comment line is sent every heartbeat interval to keep idle connections open through proxies and
+ * to detect closed ones.
+ */
+public final class WeatherEventHub implements WeatherRepository.InvalidationListener {
+
+  /** Default time between heartbeat comments. */
+  public static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+  /** Default time after which a subscriber that does not accept data is dropped. */
+  public static final Duration DEFAULT_STALL_TIMEOUT = Duration.ofSeconds(60);
+
+  /** Media type of the event stream. */
+  public static final String MEDIA_TYPE = "text/event-stream";
+
+  private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+  private static final Logger logger = LogManager.getLogger(WeatherEventHub.class);
+
+  private final WeatherRepository repository;
+  private final WeatherXmlCodec codec;
+  private final ScheduledExecutorService scheduler;
+  private final long heartbeatNanos;
+  private final long stallNanos;
+  private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+  private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final LongAdder subscribers = new LongAdder();
+  private final LongAdder events = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Creates a hub with the default heartbeat interval and stall timeout.
+   *
+   * @param repository the repository readings are loaded from
+   * @param codec the codec events are encoded with
+   */
+  public WeatherEventHub(WeatherRepository repository, WeatherXmlCodec codec) {
+    this(
+        repository,
+        codec,
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "weather-events");
+              thread.setDaemon(true);
+              return thread;
+            }),
+        DEFAULT_HEARTBEAT_INTERVAL,
+        DEFAULT_STALL_TIMEOUT);
+  }
+
+  /**
+   * Creates a hub running on the given scheduler.
+   *
+   * @param repository the repository readings are loaded from
+   * @param codec the codec events are encoded with
+   * @param scheduler runs flushes and heartbeats; shut down by {@link #close()}
+   * @param heartbeatInterval the time between heartbeat comments
+   * @param stallTimeout the time after which a subscriber that does not accept data is dropped
+   */
+  WeatherEventHub(
+      WeatherRepository repository,
+      WeatherXmlCodec codec,
+      ScheduledExecutorService scheduler,
+      Duration heartbeatInterval,
+      Duration stallTimeout) {
+    this.repository = Objects.requireNonNull(repository, "repository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+    this.scheduler = scheduler;
+    this.heartbeatNanos = heartbeatInterval.toNanos();
+    this.stallNanos = stallTimeout.toNanos();
+  }
+
+  /** Registers the hub with the repository and starts sending heartbeats. */
+  public void start() {
+    repository.addInvalidationListener(this);
+    scheduler.scheduleWithFixedDelay(
+        this::heartbeat, heartbeatNanos, heartbeatNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Unregisters the hub, stops its thread and closes all subscriptions. */
+  public void close() {
+    repository.removeInvalidationListener(this);
+    scheduler.shutdownNow();
+    for (Topic topic : topics.values()) {
+      topic.subscribers.forEach(Subscriber::close);
+    }
+  }
+
+  /**
+   * Subscribes an asynchronous request to the readings of a location. The response must already
+   * carry the event stream headers; from now on the hub writes to it with non-blocking I/O. The
+   * current reading is sent at once unless the client already has it.
+   *
+   * @param location the location
+   * @param context the started asynchronous context of the request
+   * @param lastEventId the {@code Last-Event-ID} sent by a reconnecting client, or null
+   * @throws IOException if the response output stream cannot be obtained
+   */
+  public void subscribe(String location, AsyncContext context, String lastEventId)
+      throws IOException {
+    Subscriber subscriber = new Subscriber(location, context);
+    // Erst auf nicht blockierende Ausgabe umstellen, dann für Ereignisse sichtbar machen
+    context.addListener(subscriber);
+    subscriber.out.setWriteListener(subscriber);
+    Topic topic =
+        topics.compute(
+            location,
+            (key, existing) -> {
+              Topic current = existing == null ? new Topic() : existing;
+              current.subscribers.add(subscriber);
+              return current;
+            });
+    subscribers.increment();
+
+    Event latest = topic.latest;
+    if (latest == null) {
+      // Noch kein Stand bekannt: beim nächsten Flush laden
+      markDirty(location);
+    } else if (!latest.id.equals(lastEventId)) {
+      subscriber.offer(latest.bytes);
+    }
+  }
+
+  @Override
+  public void invalidated(String location, Set<Long> updatedIds) {
+    if (location != null) {
+      if (topics.containsKey(location)) {
+        markDirty(location);
+      }
+    } else if (!updatedIds.isEmpty()) {
+      // Ort unbekannt: alle abonnierten Orte prüfen, der Flush lädt sie in einer Abfrage
+      topics.keySet().forEach(this::markDirty);
+    }
+  }
+
+  @Override
+  public void invalidatedAll() {
+    topics.keySet().forEach(this::markDirty);
+  }
+
+  /**
+   * Returns the number of open subscriptions.
+   *
+   * @return the number of subscribers
+   */
+  public long subscriberCount() {
+    return subscribers.sum();
+  }
+
+  /**
+   * Returns the number of events encoded so far; each is shared by all subscribers of its location.
+   *
+   * @return the number of events
+   */
+  public long eventCount() {
+    return events.sum();
+  }
+
+  /**
+   * Returns the number of events replaced by a newer one before a slow subscriber took them.
+   *
+   * @return the number of coalesced events
+   */
+  public long coalescedCount() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Returns the number of subscribers dropped because their connection stalled or failed.
+   *
+   * @return the number of dropped subscribers
+   */
+  public long droppedCount() {
+    return dropped.sum();
+  }
+
+  private void markDirty(String location) {
+    dirty.add(location);
+    if (flushScheduled.compareAndSet(false, true)) {
+      try {
+        scheduler.execute(this::flush);
+      } catch (RejectedExecutionException e) {
+        flushScheduled.set(false); // Hub wird geschlossen
+      }
+    }
+  }
+
+  /** Loads the latest readings of all dirty locations and publishes the changed ones. */
+  void flush() {
+    flushScheduled.set(false);
+    List<String> locations = new ArrayList<>(dirty.size());
+    for (String location : dirty) {
+      dirty.remove(location);
+      if (topics.containsKey(location)) {
+        locations.add(location);
+      }
+    }
+    if (locations.isEmpty()) {
+      return;
+    }
+    try {
+      Map<String, WeatherData> latest = repository.findLatestByLocations(locations);
+      for (Map.Entry<String, WeatherData> entry : latest.entrySet()) {
+        Topic topic = topics.get(entry.getKey());
+        if (topic != null) {
+          publish(topic, entry.getValue());
+        }
+      }
+    } catch (Exception e) {
+      logger.error("Could not publish updates for {}", locations, e);
+    }
+  }
+
+  private void publish(Topic topic, WeatherData reading) throws IOException {
+    String id = WeatherVersion.of(reading).etag();
+    id = id.substring(1, id.length() - 1); // ohne Anführungszeichen
+    Event previous = topic.latest;
+    if (previous != null && previous.id.equals(id)) {
+      return; // neuester Stand unverändert, z. B. nach dem Speichern eines älteren Messwerts
+    }
+    Event event = new Event(id, encode(id, reading));
+    topic.latest = event;
+    events.increment();
+    for (Subscriber subscriber : topic.subscribers) {
+      subscriber.offer(event.bytes);
+    }
+  }
+
+  private byte[] encode(String id, WeatherData reading) throws IOException {
+    ByteArrayOutputStream xml = new ByteArrayOutputStream();
+    codec.encode(reading, xml);
+    StringBuilder event = new StringBuilder(xml.size() + 64);
+    event.append("id: ").append(id).append("\nevent: weather\n");
+    // Zeilenumbrüche sind im Datenfeld nicht erlaubt, jede Zeile bekommt ein eigenes "data:"
+    for (String line : xml.toString(StandardCharsets.UTF_8).split("\r?\n")) {
+      event.append("data: ").append(line).append('\n');
+    }
+    return event.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Sends a heartbeat to every subscriber and drops the stalled ones. */
+  void heartbeat() {
+    long now = System.nanoTime();
+    for (Topic topic : topics.values()) {
+      for (Subscriber subscriber : topic.subscribers) {
+        long blockedSince = subscriber.blockedSince;
+        if (blockedSince != 0 && now - blockedSince > stallNanos) {
+          logger.debug("Dropping stalled subscriber for {}", subscriber.location);
+          dropped.increment();
+          subscriber.close();
+        } else {
+          subscriber.offerHeartbeat();
+        }
+      }
+    }
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    topics.computeIfPresent(
+        subscriber.location,
+        (key, topic) -> {
+          topic.subscribers.remove(subscriber);
+          return topic.subscribers.isEmpty() ? null : topic;
+        });
+    subscribers.decrement();
+  }
+
+  /** An encoded event and the version it was encoded from. */
+  private record Event(String id, byte[] bytes) {}
+
+  /** The subscribers of one location and the last event published to them. */
+  private static final class Topic {
+    final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    volatile Event latest;
+  }
+
+  /** One open event stream, written with non-blocking I/O. */
+  private final class Subscriber implements WriteListener, AsyncListener {
+
+    final String location;
+    final AsyncContext context;
+    final ServletOutputStream out;
+    final AtomicReference<byte[]> pending = new AtomicReference<>();
+    final AtomicBoolean draining = new AtomicBoolean();
+    final AtomicBoolean wakeUp = new AtomicBoolean();
+    final AtomicBoolean closed = new AtomicBoolean();
+    volatile long blockedSince;
+    private boolean unflushed;
+
+    Subscriber(String location, AsyncContext context) throws IOException {
+      this.location = location;
+      this.context = context;
+      this.out = context.getResponse().getOutputStream();
+    }
+
+    void offer(byte[] event) {
+      byte[] replaced = pending.getAndSet(event);
+      // Ein ersetzter Heartbeat ist kein verlorenes Ereignis
+      if (replaced != null && replaced != HEARTBEAT) {
+        coalesced.increment();
+      }
+      drain();
+    }
+
+    void offerHeartbeat() {
+      // Ein wartendes Ereignis hält die Verbindung ebenso offen
+      if (pending.compareAndSet(null, HEARTBEAT)) {
+        drain();
+      }
+    }
+
+    @Override
+    public void onWritePossible() {
+      // Schreibt gerade ein anderer Thread, sieht er das Flag und versucht es noch einmal
+      wakeUp.set(true);
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      logger.debug("Event stream for {} failed", location, t);
+      dropped.increment();
+      close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // nicht verwendet
+    }
+
+    /** Writes pending data while the connection accepts it; only one thread writes at a time. */
+    private void drain() {
+      while (!closed.get() && draining.compareAndSet(false, true)) {
+        boolean writable;
+        try {
+          wakeUp.set(false);
+          writable = writePending();
+        } catch (IOException | IllegalStateException e) {
+          logger.debug("Could not write event stream for {}", location, e);
+          dropped.increment();
+          close();
+          return;
+        } finally {
+          draining.set(false);
+        }
+        // Während wir geschrieben haben, kann ein anderer Thread ein Ereignis abgelegt oder der
+        // Container onWritePossible gemeldet haben; beide sind an draining gescheitert. Ohne
+        // beides ruft der Container onWritePossible, sobald wieder geschrieben werden kann.
+        if (!wakeUp.get() && !(writable && pending.get() != null)) {
+          return;
+        }
+      }
+    }
+
+    private boolean writePending() throws IOException {
+      while (out.isReady()) {
+        byte[] next = pending.getAndSet(null);
+        if (next != null) {
+          out.write(next);
+          unflushed = true;
+        } else if (unflushed) {
+          unflushed = false;
+          out.flush();
+        } else {
+          blockedSince = 0;
+          return true;
+        }
+      }
+      if (blockedSince == 0) {
+        blockedSince = System.nanoTime();
+      }
+      return false;
+    }
+
+    void close() {
+      if (!closed.compareAndSet(false, true)) {
+        return;
+      }
+      unsubscribe(this);
+      try {
+        context.complete();
+      } catch (IllegalStateException e) {
+        logger.debug("Event stream for {} was already completed", location, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Downsampled weather history of one location, as returned by the history endpoint.
+ *
+ * <pre>{@code
+ * <weatherHistory location="Berlin" from="..." to="..." bucketSeconds="3600">
+ *   <bucket><start>...</start><count>12</count>...</bucket>
+ * </weatherHistory>
+ * }</pre>
+ */
+@XmlRootElement(name = "weatherHistory")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class WeatherHistory {
+
+  @XmlAttribute private String location;
+
+  @XmlAttribute
+  @XmlJavaTypeAdapter(LocalDateTimeAdapter.class)
+  private LocalDateTime from;
+
+  @XmlAttribute
+  @XmlJavaTypeAdapter(LocalDateTimeAdapter.class)
+  private LocalDateTime to;
+
+  @XmlAttribute private long bucketSeconds;
+
+  @XmlElement(name = "bucket")
+  private List<WeatherBucket> buckets = new ArrayList<>();
+
+  public String getLocation() {
+    return location;
+  }
+
+  public void setLocation(String location) {
+    this.location = location;
+  }
+
+  public LocalDateTime getFrom() {
+    return from;
+  }
+
+  public void setFrom(LocalDateTime from) {
+    this.from = from;
+  }
+
+  public LocalDateTime getTo() {
+    return to;
+  }
+
+  public void setTo(LocalDateTime to) {
+    this.to = to;
+  }
+
+  public long getBucketSeconds() {
+    return bucketSeconds;
+  }
+
+  public void setBucketSeconds(long bucketSeconds) {
+    this.bucketSeconds = bucketSeconds;
+  }
+
+  public List<WeatherBucket> getBuckets() {
+    return Collections.unmodifiableList(buckets);
+  }
+
+  public void setBuckets(List<WeatherBucket> buckets) {
+    this.buckets = new ArrayList<>(buckets);
+  }
+}
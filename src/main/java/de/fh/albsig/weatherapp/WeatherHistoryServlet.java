@@ -0,0 +1,187 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet returning the downsampled history of a location as a {@code <weatherHistory>} document.
+ *
+ * <p>Query parameters:
+ *
+ * <ul>
+ *   <li>{@code location}: the location (required).
+ *   <li>{@code from}, {@code to}: ISO-8601 local date-times, e.g. {@code 2024-05-01T00:00}; the
+ *       range includes {@code from} and excludes {@code to} (required).
+ *   <li>{@code bucket}: the bucket size, either a number with unit {@code s}, {@code m}, {@code h}
+ *       or {@code d} (e.g. {@code 15m}, {@code 1h}, {@code 1d}) or an ISO-8601 duration like {@code
+ *       PT1H} (default {@code 1h}).
+ * </ul>
+ *
+ * <p>Each bucket carries count, min, max and average of temperature and humidity. Requests that
+ * would produce more than {@value #MAX_BUCKETS} buckets are rejected, so responses stay small no
+ * matter how many raw readings the range holds.
+ */
+@WebServlet("/weather/history")
+public class WeatherHistoryServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Maximum number of buckets a single request may span. */
+  static final int MAX_BUCKETS = 1000;
+
+  private static final Duration DEFAULT_BUCKET = Duration.ofHours(1);
+  private static final Logger logger = LogManager.getLogger(WeatherHistoryServlet.class);
+  private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherHistoryServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository and an XML codec.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for writing XML
+   */
+  public WeatherHistoryServlet(WeatherRepository weatherRepository, WeatherXmlCodec codec) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+  }
+
+  /**
+   * Builds the XML codec once, unless one has been injected already.
+   *
+   * @throws ServletException if the JAXB context cannot be created
+   */
+  @Override
+  public void init() throws ServletException {
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests for the aggregated history of a location.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String location = req.getParameter("location");
+    if (location == null || location.isEmpty()) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Location parameter is missing");
+      return;
+    }
+
+    String fromParam = req.getParameter("from");
+    String toParam = req.getParameter("to");
+    if (fromParam == null || toParam == null) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "from and to parameters are required");
+      return;
+    }
+    LocalDateTime from;
+    LocalDateTime to;
+    Duration bucket;
+    try {
+      from = LocalDateTime.parse(fromParam);
+      to = LocalDateTime.parse(toParam);
+      String bucketParam = req.getParameter("bucket");
+      bucket = bucketParam == null ? DEFAULT_BUCKET : parseBucket(bucketParam);
+    } catch (DateTimeParseException | IllegalArgumentException e) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "from and to must be ISO-8601 date-times and bucket a duration like 1h");
+      return;
+    }
+    if (!from.isBefore(to)) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "from must be before to");
+      return;
+    }
+    if (bucketCount(Duration.between(from, to), bucket) > MAX_BUCKETS) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "Range spans more than " + MAX_BUCKETS + " buckets, use a larger bucket size");
+      return;
+    }
+
+    try {
+      logger.debug("Aggregating history of {} from {} to {} per {}", location, from, to, bucket);
+      WeatherHistory history = new WeatherHistory();
+      history.setLocation(location);
+      history.setFrom(from);
+      history.setTo(to);
+      history.setBucketSeconds(bucket.getSeconds());
+      history.setBuckets(weatherRepository.findHistory(location, from, to, bucket));
+
+      resp.setContentType("application/xml");
+      resp.setCharacterEncoding("UTF-8");
+      codec.writeDocument(history, resp.getOutputStream());
+    } catch (Exception e) {
+      logger.error("Error while aggregating weather history", e);
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "An error occurred while processing the request");
+    }
+  }
+
+  /**
+   * Parses a bucket size such as {@code 30s}, {@code 15m}, {@code 1h}, {@code 1d} or {@code PT1H}.
+   *
+   * @param value the bucket size
+   * @return the parsed duration, at least one whole second
+   * @throws IllegalArgumentException if the value cannot be parsed or is too small
+   */
+  static Duration parseBucket(String value) {
+    Duration bucket;
+    try {
+      if (value.startsWith("P") || value.startsWith("p")) {
+        bucket = Duration.parse(value);
+      } else {
+        bucket = parseUnit(value);
+      }
+    } catch (DateTimeParseException | IndexOutOfBoundsException | ArithmeticException e) {
+      // ArithmeticException: z. B. 9999999999999999d passt nicht in eine Duration
+      throw new IllegalArgumentException("Invalid bucket size: " + value, e);
+    }
+    if (bucket.getSeconds() < 1 || bucket.getNano() != 0) {
+      throw new IllegalArgumentException("Bucket size must be a positive number of seconds");
+    }
+    return bucket;
+  }
+
+  private static Duration parseUnit(String value) {
+    long amount = Long.parseLong(value.substring(0, value.length() - 1));
+    return switch (value.charAt(value.length() - 1)) {
+      case 's' -> Duration.ofSeconds(amount);
+      case 'm' -> Duration.ofMinutes(amount);
+      case 'h' -> Duration.ofHours(amount);
+      case 'd' -> Duration.ofDays(amount);
+      default -> throw new IllegalArgumentException("Unknown unit in " + value);
+    };
+  }
+
+  /** Returns the number of buckets the range touches, counting a partial bucket as a whole one. */
+  private static long bucketCount(Duration range, Duration bucket) {
+    long count = range.dividedBy(bucket);
+    return bucket.multipliedBy(count).equals(range) ? count : count + 1;
+  }
+}
@@ -0,0 +1,536 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSON encoding of {@link WeatherData}, e.g. {@code
+ * {"id":1,"location":"Berlin","temperature":15.5,"humidity":80,"timestamp":"2024-05-01T12:00"}}.
+ *
+ * <p>The codec is hand-written for the five fields of a reading instead of going through a
+ * general-purpose mapper: writing appends UTF-8 bytes to a pooled buffer that is sent with a single
+ * {@code write} call, and reading parses the request bytes directly without building a tree. Absent
+ * fields and {@code null} values are left unset; unknown fields are skipped. Timestamps use the
+ * same ISO-8601 form as the XML representation.
+ *
+ * <p>{@link #encodeSnapshot(WeatherSnapshot, OutputStream)} writes the readings of several
+ * locations as one object, with the field names of the XML elements.
+ */
+public class WeatherJsonCodec implements WeatherCodec {
+
+  /** Media type of this encoding. */
+  public static final String MEDIA_TYPE = "application/json";
+
+  /** Largest accepted request body; a reading is far smaller. */
+  static final int MAX_DOCUMENT_BYTES = 64 * 1024;
+
+  private static final byte[] ID = ascii("{\"id\":");
+  private static final byte[] LOCATION = ascii("\"location\":");
+  private static final byte[] TEMPERATURE = ascii("\"temperature\":");
+  private static final byte[] HUMIDITY = ascii(",\"humidity\":");
+  private static final byte[] TIMESTAMP = ascii(",\"timestamp\":\"");
+  private static final byte[] HEX = ascii("0123456789abcdef");
+  private static final byte[] SNAPSHOT_ITEMS = ascii("{\"weatherData\":[");
+  private static final byte[] SNAPSHOT_MISSING = ascii("],\"missing\":[");
+  private static final int RETAINED_BUFFER_BYTES = 4096;
+
+  private final ObjectPool<Buffer> buffers = new ObjectPool<>(Buffer::new);
+
+  @Override
+  public String mediaType() {
+    return MEDIA_TYPE;
+  }
+
+  @Override
+  public void encode(WeatherData weatherData, OutputStream out) throws IOException {
+    Buffer buffer = buffers.acquire();
+    buffer.length = 0;
+    appendReading(buffer, weatherData);
+    out.write(buffer.bytes, 0, buffer.length);
+    release(buffer);
+  }
+
+  /**
+   * Writes the readings and missing locations of a snapshot as one JSON object.
+   *
+   * @param snapshot the snapshot to write
+   * @param out the target stream, which is not closed
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void encodeSnapshot(WeatherSnapshot snapshot, OutputStream out) throws IOException {
+    Buffer buffer = buffers.acquire();
+    buffer.length = 0;
+    buffer.append(SNAPSHOT_ITEMS);
+    List<WeatherData> items = snapshot.getItems();
+    for (int i = 0; i < items.size(); i++) {
+      if (i > 0) {
+        buffer.append((byte) ',');
+      }
+      appendReading(buffer, items.get(i));
+    }
+    buffer.append(SNAPSHOT_MISSING);
+    List<String> missing = snapshot.getMissing();
+    for (int i = 0; i < missing.size(); i++) {
+      if (i > 0) {
+        buffer.append((byte) ',');
+      }
+      appendString(buffer, missing.get(i));
+    }
+    buffer.append((byte) ']').append((byte) '}');
+    out.write(buffer.bytes, 0, buffer.length);
+    release(buffer);
+  }
+
+  private static void appendReading(Buffer buffer, WeatherData weatherData) {
+    if (weatherData.getId() != null) {
+      buffer.append(ID).appendAscii(Long.toString(weatherData.getId())).append((byte) ',');
+    } else {
+      buffer.append((byte) '{');
+    }
+    if (weatherData.getLocation() != null) {
+      buffer.append(LOCATION);
+      appendString(buffer, weatherData.getLocation());
+      buffer.append((byte) ',');
+    }
+    buffer.append(TEMPERATURE).appendAscii(number(weatherData.getTemperature()));
+    buffer.append(HUMIDITY).appendAscii(Integer.toString(weatherData.getHumidity()));
+    if (weatherData.getTimestamp() != null) {
+      buffer.append(TIMESTAMP).appendAscii(weatherData.getTimestamp().toString());
+      buffer.append((byte) '"');
+    }
+    buffer.append((byte) '}');
+  }
+
+  @Override
+  public WeatherData decode(InputStream in) throws IOException {
+    Buffer buffer = buffers.acquire();
+    buffer.length = 0;
+    int read;
+    while ((read = in.read(buffer.bytes, buffer.length, buffer.bytes.length - buffer.length))
+        >= 0) {
+      buffer.length += read;
+      if (buffer.length > MAX_DOCUMENT_BYTES) {
+        throw new IOException("JSON document exceeds " + MAX_DOCUMENT_BYTES + " bytes");
+      }
+      buffer.ensure(1);
+    }
+    Parser parser = new Parser(buffer.bytes, buffer.length);
+    WeatherData data = parser.readReading();
+    parser.expectEnd();
+    release(buffer);
+    return data;
+  }
+
+  private void release(Buffer buffer) {
+    // Ungewöhnlich großen Puffer nicht dauerhaft halten
+    if (buffer.bytes.length <= RETAINED_BUFFER_BYTES) {
+      buffers.release(buffer);
+    }
+  }
+
+  private static String number(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("JSON cannot represent the temperature " + value);
+    }
+    return Double.toString(value);
+  }
+
+  private static void appendString(Buffer buffer, String value) {
+    buffer.append((byte) '"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        buffer.append((byte) '\\').append((byte) c);
+      } else if (c < 0x20) {
+        buffer.append((byte) '\\').append((byte) 'u').append((byte) '0').append((byte) '0');
+        buffer.append(HEX[c >> 4]).append(HEX[c & 0xF]);
+      } else if (c < 0x80) {
+        buffer.append((byte) c);
+      } else if (c < 0x800) {
+        buffer.append((byte) (0xC0 | c >> 6)).append((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer.append((byte) (0xF0 | codePoint >> 18));
+        buffer.append((byte) (0x80 | codePoint >> 12 & 0x3F));
+        buffer.append((byte) (0x80 | codePoint >> 6 & 0x3F));
+        buffer.append((byte) (0x80 | codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        buffer.append((byte) '?'); // einzelnes Surrogat, wie String.getBytes(UTF_8)
+      } else {
+        buffer.append((byte) (0xE0 | c >> 12));
+        buffer.append((byte) (0x80 | c >> 6 & 0x3F));
+        buffer.append((byte) (0x80 | c & 0x3F));
+      }
+    }
+    buffer.append((byte) '"');
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** Growable byte buffer, used by one call at a time. */
+  private static final class Buffer {
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    Buffer append(byte b) {
+      ensure(1);
+      bytes[length++] = b;
+      return this;
+    }
+
+    Buffer append(byte[] chunk) {
+      ensure(chunk.length);
+      System.arraycopy(chunk, 0, bytes, length, chunk.length);
+      length += chunk.length;
+      return this;
+    }
+
+    Buffer appendAscii(String text) {
+      ensure(text.length());
+      for (int i = 0; i < text.length(); i++) {
+        bytes[length++] = (byte) text.charAt(i);
+      }
+      return this;
+    }
+
+    void ensure(int extra) {
+      if (length + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+      }
+    }
+  }
+
+  /** Parser for one JSON object describing a reading. */
+  private static final class Parser {
+    private final byte[] in;
+    private final int end;
+    private int pos;
+
+    Parser(byte[] in, int end) {
+      this.in = in;
+      this.end = end;
+    }
+
+    WeatherData readReading() throws IOException {
+      skipWhitespace();
+      expect('{');
+      skipWhitespace();
+      WeatherData data = new WeatherData();
+      if (peek() == '}') {
+        pos++;
+        return data;
+      }
+      do {
+        skipWhitespace();
+        readField(data, readName());
+        skipWhitespace();
+      } while (consume(','));
+      expect('}');
+      return data;
+    }
+
+    void expectEnd() throws IOException {
+      skipWhitespace();
+      if (pos != end) {
+        throw error("Unexpected content after the JSON object");
+      }
+    }
+
+    /** Reads a member name and the colon after it. */
+    private String readName() throws IOException {
+      String name = readString();
+      skipSeparator(':');
+      return name;
+    }
+
+    private void skipSeparator(char separator) throws IOException {
+      skipWhitespace();
+      expect(separator);
+      skipWhitespace();
+    }
+
+    private void readField(WeatherData data, String name) throws IOException {
+      if (consumeNull()) {
+        if (name.equals("temperature") || name.equals("humidity")) {
+          throw error(name + " must not be null");
+        }
+        return;
+      }
+      switch (name) {
+        case "id" -> data.setId(readLong());
+        case "location" -> data.setLocation(readString());
+        case "temperature" -> data.setTemperature(readDouble());
+        case "humidity" -> data.setHumidity(readInt());
+        case "timestamp" -> data.setTimestamp(readTimestamp());
+        default -> skipValue();
+      }
+    }
+
+    private LocalDateTime readTimestamp() throws IOException {
+      String value = readString();
+      LocalDateTime timestamp = parseIsoTimestamp(value);
+      if (timestamp != null) {
+        return timestamp;
+      }
+      try {
+        return value.isBlank() ? null : LocalDateTime.parse(value.trim());
+      } catch (DateTimeParseException e) {
+        throw error("Invalid timestamp \"" + value + "\"");
+      }
+    }
+
+    /**
+     * Parses the form written by {@link LocalDateTime#toString()} without a formatter, e.g. {@code
+     * 2024-05-01T12:00} or {@code 2024-05-01T12:00:30.5}. Returns null for anything else.
+     */
+    private static LocalDateTime parseIsoTimestamp(String value) {
+      int length = value.length();
+      if (length < 16
+          || value.charAt(4) != '-'
+          || value.charAt(7) != '-'
+          || value.charAt(10) != 'T'
+          || value.charAt(13) != ':') {
+        return null;
+      }
+      int second = 0;
+      int nano = 0;
+      if (length > 16) {
+        if (length < 19 || value.charAt(16) != ':') {
+          return null;
+        }
+        second = digits(value, 17, 19);
+        if (length > 19) {
+          if (value.charAt(19) != '.' || length == 20 || length > 29) {
+            return null;
+          }
+          nano = digits(value, 20, length);
+          for (int i = length; i < 29; i++) {
+            nano *= 10;
+          }
+        }
+      }
+      int year = digits(value, 0, 4);
+      int month = digits(value, 5, 7);
+      int day = digits(value, 8, 10);
+      int hour = digits(value, 11, 13);
+      int minute = digits(value, 14, 16);
+      if ((year | month | day | hour | minute | second | nano) < 0) {
+        return null;
+      }
+      try {
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+      } catch (DateTimeException e) {
+        return null;
+      }
+    }
+
+    /** Value of the decimal digits in {@code [from, to)}, or -1 if there is another character. */
+    private static int digits(String value, int from, int to) {
+      int result = 0;
+      for (int i = from; i < to; i++) {
+        char c = value.charAt(i);
+        if (c < '0' || c > '9') {
+          return -1;
+        }
+        result = result * 10 + c - '0';
+      }
+      return result;
+    }
+
+    private int readInt() throws IOException {
+      long value = readLong();
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+        throw error("Integer out of range");
+      }
+      return (int) value;
+    }
+
+    private long readLong() throws IOException {
+      int start = pos;
+      consume('-');
+      if (!isDigit(peek())) {
+        throw error("Expected an integer");
+      }
+      while (isDigit(peek())) {
+        pos++;
+      }
+      try {
+        return Long.parseLong(new String(in, start, pos - start, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        throw error("Integer out of range");
+      }
+    }
+
+    private double readDouble() throws IOException {
+      int start = pos;
+      while (pos < end && "+-0123456789.eE".indexOf(in[pos]) >= 0) {
+        pos++;
+      }
+      try {
+        return Double.parseDouble(new String(in, start, pos - start, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        throw error("Expected a number");
+      }
+    }
+
+    private String readString() throws IOException {
+      expect('"');
+      int start = pos;
+      // Schneller Weg: keine Escapes, Bytes direkt als UTF-8 dekodieren
+      while (pos < end && in[pos] != '"' && in[pos] != '\\') {
+        pos++;
+      }
+      if (pos < end && in[pos] == '"') {
+        return new String(in, start, pos++ - start, StandardCharsets.UTF_8);
+      }
+      ByteArrayOutputStream text = new ByteArrayOutputStream();
+      text.write(in, start, pos - start);
+      while (true) {
+        if (pos >= end) {
+          throw error("Unterminated string");
+        }
+        byte b = in[pos++];
+        if (b == '"') {
+          return text.toString(StandardCharsets.UTF_8);
+        }
+        if (b != '\\') {
+          text.write(b);
+          continue;
+        }
+        if (pos >= end) {
+          throw error("Unterminated escape");
+        }
+        byte escaped = in[pos++];
+        switch (escaped) {
+          case '"', '\\', '/' -> text.write(escaped);
+          case 'b' -> text.write('\b');
+          case 'f' -> text.write('\f');
+          case 'n' -> text.write('\n');
+          case 'r' -> text.write('\r');
+          case 't' -> text.write('\t');
+          case 'u' -> readUnicodeEscape(text);
+          default -> throw error("Invalid escape \\" + (char) escaped);
+        }
+      }
+    }
+
+    /** Reads the rest of a unicode escape, joining a surrogate pair written as two escapes. */
+    private void readUnicodeEscape(ByteArrayOutputStream text) throws IOException {
+      char c = readHexChar();
+      // Nur ein direkt folgendes Unicode-Escape gehört zum Paar, ein anderes Escape bleibt stehen
+      if (Character.isHighSurrogate(c) && pos + 1 < end && in[pos] == '\\' && in[pos + 1] == 'u') {
+        pos += 2;
+        String pair = new String(new char[] {c, readHexChar()});
+        text.writeBytes(pair.getBytes(StandardCharsets.UTF_8));
+      } else {
+        text.writeBytes(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    private char readHexChar() throws IOException {
+      if (pos + 4 > end) {
+        throw error("Incomplete unicode escape");
+      }
+      try {
+        String hex = new String(in, pos, 4, StandardCharsets.US_ASCII);
+        pos += 4;
+        return (char) Integer.parseInt(hex, 16);
+      } catch (NumberFormatException e) {
+        throw error("Invalid unicode escape");
+      }
+    }
+
+    private void skipValue() throws IOException {
+      byte b = peek();
+      if (b == '"') {
+        readString();
+      } else if (b == '{' || b == '[') {
+        skipContainer();
+      } else if (!consumeLiteral("true") && !consumeLiteral("false")) {
+        readDouble();
+      }
+    }
+
+    private void skipContainer() throws IOException {
+      int depth = 0;
+      do {
+        byte b = peek();
+        if (b == '"') {
+          readString();
+          continue;
+        }
+        if (b == '{' || b == '[') {
+          depth++;
+        } else if (b == '}' || b == ']') {
+          depth--;
+        }
+        pos++;
+      } while (depth > 0);
+    }
+
+    void skipWhitespace() {
+      while (pos < end
+          && (in[pos] == ' ' || in[pos] == '\n' || in[pos] == '\r' || in[pos] == '\t')) {
+        pos++;
+      }
+    }
+
+    private boolean consumeNull() {
+      return consumeLiteral("null");
+    }
+
+    private boolean consumeLiteral(String literal) {
+      if (pos + literal.length() > end) {
+        return false;
+      }
+      for (int i = 0; i < literal.length(); i++) {
+        if (in[pos + i] != literal.charAt(i)) {
+          return false;
+        }
+      }
+      pos += literal.length();
+      return true;
+    }
+
+    private boolean consume(char c) {
+      if (pos < end && in[pos] == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) throws IOException {
+      if (!consume(c)) {
+        throw error("Expected '" + c + "'");
+      }
+    }
+
+    private byte peek() throws IOException {
+      if (pos >= end) {
+        throw error("Unexpected end of input");
+      }
+      return in[pos];
+    }
+
+    private static boolean isDigit(byte b) {
+      return b >= '0' && b <= '9';
+    }
+
+    IOException error(String message) {
+      return new IOException(message + " at offset " + pos);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet for listing all stored weather data as a {@code <weatherDataList>} document.
+ *
+ * <p>Supported query parameters:
+ *
+ * <ul>
+ *   <li>{@code afterId}: only readings with a greater ID are returned (default 0).
+ *   <li>{@code limit}: returns a single page of at most this many readings (1 to {@value
+ *       #MAX_PAGE_SIZE}). If the page is full, the header {@value #NEXT_AFTER_ID_HEADER} carries
+ *       the {@code afterId} for the next page.
+ * </ul>
+ *
+ * <p>Without {@code limit} the whole table is streamed through a database cursor: readings are
+ * written as they are read and the response is flushed every {@value #FLUSH_INTERVAL} items, so
+ * neither the servlet nor the client has to wait for (or hold) the complete result.
+ */
+@WebServlet("/weather/list")
+public class WeatherListServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Largest page size a client may request. */
+  static final int MAX_PAGE_SIZE = 1000;
+
+  /** Number of streamed items after which the response is flushed to the client. */
+  static final int FLUSH_INTERVAL = 100;
+
+  /** Response header carrying the {@code afterId} of the next page. */
+  static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
+  private static final Logger logger = LogManager.getLogger(WeatherListServlet.class);
+  private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+  private int fetchSize = WeatherRepository.DEFAULT_FETCH_SIZE;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherListServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository and an XML codec.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for writing XML
+   */
+  public WeatherListServlet(WeatherRepository weatherRepository, WeatherXmlCodec codec) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+  }
+
+  /**
+   * Builds the XML codec once, unless one has been injected already, and reads the optional init
+   * parameter {@code fetchSize} used when streaming.
+   *
+   * @throws ServletException if the JAXB context cannot be created or fetchSize is invalid
+   */
+  @Override
+  public void init() throws ServletException {
+    String configuredFetchSize = getInitParameter("fetchSize");
+    if (configuredFetchSize != null) {
+      try {
+        fetchSize = Integer.parseInt(configuredFetchSize);
+      } catch (NumberFormatException e) {
+        throw new ServletException("Invalid fetchSize: " + configuredFetchSize, e);
+      }
+    }
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests listing weather data, either as a single keyset page or as a stream
+   * of the whole table.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    long afterId;
+    Integer limit = null;
+    try {
+      String afterIdParam = req.getParameter("afterId");
+      afterId = afterIdParam == null ? 0 : Long.parseLong(afterIdParam);
+      String limitParam = req.getParameter("limit");
+      if (limitParam != null) {
+        limit = Integer.parseInt(limitParam);
+      }
+    } catch (NumberFormatException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "afterId and limit must be numbers");
+      return;
+    }
+    if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+      return;
+    }
+
+    try {
+      if (limit != null) {
+        writePage(afterId, limit, resp);
+      } else {
+        writeStream(afterId, resp);
+      }
+    } catch (Exception e) {
+      logger.error("Error while listing weather data", e);
+      if (!resp.isCommitted()) {
+        resp.sendError(
+            HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            "An error occurred while processing the request");
+      }
+    }
+  }
+
+  private void writePage(long afterId, int limit, HttpServletResponse resp) throws Exception {
+    logger.debug("Listing page of {} readings after ID {}", limit, afterId);
+    List<WeatherData> page = weatherRepository.findPage(afterId, limit);
+    if (page.size() == limit) {
+      resp.setHeader(NEXT_AFTER_ID_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+    }
+    resp.setContentType("application/xml");
+    resp.setCharacterEncoding("UTF-8");
+    WeatherXmlCodec.ListWriter writer = codec.openListWriter(resp.getOutputStream());
+    for (WeatherData data : page) {
+      writer.write(data);
+    }
+    writer.finish();
+  }
+
+  private void writeStream(long afterId, HttpServletResponse resp) throws Exception {
+    logger.debug("Streaming all readings after ID {}", afterId);
+    try (Stream<WeatherData> readings = weatherRepository.streamAfter(afterId, fetchSize)) {
+      resp.setContentType("application/xml");
+      resp.setCharacterEncoding("UTF-8");
+      ServletOutputStream out = resp.getOutputStream();
+      WeatherXmlCodec.ListWriter writer = codec.openListWriter(out);
+      int written = 0;
+      for (Iterator<WeatherData> it = readings.iterator(); it.hasNext(); ) {
+        writer.write(it.next());
+        if (++written % FLUSH_INTERVAL == 0) {
+          out.flush();
+        }
+      }
+      writer.finish();
+      logger.debug("Streamed {} readings", written);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet for type-ahead over location names, returning a {@code <locations>} document.
+ *
+ * <p>Query parameters:
+ *
+ * <ul>
+ *   <li>{@code prefix}: the beginning of the location name, matched ignoring case (default: empty,
+ *       matching every location).
+ *   <li>{@code limit}: the maximum number of locations, between 1 and {@value #MAX_LIMIT} (default
+ *       {@value #DEFAULT_LIMIT}).
+ * </ul>
+ *
+ * <p>The locations come from the in-memory {@link LocationIndex} of the repository (see {@link
+ * WeatherRepository#findLocations(String, int)}), so a keystroke costs a binary search instead of a
+ * {@code LIKE} query over all readings.
+ */
+@WebServlet("/weather/locations")
+public class WeatherLocationServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Number of locations returned if the request has no {@code limit} parameter. */
+  static final int DEFAULT_LIMIT = 10;
+
+  /** Maximum number of locations a single request may ask for. */
+  static final int MAX_LIMIT = 100;
+
+  private static final Logger logger = LogManager.getLogger(WeatherLocationServlet.class);
+  private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherLocationServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository and an XML codec.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for writing XML
+   */
+  public WeatherLocationServlet(WeatherRepository weatherRepository, WeatherXmlCodec codec) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+  }
+
+  /**
+   * Builds the XML codec once, unless one has been injected already.
+   *
+   * @throws ServletException if the JAXB context cannot be created
+   */
+  @Override
+  public void init() throws ServletException {
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests for the locations starting with a prefix.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String prefix = req.getParameter("prefix");
+    if (prefix == null) {
+      prefix = "";
+    }
+    int limit;
+    try {
+      String limitParam = req.getParameter("limit");
+      limit = limitParam == null ? DEFAULT_LIMIT : Integer.parseInt(limitParam);
+    } catch (NumberFormatException e) {
+      limit = 0;
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+      return;
+    }
+
+    try {
+      LocationList matches = new LocationList();
+      matches.setPrefix(prefix);
+      matches.setLocations(weatherRepository.findLocations(prefix, limit));
+      logger.debug("Found {} locations for prefix {}", matches.getLocations().size(), prefix);
+
+      resp.setContentType(WeatherXmlCodec.MEDIA_TYPE);
+      resp.setCharacterEncoding("UTF-8");
+      codec.writeDocument(matches, resp.getOutputStream());
+    } catch (Exception e) {
+      logger.error("Error while searching locations", e);
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "An error occurred while processing the request");
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Properties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates the shared {@link WeatherRepository} from configuration and holds helpers of both
+ * backends.
+ */
+final class WeatherRepositories {
+
+  private static final Logger logger = LogManager.getLogger(WeatherRepositories.class);
+  private static WeatherRepository shared;
+
+  private WeatherRepositories() {}
+
+  /**
+   * Returns the shared repository, creating it from the system properties on first use.
+   *
+   * @return the shared repository
+   */
+  static synchronized WeatherRepository shared() {
+    if (shared == null) {
+      shared = create(System.getProperties());
+    }
+    return shared;
+  }
+
+  /** Closes the shared repository if it has been created; the next call creates a new one. */
+  static synchronized void closeShared() {
+    if (shared != null) {
+      shared.close();
+      shared = null;
+    }
+  }
+
+  /**
+   * Creates a repository for the backend named by {@value WeatherRepository#BACKEND_PROPERTY}.
+   *
+   * @param properties the configuration, usually the system properties
+   * @return the new repository
+   * @throws IllegalArgumentException if the backend is unknown or its settings are invalid
+   * @throws UncheckedIOException if the storage files of the mapped backend cannot be opened
+   */
+  static WeatherRepository create(Properties properties) {
+    String backend = backend(properties);
+    switch (backend) {
+      case "jpa":
+        logger.info("Using the JPA repository backend");
+        return new JpaWeatherRepository(
+            new ExpiringCache<>(
+                WeatherRepository.DEFAULT_CACHE_SIZE, WeatherRepository.DEFAULT_CACHE_TTL),
+            Long.parseLong(
+                properties.getProperty(WeatherRepository.HOT_STORE_BUDGET_PROPERTY, "0")));
+      case "mapped":
+        MappedWeatherRepository.Options options =
+            MappedWeatherRepository.Options.fromProperties(properties);
+        logger.info("Using the memory-mapped repository backend in {}", options.directory());
+        try {
+          return new MappedWeatherRepository(options);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not open " + options.directory(), e);
+        }
+      default:
+        throw new IllegalArgumentException(
+            "Unknown " + WeatherRepository.BACKEND_PROPERTY + ": " + backend);
+    }
+  }
+
+  /**
+   * Returns the name of the configured backend.
+   *
+   * @param properties the configuration, usually the system properties
+   * @return the value of {@value WeatherRepository#BACKEND_PROPERTY} in lower case, {@code jpa} if
+   *     unset
+   */
+  static String backend(Properties properties) {
+    return properties
+        .getProperty(WeatherRepository.BACKEND_PROPERTY, "jpa")
+        .trim()
+        .toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns the latency histogram of a repository operation; both backends report into the same
+   * metric.
+   *
+   * @param operation the name of the operation
+   * @return the histogram
+   */
+  static LatencyHistogram timer(String operation) {
+    return MetricsRegistry.shared()
+        .histogram(
+            "weather_repository_duration_seconds",
+            "Duration of WeatherRepository operations",
+            "operation",
+            operation);
+  }
+}
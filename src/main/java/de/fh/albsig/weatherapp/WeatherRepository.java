@@ -1,77 +1,308 @@
 package de.fh.albsig.weatherapp;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Persistence;
-import jakarta.persistence.TypedQuery;
-import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
- * Repository class for managing weather data in the database. Provides methods for CRUD operations
- * on weather data.
+ * Storage of weather readings. Provides methods for CRUD operations on weather data.
+ *
+ * <p>Two backends exist: {@link JpaWeatherRepository} stores readings in the relational database
+ * configured in {@code persistence.xml}, {@link MappedWeatherRepository} in append-only,
+ * memory-mapped segment files. The repository shared by all servlets (see {@link #shared()}) is
+ * selected with the system property {@value #BACKEND_PROPERTY}.
+ *
+ * <p>Implementations are thread-safe. Writes are visible to all readers once the method returns,
+ * and registered {@link InvalidationListener}s have been notified by then.
  */
-public class WeatherRepository implements Serializable {
+public interface WeatherRepository extends AutoCloseable {
 
-  private static final EntityManagerFactory emf =
-      Persistence.createEntityManagerFactory("weatherPU");
+  /**
+   * Number of rows sent to the database per JDBC batch. Matches {@code hibernate.jdbc.batch_size}
+   * in {@code persistence.xml} and the allocation size of the id sequence.
+   */
+  int BATCH_SIZE = 50;
+
+  /** Default number of rows fetched per JDBC round trip when streaming. */
+  int DEFAULT_FETCH_SIZE = 500;
+
+  /** Default maximum number of locations held in the latest-reading cache. */
+  int DEFAULT_CACHE_SIZE = 10_000;
+
+  /** Default time a cached latest reading may be served without asking the database. */
+  Duration DEFAULT_CACHE_TTL = Duration.ofSeconds(30);
+
+  /** System property holding the memory budget of the hot tier in bytes; unset disables it. */
+  String HOT_STORE_BUDGET_PROPERTY = "weatherapp.hotStore.budgetBytes";
 
   /**
-   * Saves or updates a WeatherData entity in the database.
-   *
-   * <p>If the entity is new (i.e., its ID is null), it is persisted. If the entity already exists
-   * (i.e., its ID is not null and matches an existing record), it is updated.
+   * System property selecting the backend of the shared repository: {@code jpa} (the default) or
+   * {@code mapped}. See {@link MappedWeatherRepository.Options} for the settings of the latter.
+   */
+  String BACKEND_PROPERTY = "weatherapp.repository";
+
+  /**
+   * Returns the repository instance shared by all servlets of the application.
    *
-   * @param weatherData the WeatherData entity to save or update
+   * @return the shared repository
    */
-  public void save(WeatherData weatherData) {
-    EntityManager em = emf.createEntityManager();
-    em.getTransaction().begin();
-    em.merge(weatherData); // Updates the entity if it already exists
-    em.getTransaction().commit();
-    em.close();
+  static WeatherRepository shared() {
+    return WeatherRepositories.shared();
   }
 
   /**
-   * Finds a WeatherData entity by its location.
+   * Saves or updates a reading.
+   *
+   * <p>If the reading is new (i.e., its ID is null), it is stored and receives a generated ID. If
+   * its ID matches an existing reading, that reading is replaced.
+   *
+   * @param weatherData the reading to save or update
+   */
+  void save(WeatherData weatherData);
+
+  /**
+   * Saves many readings at once; either all of them are stored or none.
+   *
+   * @param weatherData the readings to save
+   */
+  void saveAll(List<WeatherData> weatherData);
+
+  /**
+   * Finds the latest reading of a location, i.e. the one with the newest timestamp.
    *
    * @param location the location of the weather data
-   * @return the WeatherData entity, or null if not found
-   */
-  public WeatherData findByLocation(String location) {
-    EntityManager em = emf.createEntityManager();
-    TypedQuery<WeatherData> query =
-        em.createQuery(
-            "SELECT w FROM WeatherData w WHERE w.location = :location", WeatherData.class);
-    query.setParameter("location", location);
-    List<WeatherData> results = query.getResultList();
-    em.close();
-    return results.isEmpty() ? null : results.get(0);
+   * @return a copy of the latest reading, or null if not found
+   */
+  WeatherData findByLocation(String location);
+
+  /**
+   * Finds the latest reading of each of many locations at once, e.g. for a map showing hundreds of
+   * cities. Backends answer this with as few queries as possible instead of one per location.
+   *
+   * @param locations the locations; duplicates are ignored
+   * @return copies of the latest readings keyed by location, in the order of {@code locations};
+   *     locations without readings are absent
+   */
+  Map<String, WeatherData> findLatestByLocations(Collection<String> locations);
+
+  /**
+   * Finds the distinct locations starting with a prefix, ignoring case, e.g. for type-ahead. The
+   * locations come from an in-memory {@link LocationIndex}, so a lookup never touches the storage
+   * once the index has been loaded.
+   *
+   * @param prefix the prefix; an empty prefix matches every location
+   * @param limit the maximum number of locations to return
+   * @return the matching locations in alphabetical order, ignoring case
+   */
+  List<String> findLocations(String prefix, int limit);
+
+  /**
+   * Returns the version of the latest reading of a location, e.g. to answer a conditional GET.
+   *
+   * @param location the location of the weather data
+   * @return the version of the latest reading, or null if the location has no readings
+   */
+  WeatherVersion findLatestVersion(String location);
+
+  /**
+   * Aggregates the readings of a location within a time range into fixed-size buckets. Buckets are
+   * aligned to multiples of the bucket size since the epoch; empty buckets are omitted.
+   *
+   * <p>Readings that have been rolled up (see {@link #rollUpReadings(LocalDateTime, int)}) are
+   * included through their rollups. A rollup counts as a whole toward the bucket containing its
+   * start if that start lies within the range, so old ranges are only as precise as the hour or day
+   * they were rolled up to.
+   *
+   * @param location the location of the weather data
+   * @param from the inclusive start of the range
+   * @param to the exclusive end of the range
+   * @param bucket the bucket size, at least one second
+   * @return the non-empty buckets ordered by start time
+   */
+  List<WeatherBucket> findHistory(
+      String location, LocalDateTime from, LocalDateTime to, Duration bucket);
+
+  /**
+   * Returns the newest timestamp stored for a location.
+   *
+   * @param location the location of the weather data
+   * @return the newest timestamp, or null if the location has no readings
+   */
+  LocalDateTime findNewestTimestamp(String location);
+
+  /**
+   * Finds all stored readings.
+   *
+   * @return a list of readings
+   */
+  List<WeatherData> findAll();
+
+  /**
+   * Returns one page of readings ordered by ID, starting after the last ID of the previous page.
+   *
+   * @param afterId only readings with an ID greater than this are returned; use 0 for the first
+   *     page
+   * @param limit the maximum number of readings to return
+   * @return the readings of the page, ordered by ID
+   */
+  List<WeatherData> findPage(long afterId, int limit);
+
+  /**
+   * Streams all readings with an ID greater than {@code afterId}, ordered by ID, without holding
+   * them all in memory. The returned stream may hold resources and <b>must be closed</b>,
+   * preferably with try-with-resources.
+   *
+   * @param afterId only readings with an ID greater than this are returned; use 0 for all
+   * @param fetchSize the number of readings fetched from the backend at a time
+   * @return a stream of readings that must be closed after use
+   */
+  Stream<WeatherData> streamAfter(long afterId, int fetchSize);
+
+  /**
+   * Replaces the reading with the ID of the given reading. Unlike {@link #save(WeatherData)}, no
+   * reading is created if the ID does not exist.
+   *
+   * @param weatherData the new state of the reading, including its ID
+   * @return true if the reading was replaced, false if no reading has that ID
+   */
+  boolean update(WeatherData weatherData);
+
+  /**
+   * Deletes the reading with the ID of the given reading.
+   *
+   * @param weatherData the reading to delete; only its ID is used
+   * @throws IllegalArgumentException if no reading with that ID exists
+   */
+  void delete(WeatherData weatherData);
+
+  /**
+   * Deletes the reading with the given ID.
+   *
+   * @param id the ID of the reading
+   * @return true if the reading was deleted, false if no reading has that ID
+   */
+  boolean deleteById(long id);
+
+  /**
+   * Deletes all readings of a location, of a time range, or of a location within a time range at
+   * once. Readings without a timestamp only match if no range is given. Rollups (see {@link
+   * #rollUpReadings(LocalDateTime, int)}) are deleted if their start lies within the range.
+   *
+   * @param location the location, or null for all locations
+   * @param from the inclusive start of the range, or null for no lower bound
+   * @param to the exclusive end of the range, or null for no upper bound
+   * @return the number of readings deleted
+   * @throws IllegalArgumentException if no criterion is given
+   */
+  long deleteMatching(String location, LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Rolls raw readings older than a point in time into hourly {@link WeatherRollup}s and deletes
+   * them, at most {@code limit} readings in one short transaction. The newest reading of each
+   * location is kept, so {@link #findByLocation(String)} still finds it. Readings without a
+   * timestamp are never rolled up.
+   *
+   * <p>After this, {@link #findHistory} answers ranges before {@code before} from the rollups.
+   *
+   * @param before only readings with an earlier timestamp are rolled up
+   * @param limit the maximum number of readings to roll up
+   * @return the number of readings rolled up; less than {@code limit} once none are left
+   * @throws UnsupportedOperationException if the backend does not support rollups; the default
+   */
+  default int rollUpReadings(LocalDateTime before, int limit) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no rollups");
   }
 
   /**
-   * Finds all WeatherData entities in the database.
+   * Rolls hourly rollups starting before a point in time into daily rollups and deletes them, at
+   * most {@code limit} in one short transaction.
    *
-   * @return a list of WeatherData entities
+   * @param before only hourly rollups starting earlier are rolled up
+   * @param limit the maximum number of hourly rollups to roll up
+   * @return the number of hourly rollups rolled up; less than {@code limit} once none are left
+   * @throws UnsupportedOperationException if the backend does not support rollups; the default
    */
-  public List<WeatherData> findAll() {
-    EntityManager em = emf.createEntityManager();
-    List<WeatherData> results =
-        em.createQuery("SELECT w FROM WeatherData w", WeatherData.class).getResultList();
-    em.close();
-    return results;
+  default int rollUpHours(LocalDateTime before, int limit) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " has no rollups");
   }
 
   /**
-   * Deletes a specific WeatherData entity from the database.
+   * Registers a listener that is notified after every committed write, e.g. to drop derived caches.
    *
-   * @param weatherData the WeatherData entity to delete
+   * @param listener the listener
    */
-  public void delete(WeatherData weatherData) {
-    EntityManager em = emf.createEntityManager();
-    WeatherData removeWeather = em.find(WeatherData.class, weatherData.getId());
-    em.getTransaction().begin();
-    em.remove(removeWeather);
-    em.getTransaction().commit();
+  void addInvalidationListener(InvalidationListener listener);
+
+  /**
+   * Removes a listener registered with {@link #addInvalidationListener(InvalidationListener)}.
+   *
+   * @param listener the listener
+   */
+  void removeInvalidationListener(InvalidationListener listener);
+
+  /**
+   * Returns the cache of the latest reading per location, e.g. to read its hit and miss counters.
+   *
+   * @return the latest-reading cache, or null if the backend does not use one
+   */
+  ExpiringCache<String, WeatherData> getLatestCache();
+
+  /**
+   * Performs the expensive part of opening the backend, such as building the persistence unit,
+   * which would otherwise happen on first use. Calling it again has no effect. The default does
+   * nothing.
+   *
+   * <p>For the shared repository this is done at deploy time (see {@link
+   * ApplicationLifecycleListener}), so no request has to wait for it.
+   */
+  default void bootstrap() {
+    // nichts vorzubereiten
+  }
+
+  /**
+   * Drops everything the repository and its invalidation listeners keep in memory about stored
+   * readings, and reloads its location index. Needed after the store has been changed without going
+   * through the repository, e.g. when a load test seeds the table over JDBC. The default does
+   * nothing.
+   */
+  default void discardCaches() {
+    // nichts zwischengespeichert
+  }
+
+  /**
+   * Releases files or connections held by the repository. The default does nothing.
+   *
+   * <p>The shared repository is closed when the web application stops (see {@link
+   * ApplicationLifecycleListener}).
+   */
+  @Override
+  default void close() {
+    // nichts freizugeben
+  }
+
+  /** Notified after a write through the repository has been committed. */
+  @FunctionalInterface
+  interface InvalidationListener {
+
+    /**
+     * Drops everything derived from the readings affected by a write.
+     *
+     * @param location the location whose latest reading may have changed, or null if only the
+     *     updated IDs are known
+     * @param updatedIds IDs of updated rows whose previous location is unknown, possibly empty
+     */
+    void invalidated(String location, Set<Long> updatedIds);
+
+    /**
+     * Drops everything derived from any reading, see {@link WeatherRepository#discardCaches()}. The
+     * default does nothing.
+     */
+    default void invalidatedAll() {
+      // nichts abgeleitet
+    }
   }
 }
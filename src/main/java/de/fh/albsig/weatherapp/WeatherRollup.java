@@ -0,0 +1,195 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Aggregate of the readings of one location within one hour or one day, stored in place of raw
+ * readings that have passed their retention age (see {@link RetentionJob}).
+ *
+ * <p>Besides minimum and maximum, a rollup stores the count and the sums of temperature and
+ * humidity rather than averages, so rollups can be merged exactly: into coarser rollups, with raw
+ * readings arriving late for an hour already rolled up, and with raw readings when a history query
+ * spans several tiers. Bucket starts are aligned to whole hours or days since the epoch, like the
+ * buckets of {@link WeatherBucket}.
+ */
+@Entity
+@Table(
+    name = "weather_rollup",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uk_weather_rollup_location_start_resolution",
+            columnNames = {"location", "bucket_start", "resolution"}),
+    indexes =
+        @Index(
+            name = "idx_weather_rollup_resolution_start",
+            columnList = "resolution, bucket_start"))
+public class WeatherRollup {
+
+  /** Time span covered by one rollup. */
+  public enum Resolution {
+    /** One hour, holding raw readings past the raw retention age. */
+    HOUR(3600),
+    /** One day, holding hourly rollups past the hourly retention age. */
+    DAY(86_400);
+
+    private final long seconds;
+
+    Resolution(long seconds) {
+      this.seconds = seconds;
+    }
+
+    /**
+     * Returns the start of the rollup containing a point in time.
+     *
+     * @param timestamp the point in time
+     * @return the start of the hour or day containing it
+     */
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+      long second = timestamp.toEpochSecond(ZoneOffset.UTC);
+      return LocalDateTime.ofEpochSecond(
+          Math.floorDiv(second, seconds) * seconds, 0, ZoneOffset.UTC);
+    }
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_rollup_seq")
+  @SequenceGenerator(
+      name = "weather_rollup_seq",
+      sequenceName = "weather_rollup_seq",
+      allocationSize = WeatherRepository.BATCH_SIZE)
+  private Long id;
+
+  @Column(name = "location", nullable = false)
+  private String location;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "resolution", nullable = false, length = 8)
+  private Resolution resolution;
+
+  @Column(name = "bucket_start", nullable = false)
+  private LocalDateTime bucketStart;
+
+  @Column(name = "reading_count")
+  private long count;
+
+  @Column(name = "min_temperature")
+  private double minTemperature = Double.POSITIVE_INFINITY;
+
+  @Column(name = "max_temperature")
+  private double maxTemperature = Double.NEGATIVE_INFINITY;
+
+  @Column(name = "sum_temperature")
+  private double sumTemperature;
+
+  @Column(name = "min_humidity")
+  private int minHumidity = Integer.MAX_VALUE;
+
+  @Column(name = "max_humidity")
+  private int maxHumidity = Integer.MIN_VALUE;
+
+  @Column(name = "sum_humidity")
+  private long sumHumidity;
+
+  /** Creates an empty rollup, required by JPA. */
+  public WeatherRollup() {}
+
+  /**
+   * Creates an empty rollup of a location and bucket.
+   *
+   * @param location the location
+   * @param resolution the time span covered
+   * @param bucketStart the aligned start of the bucket
+   */
+  public WeatherRollup(String location, Resolution resolution, LocalDateTime bucketStart) {
+    this.location = location;
+    this.resolution = resolution;
+    this.bucketStart = bucketStart;
+  }
+
+  /**
+   * Adds one raw reading.
+   *
+   * @param temperature the temperature of the reading
+   * @param humidity the humidity of the reading
+   */
+  public void add(double temperature, int humidity) {
+    count++;
+    minTemperature = Math.min(minTemperature, temperature);
+    maxTemperature = Math.max(maxTemperature, temperature);
+    sumTemperature += temperature;
+    minHumidity = Math.min(minHumidity, humidity);
+    maxHumidity = Math.max(maxHumidity, humidity);
+    sumHumidity += humidity;
+  }
+
+  /**
+   * Adds all readings of another rollup, e.g. an hourly rollup to a daily one.
+   *
+   * @param other the rollup to add
+   */
+  public void add(WeatherRollup other) {
+    count += other.count;
+    minTemperature = Math.min(minTemperature, other.minTemperature);
+    maxTemperature = Math.max(maxTemperature, other.maxTemperature);
+    sumTemperature += other.sumTemperature;
+    minHumidity = Math.min(minHumidity, other.minHumidity);
+    maxHumidity = Math.max(maxHumidity, other.maxHumidity);
+    sumHumidity += other.sumHumidity;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public Resolution getResolution() {
+    return resolution;
+  }
+
+  public LocalDateTime getBucketStart() {
+    return bucketStart;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMinTemperature() {
+    return minTemperature;
+  }
+
+  public double getMaxTemperature() {
+    return maxTemperature;
+  }
+
+  public double getSumTemperature() {
+    return sumTemperature;
+  }
+
+  public int getMinHumidity() {
+    return minHumidity;
+  }
+
+  public int getMaxHumidity() {
+    return maxHumidity;
+  }
+
+  public long getSumHumidity() {
+    return sumHumidity;
+  }
+}
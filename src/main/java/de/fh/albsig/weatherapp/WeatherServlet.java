@@ -1,14 +1,20 @@
 package de.fh.albsig.weatherapp;
 
+import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -18,33 +24,123 @@ import org.apache.logging.log4j.Logger;
  * <p>Supported operations:
  *
  * <ul>
- *   <li>GET: Retrieve weather data for a specific location or all weather data.
+ *   <li>GET: Retrieve the latest weather data for one location or several at once.
  *   <li>POST: Add new weather data to the repository.
  *   <li>PUT: Update existing weather data in the repository.
  *   <li>DELETE: Remove specific weather data from the repository.
  * </ul>
  *
+ * <p>PUT and DELETE address a reading either by the ID in the request body on {@code /weather} or
+ * by its path, {@code /weather/{id}}; a DELETE on the path needs no body. Other paths below {@code
+ * /weather} that no other servlet serves are answered with 404 (Not Found).
+ *
  * <p>The servlet interacts with the {@link WeatherRepository} to perform database operations and
- * uses JAXB for parsing and generating XML data.
+ * uses a shared {@link WeatherXmlCodec} for parsing and generating XML data. The codec (and its
+ * JAXB context) is shared by all servlets and normally built at deploy time; set the init parameter
+ * {@code formattedOutput} to {@code true} to get a codec of its own producing indented XML for
+ * debugging.
+ *
+ * <p>XML is the default representation. Clients can also send and receive JSON ({@link
+ * WeatherJsonCodec}) or a compact binary frame ({@link WeatherBinaryCodec}) by setting {@code
+ * Content-Type} and {@code Accept}; see {@link WeatherCodecs} for the negotiation rules.
+ * Unsupported types are answered with 415 (Unsupported Media Type) or 406 (Not Acceptable).
+ *
+ * <p>Requests are handled asynchronously by an {@link AsyncDispatcher}, so a slow database call
+ * does not block a container thread. The init parameters {@code asyncTimeoutMillis}, {@code
+ * asyncThreads} and {@code asyncQueueCapacity} configure the timeout and, on runtimes without
+ * virtual threads, the size of the worker pool; there it also caps the number of concurrent
+ * requests, by default at 200 running and 1000 waiting ones.
+ *
+ * <p>GET responses carry an {@code ETag} and a {@code Last-Modified} header (see {@link
+ * WeatherVersion}). If the client sends {@code If-None-Match} or {@code If-Modified-Since} and its
+ * copy is still current, the servlet answers with 304 (Not Modified) after checking only the
+ * version of the latest reading, without loading the entity or encoding it.
+ *
+ * <p>Encoded GET responses are kept in an {@link EncodedResponseCache}, so repeated requests for a
+ * location write the cached bytes with a {@code Content-Length} instead of marshalling the reading
+ * again. The cache is dropped for a location as soon as the repository commits a write to it.
+ *
+ * <p>With the init parameter {@code writeBehind} set to {@code true}, POST does not wait for the
+ * database: valid readings are placed in a {@link WriteBehindQueue} (capacity set by {@code
+ * writeBehindCapacity}) and answered with 202 (Accepted). If the queue is full, the request is
+ * answered with 503 and a {@code Retry-After} header instead of blocking.
+ *
+ * <p>Repository work is guarded by {@link AdmissionControl}: reads and writes each pass an adaptive
+ * {@link ConcurrencyLimiter} (init parameters {@code readConcurrency}, {@code writeConcurrency} and
+ * {@code latencyThresholdMillis}), and requests over the limit are answered with 503 and {@code
+ * Retry-After} at once instead of piling up while the database is slow. Setting {@code
+ * clientRequestsPerSecond} (and optionally {@code clientBurst}) additionally limits the rate of
+ * each client, answering excess requests with 429. Behind a load balancer, list its addresses in
+ * {@code trustedProxies} (comma-separated), so clients are told apart by {@code X-Forwarded-For}.
  *
  * <p>In production, the servlet initializes with a real {@link WeatherRepository}. For testing, a
  * mock repository can be injected using the parameterized constructor.
  */
-@WebServlet("/weather")
+@WebServlet(
+    value = {"/weather", "/weather/*"},
+    asyncSupported = true)
 public class WeatherServlet extends HttpServlet {
 
+  private static final long serialVersionUID = 1L;
+
+  private static final int DEFAULT_ASYNC_THREADS = 200;
+  private static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+  private static final int DEFAULT_READ_CONCURRENCY = DEFAULT_ASYNC_THREADS;
+  private static final int DEFAULT_WRITE_CONCURRENCY = 50;
+
+  /** Maximum number of distinct locations a single GET request may name. */
+  static final int MAX_SNAPSHOT_LOCATIONS = 1000;
+
+  private static final Duration WRITE_QUEUE_SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
   private static final Logger logger = LogManager.getLogger(WeatherServlet.class);
+
+  // Latenzen pro HTTP-Methode und Phase, siehe MetricsServlet
+  private static final LatencyHistogram GET_TIMER = requestTimer("GET");
+  private static final LatencyHistogram POST_TIMER = requestTimer("POST");
+  private static final LatencyHistogram PUT_TIMER = requestTimer("PUT");
+  private static final LatencyHistogram DELETE_TIMER = requestTimer("DELETE");
+  private static final LatencyHistogram GET_DATABASE = phaseTimer("GET", "database");
+  private static final LatencyHistogram GET_MARSHAL = phaseTimer("GET", "marshal");
+  private static final LatencyHistogram GET_RESPOND = phaseTimer("GET", "respond");
+  private static final LatencyHistogram POST_UNMARSHAL = phaseTimer("POST", "unmarshal");
+  private static final LatencyHistogram POST_DATABASE = phaseTimer("POST", "database");
+  private static final LatencyHistogram PUT_UNMARSHAL = phaseTimer("PUT", "unmarshal");
+  private static final LatencyHistogram PUT_DATABASE = phaseTimer("PUT", "database");
+  private static final LatencyHistogram DELETE_UNMARSHAL = phaseTimer("DELETE", "unmarshal");
+  private static final LatencyHistogram DELETE_DATABASE = phaseTimer("DELETE", "database");
+
   private final WeatherRepository weatherRepository;
+  private transient WeatherXmlCodec codec;
+  private transient WeatherCodecs codecs;
+  private transient WeatherCodecs snapshotCodecs;
+  private transient AsyncDispatcher dispatcher;
+  private boolean ownsDispatcher;
+  private transient WriteBehindQueue writeQueue;
+  private boolean ownsWriteQueue;
+  private transient AdmissionControl admission;
+  private final transient EncodedResponseCache responseCache =
+      new EncodedResponseCache(
+          WeatherRepository.DEFAULT_CACHE_SIZE, WeatherRepository.DEFAULT_CACHE_TTL);
+
+  // Einmal pro Servlet erzeugt, damit pro Request kein Lambda angelegt wird
+  private final transient AsyncDispatcher.Handler getHandler =
+      timed(GET_TIMER, admitted(false, this::handleGet));
+  private final transient AsyncDispatcher.Handler postHandler =
+      timed(POST_TIMER, admitted(true, this::handlePost));
+  private final transient AsyncDispatcher.Handler putHandler =
+      timed(PUT_TIMER, admitted(true, this::handlePut));
+  private final transient AsyncDispatcher.Handler deleteHandler =
+      timed(DELETE_TIMER, admitted(true, this::handleDelete));
 
   /**
-   * Default constructor for the WeatherServlet. Initializes the servlet with a new instance of
-   * WeatherRepository.
+   * Default constructor for the WeatherServlet. Initializes the servlet with the shared
+   * WeatherRepository, so all servlets see the same latest-reading cache.
    *
    * <p>This constructor is primarily used in a production environment where a real repository is
    * needed to interact with the database.
    */
   public WeatherServlet() {
-    this.weatherRepository = new WeatherRepository();
+    this.weatherRepository = WeatherRepository.shared();
   }
 
   /**
@@ -53,27 +149,178 @@ public class WeatherServlet extends HttpServlet {
    * @param weatherRepository the repository used for weather data operations
    */
   public WeatherServlet(WeatherRepository weatherRepository) {
+    this(weatherRepository, new WeatherXmlCodec());
+  }
+
+  /**
+   * Constructor for initializing the WeatherServlet with a WeatherRepository and an XML codec.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for reading and writing XML
+   */
+  public WeatherServlet(WeatherRepository weatherRepository, WeatherXmlCodec codec) {
     this.weatherRepository =
         Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    useCodec(Objects.requireNonNull(codec, "codec must not be null"));
+  }
+
+  /**
+   * Constructor for initializing the WeatherServlet with a repository, an XML codec and the
+   * dispatcher running requests asynchronously.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for reading and writing XML
+   * @param dispatcher the dispatcher used for asynchronous request handling
+   */
+  public WeatherServlet(
+      WeatherRepository weatherRepository, WeatherXmlCodec codec, AsyncDispatcher dispatcher) {
+    this(weatherRepository, codec);
+    this.dispatcher = Objects.requireNonNull(dispatcher, "dispatcher must not be null");
+  }
+
+  /**
+   * Constructor for initializing the WeatherServlet in write-behind mode.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for reading and writing XML
+   * @param dispatcher the dispatcher used for asynchronous request handling
+   * @param writeQueue the queue POST requests are placed in
+   */
+  public WeatherServlet(
+      WeatherRepository weatherRepository,
+      WeatherXmlCodec codec,
+      AsyncDispatcher dispatcher,
+      WriteBehindQueue writeQueue) {
+    this(weatherRepository, codec, dispatcher);
+    this.writeQueue = Objects.requireNonNull(writeQueue, "writeQueue must not be null");
+  }
+
+  /**
+   * Constructor for initializing the WeatherServlet with its own admission control.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param codec the codec used for reading and writing XML
+   * @param admission the limits requests have to pass before reaching the repository
+   */
+  public WeatherServlet(
+      WeatherRepository weatherRepository, WeatherXmlCodec codec, AdmissionControl admission) {
+    this(weatherRepository, codec);
+    this.admission = Objects.requireNonNull(admission, "admission must not be null");
+  }
+
+  /**
+   * Builds the XML codec, the asynchronous dispatcher and the admission control once, unless they
+   * have been injected already, and registers the response cache for invalidation by the
+   * repository.
+   *
+   * @throws ServletException if the JAXB context cannot be created or an init parameter is invalid
+   */
+  @Override
+  public void init() throws ServletException {
+    if (codec == null) {
+      try {
+        useCodec(WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput"))));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+    if (dispatcher == null) {
+      long timeoutMillis =
+          intInitParameter("asyncTimeoutMillis", (int) AsyncDispatcher.DEFAULT_TIMEOUT.toMillis());
+      dispatcher =
+          new AsyncDispatcher(
+              AsyncDispatcher.newRequestExecutor(
+                  intInitParameter("asyncThreads", DEFAULT_ASYNC_THREADS),
+                  intInitParameter("asyncQueueCapacity", DEFAULT_ASYNC_QUEUE_CAPACITY)),
+              Duration.ofMillis(timeoutMillis));
+      ownsDispatcher = true;
+    }
+    if (admission == null) {
+      admission = newAdmissionControl();
+    }
+    admission.registerMetrics(MetricsRegistry.shared());
+    weatherRepository.addInvalidationListener(responseCache);
+    MetricsRegistry.shared()
+        .counterFunction(
+            "weather_response_cache_hits_total",
+            "GET responses served from the encoded response cache",
+            responseCache::hitCount);
+    MetricsRegistry.shared()
+        .counterFunction(
+            "weather_response_cache_misses_total",
+            "GET responses that had to be encoded",
+            responseCache::missCount);
+    if (writeQueue == null && Boolean.parseBoolean(getInitParameter("writeBehind"))) {
+      writeQueue =
+          new WriteBehindQueue(
+              weatherRepository,
+              intInitParameter("writeBehindCapacity", WriteBehindQueue.DEFAULT_CAPACITY),
+              WeatherRepository.BATCH_SIZE);
+      writeQueue.start();
+      ownsWriteQueue = true;
+      getServletContext().setAttribute(WriteBehindQueue.CONTEXT_ATTRIBUTE, writeQueue);
+      logger.info("Write-behind mode enabled");
+    }
+  }
+
+  /**
+   * Unregisters the response cache, shuts down the asynchronous dispatcher and flushes the
+   * write-behind queue if this servlet created them.
+   */
+  @Override
+  public void destroy() {
+    weatherRepository.removeInvalidationListener(responseCache);
+    if (ownsDispatcher) {
+      dispatcher.shutdown();
+    }
+    if (ownsWriteQueue) {
+      getServletContext().removeAttribute(WriteBehindQueue.CONTEXT_ATTRIBUTE);
+      writeQueue.shutdown(WRITE_QUEUE_SHUTDOWN_TIMEOUT);
+    }
+  }
+
+  /**
+   * Returns the XML codec used by this servlet.
+   *
+   * @return the XML codec
+   */
+  WeatherXmlCodec getCodec() {
+    return codec;
   }
 
   /**
    * Handles HTTP GET requests to retrieve weather data for a specific location. Expects a
    * "location" query parameter.
    *
+   * <p>If the parameter is repeated, e.g. {@code ?location=Berlin&location=Paris}, the latest
+   * readings of all named locations are loaded at once and returned as one {@link WeatherSnapshot}
+   * document, which lists locations without readings as missing. Such requests are answered in XML
+   * or JSON and may name at most {@value #MAX_SNAPSHOT_LOCATIONS} distinct locations.
+   *
    * @param req the HttpServletRequest object
    * @param resp the HttpServletResponse object
    * @throws IOException if an I/O error occurs during processing
    */
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-    try {
-      JAXBContext context = JAXBContext.newInstance(WeatherData.class);
-      Marshaller marshaller = context.createMarshaller();
-      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+    if (req.getPathInfo() != null) {
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    dispatch(req, resp, getHandler);
+  }
 
+  private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    try {
       logger.info("Received a GET request");
 
+      // Mehrere Orte in einer Anfrage: eine Abfrage statt einer pro Ort
+      String[] locations = req.getParameterValues("location");
+      if (locations != null && locations.length > 1) {
+        handleGetSnapshot(locations, req, resp);
+        return;
+      }
+
       String location = req.getParameter("location");
 
       // Prüfen, ob der Parameter "location" vorhanden ist
@@ -83,22 +330,75 @@ public class WeatherServlet extends HttpServlet {
         return;
       }
 
-      // Abfrage in der Datenbank
-      logger.debug("Searching weather data for location: {}", location);
-      WeatherData data = weatherRepository.findByLocation(location);
-
-      if (data == null) {
-        logger.info("No weather data found for location: {}", location);
+      // Darstellung anhand des Accept-Headers wählen
+      WeatherCodec format = codecs.forAccept(req.getHeader("Accept"));
+      resp.setHeader("Vary", "Accept");
+      if (format == null) {
         resp.sendError(
-            HttpServletResponse.SC_NOT_FOUND, "No weather data found for the specified location");
+            HttpServletResponse.SC_NOT_ACCEPTABLE,
+            "Supported media types: "
+                + WeatherXmlCodec.MEDIA_TYPE
+                + ", "
+                + WeatherJsonCodec.MEDIA_TYPE
+                + ", "
+                + WeatherBinaryCodec.MEDIA_TYPE);
         return;
       }
+      String variant = format == codecs.defaultCodec() ? null : format.mediaType();
+
+      // Bedingte Anfrage: nur die Version prüfen, ohne Entity zu laden oder zu kodieren
+      String ifNoneMatch = req.getHeader("If-None-Match");
+      long ifModifiedSince = dateHeader(req, "If-Modified-Since");
+      if (ifNoneMatch != null || ifModifiedSince >= 0) {
+        WeatherVersion version = responseCache.version(location);
+        if (version == null) {
+          long versionStarted = System.nanoTime();
+          version = weatherRepository.findLatestVersion(location);
+          GET_DATABASE.recordSince(versionStarted);
+        }
+        if (version != null && version.isNotModified(ifNoneMatch, ifModifiedSince, variant)) {
+          setValidators(resp, version, variant);
+          resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          return;
+        }
+      }
+
+      // Bereits kodierte Antwort verwenden, sonst aus der Datenbank laden und kodieren
+      long stamp = responseCache.generation();
+      EncodedResponseCache.Body body = responseCache.get(location, format.mediaType());
+      if (body == null) {
+        logger.debug("Searching weather data for location: {}", location);
+        long databaseStarted = System.nanoTime();
+        WeatherData data = weatherRepository.findByLocation(location);
+        GET_DATABASE.recordSince(databaseStarted);
+
+        if (data == null) {
+          logger.info("No weather data found for location: {}", location);
+          resp.sendError(
+              HttpServletResponse.SC_NOT_FOUND, "No weather data found for the specified location");
+          return;
+        }
+
+        logger.debug("Weather data found: {}", data);
+        long marshalStarted = System.nanoTime();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        format.encode(data, buffer);
+        body =
+            responseCache.put(
+                location, format.mediaType(), WeatherVersion.of(data), buffer.toByteArray(), stamp);
+        GET_MARSHAL.recordSince(marshalStarted);
+      }
 
-      // Wetterdaten als XML zurückgeben
-      logger.debug("Weather data found: {}", data);
-      // Setzen des Content-Typs auf XML
-      resp.setContentType("application/xml");
-      marshaller.marshal(data, resp.getWriter());
+      // Wetterdaten in der gewählten Darstellung zurückgeben
+      resp.setContentType(format.mediaType());
+      if (format.isText()) {
+        resp.setCharacterEncoding("UTF-8");
+      }
+      setValidators(resp, body.version(), variant);
+      long respondStarted = System.nanoTime();
+      resp.setContentLength(body.length());
+      body.writeTo(resp.getOutputStream());
+      GET_RESPOND.recordSince(respondStarted);
     } catch (Exception e) {
       logger.error("Error while processing the request", e);
       resp.sendError(
@@ -107,9 +407,69 @@ public class WeatherServlet extends HttpServlet {
     }
   }
 
+  private void handleGetSnapshot(
+      String[] locations, HttpServletRequest req, HttpServletResponse resp)
+      throws IOException, JAXBException {
+    Set<String> requested = new LinkedHashSet<>(Arrays.asList(locations));
+    if (requested.contains("")) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Location parameter is empty");
+      return;
+    }
+    if (requested.size() > MAX_SNAPSHOT_LOCATIONS) {
+      resp.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "At most " + MAX_SNAPSHOT_LOCATIONS + " locations per request");
+      return;
+    }
+    resp.setHeader("Vary", "Accept");
+    WeatherCodec format = snapshotCodecs.forAccept(req.getHeader("Accept"));
+    if (format == null) {
+      resp.sendError(
+          HttpServletResponse.SC_NOT_ACCEPTABLE,
+          "Several locations are only available as "
+              + WeatherXmlCodec.MEDIA_TYPE
+              + " or "
+              + WeatherJsonCodec.MEDIA_TYPE);
+      return;
+    }
+
+    long databaseStarted = System.nanoTime();
+    Map<String, WeatherData> latest = weatherRepository.findLatestByLocations(requested);
+    GET_DATABASE.recordSince(databaseStarted);
+
+    // Gefundene Messwerte und fehlende Orte in der Reihenfolge der Anfrage auflisten
+    WeatherSnapshot snapshot = new WeatherSnapshot();
+    for (String location : requested) {
+      WeatherData data = latest.get(location);
+      if (data == null) {
+        snapshot.addMissing(location);
+      } else {
+        snapshot.addItem(data);
+      }
+    }
+    logger.debug(
+        "Found {} of {} requested locations", snapshot.getItems().size(), requested.size());
+
+    long marshalStarted = System.nanoTime();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(128 * requested.size());
+    if (format instanceof WeatherJsonCodec json) {
+      json.encodeSnapshot(snapshot, buffer);
+    } else {
+      codec.writeDocument(snapshot, buffer);
+    }
+    GET_MARSHAL.recordSince(marshalStarted);
+
+    resp.setContentType(format.mediaType());
+    resp.setCharacterEncoding("UTF-8");
+    long respondStarted = System.nanoTime();
+    resp.setContentLength(buffer.size());
+    buffer.writeTo(resp.getOutputStream());
+    GET_RESPOND.recordSince(respondStarted);
+  }
+
   /**
-   * Handles HTTP POST requests to save or update weather data. Expects XML representation of
-   * WeatherData in the request body.
+   * Handles HTTP POST requests to save or update weather data. Expects a representation of
+   * WeatherData in the request body, XML unless {@code Content-Type} says otherwise.
    *
    * @param req the HttpServletRequest object
    * @param resp the HttpServletResponse object
@@ -117,10 +477,22 @@ public class WeatherServlet extends HttpServlet {
    */
   @Override
   protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    if (req.getPathInfo() != null) {
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    dispatch(req, resp, postHandler);
+  }
+
+  private void handlePost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     try {
-      JAXBContext context = JAXBContext.newInstance(WeatherData.class);
-      Unmarshaller unmarshaller = context.createUnmarshaller();
-      WeatherData weatherData = (WeatherData) unmarshaller.unmarshal(req.getReader());
+      WeatherCodec format = requestFormat(req, resp);
+      if (format == null) {
+        return;
+      }
+      long unmarshalStarted = System.nanoTime();
+      WeatherData weatherData = readBody(req, format);
+      POST_UNMARSHAL.recordSince(unmarshalStarted);
 
       if (weatherData == null
           || weatherData.getLocation() == null
@@ -130,7 +502,14 @@ public class WeatherServlet extends HttpServlet {
         return;
       }
 
+      if (writeQueue != null) {
+        enqueue(weatherData, resp);
+        return;
+      }
+
+      long databaseStarted = System.nanoTime();
       weatherRepository.save(weatherData);
+      POST_DATABASE.recordSince(databaseStarted);
 
       logger.info("Saved weather data: {}", weatherData);
       resp.setStatus(HttpServletResponse.SC_CREATED);
@@ -144,22 +523,48 @@ public class WeatherServlet extends HttpServlet {
   /**
    * Handles HTTP PUT requests to update existing weather data.
    *
-   * <p>This method expects the request body to contain a valid XML representation of a WeatherData
+   * <p>This method expects the request body to contain a valid representation of a WeatherData
    * object. The provided data is used to update an existing entry in the WeatherRepository. If the
-   * update is successful, the response status is set to 204 (No Content). If the input data is
-   * invalid, a 400 (Bad Request) error is returned.
+   * update is successful, the response status is set to 204 (No Content). If no entry has the given
+   * ID, a 404 (Not Found) error is returned; if the input data is invalid, a 400 (Bad Request)
+   * error. On {@code /weather/{id}} the ID is taken from the path; an ID in the body must then
+   * match it.
    *
-   * @param req the HttpServletRequest containing the XML weather data to update
+   * @param req the HttpServletRequest containing the weather data to update
    * @param resp the HttpServletResponse to send the status of the operation
    * @throws IOException if an input or output error occurs while processing the request
    */
   @Override
   protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    dispatch(req, resp, putHandler);
+  }
+
+  private void handlePut(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     try {
       // Parse the incoming WeatherData object from the request body
-      JAXBContext context = JAXBContext.newInstance(WeatherData.class);
-      Unmarshaller unmarshaller = context.createUnmarshaller();
-      WeatherData weatherData = (WeatherData) unmarshaller.unmarshal(req.getReader());
+      WeatherCodec format = requestFormat(req, resp);
+      if (format == null) {
+        return;
+      }
+      String path = req.getPathInfo();
+      Long pathId = path == null ? null : idFromPath(path);
+      if (path != null && pathId == null) {
+        resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data at " + path);
+        return;
+      }
+      long unmarshalStarted = System.nanoTime();
+      WeatherData weatherData = readBody(req, format);
+      PUT_UNMARSHAL.recordSince(unmarshalStarted);
+
+      // Die ID aus dem Pfad hat Vorrang, ein abweichender Body ist ein Widerspruch
+      if (pathId != null) {
+        if (weatherData.getId() != null && !weatherData.getId().equals(pathId)) {
+          resp.sendError(
+              HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID does not match the path");
+          return;
+        }
+        weatherData.setId(pathId);
+      }
 
       // Sicherstellen, dass das WeatherData-Objekt eine ID hat
       if (weatherData.getId() == null) {
@@ -168,8 +573,15 @@ public class WeatherServlet extends HttpServlet {
         return;
       }
 
-      // Update the WeatherData in the repository
-      weatherRepository.save(weatherData);
+      // Ein UPDATE per ID; legt anders als save() keinen neuen Messwert an
+      long databaseStarted = System.nanoTime();
+      boolean updated = weatherRepository.update(weatherData);
+      PUT_DATABASE.recordSince(databaseStarted);
+      if (!updated) {
+        resp.sendError(
+            HttpServletResponse.SC_NOT_FOUND, "No weather data with ID " + weatherData.getId());
+        return;
+      }
 
       logger.info("Updated weather data: {}", weatherData);
       resp.setStatus(HttpServletResponse.SC_NO_CONTENT); // Return HTTP 204 for successful update
@@ -180,8 +592,10 @@ public class WeatherServlet extends HttpServlet {
   }
 
   /**
-   * Handles HTTP DELETE requests to delete weather data. Expects XML representation of WeatherData
-   * in the request body.
+   * Handles HTTP DELETE requests to delete weather data. Expects a representation of WeatherData in
+   * the request body, XML unless {@code Content-Type} says otherwise, or the ID in the path as in
+   * {@code /weather/{id}}, in which case the body is not read. Responds with 204 (No Content) if
+   * the entry has been deleted and with 404 (Not Found) if no entry has the given ID.
    *
    * @param req the HttpServletRequest object
    * @param resp the HttpServletResponse object
@@ -189,27 +603,224 @@ public class WeatherServlet extends HttpServlet {
    */
   @Override
   protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    dispatch(req, resp, deleteHandler);
+  }
+
+  private void handleDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     try {
-      // JAXB zum Unmarshalling des Request-Bodies
-      JAXBContext context = JAXBContext.newInstance(WeatherData.class);
-      Unmarshaller unmarshaller = context.createUnmarshaller();
-      WeatherData weatherData = (WeatherData) unmarshaller.unmarshal(req.getReader());
+      Long id;
+      String path = req.getPathInfo();
+      if (path != null) {
+        id = idFromPath(path);
+        if (id == null) {
+          resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data at " + path);
+          return;
+        }
+      } else {
+        // Request-Body im angegebenen Format einlesen
+        WeatherCodec format = requestFormat(req, resp);
+        if (format == null) {
+          return;
+        }
+        long unmarshalStarted = System.nanoTime();
+        WeatherData weatherData = readBody(req, format);
+        DELETE_UNMARSHAL.recordSince(unmarshalStarted);
+        id = weatherData.getId();
 
-      // Sicherstellen, dass das WeatherData-Objekt eine ID hat
-      if (weatherData.getId() == null) {
-        resp.sendError(
-            HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID must not be null for deletion");
-        return;
+        // Sicherstellen, dass das WeatherData-Objekt eine ID hat
+        if (id == null) {
+          resp.sendError(
+              HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID must not be null for deletion");
+          return;
+        }
       }
 
-      // Wetterdaten löschen
-      weatherRepository.delete(weatherData);
+      // Wetterdaten mit einem DELETE per ID löschen
+      long databaseStarted = System.nanoTime();
+      boolean deleted = weatherRepository.deleteById(id);
+      DELETE_DATABASE.recordSince(databaseStarted);
+      if (!deleted) {
+        resp.sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data with ID " + id);
+        return;
+      }
 
-      logger.info("Deleted weather data: {}", weatherData);
+      logger.info("Deleted weather data with ID {}", id);
       resp.setStatus(HttpServletResponse.SC_NO_CONTENT); // 204 No Content bei erfolgreichem Löschen
     } catch (Exception e) {
       logger.error("Error while deleting weather data", e);
       resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error deleting weather data");
     }
   }
+
+  /** Parses the ID of {@code /weather/{id}}; returns null if the path is not a single ID. */
+  private static Long idFromPath(String path) {
+    try {
+      return Long.valueOf(path.substring(1));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private void enqueue(WeatherData weatherData, HttpServletResponse resp) throws IOException {
+    if (writeQueue.offer(weatherData)) {
+      logger.debug("Queued weather data: {}", weatherData);
+      resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+      resp.getWriter().write("Weather data accepted.");
+    } else {
+      logger.warn("Write-behind queue is full, rejecting weather data");
+      resp.setHeader("Retry-After", String.valueOf(writeQueue.retryAfterSeconds()));
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many pending writes");
+    }
+  }
+
+  private WeatherCodec requestFormat(HttpServletRequest req, HttpServletResponse resp)
+      throws IOException {
+    WeatherCodec format = codecs.forContentType(req.getContentType());
+    if (format == null) {
+      resp.sendError(
+          HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+          "Unsupported content type: " + req.getContentType());
+    }
+    return format;
+  }
+
+  private WeatherData readBody(HttpServletRequest req, WeatherCodec format)
+      throws IOException, JAXBException {
+    // XML weiterhin über den Reader, damit die Zeichenkodierung des Requests beachtet wird
+    return format == codec ? codec.read(req.getReader()) : format.decode(req.getInputStream());
+  }
+
+  private static void setValidators(
+      HttpServletResponse resp, WeatherVersion version, String variant) {
+    resp.setHeader("ETag", version.etag(variant));
+    if (version.lastModified() >= 0) {
+      resp.setDateHeader("Last-Modified", version.lastModified());
+    }
+  }
+
+  private static long dateHeader(HttpServletRequest req, String name) {
+    if (req.getHeader(name) == null) {
+      return -1;
+    }
+    try {
+      return req.getDateHeader(name);
+    } catch (IllegalArgumentException e) {
+      // Ungültiges Datum: Header wie vorgeschrieben ignorieren
+      return -1;
+    }
+  }
+
+  private static LatencyHistogram requestTimer(String method) {
+    return MetricsRegistry.shared()
+        .histogram(
+            "weather_http_request_duration_seconds",
+            "Duration of /weather requests",
+            "method",
+            method);
+  }
+
+  private static LatencyHistogram phaseTimer(String method, String phase) {
+    return MetricsRegistry.shared()
+        .histogram(
+            "weather_http_phase_duration_seconds",
+            "Duration of the phases of /weather requests",
+            "method",
+            method,
+            "phase",
+            phase);
+  }
+
+  private static AsyncDispatcher.Handler timed(
+      LatencyHistogram timer, AsyncDispatcher.Handler handler) {
+    return (req, resp) -> {
+      long started = System.nanoTime();
+      try {
+        handler.handle(req, resp);
+      } finally {
+        timer.recordSince(started);
+      }
+    };
+  }
+
+  private AsyncDispatcher.Handler admitted(boolean write, AsyncDispatcher.Handler handler) {
+    return (req, resp) -> {
+      AdmissionControl current = admission;
+      if (current == null) {
+        handler.handle(req, resp); // ohne init(), z. B. in Unit-Tests
+      } else {
+        current.run(write, handler, req, resp);
+      }
+    };
+  }
+
+  private AdmissionControl newAdmissionControl() throws ServletException {
+    Duration threshold =
+        Duration.ofMillis(
+            intInitParameter(
+                "latencyThresholdMillis",
+                (int) ConcurrencyLimiter.DEFAULT_LATENCY_THRESHOLD.toMillis()));
+    int readConcurrency = intInitParameter("readConcurrency", DEFAULT_READ_CONCURRENCY);
+    int writeConcurrency = intInitParameter("writeConcurrency", DEFAULT_WRITE_CONCURRENCY);
+    int clientRate = intInitParameter("clientRequestsPerSecond", 0);
+    try {
+      // Mit halbem Maximum starten, AIMD passt das Limit danach an die Latenz an
+      return new AdmissionControl(
+          new ConcurrencyLimiter(Math.max(1, readConcurrency / 2), readConcurrency, threshold),
+          new ConcurrencyLimiter(Math.max(1, writeConcurrency / 2), writeConcurrency, threshold),
+          clientRate > 0
+              ? new ClientRateLimiter(clientRate, intInitParameter("clientBurst", clientRate * 2))
+              : null,
+          trustedProxies());
+    } catch (IllegalArgumentException e) {
+      throw new ServletException("Invalid admission control settings", e);
+    }
+  }
+
+  /** Reads the comma-separated init parameter {@code trustedProxies}. */
+  private Set<String> trustedProxies() {
+    String value = getInitParameter("trustedProxies");
+    if (value == null) {
+      return Set.of();
+    }
+    Set<String> proxies = new HashSet<>();
+    for (String proxy : value.split(",")) {
+      if (!proxy.isBlank()) {
+        proxies.add(proxy.trim());
+      }
+    }
+    return proxies;
+  }
+
+  /** Sets the XML codec and the representations built on it. */
+  private void useCodec(WeatherXmlCodec xml) {
+    codec = xml;
+    codecs = WeatherCodecs.standard(xml);
+    // Snapshots gibt es nur als XML und JSON, nicht im Binärformat für einzelne Messwerte
+    snapshotCodecs = new WeatherCodecs(xml, codecs.forContentType(WeatherJsonCodec.MEDIA_TYPE));
+  }
+
+  private void dispatch(
+      HttpServletRequest req, HttpServletResponse resp, AsyncDispatcher.Handler handler)
+      throws IOException {
+    if (admission != null && !admission.admitClient(req, resp)) {
+      return;
+    }
+    if (dispatcher == null) {
+      handler.handle(req, resp); // ohne init(), z. B. in Unit-Tests
+    } else {
+      dispatcher.dispatch(req, resp, handler);
+    }
+  }
+
+  private int intInitParameter(String name, int defaultValue) throws ServletException {
+    String value = getInitParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid " + name + ": " + value, e);
+    }
+  }
 }
@@ -0,0 +1,69 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latest readings of several locations, as returned by {@link WeatherServlet} when a GET request
+ * names more than one location. Locations without readings are listed as {@code missing}.
+ *
+ * <pre>{@code
+ * <weatherSnapshot>
+ *   <weatherData>...</weatherData>
+ *   <weatherData>...</weatherData>
+ *   <missing>Atlantis</missing>
+ * </weatherSnapshot>
+ * }</pre>
+ *
+ * <p>In JSON (see {@link WeatherJsonCodec#encodeSnapshot(WeatherSnapshot, java.io.OutputStream)})
+ * the same snapshot reads {@code {"weatherData":[{...},{...}],"missing":["Atlantis"]}}.
+ */
+@XmlRootElement(name = "weatherSnapshot")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class WeatherSnapshot {
+
+  @XmlElement(name = "weatherData")
+  private List<WeatherData> items = new ArrayList<>();
+
+  @XmlElement(name = "missing")
+  private List<String> missing = new ArrayList<>();
+
+  public List<WeatherData> getItems() {
+    return Collections.unmodifiableList(items);
+  }
+
+  public void setItems(List<WeatherData> items) {
+    this.items = new ArrayList<>(items);
+  }
+
+  public List<String> getMissing() {
+    return Collections.unmodifiableList(missing);
+  }
+
+  public void setMissing(List<String> missing) {
+    this.missing = new ArrayList<>(missing);
+  }
+
+  /**
+   * Adds the latest reading of a location.
+   *
+   * @param weatherData the reading
+   */
+  public void addItem(WeatherData weatherData) {
+    items.add(weatherData);
+  }
+
+  /**
+   * Lists a location without readings.
+   *
+   * @param location the location
+   */
+  public void addMissing(String location) {
+    missing.add(location);
+  }
+}
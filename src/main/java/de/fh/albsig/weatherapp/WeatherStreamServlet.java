@@ -0,0 +1,134 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet streaming the readings of a location as Server-Sent Events, so dashboards do not have to
+ * poll {@code GET /weather}.
+ *
+ * <p>{@code GET /weather/stream?location=Berlin} keeps the connection open and sends an event
+ * whenever a newer reading of the location is stored:
+ *
+ * <pre>
+ * id: 2a-18f3c2b1e40-4e2f
+ * event: weather
+ * data: &lt;weatherData&gt;...&lt;/weatherData&gt;
+ * </pre>
+ *
+ * <p>The current reading is sent right after connecting. A reconnecting client sending {@code
+ * Last-Event-ID} only gets it if it has changed in the meantime. The connections are served by a
+ * {@link WeatherEventHub} without a thread per connection; see there for how slow clients are
+ * handled.
+ */
+@WebServlet(value = "/weather/stream", asyncSupported = true)
+public class WeatherStreamServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger logger = LogManager.getLogger(WeatherStreamServlet.class);
+  private final WeatherRepository weatherRepository;
+  private transient WeatherEventHub hub;
+  private boolean ownsHub;
+
+  /** Default constructor, used by the servlet container. */
+  public WeatherStreamServlet() {
+    this.weatherRepository = WeatherRepository.shared();
+  }
+
+  /**
+   * Constructor for initializing the servlet with a repository and an event hub.
+   *
+   * @param weatherRepository the repository used for weather data operations
+   * @param hub the hub serving the subscriptions
+   */
+  public WeatherStreamServlet(WeatherRepository weatherRepository, WeatherEventHub hub) {
+    this.weatherRepository =
+        Objects.requireNonNull(weatherRepository, "weatherRepository must not be null");
+    this.hub = Objects.requireNonNull(hub, "hub must not be null");
+  }
+
+  /**
+   * Builds and starts the event hub once, unless one has been injected already, and registers its
+   * metrics.
+   *
+   * @throws ServletException if the XML codec cannot be created
+   */
+  @Override
+  public void init() throws ServletException {
+    if (hub == null) {
+      try {
+        hub =
+            new WeatherEventHub(
+                weatherRepository,
+                WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput"))));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+      hub.start();
+      ownsHub = true;
+    }
+    MetricsRegistry registry = MetricsRegistry.shared();
+    registry.gauge(
+        "weather_stream_subscribers", "Open event stream connections", hub::subscriberCount);
+    registry.counterFunction(
+        "weather_stream_events_total", "Events encoded for subscribers", hub::eventCount);
+    registry.counterFunction(
+        "weather_stream_coalesced_total",
+        "Events replaced by a newer one before a slow subscriber took them",
+        hub::coalescedCount);
+    registry.counterFunction(
+        "weather_stream_dropped_total",
+        "Event stream connections closed because they stalled or failed",
+        hub::droppedCount);
+  }
+
+  /** Closes all subscriptions and stops the event hub if this servlet created it. */
+  @Override
+  public void destroy() {
+    if (ownsHub) {
+      hub.close();
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests subscribing to a location. Expects a "location" query parameter.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String location = req.getParameter("location");
+    if (location == null || location.isBlank()) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Location parameter is missing");
+      return;
+    }
+    if (!req.isAsyncSupported()) {
+      logger.error("Event stream requested through a filter without async support");
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Event streams are not supported here");
+      return;
+    }
+
+    resp.setContentType(WeatherEventHub.MEDIA_TYPE);
+    resp.setCharacterEncoding("UTF-8");
+    resp.setHeader("Cache-Control", "no-cache");
+    // Header sofort senden, damit der Client die Verbindung als geöffnet sieht
+    resp.flushBuffer();
+
+    AsyncContext context = req.startAsync();
+    context.setTimeout(0); // offen, bis der Client trennt oder der Hub ihn verwirft
+    hub.subscribe(location, context, req.getHeader("Last-Event-ID"));
+    logger.debug("Subscribed to {}", location);
+  }
+}
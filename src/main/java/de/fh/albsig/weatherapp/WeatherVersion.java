@@ -0,0 +1,117 @@
+package de.fh.albsig.weatherapp;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Version of a stored reading, used as HTTP validator for conditional GET requests.
+ *
+ * <p>The entity tag is derived from the row id and the timestamp. Temperature and humidity are
+ * hashed into it as well, so an update that keeps the timestamp still yields a new tag. {@code
+ * Last-Modified} can only be derived from the timestamp, which is interpreted as UTC like
+ * everywhere else in the application.
+ *
+ * @param id the row id
+ * @param timestamp the time of the reading, may be null
+ * @param temperature the temperature of the reading
+ * @param humidity the humidity of the reading
+ */
+public record WeatherVersion(long id, LocalDateTime timestamp, double temperature, int humidity) {
+
+  /**
+   * Returns the version of the given reading.
+   *
+   * @param data a stored reading
+   * @return its version
+   */
+  public static WeatherVersion of(WeatherData data) {
+    return new WeatherVersion(
+        data.getId() == null ? 0 : data.getId(),
+        data.getTimestamp(),
+        data.getTemperature(),
+        data.getHumidity());
+  }
+
+  /**
+   * Returns the strong entity tag, including the quotes.
+   *
+   * @return the entity tag
+   */
+  public String etag() {
+    return etag(null);
+  }
+
+  /**
+   * Returns the strong entity tag of one representation of the reading, including the quotes.
+   * Different representations of the same reading must not share a strong entity tag.
+   *
+   * @param representation the media type of a representation other than the default, or null
+   * @return the entity tag
+   */
+  public String etag(String representation) {
+    long millis = timestamp == null ? 0 : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    int content = 31 * Double.hashCode(temperature) + humidity;
+    return '"'
+        + Long.toHexString(id)
+        + '-'
+        + Long.toHexString(millis)
+        + '-'
+        + Integer.toHexString(content)
+        + (representation == null ? "" : ';' + representation)
+        + '"';
+  }
+
+  /**
+   * Returns the value for the {@code Last-Modified} header.
+   *
+   * @return the timestamp in milliseconds since the epoch, or -1 if the reading has none
+   */
+  public long lastModified() {
+    return timestamp == null ? -1 : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  /**
+   * Evaluates the conditional request headers. As required by RFC 9110, {@code If-Modified-Since}
+   * is ignored if {@code If-None-Match} is present.
+   *
+   * @param ifNoneMatch the value of {@code If-None-Match}, or null
+   * @param ifModifiedSince the value of {@code If-Modified-Since} in milliseconds, or -1
+   * @return true if the client's copy is current and 304 (Not Modified) can be sent
+   */
+  public boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+    return isNotModified(ifNoneMatch, ifModifiedSince, null);
+  }
+
+  /**
+   * Evaluates the conditional request headers for one representation of the reading.
+   *
+   * @param ifNoneMatch the value of {@code If-None-Match}, or null
+   * @param ifModifiedSince the value of {@code If-Modified-Since} in milliseconds, or -1
+   * @param representation the representation as passed to {@link #etag(String)}
+   * @return true if the client's copy is current and 304 (Not Modified) can be sent
+   */
+  public boolean isNotModified(String ifNoneMatch, long ifModifiedSince, String representation) {
+    if (ifNoneMatch != null) {
+      return matches(ifNoneMatch, etag(representation));
+    }
+    // HTTP-Datumsangaben haben nur Sekundengenauigkeit
+    long lastModified = lastModified();
+    return ifModifiedSince >= 0
+        && lastModified >= 0
+        && lastModified / 1000 <= ifModifiedSince / 1000;
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      // If-None-Match vergleicht schwach, "W/" wird also ignoriert
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,371 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Thread-safe XML codec for {@link WeatherData} and the documents built from it ({@link
+ * WeatherDataList}, {@link BulkResult}, {@link WeatherHistory}, {@link ImportResult}, {@link
+ * WeatherSnapshot}, {@link LocationList}).
+ *
+ * <p>Building a {@link JAXBContext} is expensive (reflection over the bound classes), so the
+ * context is created exactly once per codec instance. {@link Marshaller} and {@link Unmarshaller}
+ * are cheap to create but not thread-safe, so they are borrowed from small {@link ObjectPool}s for
+ * one call and returned afterwards; this also works with one virtual thread per request.
+ *
+ * <p>In production the codec writes compact XML; formatted output is only meant for debugging. As a
+ * {@link WeatherCodec}, it is the default representation of {@link WeatherServlet}. All servlets
+ * writing compact XML use the codec returned by {@link #shared()}, so the application builds only
+ * one JAXB context.
+ */
+public final class WeatherXmlCodec implements WeatherCodec {
+
+  /** Media type of this encoding. */
+  public static final String MEDIA_TYPE = "application/xml";
+
+  private static final byte[] LIST_START =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><weatherDataList>"
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LIST_END = "</weatherDataList>".getBytes(StandardCharsets.UTF_8);
+
+  private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+  private static volatile WeatherXmlCodec shared;
+
+  private final JAXBContext context;
+  private final boolean formattedOutput;
+  private final ObjectPool<Marshaller> marshallers = new ObjectPool<>(this::newMarshaller);
+  private final ObjectPool<Marshaller> fragmentMarshallers =
+      new ObjectPool<>(this::newFragmentMarshaller);
+  private final ObjectPool<Unmarshaller> unmarshallers = new ObjectPool<>(this::newUnmarshaller);
+
+  /** Creates a codec producing compact (unformatted) XML. */
+  public WeatherXmlCodec() {
+    this(false);
+  }
+
+  /**
+   * Creates a codec and builds its JAXB context.
+   *
+   * @param formattedOutput whether the marshalled XML should be indented
+   * @throws IllegalStateException if the JAXB context cannot be created
+   */
+  public WeatherXmlCodec(boolean formattedOutput) {
+    try {
+      this.context =
+          JAXBContext.newInstance(
+              WeatherData.class,
+              WeatherDataList.class,
+              BulkResult.class,
+              WeatherHistory.class,
+              WriteBehindStats.class,
+              ImportResult.class,
+              WeatherSnapshot.class,
+              LocationList.class);
+    } catch (JAXBException e) {
+      throw new IllegalStateException("Could not create JAXB context for WeatherData", e);
+    }
+    this.formattedOutput = formattedOutput;
+  }
+
+  /**
+   * Returns the codec producing compact XML that is shared by the whole application. Its JAXB
+   * context is built on the first call, normally at deploy time by {@link
+   * ApplicationLifecycleListener}.
+   *
+   * @return the shared codec
+   * @throws IllegalStateException if the JAXB context cannot be created
+   */
+  public static WeatherXmlCodec shared() {
+    WeatherXmlCodec codec = shared;
+    if (codec == null) {
+      synchronized (WeatherXmlCodec.class) {
+        codec = shared;
+        if (codec == null) {
+          codec = new WeatherXmlCodec();
+          shared = codec;
+        }
+      }
+    }
+    return codec;
+  }
+
+  /**
+   * Returns the codec a servlet should use for its {@code formattedOutput} init parameter: the
+   * shared codec for compact XML, or a codec of its own for indented XML.
+   *
+   * @param formattedOutput whether the marshalled XML should be indented
+   * @return the codec
+   * @throws IllegalStateException if the JAXB context cannot be created
+   */
+  public static WeatherXmlCodec of(boolean formattedOutput) {
+    return formattedOutput ? new WeatherXmlCodec(true) : shared();
+  }
+
+  /**
+   * Returns the JAXB context shared by all marshallers of this codec.
+   *
+   * @return the JAXB context
+   */
+  public JAXBContext getContext() {
+    return context;
+  }
+
+  /**
+   * Returns whether this codec produces indented XML.
+   *
+   * @return true if formatted output is enabled
+   */
+  public boolean isFormattedOutput() {
+    return formattedOutput;
+  }
+
+  /**
+   * Returns the number of document marshallers created so far.
+   *
+   * @return the number of marshallers the pool has built
+   */
+  long createdMarshallers() {
+    return marshallers.created();
+  }
+
+  /**
+   * Marshals the weather data as UTF-8 encoded XML directly to the given stream.
+   *
+   * @param weatherData the weather data to write
+   * @param out the target stream, which is not closed
+   * @throws JAXBException if marshalling fails
+   */
+  public void write(WeatherData weatherData, OutputStream out) throws JAXBException {
+    marshal(weatherData, out);
+  }
+
+  @Override
+  public String mediaType() {
+    return MEDIA_TYPE;
+  }
+
+  @Override
+  public void encode(WeatherData weatherData, OutputStream out) throws IOException {
+    try {
+      write(weatherData, out);
+    } catch (JAXBException e) {
+      throw new IOException("Could not marshal weather data", e);
+    }
+  }
+
+  @Override
+  public WeatherData decode(InputStream in) throws IOException {
+    try {
+      Unmarshaller unmarshaller = unmarshallers.acquire();
+      Object result = unmarshaller.unmarshal(in);
+      unmarshallers.release(unmarshaller);
+      return cast(result, WeatherData.class);
+    } catch (JAXBException e) {
+      throw new IOException("Could not unmarshal weather data", e);
+    }
+  }
+
+  /**
+   * Unmarshals weather data from the given reader.
+   *
+   * @param reader the XML source
+   * @return the parsed weather data
+   * @throws JAXBException if the XML is malformed or does not describe weather data
+   */
+  public WeatherData read(Reader reader) throws JAXBException {
+    return read(reader, WeatherData.class);
+  }
+
+  private <T> T read(Reader reader, Class<T> type) throws JAXBException {
+    Unmarshaller unmarshaller = unmarshallers.acquire();
+    Object result = unmarshaller.unmarshal(reader);
+    unmarshallers.release(unmarshaller);
+    return cast(result, type);
+  }
+
+  /**
+   * Unmarshals a {@code <weatherDataList>} document from the given reader.
+   *
+   * @param reader the XML source
+   * @return the parsed list
+   * @throws JAXBException if the XML is malformed or is not a weather data list
+   */
+  public WeatherDataList readList(Reader reader) throws JAXBException {
+    return read(reader, WeatherDataList.class);
+  }
+
+  /**
+   * Unmarshals the items of a {@code <weatherDataList>} document one by one, so the document is
+   * never held in memory as a whole. Reading stops after {@code maxItems + 1} items without parsing
+   * the rest; a result longer than {@code maxItems} tells the caller that the list is too long.
+   *
+   * @param reader the XML source
+   * @param maxItems the number of items the caller accepts
+   * @return the parsed items, at most {@code maxItems + 1}
+   * @throws JAXBException if the XML is malformed or is not a weather data list
+   */
+  public List<WeatherData> readList(Reader reader, int maxItems) throws JAXBException {
+    try {
+      XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(reader);
+      try {
+        xml.nextTag();
+        if (!"weatherDataList".equals(xml.getLocalName())) {
+          throw new JAXBException(
+              "Expected <weatherDataList> but got <" + xml.getLocalName() + ">");
+        }
+        Unmarshaller unmarshaller = unmarshallers.acquire();
+        List<WeatherData> items = new ArrayList<>();
+        xml.nextTag();
+        while (items.size() <= maxItems && xml.isStartElement()) {
+          if (!"weatherData".equals(xml.getLocalName())) {
+            throw new JAXBException("Unexpected <" + xml.getLocalName() + "> in the list");
+          }
+          items.add(unmarshaller.unmarshal(xml, WeatherData.class).getValue());
+          // Der Unmarshaller endet hinter dem schließenden Tag, ggf. auf Leerraum
+          skipToTag(xml);
+        }
+        unmarshallers.release(unmarshaller);
+        return items;
+      } finally {
+        xml.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new JAXBException("Malformed weather data list", e);
+    }
+  }
+
+  /**
+   * Marshals any document known to this codec as UTF-8 encoded XML to the given stream.
+   *
+   * @param document the document to write, e.g. a {@link BulkResult}
+   * @param out the target stream, which is not closed
+   * @throws JAXBException if marshalling fails
+   */
+  public void writeDocument(Object document, OutputStream out) throws JAXBException {
+    marshal(document, out);
+  }
+
+  /**
+   * Starts a {@code <weatherDataList>} document that is written item by item.
+   *
+   * <p>Unlike {@link #writeDocument(Object, OutputStream)} with a {@link WeatherDataList}, the
+   * items never have to be collected in memory: each one is marshalled as an XML fragment as soon
+   * as it is passed to {@link ListWriter#write(WeatherData)}.
+   *
+   * @param out the target stream, which is not closed
+   * @return a writer for the list items; call {@link ListWriter#finish()} when done
+   * @throws IOException if writing the start tag fails
+   */
+  public ListWriter openListWriter(OutputStream out) throws IOException {
+    out.write(LIST_START);
+    return new ListWriter(out);
+  }
+
+  /** Writes the items of a streamed {@code <weatherDataList>} document. */
+  public final class ListWriter {
+
+    private final OutputStream out;
+    private final Marshaller marshaller = fragmentMarshallers.acquire();
+
+    private ListWriter(OutputStream out) {
+      this.out = out;
+    }
+
+    /**
+     * Appends one item to the list.
+     *
+     * @param weatherData the item to write
+     * @throws JAXBException if marshalling fails
+     */
+    public void write(WeatherData weatherData) throws JAXBException {
+      marshaller.marshal(weatherData, out);
+    }
+
+    /**
+     * Writes the end tag and flushes the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+      out.write(LIST_END);
+      out.flush();
+      fragmentMarshallers.release(marshaller);
+    }
+  }
+
+  private void marshal(Object document, OutputStream out) throws JAXBException {
+    // Nach einem Fehler wird der Marshaller verworfen statt zurückgegeben
+    Marshaller marshaller = marshallers.acquire();
+    marshaller.marshal(document, out);
+    marshallers.release(marshaller);
+  }
+
+  private static void skipToTag(XMLStreamReader xml) throws XMLStreamException {
+    int event = xml.getEventType();
+    while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+      if (event == XMLStreamConstants.END_DOCUMENT
+          || event == XMLStreamConstants.CHARACTERS && !xml.isWhiteSpace()) {
+        throw new XMLStreamException("Unexpected content in the list", xml.getLocation());
+      }
+      event = xml.next();
+    }
+  }
+
+  private static XMLInputFactory newInputFactory() {
+    // Keine DTDs und externen Entitäten: Schutz vor XXE und Entity-Expansion
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  private static <T> T cast(Object result, Class<T> type) throws JAXBException {
+    if (!type.isInstance(result)) {
+      throw new JAXBException(
+          "Expected <" + type.getSimpleName() + "> but got " + result.getClass().getSimpleName());
+    }
+    return type.cast(result);
+  }
+
+  private Marshaller newMarshaller() {
+    try {
+      Marshaller marshaller = context.createMarshaller();
+      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+      return marshaller;
+    } catch (JAXBException e) {
+      throw new IllegalStateException("Could not create JAXB marshaller", e);
+    }
+  }
+
+  private Marshaller newFragmentMarshaller() {
+    Marshaller marshaller = newMarshaller();
+    try {
+      marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+      return marshaller;
+    } catch (JAXBException e) {
+      throw new IllegalStateException("Could not create JAXB marshaller", e);
+    }
+  }
+
+  private Unmarshaller newUnmarshaller() {
+    try {
+      return context.createUnmarshaller();
+    } catch (JAXBException e) {
+      throw new IllegalStateException("Could not create JAXB unmarshaller", e);
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package de.fh.albsig.weatherapp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded write-behind buffer for incoming readings.
+ *
+ * <p>{@link #offer(WeatherData)} never blocks: it either places the reading in a fixed-capacity
+ * queue or reports that the queue is full, so callers can push back instead of piling up threads. A
+ * single background writer drains the queue in batches of up to {@code maxBatchSize} readings, each
+ * stored in one transaction through {@link WeatherRepository#saveAll(List)}. If a batch cannot be
+ * stored, its readings are saved one by one, so a single bad reading does not take the others with
+ * it. Every reading that still cannot be stored is counted as failed and logged at error level as a
+ * row in the {@link WeatherCsv#HEADER} column order, ready to be imported again.
+ *
+ * <p>{@link #shutdown(Duration)} stops accepting readings and writes everything still queued before
+ * returning. If the writer does not finish in time, the readings left in the queue are logged and
+ * counted the same way. The servlet container should call it before the application is stopped.
+ */
+public final class WriteBehindQueue {
+
+  /** Name of the servlet context attribute under which the active queue is published. */
+  public static final String CONTEXT_ATTRIBUTE = WriteBehindQueue.class.getName();
+
+  /** Default number of readings the queue can hold. */
+  public static final int DEFAULT_CAPACITY = 10_000;
+
+  private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long POLL_MILLIS = 200;
+  private static final int MAX_RETRY_AFTER_SECONDS = 60;
+  private static final Logger logger = LogManager.getLogger(WriteBehindQueue.class);
+
+  private final BlockingQueue<WeatherData> queue;
+  private final int capacity;
+  private final int maxBatchSize;
+  private final WeatherRepository repository;
+  private final Thread writer;
+  private volatile boolean accepting = true;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private volatile int lastBatchSize;
+  private volatile double drainRate;
+  // nur vom Writer-Thread verwendet
+  private long windowStart = System.nanoTime();
+  private long windowCount;
+
+  /**
+   * Creates a queue; call {@link #start()} to start the background writer.
+   *
+   * @param repository the repository the readings are stored in
+   * @param capacity the maximum number of queued readings
+   * @param maxBatchSize the maximum number of readings stored per transaction
+   */
+  public WriteBehindQueue(WeatherRepository repository, int capacity, int maxBatchSize) {
+    if (capacity < 1 || maxBatchSize < 1) {
+      throw new IllegalArgumentException("capacity and maxBatchSize must be positive");
+    }
+    this.repository = repository;
+    this.capacity = capacity;
+    this.maxBatchSize = maxBatchSize;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.writer = new Thread(this::drainLoop, "weather-write-behind");
+    this.writer.setDaemon(true);
+  }
+
+  /** Starts the background writer. */
+  public void start() {
+    writer.start();
+  }
+
+  /**
+   * Queues a reading for writing without blocking.
+   *
+   * @param data the validated reading
+   * @return true if the reading has been queued, false if the queue is full or shut down
+   */
+  public boolean offer(WeatherData data) {
+    if (accepting && queue.offer(data)) {
+      accepted.increment();
+      return true;
+    }
+    rejected.increment();
+    return false;
+  }
+
+  /**
+   * Estimates how many seconds a rejected caller should wait before retrying, based on the current
+   * depth and drain rate.
+   *
+   * @return the suggested delay, between 1 and 60 seconds
+   */
+  public int retryAfterSeconds() {
+    double rate = Math.max(drainRate, 1);
+    long seconds = (long) Math.ceil(queue.size() / rate);
+    return (int) Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+  }
+
+  /**
+   * Returns the number of queued readings.
+   *
+   * @return the queue depth
+   */
+  public int depth() {
+    return queue.size();
+  }
+
+  /**
+   * Returns a snapshot of the queue metrics.
+   *
+   * @return the current metrics
+   */
+  public WriteBehindStats stats() {
+    WriteBehindStats stats = new WriteBehindStats();
+    stats.setDepth(queue.size());
+    stats.setCapacity(capacity);
+    stats.setAccepted(accepted.sum());
+    stats.setRejected(rejected.sum());
+    stats.setWritten(written.sum());
+    stats.setFailed(failed.sum());
+    stats.setBatches(batches.sum());
+    stats.setLastBatchSize(lastBatchSize);
+    stats.setDrainRate(drainRate);
+    return stats;
+  }
+
+  /**
+   * Stops accepting readings and writes all queued ones.
+   *
+   * @param timeout how long to wait for the background writer
+   */
+  public void shutdown(Duration timeout) {
+    accepting = false;
+    try {
+      writer.join(timeout.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writer.isAlive()) {
+      // Der Writer hängt am Repository; was noch in der Queue liegt, geht verloren
+      List<WeatherData> remaining = new ArrayList<>();
+      queue.drainTo(remaining);
+      logger.error(
+          "Write-behind writer did not finish within {}, {} queued readings are lost",
+          timeout,
+          remaining.size());
+      for (WeatherData data : remaining) {
+        lost(data, null);
+      }
+      return;
+    }
+    // Readings, die während des Stoppens noch angenommen wurden
+    drainRemaining();
+    logger.info("Write-behind queue shut down, {} readings written", written.sum());
+  }
+
+  private void drainLoop() {
+    try {
+      while (accepting || !queue.isEmpty()) {
+        WeatherData first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          List<WeatherData> batch = new ArrayList<>(maxBatchSize);
+          batch.add(first);
+          queue.drainTo(batch, maxBatchSize - 1);
+          write(batch);
+        }
+        updateRate(first == null ? 0 : lastBatchSize);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("Write-behind writer interrupted with {} readings queued", queue.size());
+    }
+  }
+
+  private void drainRemaining() {
+    List<WeatherData> batch = new ArrayList<>(maxBatchSize);
+    while (queue.drainTo(batch, maxBatchSize) > 0) {
+      write(batch);
+      batch = new ArrayList<>(maxBatchSize);
+    }
+  }
+
+  private void write(List<WeatherData> batch) {
+    // persist() vergibt IDs auch in einer Transaktion, die danach zurückgerollt wird
+    List<Long> ids = new ArrayList<>(batch.size());
+    for (WeatherData data : batch) {
+      ids.add(data.getId());
+    }
+    try {
+      repository.saveAll(batch);
+      written.add(batch.size());
+    } catch (RuntimeException e) {
+      logger.warn(
+          "Could not store a batch of {} queued readings, saving them one by one", batch.size(), e);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).setId(ids.get(i));
+      }
+      writeOneByOne(batch);
+    }
+    batches.increment();
+    lastBatchSize = batch.size();
+  }
+
+  private void writeOneByOne(List<WeatherData> batch) {
+    for (WeatherData data : batch) {
+      try {
+        repository.save(data);
+        written.increment();
+      } catch (RuntimeException e) {
+        lost(data, e);
+      }
+    }
+  }
+
+  private void lost(WeatherData data, RuntimeException cause) {
+    failed.increment();
+    logger.error("Lost queued reading: {}", toCsv(data), cause);
+  }
+
+  private static String toCsv(WeatherData data) {
+    StringWriter out = new StringWriter();
+    try {
+      new WeatherCsv.RowWriter(out).write(data);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringWriter wirft nicht
+    }
+    return out.toString().strip();
+  }
+
+  private void updateRate(int processed) {
+    windowCount += processed;
+    long now = System.nanoTime();
+    long elapsed = now - windowStart;
+    if (elapsed >= RATE_WINDOW_NANOS) {
+      drainRate = windowCount * 1e9 / elapsed;
+      windowStart = now;
+      windowCount = 0;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Snapshot of the metrics of a {@link WriteBehindQueue}.
+ *
+ * <pre>{@code
+ * <writeBehindQueue depth="120" capacity="10000" accepted="5000" rejected="0" written="4880"
+ *     failed="0" batches="98" lastBatchSize="50" averageBatchSize="49.8" drainRate="812.5"/>
+ * }</pre>
+ */
+@XmlRootElement(name = "writeBehindQueue")
+public class WriteBehindStats {
+
+  private int depth;
+  private int capacity;
+  private long accepted;
+  private long rejected;
+  private long written;
+  private long failed;
+  private long batches;
+  private int lastBatchSize;
+  private double drainRate;
+
+  /**
+   * Returns the number of readings waiting to be written.
+   *
+   * @return the queue depth
+   */
+  @XmlAttribute
+  public int getDepth() {
+    return depth;
+  }
+
+  public void setDepth(int depth) {
+    this.depth = depth;
+  }
+
+  @XmlAttribute
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the number of readings accepted into the queue.
+   *
+   * @return the accepted count
+   */
+  @XmlAttribute
+  public long getAccepted() {
+    return accepted;
+  }
+
+  public void setAccepted(long accepted) {
+    this.accepted = accepted;
+  }
+
+  /**
+   * Returns the number of readings rejected because the queue was full or shut down.
+   *
+   * @return the rejected count
+   */
+  @XmlAttribute
+  public long getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(long rejected) {
+    this.rejected = rejected;
+  }
+
+  /**
+   * Returns the number of readings stored in the database.
+   *
+   * @return the written count
+   */
+  @XmlAttribute
+  public long getWritten() {
+    return written;
+  }
+
+  public void setWritten(long written) {
+    this.written = written;
+  }
+
+  /**
+   * Returns the number of readings dropped because their batch could not be stored.
+   *
+   * @return the failed count
+   */
+  @XmlAttribute
+  public long getFailed() {
+    return failed;
+  }
+
+  public void setFailed(long failed) {
+    this.failed = failed;
+  }
+
+  /**
+   * Returns the number of batches the writer has processed.
+   *
+   * @return the batch count
+   */
+  @XmlAttribute
+  public long getBatches() {
+    return batches;
+  }
+
+  public void setBatches(long batches) {
+    this.batches = batches;
+  }
+
+  @XmlAttribute
+  public int getLastBatchSize() {
+    return lastBatchSize;
+  }
+
+  public void setLastBatchSize(int lastBatchSize) {
+    this.lastBatchSize = lastBatchSize;
+  }
+
+  /**
+   * Returns the average number of readings per batch.
+   *
+   * @return the average batch size, or 0 if no batch has been processed
+   */
+  @XmlAttribute
+  public double getAverageBatchSize() {
+    return batches == 0 ? 0 : (double) (written + failed) / batches;
+  }
+
+  /**
+   * Returns the number of readings processed per second during the last measurement window.
+   *
+   * @return the drain rate
+   */
+  @XmlAttribute
+  public double getDrainRate() {
+    return drainRate;
+  }
+
+  public void setDrainRate(double drainRate) {
+    this.drainRate = drainRate;
+  }
+}
@@ -0,0 +1,97 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Servlet returning the metrics of the write-behind queue as a {@code <writeBehindQueue>} document:
+ * depth, accepted and rejected readings, written and failed readings, batch sizes and drain rate.
+ *
+ * <p>The queue is looked up in the servlet context, where {@link WeatherServlet} publishes it when
+ * write-behind mode is enabled; otherwise the endpoint answers with 404 (Not Found).
+ */
+@WebServlet("/weather/queue")
+public class WriteBehindStatsServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger logger = LogManager.getLogger(WriteBehindStatsServlet.class);
+  private transient Supplier<WriteBehindQueue> queue;
+  private transient WeatherXmlCodec codec;
+
+  /** Default constructor, used by the servlet container. */
+  public WriteBehindStatsServlet() {
+    // Queue und Codec werden in init() ermittelt
+  }
+
+  /**
+   * Constructor for initializing the servlet with a fixed queue and an XML codec.
+   *
+   * @param queue the write-behind queue
+   * @param codec the codec used for writing XML
+   */
+  public WriteBehindStatsServlet(WriteBehindQueue queue, WeatherXmlCodec codec) {
+    Objects.requireNonNull(queue, "queue must not be null");
+    this.queue = () -> queue;
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+  }
+
+  /**
+   * Builds the XML codec once and looks up the queue in the servlet context, unless they have been
+   * injected already.
+   *
+   * @throws ServletException if the JAXB context cannot be created
+   */
+  @Override
+  public void init() throws ServletException {
+    if (queue == null) {
+      // Bei jedem Request nachschlagen: WeatherServlet kann später initialisiert werden
+      queue =
+          () ->
+              (WriteBehindQueue)
+                  getServletContext().getAttribute(WriteBehindQueue.CONTEXT_ATTRIBUTE);
+    }
+    if (codec == null) {
+      try {
+        codec = WeatherXmlCodec.of(Boolean.parseBoolean(getInitParameter("formattedOutput")));
+      } catch (IllegalStateException e) {
+        throw new ServletException("Could not initialize the XML codec", e);
+      }
+    }
+  }
+
+  /**
+   * Handles HTTP GET requests for the queue metrics.
+   *
+   * @param req the HttpServletRequest object
+   * @param resp the HttpServletResponse object
+   * @throws IOException if an I/O error occurs during processing
+   */
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    WriteBehindQueue current = queue.get();
+    if (current == null) {
+      resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Write-behind mode is disabled");
+      return;
+    }
+    resp.setContentType("application/xml");
+    resp.setCharacterEncoding("UTF-8");
+    try {
+      codec.writeDocument(current.stats(), resp.getOutputStream());
+    } catch (JAXBException e) {
+      logger.error("Error while writing write-behind metrics", e);
+      resp.sendError(
+          HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+          "An error occurred while processing the request");
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdmissionControlTest {
+
+  private static final int CLIENTS = 128;
+
+  /** Pause of a rejected client, Retry-After scaled down like the 5 ms repository call. */
+  private static final long SHED_PAUSE_MILLIS = 50;
+
+  @Test
+  void testClientKeyIsTheRemoteAddressUnlessTheProxyIsTrusted() {
+    // Arrange: ein Client fälscht X-Forwarded-For ohne Proxy
+    AdmissionControl admission = admission(Set.of("10.0.0.100"));
+    HttpServletRequest direct = request("192.0.2.7", "198.51.100.1");
+
+    // Act & Assert
+    assertEquals("192.0.2.7", admission.clientKey(direct));
+    verify(direct, never()).getHeaders(anyString());
+  }
+
+  @Test
+  void testClientKeyBehindTrustedProxiesIsTheRightmostUntrustedHop() {
+    // Arrange: gefälschter Eintrag links, zwei vertrauenswürdige Proxies rechts
+    AdmissionControl admission = admission(Set.of("10.0.0.100", "10.0.0.101"));
+    HttpServletRequest forwarded = request("10.0.0.100", "198.51.100.1, 203.0.113.9", "10.0.0.101");
+    HttpServletRequest withoutHeader = request("10.0.0.100");
+    HttpServletRequest onlyProxies = request("10.0.0.100", "10.0.0.101");
+
+    // Act & Assert
+    assertEquals("203.0.113.9", admission.clientKey(forwarded));
+    assertEquals("10.0.0.100", admission.clientKey(withoutHeader));
+    assertEquals("10.0.0.101", admission.clientKey(onlyProxies));
+  }
+
+  @Test
+  void testP99OfAllAnswersStaysBoundedWhenTheRepositoryIsSlow() throws Exception {
+    // Arrange: Repository mit vier Verbindungen und 5 ms pro Abfrage; 128 Clients ohne Pause.
+    // Ohne Limit lässt ein Limit von CLIENTS alle durch, damit derselbe Pfad gemessen wird.
+    Duration threshold = Duration.ofMillis(20);
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(CLIENTS / 4, CLIENTS, threshold);
+    AdmissionControl limited = new AdmissionControl(limiter, limiter);
+    ConcurrencyLimiter open = new ConcurrencyLimiter(CLIENTS, CLIENTS, Duration.ofHours(1));
+    AdmissionControl unlimited = new AdmissionControl(open, open);
+
+    // Act
+    Load without = runLoad(unlimited);
+    Load with = runLoad(limited);
+
+    // Assert: abgewiesene Anfragen zählen mit; großzügige Abstände, da die Zeiten real gemessen
+    // werden. Ohne Limit warten alle in der Schlange (p99 etwa 160 ms).
+    assertEquals(0, without.shed());
+    assertTrue(with.shed() > 0);
+    assertTrue(
+        with.p99() * 2 < without.p99(),
+        "p99 "
+            + millis(with.p99())
+            + " ms with and "
+            + millis(without.p99())
+            + " ms without limit");
+    assertTrue(
+        with.admittedP99() < threshold.toNanos() * 5,
+        "p99 of admitted requests " + millis(with.admittedP99()) + " ms");
+    // Das Abweisen kostet kaum Durchsatz, die Datenbank ist ohnehin der Engpass
+    assertTrue(
+        with.admitted() * 2 > without.admitted(),
+        with.admitted() + " admitted with and " + without.admitted() + " without limit");
+  }
+
+  /** Latencies of all answers of a run, and of the admitted ones. */
+  private record Load(List<Long> all, List<Long> admittedLatencies, int shed) {
+
+    int admitted() {
+      return admittedLatencies.size();
+    }
+
+    long p99() {
+      return AdmissionControlTest.p99(all);
+    }
+
+    long admittedP99() {
+      return AdmissionControlTest.p99(admittedLatencies);
+    }
+  }
+
+  private static Load runLoad(AdmissionControl admission) throws Exception {
+    Semaphore connections = new Semaphore(4, true);
+    HttpServletRequest req = mock(HttpServletRequest.class, withSettings().stubOnly());
+    HttpServletResponse resp = mock(HttpServletResponse.class, withSettings().stubOnly());
+    long warmUpEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+    long end = warmUpEnd + TimeUnit.MILLISECONDS.toNanos(600);
+    ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+    try {
+      List<Future<Load>> results = new ArrayList<>();
+      for (int i = 0; i < CLIENTS; i++) {
+        results.add(
+            executor.submit(() -> runClient(admission, connections, req, resp, warmUpEnd, end)));
+      }
+      List<Long> all = new ArrayList<>();
+      List<Long> admitted = new ArrayList<>();
+      int shed = 0;
+      for (Future<Load> result : results) {
+        Load load = result.get(30, TimeUnit.SECONDS);
+        all.addAll(load.all());
+        admitted.addAll(load.admittedLatencies());
+        shed += load.shed();
+      }
+      return new Load(all, admitted, shed);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Load runClient(
+      AdmissionControl admission,
+      Semaphore connections,
+      HttpServletRequest req,
+      HttpServletResponse resp,
+      long warmUpEnd,
+      long end)
+      throws Exception {
+    List<Long> all = new ArrayList<>();
+    List<Long> admitted = new ArrayList<>();
+    int shed = 0;
+    boolean[] ran = new boolean[1];
+    AsyncDispatcher.Handler handler =
+        (request, response) -> {
+          ran[0] = true;
+          slowRepositoryCall(connections);
+        };
+    while (System.nanoTime() - end < 0) {
+      ran[0] = false;
+      long started = System.nanoTime();
+      admission.run(false, handler, req, resp);
+      long latency = System.nanoTime() - started;
+      boolean measured = started - warmUpEnd > 0;
+      if (measured) {
+        all.add(latency);
+      }
+      if (ran[0]) {
+        if (measured) {
+          admitted.add(latency);
+        }
+      } else {
+        if (measured) {
+          shed++;
+        }
+        Thread.sleep(SHED_PAUSE_MILLIS);
+      }
+    }
+    return new Load(all, admitted, shed);
+  }
+
+  private static void slowRepositoryCall(Semaphore connections) throws InterruptedIOException {
+    try {
+      connections.acquire();
+      try {
+        Thread.sleep(5);
+      } finally {
+        connections.release();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted");
+    }
+  }
+
+  private static long p99(List<Long> latencies) {
+    assertFalse(latencies.isEmpty());
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static AdmissionControl admission(Set<String> trustedProxies) {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, Duration.ofSeconds(1));
+    return new AdmissionControl(limiter, limiter, new ClientRateLimiter(1, 1), trustedProxies);
+  }
+
+  private static HttpServletRequest request(String remoteAddr, String... forwardedFor) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRemoteAddr()).thenReturn(remoteAddr);
+    lenient()
+        .when(request.getHeaders("X-Forwarded-For"))
+        .thenReturn(Collections.enumeration(List.of(forwardedFor)));
+    return request;
+  }
+}
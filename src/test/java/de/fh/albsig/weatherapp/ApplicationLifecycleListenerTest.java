@@ -0,0 +1,85 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ApplicationLifecycleListenerTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    executor.shutdownNow();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testStartRunsAllPhasesAndBecomesReady() throws Exception {
+    // Arrange
+    MetricsRegistry registry = new MetricsRegistry();
+    StartupReport report = new StartupReport(registry);
+    WeatherXmlCodec codec = new WeatherXmlCodec();
+
+    // Act
+    ApplicationLifecycleListener.start(report, () -> weatherRepository, () -> codec, executor, 50)
+        .get(30, TimeUnit.SECONDS);
+
+    // Assert: Backend vorbereitet, jede Abfrage vorab ausgeführt, nichts geschrieben
+    assertTrue(report.isReady());
+    assertEquals(
+        Set.of("repository", "jaxb", "queries", "codecs", StartupReport.TOTAL_PHASE),
+        report.getPhases().keySet());
+    verify(weatherRepository).bootstrap();
+    verify(weatherRepository, times(Warmup.QUERY_ROUNDS)).findByLocation(Warmup.LOCATION);
+    verify(weatherRepository, times(Warmup.QUERY_ROUNDS))
+        .findHistory(
+            eq(Warmup.LOCATION),
+            any(LocalDateTime.class),
+            any(LocalDateTime.class),
+            any(Duration.class));
+    verify(weatherRepository, never()).save(any());
+    verify(weatherRepository, never()).saveAll(any());
+    StringWriter metrics = new StringWriter();
+    registry.writeTo(metrics);
+    assertTrue(metrics.toString().contains("weather_ready 1"), metrics.toString());
+    assertTrue(
+        metrics.toString().contains("weather_startup_phase_seconds{phase=\"queries\"}"),
+        metrics.toString());
+  }
+
+  @Test
+  void testStartFailsIfBootstrapFails() throws Exception {
+    // Arrange: die Datenbank ist nicht erreichbar
+    StartupReport report = new StartupReport(new MetricsRegistry());
+    IllegalStateException failure = new IllegalStateException("database unreachable");
+    doThrow(failure).when(weatherRepository).bootstrap();
+
+    // Act
+    ApplicationLifecycleListener.start(
+            report, () -> weatherRepository, WeatherXmlCodec::new, executor, 0)
+        .handle((ignored, error) -> null)
+        .get(30, TimeUnit.SECONDS);
+
+    // Assert
+    assertEquals(StartupReport.State.FAILED, report.getState());
+    assertEquals(failure.toString(), report.getFailure());
+    assertFalse(report.getPhases().containsKey(StartupReport.TOTAL_PHASE));
+    verify(weatherRepository, never()).findByLocation(any());
+  }
+}
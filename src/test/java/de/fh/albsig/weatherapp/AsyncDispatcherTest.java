@@ -0,0 +1,201 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncDispatcherTest {
+
+  private final ManualExecutor executor = new ManualExecutor();
+  private final AsyncDispatcher dispatcher = new AsyncDispatcher(executor, Duration.ofSeconds(5));
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Mock private AsyncContext asyncContext;
+
+  @Test
+  void testRunsSynchronouslyWithoutAsyncSupport() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+
+    dispatcher.dispatch(request, response, (req, resp) -> calls.incrementAndGet());
+
+    assertEquals(1, calls.get());
+    assertTrue(executor.tasks.isEmpty());
+    verify(request, never()).startAsync(any(), any());
+  }
+
+  @Test
+  void testHandlerRunsOnExecutorAndCompletesRequest() throws Exception {
+    // Arrange
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    AtomicInteger calls = new AtomicInteger();
+
+    // Act: der Container-Thread kehrt zurück, bevor der Handler läuft
+    dispatcher.dispatch(request, response, (req, resp) -> calls.incrementAndGet());
+    assertEquals(0, calls.get());
+    verify(asyncContext, never()).complete();
+    executor.runAll();
+
+    // Assert
+    assertEquals(1, calls.get());
+    verify(asyncContext).setTimeout(5000);
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  void testTimeoutAnswersWithServiceUnavailable() throws Exception {
+    // Arrange
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    dispatcher.dispatch(request, response, (req, resp) -> {});
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+
+    // Act: Timeout, bevor der Handler fertig ist
+    listener.getValue().onTimeout(new AsyncEvent(asyncContext, request, response));
+    executor.runAll();
+
+    // Assert: genau ein Abschluss, durch den Timeout
+    verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(asyncContext, times(1)).complete();
+  }
+
+  @Test
+  void testHandlerCannotWriteAfterTimeout() throws Exception {
+    // Arrange: der Handler schreibt erst, nachdem der Timeout den Request abgeschlossen hat
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    List<Exception> failures = new ArrayList<>();
+    dispatcher.dispatch(
+        request,
+        response,
+        (req, resp) -> {
+          resp.setStatus(HttpServletResponse.SC_OK);
+          try {
+            resp.getOutputStream();
+          } catch (IOException e) {
+            failures.add(e);
+          }
+        });
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+
+    // Act
+    listener.getValue().onTimeout(new AsyncEvent(asyncContext, request, response));
+    executor.runAll();
+
+    // Assert: die Antwort des Timeouts bleibt unverändert
+    assertEquals(1, failures.size());
+    verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(response, never()).setStatus(anyInt());
+    verify(response, never()).getOutputStream();
+    verify(asyncContext, times(1)).complete();
+  }
+
+  @Test
+  void testFailingHandlerAnswersWithInternalServerError() throws Exception {
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+
+    dispatcher.dispatch(
+        request,
+        response,
+        (req, resp) -> {
+          throw new IllegalStateException("database down");
+        });
+    executor.runAll();
+
+    verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  void testRejectedRequestAnswersWithServiceUnavailable() throws Exception {
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    executor.shutdown();
+
+    dispatcher.dispatch(request, response, (req, resp) -> fail("must not run"));
+
+    verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded");
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  void testNewRequestExecutorRunsTasks() throws Exception {
+    ExecutorService requestExecutor = AsyncDispatcher.newRequestExecutor(2, 10);
+    try {
+      assertEquals("ok", requestExecutor.submit(() -> "ok").get(5, TimeUnit.SECONDS));
+    } finally {
+      requestExecutor.shutdown();
+    }
+  }
+
+  /** Executor that queues tasks until the test runs them. */
+  private static final class ManualExecutor extends AbstractExecutorService {
+    private final List<Runnable> tasks = new ArrayList<>();
+    private boolean shutdown;
+
+    void runAll() {
+      tasks.forEach(Runnable::run);
+      tasks.clear();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("shut down");
+      }
+      tasks.add(command);
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+
+/** In-memory {@link ServletInputStream} serving a fixed request body. */
+class ByteArrayServletInputStream extends ServletInputStream {
+
+  private final ByteArrayInputStream body;
+
+  ByteArrayServletInputStream(byte[] body) {
+    this.body = new ByteArrayInputStream(body);
+  }
+
+  @Override
+  public int read() {
+    return body.read();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    return body.read(b, off, len);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return body.available() == 0;
+  }
+
+  @Override
+  public boolean isReady() {
+    return true;
+  }
+
+  @Override
+  public void setReadListener(ReadListener readListener) {
+    throw new UnsupportedOperationException("Non-blocking input is not supported");
+  }
+}
@@ -0,0 +1,63 @@
+package de.fh.albsig.weatherapp;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-memory {@link ServletOutputStream} that captures everything written to a response. Supports
+ * non-blocking output; {@link #setReady(boolean)} simulates a client that stops reading.
+ */
+class CapturingServletOutputStream extends ServletOutputStream {
+
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private volatile boolean ready = true;
+  private volatile WriteListener writeListener;
+
+  @Override
+  public void write(int b) {
+    buffer.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    buffer.write(b, off, len);
+  }
+
+  @Override
+  public boolean isReady() {
+    return ready;
+  }
+
+  @Override
+  public void setWriteListener(WriteListener writeListener) {
+    this.writeListener = writeListener;
+    if (ready) {
+      try {
+        writeListener.onWritePossible();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  void setReady(boolean ready) throws IOException {
+    this.ready = ready;
+    // Wie der Container: der Listener erfährt, dass wieder geschrieben werden kann
+    if (ready && writeListener != null) {
+      writeListener.onWritePossible();
+    }
+  }
+
+  byte[] toByteArray() {
+    return buffer.toByteArray();
+  }
+
+  @Override
+  public String toString() {
+    return buffer.toString(StandardCharsets.UTF_8);
+  }
+}
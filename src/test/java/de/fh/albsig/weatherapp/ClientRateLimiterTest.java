@@ -0,0 +1,109 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ClientRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong(123_456_789);
+
+  @Test
+  void testBurstThenSustainedRate() {
+    // Arrange: 10 Requests pro Sekunde, Burst 3
+    ClientRateLimiter limiter = new ClientRateLimiter(10, 3, 16, clock::get);
+
+    // Act
+    long first = limiter.tryAcquire("10.0.0.1");
+    long second = limiter.tryAcquire("10.0.0.1");
+    long third = limiter.tryAcquire("10.0.0.1");
+    long fourth = limiter.tryAcquire("10.0.0.1");
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+    long afterInterval = limiter.tryAcquire("10.0.0.1");
+
+    // Assert: der vierte Request muss auf den nächsten Token warten
+    assertEquals(0, first);
+    assertEquals(0, second);
+    assertEquals(0, third);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), fourth);
+    assertEquals(0, afterInterval);
+    assertEquals(1, limiter.rejectedCount());
+  }
+
+  @Test
+  void testClientsHaveSeparateBuckets() {
+    // Arrange
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 1024, clock::get);
+    limiter.tryAcquire("10.0.0.1");
+
+    // Act
+    long sameClient = limiter.tryAcquire("10.0.0.1");
+    long otherClient = limiter.tryAcquire("10.0.0.2");
+
+    // Assert
+    assertTrue(sameClient > 0);
+    assertEquals(0, otherClient);
+  }
+
+  @Test
+  void testConcurrentRequestsNeverExceedTheBurst() throws Exception {
+    // Arrange: die Zeit steht still, also gibt es genau "burst" Tokens
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 100, 16, clock::get);
+    AtomicInteger admitted = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    // Act
+    for (int i = 0; i < 8; i++) {
+      executor.execute(
+          () -> {
+            for (int j = 0; j < 1000; j++) {
+              if (limiter.tryAcquire("10.0.0.1") == 0) {
+                admitted.incrementAndGet();
+              }
+            }
+          });
+    }
+    executor.shutdown();
+
+    // Assert
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(100, admitted.get());
+    assertEquals(7900, limiter.rejectedCount());
+  }
+
+  @Test
+  void testInvalidSettingsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(1, 0));
+    assertThrows(
+        IllegalArgumentException.class, () -> new ClientRateLimiter(1, 1, 0, System::nanoTime));
+  }
+
+  @Test
+  void testIdleBucketsMakeRoomForNewClients() {
+    // Arrange: Platz für zwei Clients, beide gerade aktiv
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 2, clock::get);
+    limiter.tryAcquire("10.0.0.1");
+    limiter.tryAcquire("10.0.0.2");
+
+    // Act: der dritte Client teilt sich den Überlauf, bis die anderen wieder frei sind
+    long overflowFirst = limiter.tryAcquire("10.0.0.3");
+    long overflowSecond = limiter.tryAcquire("10.0.0.4");
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    long afterIdle = limiter.tryAcquire("10.0.0.4");
+    long afterIdleAgain = limiter.tryAcquire("10.0.0.3");
+
+    // Assert
+    assertEquals(0, overflowFirst);
+    assertTrue(overflowSecond > 0);
+    assertEquals(2, limiter.overflowCount());
+    assertEquals(0, afterIdle);
+    assertEquals(0, afterIdleAgain);
+    assertEquals(2, limiter.clients());
+  }
+}
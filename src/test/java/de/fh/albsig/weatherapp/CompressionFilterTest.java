@@ -0,0 +1,231 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CompressionFilterTest {
+
+  private final CompressionFilter filter = new CompressionFilter(1024, 64 * 1024);
+  private final CapturingServletOutputStream output = new CapturingServletOutputStream();
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Mock private AsyncContext asyncContext;
+
+  @Test
+  void testNegotiatePrefersGzipAndHonoursQualityValues() {
+    assertEquals("gzip", CompressionFilter.negotiate("gzip, deflate, br"));
+    assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+    assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate;q=0.8"));
+    assertEquals("gzip", CompressionFilter.negotiate("*"));
+    assertNull(CompressionFilter.negotiate("br"));
+    assertNull(CompressionFilter.negotiate("*;q=0"));
+    assertNull(CompressionFilter.negotiate(null));
+  }
+
+  @Test
+  void testLargeResponseIsCompressedWhileStreaming() throws Exception {
+    // Arrange
+    acceptEncoding("gzip");
+    when(response.getContentType()).thenReturn("application/xml;charset=UTF-8");
+    when(response.getHeader("Content-Encoding")).thenReturn(null);
+    when(response.getHeader("ETag")).thenReturn("\"abc\"");
+    when(response.getOutputStream()).thenReturn(output);
+    byte[] body = xmlBody(200);
+
+    // Act: in Teilen schreiben und zwischendurch flushen, wie die Listen-Servlets
+    filter.doFilter(
+        request,
+        response,
+        (req, resp) -> {
+          OutputStream out = resp.getOutputStream();
+          out.write(body, 0, 100);
+          out.write(body, 100, body.length - 100);
+          out.flush();
+        });
+
+    // Assert
+    verify(response).setHeader("Content-Encoding", "gzip");
+    verify(response).setHeader("ETag", "W/\"abc\"");
+    verify(response).addHeader("Vary", "Accept-Encoding");
+    verify(response, never()).setContentLengthLong(anyLong());
+    assertTrue(output.toByteArray().length < body.length / 5);
+    assertArrayEquals(body, gunzip(output.toByteArray()));
+  }
+
+  @Test
+  void testSmallResponseIsSentUncompressed() throws Exception {
+    // Arrange
+    acceptEncoding("gzip");
+    when(response.getContentType()).thenReturn("application/xml");
+    when(response.getOutputStream()).thenReturn(output);
+    byte[] body = xmlBody(1);
+
+    // Act: ein einzelner Messwert mit Content-Length wie in WeatherServlet
+    filter.doFilter(
+        request,
+        response,
+        (req, resp) -> {
+          resp.setContentLength(body.length);
+          resp.getOutputStream().write(body);
+        });
+
+    // Assert
+    verify(response).setContentLengthLong(body.length);
+    verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+    assertArrayEquals(body, output.toByteArray());
+  }
+
+  @Test
+  void testCompressedRequestBodyIsDecompressed() throws Exception {
+    // Arrange
+    byte[] body = xmlBody(50);
+    when(request.getHeader("Content-Encoding")).thenReturn("gzip");
+    when(request.getHeader("Accept-Encoding")).thenReturn(null);
+    when(request.getCharacterEncoding()).thenReturn("UTF-8");
+    when(request.getInputStream()).thenReturn(new ByteArrayServletInputStream(gzip(body)));
+    StringBuilder received = new StringBuilder();
+
+    // Act
+    filter.doFilter(
+        request,
+        response,
+        (req, resp) -> {
+          HttpServletRequest wrapped = (HttpServletRequest) req;
+          assertNull(wrapped.getHeader("Content-Encoding"));
+          assertEquals(-1, wrapped.getContentLength());
+          wrapped.getReader().lines().forEach(received::append);
+        });
+
+    // Assert
+    assertEquals(new String(body, StandardCharsets.UTF_8), received.toString());
+  }
+
+  @Test
+  void testDecompressedRequestBodyIsLimited() throws Exception {
+    // Arrange: 200 KB Nullbytes komprimieren auf wenige hundert Bytes
+    when(request.getHeader("Content-Encoding")).thenReturn("gzip");
+    when(request.getHeader("Accept-Encoding")).thenReturn(null);
+    when(request.getInputStream())
+        .thenReturn(new ByteArrayServletInputStream(gzip(new byte[200 * 1024])));
+
+    // Act & Assert
+    filter.doFilter(
+        request,
+        response,
+        (req, resp) -> {
+          InputStream in = req.getInputStream();
+          assertThrows(IOException.class, in::readAllBytes);
+        });
+  }
+
+  @Test
+  void testUnsupportedRequestEncodingIsRejected() throws Exception {
+    // Arrange
+    when(request.getHeader("Content-Encoding")).thenReturn("br");
+    FilterChain chain = mock(FilterChain.class);
+
+    // Act
+    filter.doFilter(request, response, chain);
+
+    // Assert
+    verify(response).sendError(eq(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE), anyString());
+    verifyNoInteractions(chain);
+  }
+
+  @Test
+  void testAsyncResponseIsFinishedOnComplete() throws Exception {
+    // Arrange
+    acceptEncoding("gzip");
+    when(request.startAsync(any(), any())).thenReturn(asyncContext);
+    when(request.isAsyncStarted()).thenReturn(true);
+    when(response.getContentType()).thenReturn("application/xml");
+    when(response.getOutputStream()).thenReturn(output);
+    byte[] body = xmlBody(100);
+    AsyncContext[] started = new AsyncContext[1];
+    ServletResponse[] wrapped = new ServletResponse[1];
+
+    // Act: der Filter kehrt zurück, bevor der Handler schreibt
+    filter.doFilter(
+        request,
+        response,
+        (req, resp) -> {
+          started[0] = req.startAsync(req, resp);
+          wrapped[0] = resp;
+        });
+    assertEquals(0, output.toByteArray().length);
+    wrapped[0].getOutputStream().write(body);
+    started[0].complete();
+
+    // Assert: der gzip-Abschluss wurde vor complete() geschrieben
+    verify(asyncContext).complete();
+    assertArrayEquals(body, gunzip(output.toByteArray()));
+  }
+
+  @Test
+  void testEventStreamIsNotWrapped() throws Exception {
+    // Arrange: EventSource schickt Accept-Encoding wie jeder Browser-Request
+    when(request.getHeader("Content-Encoding")).thenReturn(null);
+    when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+    when(request.getHeader("Accept")).thenReturn(WeatherEventHub.MEDIA_TYPE);
+    ServletResponse[] passed = new ServletResponse[1];
+
+    // Act
+    filter.doFilter(request, response, (req, resp) -> passed[0] = resp);
+
+    // Assert
+    assertSame(response, passed[0]);
+  }
+
+  private void acceptEncoding(String value) {
+    when(request.getHeader("Content-Encoding")).thenReturn(null);
+    when(request.getHeader("Accept-Encoding")).thenReturn(value);
+    when(request.getHeader("Accept")).thenReturn(null);
+  }
+
+  private static byte[] xmlBody(int readings) {
+    StringBuilder xml = new StringBuilder("<weatherDataList>");
+    for (int i = 0; i < readings; i++) {
+      xml.append("<weatherData><id>")
+          .append(i)
+          .append("</id><location>Berlin</location><temperature>21.5</temperature>")
+          .append("<humidity>55</humidity></weatherData>");
+    }
+    return xml.append("</weatherDataList>").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+      out.write(data);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static byte[] gunzip(byte[] data) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return in.readAllBytes();
+    }
+  }
+}
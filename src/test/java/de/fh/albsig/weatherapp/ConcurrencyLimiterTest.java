@@ -0,0 +1,98 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000);
+
+  @Test
+  void testRejectsRequestsOverTheLimit() {
+    // Arrange
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10, Duration.ofMillis(100), clock::get);
+
+    // Act
+    boolean first = limiter.tryAcquire();
+    boolean second = limiter.tryAcquire();
+    boolean third = limiter.tryAcquire();
+    limiter.release(clock.get());
+    boolean afterRelease = limiter.tryAcquire();
+
+    // Assert
+    assertTrue(first);
+    assertTrue(second);
+    assertFalse(third);
+    assertTrue(afterRelease);
+    assertEquals(1, limiter.rejectedCount());
+    assertEquals(2, limiter.getInFlight());
+  }
+
+  @Test
+  void testSlowRequestsLowerTheLimitOncePerRound() {
+    // Arrange: fünf Requests laufen gleichzeitig und sind alle zu langsam
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10, Duration.ofMillis(100), clock::get);
+    long started = clock.incrementAndGet();
+    for (int i = 0; i < 5; i++) {
+      limiter.tryAcquire();
+    }
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+
+    // Act
+    for (int i = 0; i < 5; i++) {
+      limiter.release(started);
+    }
+    int afterFirstRound = limiter.getLimit();
+    limiter.tryAcquire();
+    long laterStart = clock.incrementAndGet();
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+    limiter.release(laterStart);
+
+    // Assert: nur der erste langsame Request einer Runde senkt das Limit
+    assertEquals(9, afterFirstRound);
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  void testFastRequestsRaiseTheLimitOnlyWhileItIsUsed() {
+    // Arrange
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 6, Duration.ofMillis(100), clock::get);
+
+    // Act: einzeln nacheinander, das Limit wird kaum genutzt
+    for (int i = 0; i < 100; i++) {
+      limiter.tryAcquire();
+      limiter.release(clock.get());
+    }
+    int whileIdle = limiter.getLimit();
+    // Dann immer so viele Requests wie erlaubt
+    for (int round = 0; round < 100; round++) {
+      int admitted = 0;
+      while (limiter.tryAcquire()) {
+        admitted++;
+      }
+      for (int i = 0; i < admitted; i++) {
+        limiter.release(clock.get());
+      }
+    }
+
+    // Assert
+    assertEquals(4, whileIdle);
+    assertEquals(6, limiter.getLimit());
+  }
+
+  @Test
+  void testInvalidSettingsAreRejected() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConcurrencyLimiter(0, 10, Duration.ofMillis(100)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConcurrencyLimiter(11, 10, Duration.ofMillis(100)));
+    assertThrows(
+        IllegalArgumentException.class, () -> new ConcurrencyLimiter(1, 10, Duration.ZERO));
+  }
+}
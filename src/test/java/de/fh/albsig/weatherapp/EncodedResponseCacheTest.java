@@ -0,0 +1,96 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class EncodedResponseCacheTest {
+
+  private final EncodedResponseCache cache = new EncodedResponseCache(100, Duration.ofMinutes(1));
+
+  @Test
+  void testStoresRepresentationsPerLocation() throws Exception {
+    // Arrange
+    WeatherVersion version = version(1L);
+    long stamp = cache.generation();
+
+    // Act
+    cache.put("Berlin", "xml", version, bytes("<xml/>"), stamp);
+    cache.put("Berlin", "xml+gzip", version, bytes("gz"), stamp);
+
+    // Assert
+    assertArrayEquals(bytes("<xml/>"), content(cache.get("Berlin", "xml")));
+    assertArrayEquals(bytes("gz"), content(cache.get("Berlin", "xml+gzip")));
+    assertEquals(version, cache.get("Berlin", "xml").version());
+    assertEquals(version, cache.version("Berlin"));
+    assertNull(cache.get("Berlin", "json"));
+    assertNull(cache.get("Hamburg", "xml"));
+    assertEquals(3, cache.hitCount());
+    assertEquals(2, cache.missCount());
+  }
+
+  @Test
+  void testNewVersionReplacesAllRepresentations() throws Exception {
+    // Arrange
+    cache.put("Berlin", "xml", version(1L), bytes("old"), cache.generation());
+    cache.put("Berlin", "xml+gzip", version(1L), bytes("old-gz"), cache.generation());
+
+    // Act
+    cache.put("Berlin", "xml", version(2L), bytes("new"), cache.generation());
+
+    // Assert
+    assertArrayEquals(bytes("new"), content(cache.get("Berlin", "xml")));
+    assertNull(cache.get("Berlin", "xml+gzip"));
+  }
+
+  @Test
+  void testInvalidationByLocationAndUpdatedId() throws Exception {
+    // Arrange
+    cache.put("Berlin", "xml", version(1L), bytes("a"), cache.generation());
+    cache.put("Hamburg", "xml", version(2L), bytes("b"), cache.generation());
+    cache.put("Munich", "xml", version(3L), bytes("c"), cache.generation());
+
+    // Act
+    cache.invalidated("Berlin", Set.of());
+    cache.invalidated(null, Set.of(2L));
+
+    // Assert
+    assertNull(cache.get("Berlin", "xml"));
+    assertNull(cache.get("Hamburg", "xml"));
+    assertNotNull(cache.get("Munich", "xml"));
+  }
+
+  @Test
+  void testBodyLoadedBeforeWriteIsNotStored() throws Exception {
+    // Arrange: Generation vor dem Laden merken, dann schreibt jemand
+    long stamp = cache.generation();
+    cache.invalidated("Berlin", Set.of());
+
+    // Act
+    EncodedResponseCache.Body body = cache.put("Berlin", "xml", version(1L), bytes("old"), stamp);
+
+    // Assert: die Antwort kann gesendet, aber nicht wiederverwendet werden
+    assertArrayEquals(bytes("old"), content(body));
+    assertNull(cache.get("Berlin", "xml"));
+  }
+
+  private static WeatherVersion version(long id) {
+    return new WeatherVersion(id, LocalDateTime.of(2024, 1, 1, 0, 0), 10.0, 50);
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] content(EncodedResponseCache.Body body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    body.writeTo(out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,91 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final ExpiringCache<String, String> cache =
+      new ExpiringCache<>(10, Duration.ofSeconds(30), clock::get);
+
+  @Test
+  void testHitsAndMisses() {
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals("Berlin-1", cache.get("Berlin", key -> key + "-" + loads.incrementAndGet()));
+    assertEquals("Berlin-1", cache.get("Berlin", key -> key + "-" + loads.incrementAndGet()));
+
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.hitCount());
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  void testNullIsNotCached() {
+    assertNull(cache.get("Nowhere", key -> null));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testEntriesExpireAfterTtl() {
+    cache.get("Berlin", key -> "v1");
+
+    clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+    assertNull(cache.getIfPresent("Berlin"));
+    assertEquals(1, cache.evictionCount());
+    assertEquals("v2", cache.get("Berlin", key -> "v2"));
+  }
+
+  @Test
+  void testSizeBoundEvictsLeastRecentlyUsed() {
+    for (int i = 0; i < 10; i++) {
+      clock.incrementAndGet();
+      cache.get("city" + i, key -> key);
+    }
+    // city0 wird zuletzt gelesen und darf deshalb nicht verdrängt werden
+    clock.incrementAndGet();
+    cache.getIfPresent("city0");
+
+    clock.incrementAndGet();
+    cache.get("city10", key -> key);
+
+    assertEquals(9, cache.size());
+    assertEquals(2, cache.evictionCount());
+    assertNotNull(cache.getIfPresent("city0"));
+    assertNull(cache.getIfPresent("city1"));
+    assertNull(cache.getIfPresent("city2"));
+    assertNotNull(cache.getIfPresent("city10"));
+  }
+
+  @Test
+  void testInvalidationDuringLoadPreventsStalePut() {
+    // Ein Schreibvorgang invalidiert den Schlüssel, während ein Leser noch lädt
+    String value =
+        cache.get(
+            "Berlin",
+            key -> {
+              cache.invalidate(key);
+              return "stale";
+            });
+
+    assertEquals("stale", value);
+    assertNull(cache.getIfPresent("Berlin"));
+  }
+
+  @Test
+  void testInvalidateIf() {
+    cache.get("Berlin", key -> "1");
+    cache.get("Hamburg", key -> "2");
+
+    cache.invalidateIf("2"::equals);
+
+    assertNotNull(cache.getIfPresent("Berlin"));
+    assertNull(cache.getIfPresent("Hamburg"));
+  }
+}
@@ -0,0 +1,141 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class HotSeriesStoreTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+  // Simuliert den neuesten Zeitstempel in der Datenbank zum Zeitpunkt der Serienanlage
+  private final Map<String, LocalDateTime> persisted = new HashMap<>();
+  private final HotSeriesStore store =
+      new HotSeriesStore(16 * HotSeriesStore.CHUNK_BYTES, persisted::get);
+  private long nextId = 1;
+
+  @Test
+  void testLatestAndHistoryOfNewLocation() {
+    for (int i = 0; i < 300; i++) {
+      store.append(reading("Berlin", START.plusMinutes(i), 10 + i % 10, 50 + i % 40));
+    }
+
+    WeatherData latest = store.latest("Berlin");
+    List<WeatherBucket> buckets = store.history("Berlin", START, START.plusHours(4), 3600);
+
+    assertEquals(START.plusMinutes(299), latest.getTimestamp());
+    assertEquals(300, store.size());
+    assertEquals(4, buckets.size());
+    WeatherBucket first = buckets.get(0);
+    assertEquals(START, first.getStart());
+    assertEquals(60, first.getCount());
+    assertEquals(10.0, first.getMinTemperature());
+    assertEquals(19.0, first.getMaxTemperature());
+    assertEquals(14.5, first.getAvgTemperature(), 1e-9);
+    assertEquals(50, first.getMinHumidity());
+    assertEquals(89, first.getMaxHumidity());
+    assertEquals(START.plusHours(4).minusHours(1), buckets.get(3).getStart());
+    assertEquals(60, buckets.get(3).getCount());
+  }
+
+  @Test
+  void testExistingLocationIsOnlyCoveredAfterNewestPersistedReading() {
+    // Arrange: die Datenbank kennt bereits Messwerte bis 00:59
+    persisted.put("Berlin", START.plusMinutes(59));
+
+    for (int i = 60; i < 120; i++) {
+      store.append(reading("Berlin", START.plusMinutes(i), 20, 60));
+    }
+
+    // Assert: ältere Bereiche muss weiterhin die Datenbank beantworten
+    assertFalse(store.covers("Berlin", START));
+    assertNull(store.history("Berlin", START, START.plusHours(2), 3600));
+    assertTrue(store.covers("Berlin", START.plusHours(1)));
+    assertEquals(
+        60,
+        store.history("Berlin", START.plusHours(1), START.plusHours(2), 3600).get(0).getCount());
+    assertEquals(START.plusMinutes(119), store.latest("Berlin").getTimestamp());
+  }
+
+  @Test
+  void testOutOfOrderReadingMovesCoverageForward() {
+    store.append(reading("Berlin", START.plusMinutes(10), 20, 60));
+    store.append(reading("Berlin", START.plusMinutes(5), 20, 60));
+    store.append(reading("Berlin", START.plusMinutes(20), 20, 60));
+
+    assertFalse(store.covers("Berlin", START));
+    assertTrue(store.covers("Berlin", START.plusMinutes(11)));
+    assertEquals(START.plusMinutes(20), store.latest("Berlin").getTimestamp());
+  }
+
+  @Test
+  void testHumidityOutsideByteRangeIsNotStored() {
+    store.append(reading("Berlin", START, 20, 60));
+    store.append(reading("Berlin", START.plusMinutes(1), 20, 1000));
+
+    assertNull(store.latest("Berlin"));
+    assertFalse(store.covers("Berlin", START.plusMinutes(1)));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  void testFirstChunkOfSeriesIsSmall() {
+    // Act
+    store.append(reading("Berlin", START, 20, 60));
+
+    // Assert
+    assertEquals(
+        (long) HotSeriesStore.FIRST_CHUNK_CAPACITY * HotSeriesStore.BYTES_PER_READING,
+        store.memoryBytes());
+  }
+
+  @Test
+  void testBudgetEvictsOldestChunk() {
+    // Arrange: Budget für zwei Chunks der größten Kapazität
+    HotSeriesStore small = new HotSeriesStore(2 * HotSeriesStore.CHUNK_BYTES, location -> null);
+    int total = 2 * HotSeriesStore.CHUNK_CAPACITY + 1;
+
+    // Act
+    for (int i = 0; i < total; i++) {
+      small.append(reading("Berlin", START.plusSeconds(i), 20, 60));
+    }
+
+    // Assert: die ältesten (kleinen) Chunks wurden verworfen, die Abdeckung beginnt danach
+    assertTrue(small.memoryBytes() <= 2 * HotSeriesStore.CHUNK_BYTES);
+    assertTrue(small.size() > HotSeriesStore.CHUNK_CAPACITY);
+    assertTrue(small.size() < total);
+    assertFalse(small.covers("Berlin", START));
+    assertTrue(small.covers("Berlin", START.plusSeconds(total - small.size())));
+    assertFalse(small.covers("Berlin", START.plusSeconds(total - small.size() - 1)));
+    assertEquals(START.plusSeconds(total - 1), small.latest("Berlin").getTimestamp());
+  }
+
+  @Test
+  void testInvalidateDropsSeries() {
+    store.append(reading("Berlin", START, 20, 60));
+    WeatherData updated = reading("Hamburg", START, 20, 60);
+    store.append(updated);
+
+    store.invalidate("Berlin");
+    store.invalidateId(updated.getId());
+
+    assertNull(store.latest("Berlin"));
+    assertNull(store.latest("Hamburg"));
+    assertEquals(0, store.memoryBytes());
+  }
+
+  private WeatherData reading(
+      String location, LocalDateTime timestamp, double temperature, int humidity) {
+    WeatherData data = new WeatherData();
+    data.setId(nextId++);
+    data.setLocation(location);
+    data.setTimestamp(timestamp);
+    data.setTemperature(temperature);
+    data.setHumidity(humidity);
+    return data;
+  }
+}
@@ -0,0 +1,643 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JpaWeatherRepositoryTest {
+
+  private static EntityManagerFactory emf;
+  private WeatherRepository weatherRepository;
+
+  @BeforeAll
+  static void init() {
+    emf = Persistence.createEntityManagerFactory("weatherPU");
+  }
+
+  @BeforeEach
+  void setup() {
+    weatherRepository = new JpaWeatherRepository();
+
+    // Tabelle leeren statt das Schema neu zu erzeugen: ein Neuaufbau würde die ID-Sequenz
+    // zurücksetzen, während der Repository-Optimizer noch vorab reservierte IDs hält.
+    EntityManager em = emf.createEntityManager();
+    em.getTransaction().begin();
+    em.createQuery("DELETE FROM WeatherData").executeUpdate();
+    em.createQuery("DELETE FROM WeatherRollup").executeUpdate();
+    em.getTransaction().commit();
+    em.close();
+  }
+
+  @Test
+  void testSaveAndFindByLocation() {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setLocation("Berlin");
+    data.setTemperature(15.0);
+    data.setHumidity(80);
+    data.setTimestamp(LocalDateTime.now());
+
+    weatherRepository.save(data);
+
+    // Act
+    WeatherData weatherDataBerlin = weatherRepository.findByLocation("Berlin");
+
+    // Assert
+    assertNotNull(weatherDataBerlin);
+    assertEquals("Berlin", weatherDataBerlin.getLocation());
+    assertEquals(15.0, weatherDataBerlin.getTemperature());
+    assertEquals(80, weatherDataBerlin.getHumidity());
+  }
+
+  @Test
+  void testFindAll() {
+    // Arrange
+    WeatherData weatherDataHamburg = new WeatherData();
+    weatherDataHamburg.setLocation("Hamburg");
+    weatherDataHamburg.setTemperature(12.5);
+    weatherDataHamburg.setHumidity(70);
+    weatherDataHamburg.setTimestamp(LocalDateTime.now());
+
+    WeatherData weatherDataMunich = new WeatherData();
+    weatherDataMunich.setLocation("Munich");
+    weatherDataMunich.setTemperature(10.0);
+    weatherDataMunich.setHumidity(75);
+    weatherDataMunich.setTimestamp(LocalDateTime.now());
+
+    weatherRepository.save(weatherDataHamburg);
+    weatherRepository.save(weatherDataMunich);
+
+    // Act
+    List<WeatherData> allWeatherData = weatherRepository.findAll();
+
+    // Assert
+    assertNotNull(allWeatherData);
+    assertEquals(2, allWeatherData.size());
+  }
+
+  @Test
+  void testUpdate() {
+    // Arrange: Neues WeatherData-Objekt erstellen und speichern
+    WeatherData weatherDataBerlin = new WeatherData();
+    weatherDataBerlin.setLocation("Berlin");
+    weatherDataBerlin.setTemperature(8.5);
+    weatherDataBerlin.setHumidity(65);
+    weatherDataBerlin.setTimestamp(LocalDateTime.now());
+
+    weatherRepository.save(weatherDataBerlin);
+
+    // Abrufen, um die ID zu setzen (JPA generiert die ID beim Speichern)
+    WeatherData savedData = weatherRepository.findByLocation("Berlin");
+    assertNotNull(savedData);
+    Long id = savedData.getId();
+    assertNotNull(id);
+
+    // Update vorbereiten: Daten ändern
+    savedData.setTemperature(10.0);
+    savedData.setHumidity(60);
+
+    // Act: Update ausführen
+    weatherRepository.save(savedData);
+
+    // Daten erneut abrufen, um die Änderungen zu prüfen
+    WeatherData updatedWeatherData = weatherRepository.findByLocation("Berlin");
+
+    // Assert: Überprüfen, ob die Änderungen korrekt übernommen wurden
+    assertNotNull(updatedWeatherData);
+    assertEquals(id, updatedWeatherData.getId()); // Sicherstellen, dass die ID gleich bleibt
+    assertEquals("Berlin", updatedWeatherData.getLocation());
+    assertEquals(10.0, updatedWeatherData.getTemperature());
+    assertEquals(60, updatedWeatherData.getHumidity());
+  }
+
+  @Test
+  void testDelete() {
+    // Arrange: Neues WeatherData-Objekt erstellen und speichern
+    WeatherData weatherDataBerlin = new WeatherData();
+    weatherDataBerlin.setLocation("Berlin");
+    weatherDataBerlin.setTemperature(8.5);
+    weatherDataBerlin.setHumidity(65);
+    weatherDataBerlin.setTimestamp(LocalDateTime.now());
+
+    weatherRepository.save(weatherDataBerlin);
+
+    // Abrufen, um die ID zu setzen (JPA generiert die ID beim Speichern)
+    WeatherData savedData = weatherRepository.findByLocation("Berlin");
+    assertNotNull(savedData);
+    Long id = savedData.getId();
+    assertNotNull(id);
+
+    // Act: Objekt löschen
+    weatherRepository.delete(savedData);
+
+    // Daten erneut abrufen, um sicherzustellen, dass sie gelöscht wurden
+    WeatherData deletedData = weatherRepository.findByLocation("Berlin");
+
+    // Assert: Überprüfen, dass das Objekt gelöscht wurde
+    assertNull(deletedData);
+  }
+
+  @Test
+  void testUpdateAndDeleteByIdReportUnknownIds() {
+    // Arrange
+    weatherRepository.saveAll(createReadings("Berlin", 3));
+    WeatherData latest = weatherRepository.findByLocation("Berlin");
+    WeatherData unknown = new WeatherData(latest);
+    unknown.setId(latest.getId() + 1000);
+
+    // Act: der neueste Messwert wird aktualisiert, unbekannte IDs ändern nichts
+    latest.setTemperature(30.0);
+    boolean updated = weatherRepository.update(latest);
+    boolean unknownUpdated = weatherRepository.update(unknown);
+    boolean unknownDeleted = weatherRepository.deleteById(unknown.getId());
+
+    // Assert
+    assertTrue(updated);
+    assertFalse(unknownUpdated);
+    assertFalse(unknownDeleted);
+    assertEquals(30.0, weatherRepository.findByLocation("Berlin").getTemperature());
+    assertTrue(weatherRepository.deleteById(latest.getId()));
+    assertEquals(2, weatherRepository.findAll().size());
+    assertThrows(IllegalArgumentException.class, () -> weatherRepository.delete(latest));
+  }
+
+  @Test
+  void testDeleteMatchingRemovesReadingsAndRollupsInRange() {
+    // Arrange: 180 Messwerte von 00:00 bis 02:59, die erste Stunde ist aufgerollt
+    weatherRepository.saveAll(createReadings("Berlin", 180));
+    weatherRepository.saveAll(createReadings("Paris", 10));
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    weatherRepository.rollUpReadings(start.plusHours(1), 1000);
+
+    // Act: Berlin von 00:00 bis 02:00 löschen
+    long deleted = weatherRepository.deleteMatching("Berlin", start, start.plusHours(2));
+
+    // Assert: nur die 60 rohen Messwerte der zweiten Stunde zählen, die Rollup-Stunde ist weg
+    assertEquals(60, deleted);
+    List<WeatherBucket> history =
+        weatherRepository.findHistory("Berlin", start, start.plusDays(1), Duration.ofHours(1));
+    assertEquals(1, history.size());
+    assertEquals(start.plusHours(2), history.get(0).getStart());
+    assertEquals(
+        10,
+        weatherRepository
+            .findHistory("Paris", start, start.plusDays(1), Duration.ofDays(1))
+            .get(0)
+            .getCount());
+    assertEquals(60, weatherRepository.deleteMatching(null, start.plusHours(2), null));
+    assertNull(weatherRepository.findByLocation("Berlin"));
+    assertThrows(
+        IllegalArgumentException.class, () -> weatherRepository.deleteMatching(null, null, null));
+  }
+
+  @Test
+  void testSaveAll() {
+    // Arrange
+    List<WeatherData> readings = createReadings("Stuttgart", 120);
+
+    // Act
+    weatherRepository.saveAll(readings);
+
+    // Assert: alle Einträge gespeichert und mit ID versehen
+    assertTrue(readings.stream().allMatch(data -> data.getId() != null));
+    assertEquals(120, weatherRepository.findAll().size());
+  }
+
+  @Test
+  void testFindByLocationIsCachedAndInvalidatedByWrites() {
+    // Arrange
+    WeatherData data = createReadings("Freiburg", 1).get(0);
+    weatherRepository.save(data);
+
+    // Act: zweiter Zugriff kommt aus dem Cache
+    WeatherData first = weatherRepository.findByLocation("Freiburg");
+    WeatherData second = weatherRepository.findByLocation("Freiburg");
+
+    // Assert
+    assertEquals(first.getId(), second.getId());
+    assertNotSame(first, second); // Aufrufer erhalten Kopien
+    assertEquals(1, weatherRepository.getLatestCache().hitCount());
+    assertEquals(1, weatherRepository.getLatestCache().missCount());
+
+    // Nach dem Löschen darf der Eintrag nicht mehr geliefert werden
+    weatherRepository.delete(second);
+    assertNull(weatherRepository.findByLocation("Freiburg"));
+  }
+
+  @Test
+  void testInvalidationListenerIsNotifiedAfterWrites() {
+    // Arrange
+    List<String> notifications = new ArrayList<>();
+    WeatherRepository.InvalidationListener listener =
+        (location, updatedIds) -> notifications.add(location + " " + updatedIds);
+    weatherRepository.addInvalidationListener(listener);
+    WeatherData data = new WeatherData();
+    data.setLocation("Aalen");
+    data.setTimestamp(LocalDateTime.now());
+
+    // Act
+    weatherRepository.save(data);
+    WeatherData saved = weatherRepository.findByLocation("Aalen");
+    weatherRepository.save(saved);
+    weatherRepository.removeInvalidationListener(listener);
+    weatherRepository.delete(saved);
+
+    // Assert
+    assertEquals(List.of("Aalen []", "Aalen [" + saved.getId() + "]"), notifications);
+  }
+
+  @Test
+  void testUpdateMovingLocationInvalidatesOldLocation() {
+    WeatherData data = createReadings("Esslingen", 1).get(0);
+    weatherRepository.save(data);
+    WeatherData cached = weatherRepository.findByLocation("Esslingen");
+
+    cached.setLocation("Heilbronn");
+    weatherRepository.save(cached);
+
+    assertNull(weatherRepository.findByLocation("Esslingen"));
+    assertEquals(cached.getId(), weatherRepository.findByLocation("Heilbronn").getId());
+  }
+
+  @Test
+  void testFindByLocationReturnsLatestReading() {
+    // Arrange: viele Messwerte pro Standort in zufälliger zeitlicher Reihenfolge
+    List<WeatherData> readings = new ArrayList<>();
+    for (String location : List.of("Berlin", "Hamburg", "Munich")) {
+      readings.addAll(createReadings(location, 300));
+    }
+    Collections.shuffle(readings, new Random(42));
+    weatherRepository.saveAll(readings);
+
+    // Act & Assert: jeweils der neueste Messwert
+    LocalDateTime newest = LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(299);
+    for (String location : List.of("Berlin", "Hamburg", "Munich")) {
+      WeatherData latest = weatherRepository.findByLocation(location);
+      assertEquals(location, latest.getLocation());
+      assertEquals(newest, latest.getTimestamp());
+    }
+  }
+
+  @Test
+  void testFindLatestByLocationsLoadsAllLocationsAtOnce() {
+    // Arrange: mehr Orte als in eine IN-Liste passen, jeweils zwei Messwerte
+    int locationCount = JpaWeatherRepository.IN_CHUNK_SIZE + 100;
+    List<WeatherData> readings = new ArrayList<>();
+    List<String> locations = new ArrayList<>();
+    for (int i = 0; i < locationCount; i++) {
+      locations.add("City " + i);
+      readings.addAll(createReadings("City " + i, 2));
+    }
+    weatherRepository.saveAll(readings);
+    WeatherData cached = weatherRepository.findByLocation("City 1");
+    locations.add("Atlantis");
+
+    // Act
+    Map<String, WeatherData> latest = weatherRepository.findLatestByLocations(locations);
+
+    // Assert: neuester Messwert je Ort in der angefragten Reihenfolge, Atlantis fehlt
+    assertEquals(locationCount, latest.size());
+    assertEquals("City 0", latest.keySet().iterator().next());
+    assertEquals(cached.getId(), latest.get("City 1").getId());
+    for (int i = 0; i < locationCount; i++) {
+      WeatherData data = latest.get("City " + i);
+      assertEquals("City " + i, data.getLocation());
+      assertEquals(LocalDateTime.of(2024, 1, 1, 0, 1), data.getTimestamp());
+    }
+    assertFalse(latest.containsKey("Atlantis"));
+    assertEquals(
+        weatherRepository.findByLocation("City 599").getId(), latest.get("City 599").getId());
+  }
+
+  @Test
+  void testFindLocationsFollowsWrites() {
+    // Arrange: Index beim ersten Aufruf aus der Datenbank laden
+    weatherRepository.saveAll(createReadings("Berlin", 2));
+    weatherRepository.saveAll(createReadings("Bern", 2));
+    weatherRepository.saveAll(createReadings("Paris", 2));
+    List<String> loaded = weatherRepository.findLocations("BE", 10);
+
+    // Act: neuer Ort kommt hinzu, ein Ort wird vollständig gelöscht
+    weatherRepository.saveAll(createReadings("bergen", 1));
+    weatherRepository.deleteMatching("Bern", null, null);
+
+    // Assert
+    assertEquals(List.of("Berlin", "Bern"), loaded);
+    assertEquals(List.of("bergen", "Berlin"), weatherRepository.findLocations("be", 10));
+    assertEquals(List.of("bergen"), weatherRepository.findLocations("be", 1));
+    assertEquals(List.of("Paris"), weatherRepository.findLocations("p", 10));
+  }
+
+  @Test
+  void testDeleteAndUpdateByIdDropOnlyVanishedLocations() throws InterruptedException {
+    // Arrange: Ulm und Bern mit je einem Messwert, Berlin mit zwei
+    weatherRepository.saveAll(createReadings("Ulm", 1));
+    weatherRepository.saveAll(createReadings("Bern", 1));
+    weatherRepository.saveAll(createReadings("Berlin", 2));
+    weatherRepository.findLocations("", 10);
+    WeatherData bern = weatherRepository.findByLocation("Bern");
+    bern.setLocation("Bergen");
+    long ulm = weatherRepository.findByLocation("Ulm").getId();
+    long berlin = weatherRepository.findByLocation("Berlin").getId();
+
+    // Act: letzter Messwert von Ulm gelöscht, Bern verschoben, Berlin behält einen
+    assertTrue(weatherRepository.deleteById(ulm));
+    assertTrue(weatherRepository.update(bern));
+    assertTrue(weatherRepository.deleteById(berlin));
+
+    // Assert: die Prüfung läuft im Hintergrund
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (weatherRepository.findLocations("", 10).size() > 2 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("Bergen", "Berlin"), weatherRepository.findLocations("", 10));
+  }
+
+  @Test
+  void testFindLatestVersionMatchesLatestReading() {
+    // Arrange
+    weatherRepository.saveAll(createReadings("Ulm", 20));
+
+    // Act: erst per Projektion aus der Datenbank, dann aus dem gefüllten Cache
+    WeatherVersion fromDatabase = weatherRepository.findLatestVersion("Ulm");
+    WeatherData latest = weatherRepository.findByLocation("Ulm");
+    WeatherVersion fromCache = weatherRepository.findLatestVersion("Ulm");
+
+    // Assert
+    assertEquals(WeatherVersion.of(latest), fromDatabase);
+    assertEquals(fromDatabase.etag(), fromCache.etag());
+    assertNull(weatherRepository.findLatestVersion("Nowhere"));
+
+    // Eine Änderung mit gleichem Zeitstempel ergibt trotzdem ein neues ETag
+    latest.setTemperature(latest.getTemperature() + 1);
+    weatherRepository.save(latest);
+    assertNotEquals(fromDatabase.etag(), weatherRepository.findLatestVersion("Ulm").etag());
+  }
+
+  @Test
+  void testLatestReadingQueryUsesCompositeIndex() {
+    weatherRepository.saveAll(createReadings("Berlin", 50));
+
+    // Gleiche Abfrage wie WeatherRepository.findByLocation, wie Hibernate sie für H2 erzeugt
+    EntityManager em = emf.createEntityManager();
+    String plan =
+        (String)
+            em.createNativeQuery(
+                    "EXPLAIN SELECT * FROM weather_data WHERE location = 'Berlin'"
+                        + " ORDER BY location, timestamp DESC FETCH FIRST 1 ROWS ONLY")
+                .getSingleResult();
+    em.close();
+
+    // Index-Seek auf (location, timestamp DESC) ohne separaten Sortierschritt
+    assertTrue(plan.contains("IDX_WEATHER_DATA_LOCATION_TIMESTAMP"), plan);
+    assertTrue(plan.contains("index sorted"), plan);
+  }
+
+  @Test
+  void testFindHistoryAggregatesPerBucket() {
+    // Arrange: 300 Messwerte im Minutentakt ab 00:00 (Temperatur 10..19, Luftfeuchte 50..89)
+    weatherRepository.saveAll(createReadings("Berlin", 300));
+    weatherRepository.saveAll(createReadings("Hamburg", 300));
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    // Act: 00:00 bis 04:00 in Stunden-Buckets
+    List<WeatherBucket> buckets =
+        weatherRepository.findHistory(
+            "Berlin", start, start.plusHours(4), Duration.ofHours(1));
+
+    // Assert
+    assertEquals(4, buckets.size());
+    WeatherBucket first = buckets.get(0);
+    assertEquals(start, first.getStart());
+    assertEquals(60, first.getCount());
+    assertEquals(10.0, first.getMinTemperature());
+    assertEquals(19.0, first.getMaxTemperature());
+    assertEquals(14.5, first.getAvgTemperature(), 1e-9);
+    assertEquals(50, first.getMinHumidity());
+    assertEquals(89, first.getMaxHumidity());
+    assertEquals(start.plusHours(3), buckets.get(3).getStart());
+  }
+
+  @Test
+  void testRollUpReadingsKeepsHistoryAndNewestReading() {
+    // Arrange: 300 Messwerte von 00:00 bis 04:59
+    weatherRepository.saveAll(createReadings("Berlin", 300));
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    List<WeatherBucket> before =
+        weatherRepository.findHistory("Berlin", start, start.plusDays(1), Duration.ofHours(1));
+    Long newestId = weatherRepository.findByLocation("Berlin").getId();
+
+    // Act: bis 03:00 in Batches zu 100, danach alles
+    int firstBatch = weatherRepository.rollUpReadings(start.plusHours(3), 100);
+    int secondBatch = weatherRepository.rollUpReadings(start.plusHours(3), 100);
+    int remaining = weatherRepository.rollUpReadings(start.plusDays(1), 1000);
+
+    // Assert: nur der neueste Messwert bleibt roh, der Verlauf ist unverändert
+    assertEquals(100, firstBatch);
+    assertEquals(80, secondBatch);
+    assertEquals(119, remaining);
+    assertEquals(1, weatherRepository.findAll().size());
+    assertEquals(newestId, weatherRepository.findByLocation("Berlin").getId());
+    List<WeatherBucket> after =
+        weatherRepository.findHistory("Berlin", start, start.plusDays(1), Duration.ofHours(1));
+    assertEquals(before.size(), after.size());
+    for (int i = 0; i < before.size(); i++) {
+      assertEquals(before.get(i).getStart(), after.get(i).getStart());
+      assertEquals(before.get(i).getCount(), after.get(i).getCount());
+      assertEquals(before.get(i).getMinTemperature(), after.get(i).getMinTemperature());
+      assertEquals(before.get(i).getMaxTemperature(), after.get(i).getMaxTemperature());
+      assertEquals(before.get(i).getAvgTemperature(), after.get(i).getAvgTemperature(), 1e-9);
+      assertEquals(before.get(i).getMinHumidity(), after.get(i).getMinHumidity());
+      assertEquals(before.get(i).getMaxHumidity(), after.get(i).getMaxHumidity());
+      assertEquals(before.get(i).getAvgHumidity(), after.get(i).getAvgHumidity(), 1e-9);
+    }
+  }
+
+  @Test
+  void testRollUpHoursIntoDays() {
+    // Arrange: zwei Tage im Minutentakt, bis auf den neuesten Messwert in Stunden verdichtet
+    weatherRepository.saveAll(createReadings("Stuttgart", 2880));
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    weatherRepository.rollUpReadings(start.plusDays(2), 5000);
+
+    // Act: Stunden des ersten Tages in Batches zu 10
+    int rolledUp = 0;
+    int batch;
+    do {
+      batch = weatherRepository.rollUpHours(start.plusDays(1), 10);
+      rolledUp += batch;
+    } while (batch == 10);
+
+    // Assert: ein Tages-Rollup, 24 Stunden-Rollups und ein roher Messwert
+    assertEquals(24, rolledUp);
+    List<WeatherBucket> days =
+        weatherRepository.findHistory("Stuttgart", start, start.plusDays(2), Duration.ofDays(1));
+    assertEquals(2, days.size());
+    assertEquals(1440, days.get(0).getCount());
+    assertEquals(10.0, days.get(0).getMinTemperature());
+    assertEquals(19.0, days.get(0).getMaxTemperature());
+    assertEquals(1440, days.get(1).getCount());
+    EntityManager em = emf.createEntityManager();
+    long hours =
+        em.createQuery(
+                "SELECT COUNT(r) FROM WeatherRollup r WHERE r.resolution = :resolution", Long.class)
+            .setParameter("resolution", WeatherRollup.Resolution.HOUR)
+            .getSingleResult();
+    em.close();
+    assertEquals(24, hours);
+  }
+
+  @Test
+  void testHotStoreAnswersLikeDatabase() {
+    // Arrange: Repository mit Hot-Tier, Messwerte in zufälliger Reihenfolge in einem Batch
+    JpaWeatherRepository hotRepository =
+        new JpaWeatherRepository(new ExpiringCache<>(100, Duration.ofSeconds(30)), 8 << 20);
+    List<WeatherData> readings = createReadings("Berlin", 5000);
+    Collections.shuffle(readings, new Random(7));
+    hotRepository.saveAll(readings);
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    // Act
+    List<WeatherBucket> fromMemory =
+        hotRepository.findHistory("Berlin", start, start.plusDays(4), Duration.ofHours(1));
+    List<WeatherBucket> fromDatabase =
+        weatherRepository.findHistory("Berlin", start, start.plusDays(4), Duration.ofHours(1));
+
+    // Assert
+    assertEquals(5000, hotRepository.getHotStore().size());
+    assertTrue(hotRepository.getHotStore().covers("Berlin", start));
+    assertEquals(fromDatabase.size(), fromMemory.size());
+    for (int i = 0; i < fromDatabase.size(); i++) {
+      WeatherBucket expected = fromDatabase.get(i);
+      WeatherBucket actual = fromMemory.get(i);
+      assertEquals(expected.getStart(), actual.getStart());
+      assertEquals(expected.getCount(), actual.getCount());
+      assertEquals(expected.getMinTemperature(), actual.getMinTemperature());
+      assertEquals(expected.getMaxTemperature(), actual.getMaxTemperature());
+      assertEquals(expected.getAvgTemperature(), actual.getAvgTemperature(), 1e-9);
+      assertEquals(expected.getMinHumidity(), actual.getMinHumidity());
+      assertEquals(expected.getMaxHumidity(), actual.getMaxHumidity());
+      assertEquals(expected.getAvgHumidity(), actual.getAvgHumidity(), 1e-9);
+    }
+    assertEquals(
+        weatherRepository.findByLocation("Berlin").getId(),
+        hotRepository.findByLocation("Berlin").getId());
+  }
+
+  @Test
+  void testDiscardCachesForgetsRowsChangedBehindTheRepository() {
+    // Arrange: Cache, Hot-Tier, Ortsindex und Listener kennen Berlin
+    JpaWeatherRepository hotRepository =
+        new JpaWeatherRepository(new ExpiringCache<>(100, Duration.ofSeconds(30)), 8 << 20);
+    List<String> notifications = new ArrayList<>();
+    hotRepository.addInvalidationListener(
+        new WeatherRepository.InvalidationListener() {
+          @Override
+          public void invalidated(String location, Set<Long> updatedIds) {
+            notifications.add(location);
+          }
+
+          @Override
+          public void invalidatedAll() {
+            notifications.add("all");
+          }
+        });
+    hotRepository.saveAll(createReadings("Berlin", 3));
+    assertNotNull(hotRepository.findByLocation("Berlin"));
+    assertEquals(List.of("Berlin"), hotRepository.findLocations("", 10));
+
+    // Tabelle direkt ersetzen, wie es der Lasttest beim Befüllen tut
+    EntityManager em = emf.createEntityManager();
+    em.getTransaction().begin();
+    em.createQuery("DELETE FROM WeatherData").executeUpdate();
+    em.getTransaction().commit();
+    em.close();
+    weatherRepository.saveAll(createReadings("Paris", 2));
+
+    // Act
+    hotRepository.discardCaches();
+
+    // Assert
+    assertNull(hotRepository.findByLocation("Berlin"));
+    assertEquals(0, hotRepository.getHotStore().size());
+    assertEquals(List.of("Paris"), hotRepository.findLocations("", 10));
+    assertEquals(List.of("Berlin", "all"), notifications);
+  }
+
+  @Test
+  void testFindPageUsesKeysetPagination() {
+    // Arrange
+    weatherRepository.saveAll(createReadings("Tübingen", 25));
+
+    // Act: Tabelle seitenweise durchlaufen
+    List<Long> ids = new ArrayList<>();
+    long afterId = 0;
+    List<WeatherData> page;
+    do {
+      page = weatherRepository.findPage(afterId, 10);
+      page.forEach(data -> ids.add(data.getId()));
+      if (!page.isEmpty()) {
+        afterId = page.get(page.size() - 1).getId();
+      }
+    } while (page.size() == 10);
+
+    // Assert: alle IDs genau einmal und aufsteigend sortiert
+    assertEquals(25, ids.size());
+    assertEquals(ids.stream().sorted().distinct().toList(), ids);
+  }
+
+  @Test
+  void testStreamAfter() {
+    // Arrange
+    List<WeatherData> readings = createReadings("Konstanz", 30);
+    weatherRepository.saveAll(readings);
+    long afterId = readings.get(9).getId();
+
+    // Act
+    List<WeatherData> streamed;
+    try (Stream<WeatherData> stream = weatherRepository.streamAfter(afterId, 7)) {
+      streamed = stream.toList();
+    }
+
+    // Assert
+    assertEquals(20, streamed.size());
+    assertTrue(streamed.stream().allMatch(data -> data.getId() > afterId));
+    assertEquals("Konstanz", streamed.get(0).getLocation());
+  }
+
+  private static List<WeatherData> createReadings(String location, int count) {
+    List<WeatherData> readings = new ArrayList<>(count);
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    for (int i = 0; i < count; i++) {
+      WeatherData data = new WeatherData();
+      data.setLocation(location);
+      data.setTemperature(10.0 + i % 10);
+      data.setHumidity(50 + i % 40);
+      data.setTimestamp(start.plusMinutes(i));
+      readings.add(data);
+    }
+    return readings;
+  }
+
+  @AfterAll
+  static void tearDown() {
+    if (emf != null) {
+      emf.close();
+    }
+  }
+}
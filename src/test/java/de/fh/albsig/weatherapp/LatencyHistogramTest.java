@@ -0,0 +1,100 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testBucketsCoverValuesWithinOneEighth() {
+    // Arrange & Act & Assert: jeder Wert liegt in seinem Bucket, Fehler höchstens 12,5 %
+    for (long value = 0; value < 1_000_000; value = value * 3 / 2 + 1) {
+      int index = LatencyHistogram.indexOf(value);
+      long highest = LatencyHistogram.highestValueOf(index);
+      assertTrue(highest >= value, "upper bound below value " + value);
+      assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, "bucket too wide");
+      if (index > 0) {
+        assertTrue(LatencyHistogram.highestValueOf(index - 1) < value, "value in wrong bucket");
+      }
+    }
+  }
+
+  @Test
+  void testQuantilesOfUniformDistribution() {
+    // Arrange: 1 bis 1000 Mikrosekunden
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int micros = 1; micros <= 1000; micros++) {
+      histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    // Act
+    long median = histogram.quantileNanos(0.5);
+    long p99 = histogram.quantileNanos(0.99);
+
+    // Assert
+    assertEquals(1000, histogram.count());
+    assertEquals(500_500_000L, histogram.sumNanos());
+    assertTrue(median >= 500_000 && median <= 500_000 * 9 / 8, "median " + median);
+    assertTrue(p99 >= 990_000 && p99 <= 990_000 * 9 / 8, "p99 " + p99);
+    assertEquals(p99 / 1e9, histogram.quantileSeconds(0.99));
+  }
+
+  @Test
+  void testCumulativeCountsPerBound() {
+    // Arrange: 1 bis 1000 Mikrosekunden
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int micros = 1; micros <= 1000; micros++) {
+      histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    // Act
+    long[] cumulative = histogram.cumulativeCounts(new long[] {100_000, 500_000, 2_000_000});
+
+    // Assert: höchstens ein Bucket (12,5 %) unter der echten Anzahl, die letzte ist die Summe
+    assertTrue(cumulative[0] <= 100 && cumulative[0] >= 100 * 7 / 8, "le 100us " + cumulative[0]);
+    assertTrue(cumulative[1] <= 500 && cumulative[1] >= 500 * 7 / 8, "le 500us " + cumulative[1]);
+    assertEquals(1000, cumulative[2]);
+    assertEquals(1000, cumulative[3]);
+  }
+
+  @Test
+  void testEmptyAndOutOfRangeValues() {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    // Act & Assert: leeres Histogramm liefert 0, negative und riesige Werte gehen nicht verloren
+    assertEquals(0, histogram.quantileNanos(0.99));
+    histogram.recordNanos(-5);
+    histogram.recordNanos(Long.MAX_VALUE);
+    assertEquals(2, histogram.count());
+    assertEquals(0, histogram.quantileNanos(0.5));
+    assertTrue(histogram.quantileNanos(1.0) > TimeUnit.MINUTES.toNanos(15));
+  }
+
+  @Test
+  void testConcurrentRecordingLosesNoValues() throws Exception {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    // Act
+    for (int t = 0; t < 4; t++) {
+      executor.execute(
+          () -> {
+            for (int i = 0; i < 10_000; i++) {
+              histogram.recordNanos(i);
+            }
+          });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    // Assert
+    assertEquals(40_000, histogram.count());
+    assertEquals(4L * 9_999 * 10_000 / 2, histogram.sumNanos());
+  }
+}
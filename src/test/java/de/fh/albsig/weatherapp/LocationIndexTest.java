@@ -0,0 +1,139 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LocationIndexTest {
+
+  private final LocationIndex index = new LocationIndex();
+
+  @Test
+  void testFindMatchesPrefixIgnoringCase() {
+    // Arrange
+    index.rebuild(() -> List.of("Bern", "berlin", "Berlin", "Bremen", "Paris", "Bergen"));
+
+    // Act
+    List<String> matches = index.find("BER", 10);
+    List<String> limited = index.find("b", 2);
+
+    // Assert: alphabetisch ohne Beachtung der Groß-/Kleinschreibung
+    assertEquals(List.of("Bergen", "Berlin", "berlin", "Bern"), matches);
+    assertEquals(List.of("Bergen", "Berlin"), limited);
+    assertEquals(6, index.find("", 100).size());
+    assertTrue(index.find("x", 10).isEmpty());
+  }
+
+  @Test
+  void testAddAndRemoveKeepOrder() {
+    // Arrange
+    index.rebuild(() -> List.of("Berlin", "Paris"));
+
+    // Act
+    index.add("Bonn");
+    index.add("Berlin");
+    index.add("aachen");
+    index.remove("Paris");
+    index.remove("Rome");
+
+    // Assert
+    assertEquals(List.of("aachen", "Berlin", "Bonn"), index.find("", 10));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void testChangesDuringRebuildAreKept() {
+    // Arrange: während des Ladens kommt Zürich hinzu und Bern verschwindet
+    index.rebuild(() -> List.of("Bern"));
+
+    // Act
+    index.rebuild(
+        () -> {
+          List<String> loaded = new ArrayList<>(List.of("Bern", "Paris"));
+          index.add("Zurich");
+          index.remove("Bern");
+          return loaded;
+        });
+
+    // Assert
+    assertEquals(List.of("Paris", "Zurich"), index.find("", 10));
+  }
+
+  @Test
+  void testRequestRebuildLoadsInBackground() throws InterruptedException {
+    // Arrange
+    CountDownLatch loaded = new CountDownLatch(1);
+
+    // Act
+    index.requestRebuild(
+        () -> {
+          loaded.countDown();
+          return List.of("Berlin");
+        });
+
+    // Assert
+    assertTrue(loaded.await(5, TimeUnit.SECONDS));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!index.isLoaded() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("Berlin"), index.find("ber", 10));
+  }
+
+  @Test
+  void testCheckRemovesLocationWithoutReadings() {
+    // Arrange
+    index.rebuild(() -> List.of("Berlin", "Bern"));
+
+    // Act
+    index.check("Bern", location -> false);
+    index.check("Berlin", location -> true);
+
+    // Assert
+    assertEquals(List.of("Berlin"), index.find("ber", 10));
+  }
+
+  @Test
+  void testLocationAddedDuringCheckIsKept() {
+    // Arrange
+    index.rebuild(() -> List.of("Bern"));
+
+    // Act: während der Abfrage kommt ein neuer Messwert für Bern hinzu
+    index.check(
+        "Bern",
+        location -> {
+          index.add("Bern");
+          return false;
+        });
+
+    // Assert
+    assertEquals(List.of("Bern"), index.find("ber", 10));
+  }
+
+  @Test
+  void testRequestCheckRunsInBackground() throws InterruptedException {
+    // Arrange
+    index.rebuild(() -> List.of("Berlin", "Bern"));
+    CountDownLatch checked = new CountDownLatch(1);
+
+    // Act
+    index.requestCheck(
+        "Bern",
+        location -> {
+          checked.countDown();
+          return false;
+        });
+
+    // Assert
+    assertTrue(checked.await(5, TimeUnit.SECONDS));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (index.size() > 1 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(List.of("Berlin"), index.find("ber", 10));
+  }
+}
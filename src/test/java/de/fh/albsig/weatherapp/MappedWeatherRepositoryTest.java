@@ -0,0 +1,301 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedWeatherRepositoryTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+  @TempDir Path directory;
+
+  private MappedWeatherRepository repository;
+
+  @AfterEach
+  void tearDown() {
+    if (repository != null) {
+      repository.close();
+    }
+  }
+
+  @Test
+  void testSaveAssignsIdsAndFindsLatestReading() throws IOException {
+    // Arrange
+    repository = open(64 * 1024);
+    WeatherData older = reading("Berlin", 10.0, START);
+    WeatherData newer = reading("Berlin", 12.0, START.plusHours(1));
+
+    // Act: neuere Messung zuerst speichern, maßgeblich ist der Zeitstempel
+    repository.save(newer);
+    repository.save(older);
+
+    // Assert
+    assertEquals(1L, newer.getId());
+    assertEquals(2L, older.getId());
+    WeatherData latest = repository.findByLocation("Berlin");
+    assertEquals(newer.getId(), latest.getId());
+    assertEquals(12.0, latest.getTemperature());
+    assertEquals(START.plusHours(1), latest.getTimestamp());
+    assertEquals(WeatherVersion.of(newer), repository.findLatestVersion("Berlin"));
+    assertEquals(START.plusHours(1), repository.findNewestTimestamp("Berlin"));
+    assertNull(repository.findByLocation("Paris"));
+  }
+
+  @Test
+  void testFindLatestByLocations() throws IOException {
+    // Arrange
+    repository = open(64 * 1024);
+    repository.saveAll(readings("Berlin", 3));
+    repository.saveAll(readings("Paris", 2));
+
+    // Act
+    Map<String, WeatherData> latest =
+        repository.findLatestByLocations(List.of("Paris", "Atlantis", "Berlin", "Paris"));
+
+    // Assert
+    assertEquals(List.of("Paris", "Berlin"), new ArrayList<>(latest.keySet()));
+    assertEquals(5L, latest.get("Paris").getId());
+    assertEquals(3L, latest.get("Berlin").getId());
+  }
+
+  @Test
+  void testFindLocationsFollowsWritesAndRestart() throws IOException {
+    // Arrange
+    repository = open(64 * 1024);
+    repository.saveAll(readings("Berlin", 2));
+    repository.save(reading("Bern", 1.0, START));
+    repository.save(reading("Paris", 1.0, START));
+
+    // Act: der einzige Messwert von Bern wird gelöscht, danach neu öffnen
+    repository.deleteById(repository.findByLocation("Bern").getId());
+    List<String> afterDelete = repository.findLocations("be", 10);
+    repository.close();
+    repository = open(64 * 1024);
+
+    // Assert
+    assertEquals(List.of("Berlin"), afterDelete);
+    assertEquals(List.of("Berlin", "Paris"), repository.findLocations("", 10));
+  }
+
+  @Test
+  void testUpdateAndDeleteNotifyListeners() throws IOException {
+    // Arrange
+    repository = open(64 * 1024);
+    WeatherData data = reading("Berlin", 10.0, START);
+    repository.save(data);
+    List<String> invalidated = new ArrayList<>();
+    repository.addInvalidationListener((location, ids) -> invalidated.add(location + ids));
+
+    // Act: Messwert an einen anderen Ort verschieben und danach löschen
+    WeatherData moved = new WeatherData(data);
+    moved.setLocation("Paris");
+    repository.save(moved);
+    assertNull(repository.findByLocation("Berlin"));
+    assertEquals(data.getId(), repository.findByLocation("Paris").getId());
+    repository.delete(moved);
+
+    // Assert
+    assertNull(repository.findByLocation("Paris"));
+    assertTrue(repository.findAll().isEmpty());
+    assertTrue(invalidated.contains("Berlin[]"));
+    assertTrue(invalidated.contains("Paris[]"));
+    assertTrue(invalidated.contains("null[" + data.getId() + "]"));
+    assertThrows(IllegalArgumentException.class, () -> repository.delete(moved));
+  }
+
+  @Test
+  void testUpdateAndDeleteByIdAndDeleteMatching() throws IOException {
+    // Arrange: zehn Messungen in Berlin im Minutenabstand, drei in Paris
+    repository = open(64 * 1024);
+    repository.saveAll(readings("Berlin", 10));
+    repository.saveAll(readings("Paris", 3));
+    WeatherData unknown = reading("Rome", 1.0, START);
+    unknown.setId(99L);
+
+    // Act: Minuten 2 bis 4 in Berlin löschen, danach neu öffnen
+    long deleted = repository.deleteMatching("Berlin", START.plusMinutes(2), START.plusMinutes(5));
+    repository.close();
+    repository = open(64 * 1024);
+
+    // Assert
+    assertEquals(3L, deleted);
+    assertEquals(List.of(1L, 2L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L), ids(repository.findAll()));
+    assertFalse(repository.update(unknown));
+    assertFalse(repository.deleteById(99L));
+    assertTrue(repository.deleteById(13L));
+    assertEquals(12L, repository.findByLocation("Paris").getId());
+    assertEquals(2L, repository.deleteMatching("Paris", null, null));
+    assertNull(repository.findByLocation("Paris"));
+    assertThrows(IllegalArgumentException.class, () -> repository.deleteMatching(null, null, null));
+  }
+
+  @Test
+  void testFindHistoryAggregatesBuckets() throws IOException {
+    // Arrange: drei Messungen in der ersten Stunde, eine in der dritten
+    repository = open(64 * 1024);
+    repository.saveAll(
+        List.of(
+            reading("Berlin", 10.0, START),
+            reading("Berlin", 14.0, START.plusMinutes(10)),
+            reading("Berlin", 12.0, START.plusMinutes(59)),
+            reading("Berlin", 20.0, START.plusHours(2)),
+            reading("Berlin", 30.0, START.plusHours(3)),
+            reading("Paris", 99.0, START)));
+
+    // Act
+    List<WeatherBucket> buckets =
+        repository.findHistory("Berlin", START, START.plusHours(3), Duration.ofHours(1));
+
+    // Assert: Ende exklusiv, leere Buckets entfallen
+    assertEquals(2, buckets.size());
+    assertEquals(START, buckets.get(0).getStart());
+    assertEquals(3, buckets.get(0).getCount());
+    assertEquals(10.0, buckets.get(0).getMinTemperature());
+    assertEquals(14.0, buckets.get(0).getMaxTemperature());
+    assertEquals(12.0, buckets.get(0).getAvgTemperature(), 1e-9);
+    assertEquals(START.plusHours(2), buckets.get(1).getStart());
+    assertEquals(1, buckets.get(1).getCount());
+  }
+
+  @Test
+  void testPagesAndStreamAreOrderedById() throws IOException {
+    // Arrange
+    repository = open(64 * 1024);
+    repository.saveAll(readings("Berlin", 25));
+
+    // Act
+    List<WeatherData> page = repository.findPage(10, 5);
+    List<Long> streamed;
+    try (Stream<WeatherData> stream = repository.streamAfter(3, 4)) {
+      streamed = stream.map(WeatherData::getId).collect(Collectors.toList());
+    }
+
+    // Assert
+    assertEquals(List.of(11L, 12L, 13L, 14L, 15L), ids(page));
+    assertEquals(22, streamed.size());
+    assertEquals(4L, streamed.get(0));
+    assertEquals(25L, streamed.get(21));
+  }
+
+  @Test
+  void testSegmentsRollAndIndexSurvivesRestart() throws IOException {
+    // Arrange: Segmente mit Platz für je vier Datensätze
+    repository = open(4 * MappedWeatherRepository.RECORD_SIZE);
+    repository.saveAll(readings("Berlin", 10));
+    repository.delete(repository.findByLocation("Berlin"));
+    assertEquals(3, repository.segmentCount());
+    repository.close();
+
+    // Act: einmal mit Checkpoint, einmal mit vollständigem Neuaufbau öffnen
+    repository = open(4 * MappedWeatherRepository.RECORD_SIZE);
+    List<WeatherData> fromCheckpoint = repository.findAll();
+    repository.close();
+    Files.delete(directory.resolve(MappedWeatherRepository.CHECKPOINT_FILE));
+    repository = open(4 * MappedWeatherRepository.RECORD_SIZE);
+
+    // Assert
+    assertEquals(9, fromCheckpoint.size());
+    assertEquals(ids(fromCheckpoint), ids(repository.findAll()));
+    assertEquals(9L, repository.findByLocation("Berlin").getId());
+    WeatherData next = reading("Berlin", 1.0, START);
+    repository.save(next);
+    assertEquals(11L, next.getId());
+  }
+
+  @Test
+  void testTornBatchIsDiscardedOnRestart() throws IOException {
+    // Arrange: ein vollständiger Einzelwert, dann ein Batch, dessen letzter Datensatz zerstört ist
+    repository = open(64 * 1024);
+    repository.save(reading("Berlin", 1.0, START));
+    repository.saveAll(readings("Paris", 3));
+    repository.close();
+    Files.delete(directory.resolve(MappedWeatherRepository.CHECKPOINT_FILE));
+    Path segment = directory.resolve(String.format("segment-%020d.dat", 0));
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), 3L * 128 + 40);
+    }
+
+    // Act
+    repository = open(64 * 1024);
+
+    // Assert: der ganze Batch fehlt, neue Datensätze werden dahinter angehängt
+    assertEquals(1, repository.findAll().size());
+    assertNull(repository.findByLocation("Paris"));
+    repository.save(reading("Rome", 2.0, START));
+    repository.close();
+    repository = open(64 * 1024);
+    assertEquals(List.of(1L, 2L), ids(repository.findAll()));
+  }
+
+  @Test
+  void testSharedBackendIsSelectedByProperty() {
+    // Arrange
+    Properties properties = new Properties();
+    properties.setProperty(WeatherRepository.BACKEND_PROPERTY, "mapped");
+    properties.setProperty(
+        MappedWeatherRepository.Options.DIRECTORY_PROPERTY, directory.toString());
+    properties.setProperty(MappedWeatherRepository.Options.FSYNC_PROPERTY, "always");
+
+    // Act
+    WeatherRepository created = WeatherRepositories.create(properties);
+
+    // Assert
+    try {
+      assertInstanceOf(MappedWeatherRepository.class, created);
+      assertEquals(
+          MappedWeatherRepository.FsyncPolicy.ALWAYS,
+          ((MappedWeatherRepository) created).getOptions().fsyncPolicy());
+      properties.setProperty(WeatherRepository.BACKEND_PROPERTY, "unknown");
+      assertThrows(IllegalArgumentException.class, () -> WeatherRepositories.create(properties));
+    } finally {
+      created.close();
+    }
+  }
+
+  private MappedWeatherRepository open(long segmentBytes) throws IOException {
+    return new MappedWeatherRepository(
+        new MappedWeatherRepository.Options(
+            directory,
+            segmentBytes,
+            MappedWeatherRepository.FsyncPolicy.NEVER,
+            Duration.ofSeconds(1)));
+  }
+
+  private static WeatherData reading(String location, double temperature, LocalDateTime time) {
+    WeatherData data = new WeatherData();
+    data.setLocation(location);
+    data.setTemperature(temperature);
+    data.setHumidity(50);
+    data.setTimestamp(time);
+    return data;
+  }
+
+  private static List<WeatherData> readings(String location, int count) {
+    List<WeatherData> readings = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      readings.add(reading(location, i, START.plusMinutes(i)));
+    }
+    return readings;
+  }
+
+  private static List<Long> ids(List<WeatherData> readings) {
+    return readings.stream().map(WeatherData::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,71 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+  @Test
+  void testWritesPrometheusTextFormat() throws Exception {
+    // Arrange
+    MetricsRegistry registry = new MetricsRegistry();
+    LatencyHistogram histogram =
+        registry.histogram("request_duration_seconds", "Request duration", "method", "GET");
+    histogram.recordNanos(2_000_000);
+    registry.counter("requests_total", "Requests").add(3);
+    registry.gauge("queue_depth", "Queue depth", () -> 7.5);
+    registry.gauge("missing", "Skipped gauge", () -> Double.NaN);
+
+    // Act
+    StringWriter out = new StringWriter();
+    registry.writeTo(out);
+
+    // Assert
+    String text = out.toString();
+    assertTrue(text.contains("# TYPE request_duration_seconds histogram\n"));
+    assertTrue(text.contains("request_duration_seconds_bucket{method=\"GET\",le=\"0.001\"} 0\n"));
+    assertTrue(
+        text.contains("request_duration_seconds_bucket{method=\"GET\",le=\"0.0025\"} 1\n"), text);
+    assertTrue(text.contains("request_duration_seconds_bucket{method=\"GET\",le=\"+Inf\"} 1\n"));
+    assertTrue(text.contains("request_duration_seconds_count{method=\"GET\"} 1\n"));
+    assertTrue(text.contains("request_duration_seconds_sum{method=\"GET\"} 0.002\n"));
+    assertTrue(text.contains("# HELP requests_total Requests\n"));
+    assertTrue(text.contains("requests_total 3\n"));
+    assertTrue(text.contains("queue_depth 7.5\n"));
+    assertFalse(text.contains("\nmissing "));
+  }
+
+  @Test
+  void testRegisteringAgainReturnsSameMetric() {
+    // Arrange
+    MetricsRegistry registry = new MetricsRegistry();
+
+    // Act
+    LongAdder first = registry.counter("errors_total", "Errors", "kind", "a");
+    LongAdder second = registry.counter("errors_total", "Errors", "kind", "a");
+    LongAdder other = registry.counter("errors_total", "Errors", "kind", "b");
+
+    // Assert
+    assertSame(first, second);
+    assertNotSame(first, other);
+    assertThrows(IllegalArgumentException.class, () -> registry.gauge("errors_total", "", () -> 1));
+    assertThrows(IllegalArgumentException.class, () -> registry.counter("odd", "", "label"));
+  }
+
+  @Test
+  void testEscapesLabelValues() throws Exception {
+    // Arrange
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("lookups_total", "Lookups", "location", "Say \"hi\"\\\n").increment();
+
+    // Act
+    StringWriter out = new StringWriter();
+    registry.writeTo(out);
+
+    // Assert
+    assertTrue(out.toString().contains("lookups_total{location=\"Say \\\"hi\\\"\\\\\\n\"} 1\n"));
+  }
+}
@@ -0,0 +1,61 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsServletTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private ServletConfig config;
+
+  @Mock private ServletContext context;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Test
+  void testDoGetWritesCacheAndQueueMetrics() throws Exception {
+    // Arrange: Cache mit einem Treffer, Write-behind-Queue mit einem wartenden Messwert
+    ExpiringCache<String, WeatherData> cache = new ExpiringCache<>(10, Duration.ofMinutes(1));
+    cache.get("Berlin", location -> new WeatherData());
+    cache.getIfPresent("Berlin");
+    when(weatherRepository.getLatestCache()).thenReturn(cache);
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 10, 10);
+    queue.offer(new WeatherData());
+    when(config.getServletContext()).thenReturn(context);
+    when(context.getAttribute(WriteBehindQueue.CONTEXT_ATTRIBUTE)).thenReturn(queue);
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.histogram("weather_test_duration_seconds", "Test").recordNanos(1_000);
+    MetricsServlet servlet = new MetricsServlet(registry, weatherRepository);
+    servlet.init(config);
+    StringWriter body = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(body));
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    String text = body.toString();
+    verify(response).setContentType(MetricsServlet.CONTENT_TYPE);
+    assertTrue(text.contains("weather_test_duration_seconds_count 1\n"), text);
+    assertTrue(text.contains("weather_cache_hits_total 1\n"), text);
+    assertTrue(text.contains("weather_cache_size 1\n"), text);
+    assertTrue(text.contains("weather_write_queue_depth 1\n"), text);
+    assertTrue(text.contains("weather_write_queue_accepted_total 1\n"), text);
+  }
+}
@@ -0,0 +1,59 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class ObjectPoolTest {
+
+  @Test
+  void testReleasedInstanceIsReusedByOtherThread() throws Exception {
+    // Arrange
+    ObjectPool<StringBuilder> pool = new ObjectPool<>(2, StringBuilder::new);
+    StringBuilder first = pool.acquire();
+    pool.release(first);
+
+    // Act: ein anderer Thread leiht sich eine Instanz
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    StringBuilder second;
+    try {
+      second = executor.submit(pool::acquire).get();
+    } finally {
+      executor.shutdown();
+    }
+
+    // Assert
+    assertSame(first, second);
+    assertEquals(1, pool.created());
+  }
+
+  @Test
+  void testEmptyPoolCreatesInsteadOfWaiting() {
+    ObjectPool<StringBuilder> pool = new ObjectPool<>(2, StringBuilder::new);
+
+    StringBuilder first = pool.acquire();
+    StringBuilder second = pool.acquire();
+
+    assertNotSame(first, second);
+    assertEquals(2, pool.created());
+  }
+
+  @Test
+  void testKeepsAtMostCapacityIdleInstances() {
+    // Arrange
+    ObjectPool<StringBuilder> pool = new ObjectPool<>(2, StringBuilder::new);
+    StringBuilder a = pool.acquire();
+    StringBuilder b = pool.acquire();
+    StringBuilder c = pool.acquire();
+
+    // Act
+    pool.release(a);
+    pool.release(b);
+    pool.release(c);
+
+    // Assert: die dritte Instanz wird verworfen
+    assertEquals(2, pool.idle());
+  }
+}
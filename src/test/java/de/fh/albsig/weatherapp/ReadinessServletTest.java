@@ -0,0 +1,84 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReadinessServletTest {
+
+  @Mock private ServletConfig config;
+
+  @Mock private ServletContext context;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Test
+  void testDoGetIsUnavailableWhileStarting() throws Exception {
+    // Arrange: eine Phase ist fertig, der Start aber noch nicht
+    StartupReport report = new StartupReport(new MetricsRegistry());
+    report.run("jaxb", () -> {});
+    ReadinessServlet servlet = new ReadinessServlet(report);
+    StringWriter body = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(body, true));
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(response).setHeader("Retry-After", "1");
+    assertTrue(body.toString().startsWith("starting"), body.toString());
+    assertTrue(body.toString().contains("jaxb "), body.toString());
+  }
+
+  @Test
+  void testDoGetIsOkWhenReady() throws Exception {
+    // Arrange
+    StartupReport report = new StartupReport(new MetricsRegistry());
+    report.ready();
+    ReadinessServlet servlet = new ReadinessServlet(report);
+    StringWriter body = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(body, true));
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response, never()).setStatus(anyInt());
+    assertTrue(body.toString().startsWith("ready"), body.toString());
+    assertTrue(body.toString().contains(StartupReport.TOTAL_PHASE + " "), body.toString());
+  }
+
+  @Test
+  void testDoGetReportsFailureFromServletContext() throws Exception {
+    // Arrange: Bericht wird wie im Container aus dem Servlet-Kontext gelesen
+    StartupReport report = new StartupReport(new MetricsRegistry());
+    report.failed(new IllegalStateException("database unreachable"));
+    when(config.getServletContext()).thenReturn(context);
+    when(context.getAttribute(StartupReport.CONTEXT_ATTRIBUTE)).thenReturn(report);
+    ReadinessServlet servlet = new ReadinessServlet();
+    servlet.init(config);
+    StringWriter body = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(body, true));
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    assertTrue(body.toString().contains("database unreachable"), body.toString());
+  }
+}
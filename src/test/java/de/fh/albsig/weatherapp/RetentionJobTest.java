@@ -0,0 +1,126 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RetentionJobTest {
+
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2024-03-10T12:34:56Z"), ZoneOffset.UTC);
+
+  private final MetricsRegistry registry = new MetricsRegistry();
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Test
+  void testRunRollsUpBatchesUntilOneComesBackShort() {
+    // Arrange: Rohdaten älter als 7 Tage, Stunden älter als 30 Tage, je 100 Zeilen pro Batch
+    LocalDateTime rawCutoff = LocalDateTime.of(2024, 3, 3, 12, 0);
+    LocalDateTime hourlyCutoff = LocalDateTime.of(2024, 2, 9, 0, 0);
+    when(weatherRepository.rollUpReadings(rawCutoff, 100)).thenReturn(100, 100, 42);
+    when(weatherRepository.rollUpHours(hourlyCutoff, 100)).thenReturn(5);
+
+    // Act
+    new RetentionJob(weatherRepository, policy(), CLOCK, registry).run();
+
+    // Assert
+    verify(weatherRepository, times(3)).rollUpReadings(rawCutoff, 100);
+    verify(weatherRepository).rollUpHours(hourlyCutoff, 100);
+    assertEquals(242, rows("raw"));
+    assertEquals(5, rows("hour"));
+    assertEquals(1, duration().count());
+  }
+
+  @Test
+  void testFailedRunIsCountedAndDoesNotEndTheSchedule() {
+    // Arrange
+    when(weatherRepository.rollUpReadings(any(), anyInt()))
+        .thenThrow(new IllegalStateException("connection lost"));
+    RetentionJob job = new RetentionJob(weatherRepository, policy(), CLOCK, registry);
+
+    // Act
+    job.run();
+
+    // Assert: keine Ausnahme, damit der nächste geplante Lauf stattfindet
+    assertEquals(
+        1,
+        registry
+            .counter("weather_retention_failures_total", "Failed runs of the retention job")
+            .sum());
+    verify(weatherRepository, never()).rollUpHours(any(), anyInt());
+  }
+
+  @Test
+  void testBackendWithoutRollupsEndsTheSchedule() {
+    // Arrange
+    when(weatherRepository.rollUpReadings(any(), anyInt()))
+        .thenThrow(new UnsupportedOperationException("MappedWeatherRepository has no rollups"));
+    RetentionJob job = new RetentionJob(weatherRepository, policy(), CLOCK, registry);
+
+    // Act & Assert: die Ausnahme beendet scheduleWithFixedDelay
+    assertThrows(UnsupportedOperationException.class, job::run);
+  }
+
+  @Test
+  void testPolicyFromProperties() {
+    // Arrange
+    Properties properties = new Properties();
+    Properties configured = new Properties();
+    configured.setProperty(RetentionJob.RAW_RETENTION_PROPERTY, "P14D");
+    configured.setProperty(RetentionJob.BATCH_SIZE_PROPERTY, "250");
+    Properties invalid = new Properties();
+    invalid.setProperty(RetentionJob.RAW_RETENTION_PROPERTY, "P14D");
+    invalid.setProperty(RetentionJob.HOURLY_RETENTION_PROPERTY, "P1D");
+    Properties mapped = new Properties();
+    mapped.setProperty(RetentionJob.RAW_RETENTION_PROPERTY, "P14D");
+    mapped.setProperty(WeatherRepository.BACKEND_PROPERTY, "Mapped");
+
+    // Act
+    RetentionJob.Policy policy = RetentionJob.Policy.fromProperties(configured);
+
+    // Assert: ohne Rohdaten-Alter ist der Job abgeschaltet, sonst gelten die Standardwerte
+    assertNull(RetentionJob.Policy.fromProperties(properties));
+    assertEquals(Duration.ofDays(14), policy.rawRetention());
+    assertEquals(RetentionJob.Policy.DEFAULT_HOURLY_RETENTION, policy.hourlyRetention());
+    assertEquals(RetentionJob.Policy.DEFAULT_INTERVAL, policy.interval());
+    assertEquals(250, policy.batchSize());
+    assertThrows(IllegalArgumentException.class, () -> RetentionJob.Policy.fromProperties(invalid));
+    // Das Backend ohne Rollups wird schon beim Deployment abgelehnt
+    IllegalArgumentException unsupported =
+        assertThrows(
+            IllegalArgumentException.class, () -> RetentionJob.Policy.fromProperties(mapped));
+    assertTrue(unsupported.getMessage().contains("keeps no rollups"), unsupported.getMessage());
+  }
+
+  private static RetentionJob.Policy policy() {
+    return new RetentionJob.Policy(
+        Duration.ofDays(7), Duration.ofDays(30), Duration.ofHours(1), 100);
+  }
+
+  private long rows(String tier) {
+    return registry
+        .counter(
+            "weather_retention_rows_total",
+            "Rows rolled up and deleted by the retention job",
+            "tier",
+            tier)
+        .sum();
+  }
+
+  private LatencyHistogram duration() {
+    return registry.histogram(
+        "weather_retention_duration_seconds", "Duration of runs of the retention job");
+  }
+}
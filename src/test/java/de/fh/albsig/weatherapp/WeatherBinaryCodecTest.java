@@ -0,0 +1,70 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class WeatherBinaryCodecTest {
+
+  private final WeatherBinaryCodec codec = new WeatherBinaryCodec();
+
+  @Test
+  void testRoundTripOfConcatenatedFrames() throws Exception {
+    // Arrange: ein vollständiger und ein fast leerer Messwert
+    WeatherData full = new WeatherData();
+    full.setId(7L);
+    full.setLocation("Zürich");
+    full.setTemperature(21.5);
+    full.setHumidity(40);
+    full.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0, 0, 500));
+    WeatherData empty = new WeatherData();
+    empty.setTemperature(-1.0);
+
+    // Act
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(full, out);
+    codec.encode(empty, out);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    WeatherData first = codec.decode(in);
+    WeatherData second = codec.decode(in);
+
+    // Assert
+    assertEquals(7L, first.getId());
+    assertEquals("Zürich", first.getLocation());
+    assertEquals(21.5, first.getTemperature());
+    assertEquals(40, first.getHumidity());
+    assertEquals(full.getTimestamp(), first.getTimestamp());
+    assertNull(second.getId());
+    assertNull(second.getLocation());
+    assertNull(second.getTimestamp());
+    assertEquals(-1.0, second.getTemperature());
+    assertThrows(EOFException.class, () -> codec.decode(in));
+  }
+
+  @Test
+  void testRejectsTruncatedAndCorruptFrames() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setLocation("Berlin");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(data, out);
+    byte[] frame = out.toByteArray();
+    byte[] wrongVersion = frame.clone();
+    wrongVersion[4] = 9;
+    byte[] wrongLength = frame.clone();
+    wrongLength[3] = 1;
+
+    // Act & Assert
+    assertThrows(
+        EOFException.class,
+        () -> codec.decode(new ByteArrayInputStream(Arrays.copyOf(frame, frame.length - 1))));
+    assertThrows(IOException.class, () -> codec.decode(new ByteArrayInputStream(wrongVersion)));
+    assertThrows(IOException.class, () -> codec.decode(new ByteArrayInputStream(wrongLength)));
+  }
+}
@@ -0,0 +1,263 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherBulkServletTest {
+
+  private WeatherBulkServlet servlet;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @BeforeEach
+  void setup() {
+    servlet = new WeatherBulkServlet(weatherRepository, new WeatherXmlCodec());
+  }
+
+  @Test
+  void testDoPostReportsPerItemResults() throws Exception {
+    // Arrange: ein gültiger und ein ungültiger Messwert
+    String xml =
+        """
+        <weatherDataList>
+            <weatherData>
+                <location>Hamburg</location>
+                <temperature>16</temperature>
+                <humidity>70</humidity>
+            </weatherData>
+            <weatherData>
+                <temperature>22.5</temperature>
+            </weatherData>
+        </weatherDataList>
+        """;
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(xml)));
+    doAnswer(
+            invocation -> {
+              List<WeatherData> items = invocation.getArgument(0);
+              items.get(0).setId(42L);
+              return null;
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert: nur der gültige Messwert wird gespeichert
+    verify(weatherRepository)
+        .saveAll(
+            argThat(items -> items.size() == 1 && "Hamburg".equals(items.get(0).getLocation())));
+    verify(response).setStatus(HttpServletResponse.SC_OK);
+    BulkResult result = parse(responseStream);
+    assertEquals(1, result.getSucceeded());
+    assertEquals(1, result.getFailed());
+    assertEquals(BulkResult.CREATED, result.getItems().get(0).getStatus());
+    assertEquals(42L, result.getItems().get(0).getId());
+    assertEquals(BulkResult.FAILED, result.getItems().get(1).getStatus());
+    assertEquals("Missing location", result.getItems().get(1).getMessage());
+  }
+
+  @Test
+  void testDoPostMarksAllItemsFailedWhenTransactionFails() throws Exception {
+    String xml =
+        """
+        <weatherDataList>
+            <weatherData><location>Berlin</location></weatherData>
+            <weatherData><location>Munich</location></weatherData>
+        </weatherDataList>
+        """;
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(xml)));
+    doThrow(new IllegalStateException("db down")).when(weatherRepository).saveAll(anyList());
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    servlet.doPost(request, response);
+
+    verify(response).setStatus(HttpServletResponse.SC_OK);
+    BulkResult result = parse(responseStream);
+    assertEquals(0, result.getSucceeded());
+    assertEquals(2, result.getFailed());
+  }
+
+  @Test
+  void testDoPostAcceptsBinaryFrames() throws Exception {
+    // Arrange: zwei aneinandergehängte Frames
+    WeatherBinaryCodec binary = new WeatherBinaryCodec();
+    ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    for (String location : List.of("Ulm", "Bonn")) {
+      WeatherData data = new WeatherData();
+      data.setLocation(location);
+      data.setTemperature(12.5);
+      binary.encode(data, frames);
+    }
+    when(request.getContentType()).thenReturn(WeatherBinaryCodec.MEDIA_TYPE);
+    when(request.getInputStream())
+        .thenReturn(new ByteArrayServletInputStream(frames.toByteArray()));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(weatherRepository)
+        .saveAll(argThat(items -> items.size() == 2 && "Bonn".equals(items.get(1).getLocation())));
+    verify(response).setStatus(HttpServletResponse.SC_CREATED);
+    assertEquals(2, parse(responseStream).getSucceeded());
+  }
+
+  @Test
+  void testDoPostRejectsTruncatedFrame() throws Exception {
+    WeatherData data = new WeatherData();
+    data.setLocation("Ulm");
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    new WeatherBinaryCodec().encode(data, frame);
+    byte[] truncated = Arrays.copyOf(frame.toByteArray(), frame.size() - 3);
+    when(request.getContentType()).thenReturn(WeatherBinaryCodec.MEDIA_TYPE);
+    when(request.getInputStream()).thenReturn(new ByteArrayServletInputStream(truncated));
+
+    servlet.doPost(request, response);
+
+    verify(weatherRepository, never()).saveAll(anyList());
+    verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid weather data frames");
+  }
+
+  @Test
+  void testDoPostRejectsJson() throws Exception {
+    when(request.getContentType()).thenReturn(WeatherJsonCodec.MEDIA_TYPE);
+
+    servlet.doPost(request, response);
+
+    verify(response).sendError(eq(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE), anyString());
+  }
+
+  @Test
+  void testDoPostWithMalformedDocument() throws Exception {
+    when(request.getReader())
+        .thenReturn(new BufferedReader(new StringReader("<weatherData></weatherData>")));
+
+    servlet.doPost(request, response);
+
+    verify(weatherRepository, never()).saveAll(anyList());
+    verify(response)
+        .sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid weather data list format");
+  }
+
+  @Test
+  void testDoPostStopsReadingAfterMaxItems() throws Exception {
+    // Arrange: ein Eintrag zu viel, danach kaputtes XML, das nie gelesen werden darf
+    StringBuilder xml = new StringBuilder("<weatherDataList>");
+    for (int i = 0; i <= WeatherBulkServlet.MAX_ITEMS; i++) {
+      xml.append("<weatherData><location>Ulm</location></weatherData>");
+    }
+    xml.append("<weatherData><location>");
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(xml.toString())));
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(weatherRepository, never()).saveAll(anyList());
+    verify(response)
+        .sendError(
+            HttpServletResponse.SC_BAD_REQUEST,
+            "Too many items, at most " + WeatherBulkServlet.MAX_ITEMS + " allowed");
+  }
+
+  @Test
+  void testDoPostReportsItemsWithIdAsUpdated() throws Exception {
+    // Arrange: ein neuer und ein vorhandener Messwert
+    String xml =
+        """
+        <weatherDataList>
+            <weatherData><location>Ulm</location></weatherData>
+            <weatherData><id>7</id><location>Bonn</location></weatherData>
+        </weatherDataList>
+        """;
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(xml)));
+    doAnswer(
+            invocation -> {
+              List<WeatherData> items = invocation.getArgument(0);
+              items.get(0).setId(8L);
+              return null;
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(response).setStatus(HttpServletResponse.SC_CREATED);
+    BulkResult result = parse(responseStream);
+    assertEquals(2, result.getSucceeded());
+    assertEquals(BulkResult.CREATED, result.getItems().get(0).getStatus());
+    assertEquals(8L, result.getItems().get(0).getId());
+    assertEquals(BulkResult.UPDATED, result.getItems().get(1).getStatus());
+    assertEquals(7L, result.getItems().get(1).getId());
+  }
+
+  private BulkResult parse(CapturingServletOutputStream responseStream) throws Exception {
+    return (BulkResult)
+        new WeatherXmlCodec()
+            .getContext()
+            .createUnmarshaller()
+            .unmarshal(new StringReader(responseStream.toString()));
+  }
+
+  @Test
+  void testDoDeleteRemovesMatchingReadings() throws Exception {
+    // Arrange
+    when(request.getParameter("location")).thenReturn("Hamburg");
+    when(request.getParameter("from")).thenReturn("2024-01-01T00:00");
+    when(request.getParameter("to")).thenReturn("2024-02-01T00:00");
+    when(weatherRepository.deleteMatching(
+            "Hamburg", LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)))
+        .thenReturn(744L);
+    StringWriter body = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(body));
+
+    // Act
+    servlet.doDelete(request, response);
+
+    // Assert
+    assertEquals("Deleted 744 weather readings.", body.toString());
+  }
+
+  @Test
+  void testDoDeleteRequiresACriterion() throws Exception {
+    // Act: ohne Parameter würde alles gelöscht
+    servlet.doDelete(request, response);
+
+    // Assert
+    verify(response)
+        .sendError(
+            HttpServletResponse.SC_BAD_REQUEST, "location, from or to parameter is required");
+    verifyNoInteractions(weatherRepository);
+  }
+}
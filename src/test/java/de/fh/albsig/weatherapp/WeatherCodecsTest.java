@@ -0,0 +1,78 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class WeatherCodecsTest {
+
+  private final WeatherXmlCodec xml = new WeatherXmlCodec();
+  private final WeatherCodecs codecs = WeatherCodecs.standard(xml);
+
+  @Test
+  void testAcceptNegotiation() {
+    // Arrange & Act & Assert: ohne Angabe oder mit Wildcard bleibt XML der Standard
+    assertSame(xml, codecs.forAccept(null));
+    assertSame(xml, codecs.forAccept("*/*"));
+    assertSame(xml, codecs.forAccept("text/xml"));
+    assertEquals(WeatherJsonCodec.MEDIA_TYPE, codecs.forAccept("application/json").mediaType());
+    assertEquals(
+        WeatherJsonCodec.MEDIA_TYPE,
+        codecs.forAccept("application/xml;q=0.5, application/json").mediaType());
+    assertEquals(
+        WeatherBinaryCodec.MEDIA_TYPE,
+        codecs.forAccept("application/x-weather-binary, */*;q=0.1").mediaType());
+    // Der spezifischste Bereich zählt: XML ist ausgeschlossen, JSON bleibt über application/*
+    assertEquals(
+        WeatherJsonCodec.MEDIA_TYPE,
+        codecs.forAccept("application/xml;q=0, application/*;q=0.8").mediaType());
+    assertNull(codecs.forAccept("image/png"));
+  }
+
+  @Test
+  void testContentTypeSelection() {
+    // Arrange & Act & Assert
+    assertSame(xml, codecs.forContentType(null));
+    assertSame(xml, codecs.forContentType("application/xml; charset=UTF-8"));
+    assertEquals(
+        WeatherJsonCodec.MEDIA_TYPE,
+        codecs.forContentType("Application/JSON; charset=utf-8").mediaType());
+    assertNull(codecs.forContentType("text/plain"));
+  }
+
+  @Test
+  void testAllFormatsRoundTripAndCompareSizes() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setId(123_456L);
+    data.setLocation("Albstadt");
+    data.setTemperature(12.5);
+    data.setHumidity(67);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30));
+
+    // Act & Assert: jede Darstellung liefert den Messwert unverändert zurück
+    int[] sizes = new int[3];
+    WeatherCodec[] formats = {
+      codecs.forAccept("application/xml"),
+      codecs.forAccept("application/json"),
+      codecs.forAccept("application/x-weather-binary")
+    };
+    for (int i = 0; i < formats.length; i++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      formats[i].encode(data, out);
+      sizes[i] = out.size();
+      WeatherData decoded = formats[i].decode(new ByteArrayInputStream(out.toByteArray()));
+      assertEquals(data.getId(), decoded.getId());
+      assertEquals(data.getLocation(), decoded.getLocation());
+      assertEquals(data.getTemperature(), decoded.getTemperature());
+      assertEquals(data.getHumidity(), decoded.getHumidity());
+      assertEquals(data.getTimestamp(), decoded.getTimestamp());
+    }
+    // Binär ist kleiner als JSON, JSON kleiner als XML
+    assertTrue(sizes[2] < sizes[1], "binary " + sizes[2] + " vs. JSON " + sizes[1]);
+    assertTrue(sizes[1] < sizes[0], "JSON " + sizes[1] + " vs. XML " + sizes[0]);
+  }
+}
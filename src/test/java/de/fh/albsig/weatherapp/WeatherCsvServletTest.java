@@ -0,0 +1,108 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherCsvServletTest {
+
+  private WeatherCsvServlet servlet;
+
+  private final WeatherXmlCodec codec = new WeatherXmlCodec();
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @BeforeEach
+  void setup() {
+    servlet =
+        new WeatherCsvServlet(weatherRepository, codec, new WeatherCsvTransfer(weatherRepository));
+  }
+
+  @Test
+  void testDoGetStreamsCsv() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setId(5L);
+    data.setLocation("München");
+    data.setTemperature(3.0);
+    data.setHumidity(80);
+    when(request.getParameter("afterId")).thenReturn("4");
+    when(weatherRepository.streamAfter(4, WeatherRepository.DEFAULT_FETCH_SIZE))
+        .thenReturn(Stream.of(data));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setContentType(WeatherCsv.MEDIA_TYPE);
+    assertEquals(
+        WeatherCsv.HEADER + "\n5,München,,3.0,80\n",
+        new String(responseStream.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testDoPostImportsRowsAndReportsResult() throws Exception {
+    // Arrange: eine gültige und eine ungültige Zeile
+    String csv =
+        "location,timestamp,temperature,humidity\n"
+            + "Hamburg,2024-05-01T10:00,16,70\n"
+            + "Bremen,2024-05-01T10:00,warm,70\n";
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(csv)));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(request).setCharacterEncoding("UTF-8");
+    verify(weatherRepository)
+        .saveAll(
+            argThat(items -> items.size() == 1 && "Hamburg".equals(items.get(0).getLocation())));
+    verify(response).setStatus(HttpServletResponse.SC_OK);
+    ImportResult result =
+        (ImportResult)
+            codec
+                .getContext()
+                .createUnmarshaller()
+                .unmarshal(new StringReader(responseStream.toString()));
+    assertEquals(2, result.getRows());
+    assertEquals(1, result.getImported());
+    assertEquals(1, result.getRejected());
+    assertEquals(3, result.getErrors().get(0).getLine());
+    assertEquals("Invalid temperature: warm", result.getErrors().get(0).getMessage());
+  }
+
+  @Test
+  void testDoPostRejectsInvalidHeader() throws Exception {
+    // Arrange
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader("Hamburg,16,70\n")));
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(response)
+        .sendError(
+            eq(HttpServletResponse.SC_BAD_REQUEST), startsWith("Invalid CSV: Missing column"));
+    verifyNoInteractions(weatherRepository);
+  }
+}
@@ -0,0 +1,116 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class WeatherCsvTest {
+
+  @Test
+  void testWrittenRowsAreReadBack() throws Exception {
+    // Arrange: Ort mit Komma und Anführungszeichen, Messwert ohne Zeitstempel
+    WeatherData quoted = reading(7L, "Frankfurt, \"Main\"", LocalDateTime.of(2024, 1, 1, 12, 0));
+    WeatherData untimed = reading(8L, "Berlin", null);
+    StringWriter csv = new StringWriter();
+    WeatherCsv.RowWriter writer = new WeatherCsv.RowWriter(csv);
+
+    // Act
+    writer.writeHeader();
+    writer.write(quoted);
+    writer.write(untimed);
+    WeatherCsv.RowReader reader = new WeatherCsv.RowReader(new StringReader(csv.toString()));
+    WeatherData first = reader.next();
+    WeatherData second = reader.next();
+
+    // Assert: IDs werden nicht übernommen
+    assertTrue(csv.toString().contains("7,\"Frankfurt, \"\"Main\"\"\",2024-01-01T12:00,21.5,40\n"));
+    assertTrue(reader.hasIdColumn());
+    assertNull(first.getId());
+    assertEquals(quoted.getLocation(), first.getLocation());
+    assertEquals(quoted.getTimestamp(), first.getTimestamp());
+    assertEquals(21.5, first.getTemperature());
+    assertEquals(40, first.getHumidity());
+    assertEquals("Berlin", second.getLocation());
+    assertNull(second.getTimestamp());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void testInvalidRowsAreSkippedWithTheirLine() throws Exception {
+    // Arrange: Spalten in anderer Reihenfolge, CRLF, Leerzeile und mehrzeiliger Ort
+    String csv =
+        "﻿humidity,temperature,location,timestamp\r\n"
+            + "50,abc,Berlin,2024-01-01T00:00\r\n"
+            + "\r\n"
+            + "50,1.0,\"Line\nBreak\",2024-01-01T00:00\r\n"
+            + "50,1.0,,2024-01-01T00:00\r\n"
+            + "50,1.0,Paris\r\n"
+            + "60,2.5,Rome,2024-01-01T01:00";
+    WeatherCsv.RowReader reader = new WeatherCsv.RowReader(new StringReader(csv));
+
+    // Act & Assert
+    WeatherCsv.FormatException temperature =
+        assertThrows(WeatherCsv.FormatException.class, reader::next);
+    assertEquals(2, temperature.getLine());
+    assertEquals("Invalid temperature: abc", temperature.getMessage());
+    assertEquals("Line\nBreak", reader.next().getLocation());
+    assertEquals(4, reader.getLine());
+    assertEquals(6, assertThrows(WeatherCsv.FormatException.class, reader::next).getLine());
+    assertEquals(7, assertThrows(WeatherCsv.FormatException.class, reader::next).getLine());
+    WeatherData last = reader.next();
+    assertEquals("Rome", last.getLocation());
+    assertEquals(60, last.getHumidity());
+    assertFalse(reader.hasIdColumn());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void testOverlongRowIsRejectedWithoutKeepingIt() throws Exception {
+    // Arrange: ein überlanger Ort und ein Anführungszeichen, das nie geschlossen wird
+    String csv =
+        "location,timestamp,temperature,humidity\n"
+            + "x".repeat(WeatherCsv.MAX_FIELD_LENGTH + 1)
+            + ",2024-01-01T00:00,1.0,50\n"
+            + "Rome,2024-01-01T01:00,2.5,60\n"
+            + "\"Stray,2024-01-01T02:00,3.0,70\n"
+            + "y,".repeat(WeatherCsv.MAX_RECORD_LENGTH);
+    WeatherCsv.RowReader reader = new WeatherCsv.RowReader(new StringReader(csv));
+
+    // Act & Assert: die folgende Zeile wird weiter gelesen
+    WeatherCsv.FormatException tooLong =
+        assertThrows(WeatherCsv.FormatException.class, reader::next);
+    assertEquals(2, tooLong.getLine());
+    assertTrue(tooLong.getMessage().startsWith("Row exceeds"));
+    assertEquals("Rome", reader.next().getLocation());
+    WeatherCsv.FormatException unterminated =
+        assertThrows(WeatherCsv.FormatException.class, reader::next);
+    assertEquals(4, unterminated.getLine());
+    assertNull(reader.next());
+  }
+
+  @Test
+  void testHeaderWithoutRequiredColumnIsRejected() {
+    // Act
+    WeatherCsv.FormatException e =
+        assertThrows(
+            WeatherCsv.FormatException.class,
+            () -> new WeatherCsv.RowReader(new StringReader("id,location,temperature\n")));
+
+    // Assert
+    assertEquals("Missing column timestamp", e.getMessage());
+    assertEquals(1, e.getLine());
+  }
+
+  private static WeatherData reading(Long id, String location, LocalDateTime timestamp) {
+    WeatherData data = new WeatherData();
+    data.setId(id);
+    data.setLocation(location);
+    data.setTemperature(21.5);
+    data.setHumidity(40);
+    data.setTimestamp(timestamp);
+    return data;
+  }
+}
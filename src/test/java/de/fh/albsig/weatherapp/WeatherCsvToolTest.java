@@ -0,0 +1,75 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherCsvToolTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @TempDir Path directory;
+
+  private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+  private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+  @Test
+  void testExportToFileAndImportFromStandardInput() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setId(1L);
+    data.setLocation("Berlin");
+    data.setTemperature(20.0);
+    data.setHumidity(30);
+    when(weatherRepository.streamAfter(0, WeatherRepository.DEFAULT_FETCH_SIZE))
+        .thenReturn(Stream.of(data));
+    Path file = directory.resolve("export.csv");
+
+    // Act
+    int exported = run(new ByteArrayInputStream(new byte[0]), "export", file.toString());
+    int imported = run(Files.newInputStream(file), "import", "-");
+
+    // Assert
+    assertEquals(0, exported);
+    assertEquals(0, imported);
+    verify(weatherRepository)
+        .saveAll(argThat(items -> items.size() == 1 && items.get(0).getId() == null));
+    assertTrue(stderr.toString(StandardCharsets.UTF_8).contains("Exported 1 readings"));
+    assertTrue(stderr.toString(StandardCharsets.UTF_8).contains("1 rows, 1 imported, 0 rejected"));
+  }
+
+  @Test
+  void testInvalidArgumentsPrintUsage() {
+    // Act
+    int status = run(new ByteArrayInputStream(new byte[0]), "import");
+
+    // Assert
+    assertEquals(2, status);
+    assertTrue(stderr.toString(StandardCharsets.UTF_8).startsWith("Usage:"));
+    verifyNoInteractions(weatherRepository);
+  }
+
+  private int run(InputStream stdin, String... args) {
+    return WeatherCsvTool.run(
+        args,
+        () -> weatherRepository,
+        stdin,
+        stdout,
+        new PrintStream(stderr, true, StandardCharsets.UTF_8));
+  }
+}
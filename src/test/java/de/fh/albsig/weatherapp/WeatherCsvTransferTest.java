@@ -0,0 +1,94 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherCsvTransferTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Test
+  void testImportStoresValidRowsInChunks() throws Exception {
+    // Arrange: fünf gültige Zeilen und eine ungültige, Chunks zu je zwei Zeilen
+    StringBuilder csv = new StringBuilder("location,timestamp,temperature,humidity\n");
+    for (int i = 0; i < 5; i++) {
+      csv.append("Berlin,2024-01-01T0").append(i).append(":00,").append(i).append(",50\n");
+    }
+    csv.append("Paris,yesterday,1,50\n");
+    List<Integer> chunkSizes = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              chunkSizes.add(invocation.<List<WeatherData>>getArgument(0).size());
+              return null;
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    List<Long> progress = new ArrayList<>();
+    WeatherCsvTransfer transfer = new WeatherCsvTransfer(weatherRepository, 2);
+
+    // Act
+    ImportResult result =
+        transfer.importFrom(
+            new StringReader(csv.toString()), current -> progress.add(current.getImported()));
+
+    // Assert
+    assertEquals(List.of(2, 2, 1), chunkSizes);
+    assertEquals(List.of(2L, 4L, 5L), progress);
+    assertEquals(6, result.getRows());
+    assertEquals(5, result.getImported());
+    assertEquals(1, result.getRejected());
+    assertEquals(7, result.getErrors().get(0).getLine());
+    assertFalse(result.isAborted());
+  }
+
+  @Test
+  void testImportStopsWhenStoringFails() throws Exception {
+    // Arrange: der zweite Chunk kann nicht gespeichert werden
+    String csv =
+        "location,timestamp,temperature,humidity\n" + "A,,1,1\nB,,1,1\nC,,1,1\nD,,1,1\nE,,1,1\n";
+    doNothing()
+        .doThrow(new IllegalStateException("disk full"))
+        .when(weatherRepository)
+        .saveAll(anyList());
+    WeatherCsvTransfer transfer = new WeatherCsvTransfer(weatherRepository, 2);
+
+    // Act
+    ImportResult result = transfer.importFrom(new StringReader(csv), progress -> {});
+
+    // Assert: Abbruch ab Zeile 4, der erste Chunk bleibt gespeichert
+    assertTrue(result.isAborted());
+    assertEquals(4L, result.getAbortedAt());
+    assertEquals(2, result.getImported());
+    verify(weatherRepository, times(2)).saveAll(anyList());
+  }
+
+  @Test
+  void testExportWritesHeaderAndStreamedRows() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setId(3L);
+    data.setLocation("Berlin");
+    data.setTemperature(1.5);
+    data.setHumidity(20);
+    when(weatherRepository.streamAfter(2, 100)).thenReturn(Stream.of(data));
+    StringWriter out = new StringWriter();
+
+    // Act
+    long written = new WeatherCsvTransfer(weatherRepository).exportTo(out, 2, 100);
+
+    // Assert
+    assertEquals(1, written);
+    assertEquals(WeatherCsv.HEADER + "\n3,Berlin,,1.5,20\n", out.toString());
+  }
+}
@@ -0,0 +1,257 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherEventHubTest {
+
+  private WeatherEventHub hub;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @BeforeEach
+  void setup() {
+    hub =
+        new WeatherEventHub(
+            weatherRepository,
+            new WeatherXmlCodec(),
+            Executors.newSingleThreadScheduledExecutor(),
+            Duration.ofMillis(20),
+            Duration.ofMillis(50));
+  }
+
+  @AfterEach
+  void tearDown() {
+    hub.close();
+  }
+
+  @Test
+  void testSubscriberReceivesCurrentAndNewerReadings() throws Exception {
+    // Arrange
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(
+            latest(reading(1L, 15.0)), latest(reading(2L, 17.5)), latest(reading(2L, 17.5)));
+    CapturingServletOutputStream stream = new CapturingServletOutputStream();
+
+    // Act: aktueller Stand beim Verbinden, dann ein neuerer und ein unveränderter
+    hub.subscribe("Berlin", asyncContext(stream), null);
+    await(() -> hub.eventCount() == 1);
+    hub.invalidated("Berlin", Set.of());
+    await(() -> hub.eventCount() == 2);
+    hub.invalidated("Paris", Set.of());
+    hub.invalidated(null, Set.of(2L));
+    await(() -> mockingDetails(weatherRepository).getInvocations().size() == 3);
+
+    // Assert
+    String events = stream.toString();
+    assertTrue(events.startsWith("id: 1-"));
+    assertTrue(events.contains("event: weather\ndata: "));
+    assertTrue(events.contains("<temperature>15.0</temperature>"));
+    assertTrue(events.contains("<temperature>17.5</temperature>"));
+    assertEquals(2, hub.eventCount());
+    assertEquals(2, events.split("\n\n", -1).length - 1);
+  }
+
+  @Test
+  void testUpdateIsEncodedOnceForAllSubscribers() throws Exception {
+    // Arrange
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(latest(reading(1L, 15.0)));
+    CapturingServletOutputStream first = new CapturingServletOutputStream();
+    CapturingServletOutputStream second = new CapturingServletOutputStream();
+
+    // Act
+    hub.subscribe("Berlin", asyncContext(first), null);
+    hub.subscribe("Berlin", asyncContext(second), null);
+    await(() -> !first.toString().isEmpty() && !second.toString().isEmpty());
+
+    // Assert
+    assertEquals(1, hub.eventCount());
+    assertEquals(2, hub.subscriberCount());
+    assertEquals(first.toString(), second.toString());
+  }
+
+  @Test
+  void testReconnectWithCurrentEventIdGetsNoRepeat() throws Exception {
+    // Arrange
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(latest(reading(1L, 15.0)));
+    CapturingServletOutputStream first = new CapturingServletOutputStream();
+    hub.subscribe("Berlin", asyncContext(first), null);
+    await(() -> !first.toString().isEmpty());
+    String eventId = first.toString().substring(4, first.toString().indexOf('\n'));
+    CapturingServletOutputStream reconnected = new CapturingServletOutputStream();
+
+    // Act
+    hub.subscribe("Berlin", asyncContext(reconnected), eventId);
+
+    // Assert
+    assertEquals("", reconnected.toString());
+  }
+
+  @Test
+  void testSlowSubscriberGetsOnlyTheLatestEvent() throws Exception {
+    // Arrange: der Client liest nicht
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(
+            latest(reading(1L, 15.0)), latest(reading(2L, 16.0)), latest(reading(3L, 17.0)));
+    CapturingServletOutputStream stream = new CapturingServletOutputStream();
+    stream.setReady(false);
+    hub.subscribe("Berlin", asyncContext(stream), null);
+    await(() -> hub.eventCount() == 1);
+
+    // Act
+    hub.invalidated("Berlin", Set.of());
+    await(() -> hub.eventCount() == 2);
+    hub.invalidated("Berlin", Set.of());
+    await(() -> hub.eventCount() == 3);
+    stream.setReady(true);
+
+    // Assert
+    String events = stream.toString();
+    assertFalse(events.contains("<temperature>15.0</temperature>"));
+    assertFalse(events.contains("<temperature>16.0</temperature>"));
+    assertTrue(events.contains("<temperature>17.0</temperature>"));
+    assertEquals(2, hub.coalescedCount());
+  }
+
+  @Test
+  void testReplacedHeartbeatIsNotCountedAsCoalesced() throws Exception {
+    // Arrange: noch kein Messwert, der Client liest nicht, ein Heartbeat wartet
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(Map.of(), latest(reading(1L, 15.0)));
+    CapturingServletOutputStream stream = new CapturingServletOutputStream();
+    stream.setReady(false);
+    hub.subscribe("Berlin", asyncContext(stream), null);
+    await(() -> mockingDetails(weatherRepository).getInvocations().size() == 1);
+    hub.heartbeat();
+
+    // Act
+    hub.invalidated("Berlin", Set.of());
+    await(() -> hub.eventCount() == 1);
+    stream.setReady(true);
+
+    // Assert
+    await(() -> stream.toString().contains("<temperature>15.0</temperature>"));
+    assertTrue(stream.toString().startsWith("id: 1-"));
+    assertEquals(0, hub.coalescedCount());
+  }
+
+  @Test
+  void testWritePossibleDuringWriteIsNotLost() throws Exception {
+    // Arrange: der Client liest nicht, das Ereignis bleibt liegen
+    when(weatherRepository.findLatestByLocations(List.of("Berlin")))
+        .thenReturn(latest(reading(1L, 15.0)));
+    RacingServletOutputStream stream = new RacingServletOutputStream();
+    stream.setReady(false);
+    hub.subscribe("Berlin", asyncContext(stream), null);
+    await(() -> stream.checks > 0);
+
+    // Act: onWritePossible kommt, während noch geschrieben wird und isReady false meldet
+    stream.race = true;
+    stream.setReady(true);
+
+    // Assert
+    assertTrue(stream.toString().contains("<temperature>15.0</temperature>"));
+  }
+
+  @Test
+  void testStalledSubscriberIsDropped() throws Exception {
+    // Arrange
+    when(weatherRepository.findLatestByLocations(List.of("Berlin"))).thenReturn(Map.of());
+    CapturingServletOutputStream stream = new CapturingServletOutputStream();
+    stream.setReady(false);
+    AsyncContext context = asyncContext(stream);
+    hub.start();
+
+    // Act: Heartbeats bleiben liegen, bis die Stall-Zeit abgelaufen ist
+    hub.subscribe("Berlin", context, null);
+    await(() -> hub.subscriberCount() == 0);
+
+    // Assert
+    verify(context, timeout(1000)).complete();
+    assertEquals(1, hub.droppedCount());
+    verify(weatherRepository).addInvalidationListener(hub);
+  }
+
+  /** Reports "not ready" once while the container already signals that writing is possible. */
+  private static final class RacingServletOutputStream extends CapturingServletOutputStream {
+
+    volatile boolean race;
+    volatile int checks;
+    private volatile WriteListener listener;
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      listener = writeListener;
+      super.setWriteListener(writeListener);
+    }
+
+    @Override
+    public boolean isReady() {
+      checks++;
+      if (race) {
+        race = false;
+        // Wie ein Container-Thread, der sich mit dem schreibenden Thread überschneidet
+        try {
+          listener.onWritePossible();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return false;
+      }
+      return super.isReady();
+    }
+  }
+
+  private static AsyncContext asyncContext(CapturingServletOutputStream stream) throws Exception {
+    AsyncContext context = mock(AsyncContext.class);
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(context.getResponse()).thenReturn(response);
+    when(response.getOutputStream()).thenReturn(stream);
+    return context;
+  }
+
+  private static Map<String, WeatherData> latest(WeatherData reading) {
+    return Map.of(reading.getLocation(), reading);
+  }
+
+  private static WeatherData reading(Long id, double temperature) {
+    WeatherData data = new WeatherData();
+    data.setId(id);
+    data.setLocation("Berlin");
+    data.setTemperature(temperature);
+    data.setHumidity(50);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 0).plusHours(id));
+    return data;
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+}
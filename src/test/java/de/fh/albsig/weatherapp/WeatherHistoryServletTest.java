@@ -0,0 +1,132 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherHistoryServletTest {
+
+  private WeatherHistoryServlet servlet;
+  private WeatherXmlCodec codec;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @BeforeEach
+  void setup() {
+    codec = new WeatherXmlCodec();
+    servlet = new WeatherHistoryServlet(weatherRepository, codec);
+  }
+
+  @Test
+  void testDoGetReturnsBuckets() throws Exception {
+    // Arrange
+    LocalDateTime from = LocalDateTime.of(2024, 5, 1, 0, 0);
+    LocalDateTime to = from.plusDays(30);
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getParameter("from")).thenReturn(from.toString());
+    when(request.getParameter("to")).thenReturn(to.toString());
+    when(request.getParameter("bucket")).thenReturn("1d");
+
+    WeatherBucket bucket = new WeatherBucket();
+    bucket.setStart(from);
+    bucket.setCount(24);
+    bucket.setAvgTemperature(17.25);
+    when(weatherRepository.findHistory("Berlin", from, to, Duration.ofDays(1)))
+        .thenReturn(List.of(bucket));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    WeatherHistory history =
+        (WeatherHistory)
+            codec
+                .getContext()
+                .createUnmarshaller()
+                .unmarshal(new StringReader(responseStream.toString()));
+    assertEquals("Berlin", history.getLocation());
+    assertEquals(86400, history.getBucketSeconds());
+    assertEquals(1, history.getBuckets().size());
+    assertEquals(24, history.getBuckets().get(0).getCount());
+    assertEquals(17.25, history.getBuckets().get(0).getAvgTemperature());
+  }
+
+  @Test
+  void testDoGetRejectsTooManyBuckets() throws Exception {
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getParameter("from")).thenReturn("2024-01-01T00:00");
+    when(request.getParameter("to")).thenReturn("2024-12-31T00:00");
+    when(request.getParameter("bucket")).thenReturn("1h");
+
+    servlet.doGet(request, response);
+
+    verify(weatherRepository, never()).findHistory(any(), any(), any(), any());
+    verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+  }
+
+  @Test
+  void testDoGetAcceptsExactlyMaxBuckets() throws Exception {
+    // Arrange: genau 1000 Stunden-Buckets
+    LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+    LocalDateTime to = from.plusHours(WeatherHistoryServlet.MAX_BUCKETS);
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getParameter("from")).thenReturn(from.toString());
+    when(request.getParameter("to")).thenReturn(to.toString());
+    when(request.getParameter("bucket")).thenReturn("1h");
+    when(weatherRepository.findHistory("Berlin", from, to, Duration.ofHours(1)))
+        .thenReturn(List.of());
+    when(response.getOutputStream()).thenReturn(new CapturingServletOutputStream());
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response, never()).sendError(anyInt(), anyString());
+  }
+
+  @Test
+  void testDoGetRejectsOverflowingBucketWithBadRequest() throws Exception {
+    // Arrange
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getParameter("from")).thenReturn("2024-01-01T00:00");
+    when(request.getParameter("to")).thenReturn("2024-12-31T00:00");
+    when(request.getParameter("bucket")).thenReturn("9999999999999999d");
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+  }
+
+  @Test
+  void testParseBucket() {
+    assertEquals(Duration.ofSeconds(30), WeatherHistoryServlet.parseBucket("30s"));
+    assertEquals(Duration.ofMinutes(15), WeatherHistoryServlet.parseBucket("15m"));
+    assertEquals(Duration.ofHours(1), WeatherHistoryServlet.parseBucket("PT1H"));
+    assertEquals(Duration.ofDays(1), WeatherHistoryServlet.parseBucket("1d"));
+    assertThrows(IllegalArgumentException.class, () -> WeatherHistoryServlet.parseBucket("1w"));
+    assertThrows(IllegalArgumentException.class, () -> WeatherHistoryServlet.parseBucket("0h"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> WeatherHistoryServlet.parseBucket("9999999999999999d"));
+  }
+}
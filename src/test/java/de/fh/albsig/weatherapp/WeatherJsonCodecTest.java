@@ -0,0 +1,139 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class WeatherJsonCodecTest {
+
+  private final WeatherJsonCodec codec = new WeatherJsonCodec();
+
+  @Test
+  void testRoundTrip() throws Exception {
+    // Arrange: Sonderzeichen, Umlaute und Zeichen außerhalb der BMP
+    WeatherData data = new WeatherData();
+    data.setId(42L);
+    data.setLocation("Bad \"Urach\" \\ Tübingen\n🌧");
+    data.setTemperature(-3.25);
+    data.setHumidity(95);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+
+    // Act
+    String json = encode(data);
+    WeatherData decoded = decode(json);
+
+    // Assert
+    assertEquals(data.getId(), decoded.getId());
+    assertEquals(data.getLocation(), decoded.getLocation());
+    assertEquals(data.getTemperature(), decoded.getTemperature());
+    assertEquals(data.getHumidity(), decoded.getHumidity());
+    assertEquals(data.getTimestamp(), decoded.getTimestamp());
+  }
+
+  @Test
+  void testWritesCompactDocumentWithoutNullFields() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setLocation("Berlin");
+    data.setTemperature(15.0);
+    data.setHumidity(80);
+
+    // Act
+    String json = encode(data);
+
+    // Assert
+    assertEquals("{\"location\":\"Berlin\",\"temperature\":15.0,\"humidity\":80}", json);
+  }
+
+  @Test
+  void testReadsFormattedDocumentAndSkipsUnknownFields() throws Exception {
+    // Arrange
+    String json =
+        """
+        {
+          "source": {"station": [1, 2, {"name": "x"}], "ok": true},
+          "location" : "Ulm",
+          "temperature" : 1.5e1,
+          "humidity" : 60,
+          "id" : null,
+          "comment" : "Escapes \\" \\u00fc \\/"
+        }
+        """;
+
+    // Act
+    WeatherData data = decode(json);
+
+    // Assert
+    assertNull(data.getId());
+    assertEquals("Ulm", data.getLocation());
+    assertEquals(15.0, data.getTemperature());
+    assertEquals(60, data.getHumidity());
+  }
+
+  @Test
+  void testRejectsMalformedDocuments() {
+    // Arrange & Act & Assert
+    assertThrows(IOException.class, () -> decode(""));
+    assertThrows(IOException.class, () -> decode("{\"location\":\"Ulm\""));
+    assertThrows(IOException.class, () -> decode("{\"humidity\":12.5}"));
+    assertThrows(IOException.class, () -> decode("{\"temperature\":null}"));
+    assertThrows(IOException.class, () -> decode("{\"timestamp\":\"yesterday\"}"));
+    assertThrows(IOException.class, () -> decode("{} {}"));
+  }
+
+  @Test
+  void testKeepsEscapeAfterLoneHighSurrogate() throws Exception {
+    // Arrange & Act: Surrogat-Paar, dann ein einzelnes High-Surrogat vor einem \n
+    WeatherData pair = decode("{\"location\":\"\\uD83C\\uDF27\"}");
+    WeatherData lone = decode("{\"location\":\"\\uD83C\\nUlm\"}");
+
+    // Assert: das Escape nach dem einzelnen Surrogat geht nicht verloren
+    assertEquals(new String(Character.toChars(0x1F327)), pair.getLocation());
+    assertEquals("?\nUlm", lone.getLocation());
+  }
+
+  @Test
+  void testWritesSnapshotWithReadingsAndMissingLocations() throws Exception {
+    // Arrange
+    WeatherData berlin = new WeatherData();
+    berlin.setId(1L);
+    berlin.setLocation("Berlin");
+    berlin.setTemperature(15.0);
+    berlin.setHumidity(80);
+    WeatherData paris = new WeatherData();
+    paris.setLocation("Paris");
+    WeatherSnapshot snapshot = new WeatherSnapshot();
+    snapshot.addItem(berlin);
+    snapshot.addItem(paris);
+    snapshot.addMissing("Atlantis");
+    snapshot.addMissing("\"Mu\"");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Act
+    codec.encodeSnapshot(snapshot, out);
+    codec.encodeSnapshot(new WeatherSnapshot(), out);
+
+    // Assert
+    assertEquals(
+        "{\"weatherData\":[{\"id\":1,\"location\":\"Berlin\",\"temperature\":15.0,\"humidity\":80},"
+            + "{\"location\":\"Paris\",\"temperature\":0.0,\"humidity\":0}],"
+            + "\"missing\":[\"Atlantis\",\"\\\"Mu\\\"\"]}"
+            + "{\"weatherData\":[],\"missing\":[]}",
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  private String encode(WeatherData data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(data, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private WeatherData decode(String json) throws IOException {
+    return codec.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,102 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherListServletTest {
+
+  private WeatherListServlet servlet;
+  private WeatherXmlCodec codec;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @BeforeEach
+  void setup() {
+    codec = new WeatherXmlCodec();
+    servlet = new WeatherListServlet(weatherRepository, codec);
+  }
+
+  @Test
+  void testDoGetStreamsAllReadingsAndClosesStream() throws Exception {
+    // Arrange
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<WeatherData> readings =
+        LongStream.rangeClosed(1, 250).mapToObj(WeatherListServletTest::reading);
+    when(weatherRepository.streamAfter(0L, WeatherRepository.DEFAULT_FETCH_SIZE))
+        .thenReturn(readings.onClose(() -> closed.set(true)));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    WeatherDataList list = parse(responseStream);
+    assertEquals(250, list.getItems().size());
+    assertEquals(250L, list.getItems().get(249).getId());
+    assertEquals(true, closed.get());
+    verify(response, never()).sendError(anyInt(), anyString());
+  }
+
+  @Test
+  void testDoGetReturnsPageWithNextCursor() throws Exception {
+    // Arrange
+    when(request.getParameter("afterId")).thenReturn("10");
+    when(request.getParameter("limit")).thenReturn("2");
+    when(weatherRepository.findPage(10L, 2)).thenReturn(List.of(reading(11), reading(12)));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setHeader(WeatherListServlet.NEXT_AFTER_ID_HEADER, "12");
+    assertEquals(2, parse(responseStream).getItems().size());
+  }
+
+  @Test
+  void testDoGetWithInvalidLimit() throws Exception {
+    when(request.getParameter("afterId")).thenReturn(null);
+    when(request.getParameter("limit")).thenReturn("5000");
+
+    servlet.doGet(request, response);
+
+    verify(weatherRepository, never()).findPage(anyLong(), anyInt());
+    verify(response)
+        .sendError(
+            HttpServletResponse.SC_BAD_REQUEST,
+            "limit must be between 1 and " + WeatherListServlet.MAX_PAGE_SIZE);
+  }
+
+  private WeatherDataList parse(CapturingServletOutputStream responseStream) throws Exception {
+    return codec.readList(new StringReader(responseStream.toString()));
+  }
+
+  private static WeatherData reading(long id) {
+    WeatherData data = new WeatherData();
+    data.setId(id);
+    data.setLocation("Sigmaringen");
+    data.setTemperature(12.0);
+    data.setHumidity(60);
+    return data;
+  }
+}
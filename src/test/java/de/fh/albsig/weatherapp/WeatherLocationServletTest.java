@@ -0,0 +1,88 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.StringReader;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherLocationServletTest {
+
+  private WeatherLocationServlet servlet;
+  private WeatherXmlCodec codec;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @BeforeEach
+  void setup() {
+    codec = new WeatherXmlCodec();
+    servlet = new WeatherLocationServlet(weatherRepository, codec);
+  }
+
+  @Test
+  void testDoGetReturnsMatchingLocations() throws Exception {
+    // Arrange
+    when(request.getParameter("prefix")).thenReturn("ber");
+    when(request.getParameter("limit")).thenReturn("5");
+    when(weatherRepository.findLocations("ber", 5)).thenReturn(List.of("Bergen", "Berlin"));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setContentType("application/xml");
+    LocationList locations =
+        (LocationList)
+            codec
+                .getContext()
+                .createUnmarshaller()
+                .unmarshal(new StringReader(responseStream.toString()));
+    assertEquals("ber", locations.getPrefix());
+    assertEquals(List.of("Bergen", "Berlin"), locations.getLocations());
+  }
+
+  @Test
+  void testDoGetUsesDefaultLimit() throws Exception {
+    // Arrange: ohne Parameter alle Orte, höchstens DEFAULT_LIMIT
+    when(weatherRepository.findLocations("", WeatherLocationServlet.DEFAULT_LIMIT))
+        .thenReturn(List.of());
+    when(response.getOutputStream()).thenReturn(new CapturingServletOutputStream());
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response, never()).sendError(anyInt(), anyString());
+  }
+
+  @Test
+  void testDoGetRejectsInvalidLimit() throws Exception {
+    // Arrange
+    when(request.getParameter("prefix")).thenReturn("ber");
+    when(request.getParameter("limit")).thenReturn("1000");
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response)
+        .sendError(
+            HttpServletResponse.SC_BAD_REQUEST,
+            "limit must be between 1 and " + WeatherLocationServlet.MAX_LIMIT);
+    verifyNoInteractions(weatherRepository);
+  }
+}
@@ -1,15 +1,28 @@
 package de.fh.albsig.weatherapp;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.xml.bind.JAXBContext;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -44,8 +57,8 @@ class WeatherServletTest {
     when(request.getParameter("location")).thenReturn("Berlin");
     when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
 
-    StringWriter responseWriter = new StringWriter();
-    when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
 
     // Servlet aufrufen
     servlet.doGet(request, response);
@@ -54,13 +67,167 @@ class WeatherServletTest {
     verify(response).setContentType("application/xml");
     verify(response, never()).sendError(anyInt(), anyString());
 
-    String responseContent = responseWriter.toString();
+    String responseContent = responseStream.toString();
 
     assertTrue(responseContent.contains("<location>Berlin</location>"));
     assertTrue(responseContent.contains("<temperature>15.0</temperature>"));
     assertTrue(responseContent.contains("<humidity>80</humidity>"));
   }
 
+  @Test
+  void testRepeatedDoGetWritesCachedBytes() throws Exception {
+    // Arrange
+    WeatherData mockData = new WeatherData();
+    mockData.setId(3L);
+    mockData.setLocation("Berlin");
+    mockData.setTemperature(15.0);
+
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    CapturingServletOutputStream first = new CapturingServletOutputStream();
+    CapturingServletOutputStream second = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(first, second);
+
+    // Act
+    servlet.doGet(request, response);
+    servlet.doGet(request, response);
+
+    // Assert: nur einmal geladen und kodiert, beide Antworten identisch und mit Länge
+    verify(weatherRepository, times(1)).findByLocation("Berlin");
+    assertEquals(first.toString(), second.toString());
+    verify(response, times(2))
+        .setContentLength(first.toString().getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  void testDoGetSetsValidators() throws Exception {
+    // Arrange
+    WeatherData mockData = new WeatherData();
+    mockData.setId(7L);
+    mockData.setLocation("Berlin");
+    mockData.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    when(response.getOutputStream()).thenReturn(new CapturingServletOutputStream());
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setHeader("ETag", WeatherVersion.of(mockData).etag());
+    verify(response).setDateHeader("Last-Modified", 1704110400000L);
+  }
+
+  @Test
+  void testDoGetWithMatchingEtagReturnsNotModified() throws Exception {
+    // Arrange
+    WeatherVersion version =
+        new WeatherVersion(7L, LocalDateTime.of(2024, 1, 1, 12, 0), 15.0, 80);
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getHeader("Accept")).thenReturn(null);
+    when(request.getHeader("If-None-Match")).thenReturn("\"other\", " + version.etag());
+    when(weatherRepository.findLatestVersion("Berlin")).thenReturn(version);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert: kein Laden der Entity, kein Body
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(response).setHeader("ETag", version.etag());
+    verify(weatherRepository, never()).findByLocation(anyString());
+    verify(response, never()).getOutputStream();
+  }
+
+  @Test
+  void testDoGetModifiedSinceReturnsReading() throws Exception {
+    // Arrange: Messwert ist neuer als die Kopie des Clients
+    WeatherData mockData = new WeatherData();
+    mockData.setId(7L);
+    mockData.setLocation("Berlin");
+    mockData.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getHeader("Accept")).thenReturn(null);
+    when(request.getHeader("If-None-Match")).thenReturn(null);
+    when(request.getHeader("If-Modified-Since")).thenReturn("Mon, 01 Jan 2024 11:00:00 GMT");
+    when(request.getDateHeader("If-Modified-Since")).thenReturn(1704106800000L);
+    when(weatherRepository.findLatestVersion("Berlin")).thenReturn(WeatherVersion.of(mockData));
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertTrue(responseStream.toString().contains("<location>Berlin</location>"));
+  }
+
+  @Test
+  void testRepeatedRequestsReuseCodec() throws Exception {
+    // Arrange
+    WeatherData mockData = new WeatherData();
+    mockData.setLocation("Berlin");
+    mockData.setTemperature(15.0);
+    mockData.setHumidity(80);
+
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    when(response.getOutputStream())
+        .thenReturn(new CapturingServletOutputStream(), new CapturingServletOutputStream());
+
+    WeatherXmlCodec codec = servlet.getCodec();
+    JAXBContext context = codec.getContext();
+
+    // Act: zwei Requests hintereinander
+    servlet.doGet(request, response);
+    long createdMarshallers = codec.createdMarshallers();
+    servlet.doGet(request, response);
+
+    // Assert: Kontext und Marshaller werden wiederverwendet
+    assertSame(codec, servlet.getCodec());
+    assertSame(context, servlet.getCodec().getContext());
+    assertEquals(createdMarshallers, codec.createdMarshallers());
+    verify(response, never()).sendError(anyInt(), anyString());
+  }
+
+  @Test
+  void testDoGetRunsAsynchronouslyWhenSupported() throws Exception {
+    // Arrange: Servlet mit Dispatcher, der Handler auf einem eigenen Worker-Thread ausführt
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    servlet =
+        new WeatherServlet(
+            weatherRepository,
+            new WeatherXmlCodec(),
+            new AsyncDispatcher(executor, Duration.ofSeconds(5)));
+    AsyncContext asyncContext = mock(AsyncContext.class);
+    CountDownLatch completed = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              completed.countDown();
+              return null;
+            })
+        .when(asyncContext)
+        .complete();
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    when(request.getParameter("location")).thenReturn("Berlin");
+    WeatherData mockData = new WeatherData();
+    mockData.setLocation("Berlin");
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert: Antwort wird vom Worker-Thread geschrieben und der Request abgeschlossen
+    assertTrue(completed.await(5, TimeUnit.SECONDS));
+    assertTrue(responseStream.toString().contains("<location>Berlin</location>"));
+    executor.shutdown();
+  }
+
   @Test
   void testDoGetWithMissingLocation() throws Exception {
     // Kein Standort angegeben
@@ -88,6 +255,181 @@ class WeatherServletTest {
             HttpServletResponse.SC_NOT_FOUND, "No weather data found for the specified location");
   }
 
+  @Test
+  void testDoGetNegotiatesJson() throws Exception {
+    // Arrange
+    WeatherData mockData = new WeatherData();
+    mockData.setId(5L);
+    mockData.setLocation("Berlin");
+    mockData.setTemperature(15.0);
+    mockData.setHumidity(80);
+
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getHeader("Accept")).thenReturn("application/json, application/xml;q=0.9");
+    when(weatherRepository.findByLocation("Berlin")).thenReturn(mockData);
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert: JSON mit eigenem ETag, damit sich die Darstellungen nicht überschneiden
+    verify(response).setContentType("application/json");
+    verify(response).setHeader("Vary", "Accept");
+    verify(response).setHeader("ETag", WeatherVersion.of(mockData).etag("application/json"));
+    assertEquals(
+        "{\"id\":5,\"location\":\"Berlin\",\"temperature\":15.0,\"humidity\":80}",
+        responseStream.toString());
+  }
+
+  @Test
+  void testDoGetWithUnsupportedAcceptReturnsNotAcceptable() throws Exception {
+    // Arrange
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.getHeader("Accept")).thenReturn("image/png");
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).sendError(eq(HttpServletResponse.SC_NOT_ACCEPTABLE), anyString());
+    verify(weatherRepository, never()).findByLocation(anyString());
+  }
+
+  @Test
+  void testDoGetWithSeveralLocationsReturnsSnapshot() throws Exception {
+    // Arrange: Paris doppelt angefragt, Atlantis ohne Messwerte
+    WeatherData berlin = new WeatherData();
+    berlin.setLocation("Berlin");
+    berlin.setTemperature(15.0);
+    WeatherData paris = new WeatherData();
+    paris.setLocation("Paris");
+    paris.setTemperature(18.0);
+
+    when(request.getParameterValues("location"))
+        .thenReturn(new String[] {"Paris", "Atlantis", "Berlin", "Paris"});
+    when(weatherRepository.findLatestByLocations(Set.of("Paris", "Atlantis", "Berlin")))
+        .thenReturn(Map.of("Berlin", berlin, "Paris", paris));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert: ein Dokument in der Reihenfolge der Anfrage, ohne Einzelabfragen
+    verify(response).setContentType("application/xml");
+    verify(response, never()).sendError(anyInt(), anyString());
+    verify(weatherRepository, never()).findByLocation(anyString());
+    String responseContent = responseStream.toString();
+    assertTrue(responseContent.contains("<weatherSnapshot>"));
+    assertTrue(
+        responseContent.indexOf("<location>Paris</location>")
+            < responseContent.indexOf("<location>Berlin</location>"));
+    assertTrue(responseContent.contains("<missing>Atlantis</missing>"));
+  }
+
+  @Test
+  void testDoGetWithSeveralLocationsReturnsJsonSnapshot() throws Exception {
+    // Arrange
+    WeatherData berlin = new WeatherData();
+    berlin.setLocation("Berlin");
+    berlin.setTemperature(15.0);
+
+    when(request.getParameterValues("location")).thenReturn(new String[] {"Berlin", "Atlantis"});
+    when(request.getHeader("Accept")).thenReturn("application/json");
+    when(weatherRepository.findLatestByLocations(Set.of("Berlin", "Atlantis")))
+        .thenReturn(Map.of("Berlin", berlin));
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setContentType("application/json");
+    verify(response, never()).sendError(anyInt(), anyString());
+    assertEquals(
+        "{\"weatherData\":[{\"location\":\"Berlin\",\"temperature\":15.0,\"humidity\":0}],"
+            + "\"missing\":[\"Atlantis\"]}",
+        responseStream.toString());
+  }
+
+  @Test
+  void testDoGetWithSeveralLocationsRejectsBinary() throws Exception {
+    // Arrange: das Binärformat kennt nur einzelne Messwerte
+    when(request.getParameterValues("location")).thenReturn(new String[] {"Berlin", "Paris"});
+    when(request.getHeader("Accept")).thenReturn(WeatherBinaryCodec.MEDIA_TYPE);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).sendError(eq(HttpServletResponse.SC_NOT_ACCEPTABLE), anyString());
+    verify(weatherRepository, never()).findLatestByLocations(any());
+  }
+
+  @Test
+  void testDoGetWithTooManyLocationsReturnsBadRequest() throws Exception {
+    // Arrange
+    String[] locations = new String[WeatherServlet.MAX_SNAPSHOT_LOCATIONS + 1];
+    for (int i = 0; i < locations.length; i++) {
+      locations[i] = "City " + i;
+    }
+    when(request.getParameterValues("location")).thenReturn(locations);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response)
+        .sendError(
+            HttpServletResponse.SC_BAD_REQUEST,
+            "At most " + WeatherServlet.MAX_SNAPSHOT_LOCATIONS + " locations per request");
+    verify(weatherRepository, never()).findLatestByLocations(any());
+  }
+
+  @Test
+  void testDoPostWithBinaryBody() throws Exception {
+    // Arrange: Messwert im Binärformat
+    WeatherData reading = new WeatherData();
+    reading.setLocation("Ulm");
+    reading.setTemperature(9.5);
+    reading.setHumidity(75);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    new WeatherBinaryCodec().encode(reading, body);
+
+    when(request.getContentType()).thenReturn(WeatherBinaryCodec.MEDIA_TYPE);
+    when(request.getInputStream())
+        .thenReturn(new ByteArrayServletInputStream(body.toByteArray()));
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(weatherRepository)
+        .save(
+            argThat(
+                data ->
+                    data.getLocation().equals("Ulm")
+                        && data.getTemperature() == 9.5
+                        && data.getHumidity() == 75));
+    verify(response).setStatus(HttpServletResponse.SC_CREATED);
+  }
+
+  @Test
+  void testDoPostWithUnsupportedContentType() throws Exception {
+    // Arrange
+    when(request.getContentType()).thenReturn("text/csv");
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(response).sendError(eq(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE), anyString());
+    verifyNoInteractions(weatherRepository);
+  }
+
   @Test
   void testDoPostWithValidWeatherData() throws Exception {
     // Arrange: Gültige XML-Daten
@@ -125,6 +467,100 @@ class WeatherServletTest {
     assertTrue(responseWriter.toString().contains("Weather data saved successfully."));
   }
 
+  @Test
+  void testDoPostInWriteBehindModeQueuesReading() throws Exception {
+    // Arrange: Writer nicht gestartet, damit der Eintrag in der Queue bleibt
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 10, 10);
+    servlet =
+        new WeatherServlet(
+            weatherRepository,
+            new WeatherXmlCodec(),
+            new AsyncDispatcher(Executors.newSingleThreadExecutor(), Duration.ofSeconds(5)),
+            queue);
+    when(request.getReader())
+        .thenReturn(
+            new BufferedReader(new StringReader("<weatherData><location>Ulm</location></weatherData>")));
+    StringWriter responseWriter = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert: angenommen, aber noch nicht gespeichert
+    verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+    verify(weatherRepository, never()).save(any(WeatherData.class));
+    assertEquals(1, queue.depth());
+  }
+
+  @Test
+  void testDoPostInWriteBehindModeRejectsWhenQueueIsFull() throws Exception {
+    // Arrange: volle Queue
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 1, 10);
+    queue.offer(new WeatherData());
+    servlet =
+        new WeatherServlet(
+            weatherRepository,
+            new WeatherXmlCodec(),
+            new AsyncDispatcher(Executors.newSingleThreadExecutor(), Duration.ofSeconds(5)),
+            queue);
+    when(request.getReader())
+        .thenReturn(
+            new BufferedReader(new StringReader("<weatherData><location>Ulm</location></weatherData>")));
+
+    // Act
+    servlet.doPost(request, response);
+
+    // Assert
+    verify(response).setHeader("Retry-After", "1");
+    verify(response)
+        .sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many pending writes");
+  }
+
+  @Test
+  void testDoGetOverConcurrencyLimitIsShed() throws Exception {
+    // Arrange: der einzige Platz für Lesezugriffe ist belegt, Schreibzugriffe sind frei
+    ConcurrencyLimiter reads = new ConcurrencyLimiter(1, 1, Duration.ofSeconds(1));
+    ConcurrencyLimiter writes = new ConcurrencyLimiter(1, 1, Duration.ofSeconds(1));
+    reads.tryAcquire();
+    servlet =
+        new WeatherServlet(
+            weatherRepository, new WeatherXmlCodec(), new AdmissionControl(reads, writes));
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setHeader("Retry-After", String.valueOf(AdmissionControl.RETRY_AFTER_SECONDS));
+    verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded");
+    verifyNoInteractions(weatherRepository);
+    assertEquals(1, reads.rejectedCount());
+    assertEquals(0, writes.getInFlight());
+  }
+
+  @Test
+  void testDoGetOverClientRateReturnsTooManyRequests() throws Exception {
+    // Arrange: der Client hat sein einziges Token schon verbraucht
+    ClientRateLimiter clients = new ClientRateLimiter(1, 1);
+    clients.tryAcquire("10.0.0.1");
+    servlet =
+        new WeatherServlet(
+            weatherRepository,
+            new WeatherXmlCodec(),
+            new AdmissionControl(
+                new ConcurrencyLimiter(10, 10, Duration.ofSeconds(1)),
+                new ConcurrencyLimiter(10, 10, Duration.ofSeconds(1)),
+                clients));
+    when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).setHeader("Retry-After", "1");
+    verify(response).sendError(429, "Too many requests");
+    verifyNoInteractions(weatherRepository);
+  }
+
   @Test
   void testDoPostWithInvalidData() throws Exception {
     // Arrange
@@ -168,13 +604,14 @@ class WeatherServletTest {
     mockData.setHumidity(70);
 
     when(request.getReader()).thenReturn(new BufferedReader(new StringReader(updateXml)));
+    when(weatherRepository.update(any(WeatherData.class))).thenReturn(true);
 
     // Act
     servlet.doPut(request, response);
 
     // Assert
     verify(weatherRepository)
-        .save(
+        .update(
             argThat(
                 data ->
                     data.getId() == 1L
@@ -200,12 +637,29 @@ class WeatherServletTest {
     servlet.doPut(request, response);
 
     // Assert
-    verify(weatherRepository, never()).save(any(WeatherData.class));
+    verify(weatherRepository, never()).update(any(WeatherData.class));
     verify(response)
         .sendError(
             HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID must not be null for update");
   }
 
+  @Test
+  void testDoPutWithUnknownIdReturnsNotFound() throws Exception {
+    // Arrange: keine Zeile mit ID 99 vorhanden
+    when(request.getReader())
+        .thenReturn(
+            new BufferedReader(
+                new StringReader("<weatherData><id>99</id><location>Ulm</location></weatherData>")));
+    when(weatherRepository.update(any(WeatherData.class))).thenReturn(false);
+
+    // Act
+    servlet.doPut(request, response);
+
+    // Assert: kein Upsert über save()
+    verify(weatherRepository, never()).save(any(WeatherData.class));
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data with ID 99");
+  }
+
   @Test
   void testDoDeleteWithValidWeatherData() throws Exception {
     // Arrange: Gültige XML-Daten
@@ -226,22 +680,30 @@ class WeatherServletTest {
     expectedData.setHumidity(30);
 
     when(request.getReader()).thenReturn(new BufferedReader(new StringReader(validXml)));
+    when(weatherRepository.deleteById(expectedData.getId())).thenReturn(true);
 
     // Act
     servlet.doDelete(request, response);
 
     // Assert
-    verify(weatherRepository)
-        .delete(
-            argThat(
-                data ->
-                    data.getId().equals(expectedData.getId())
-                        && data.getLocation().equals(expectedData.getLocation())
-                        && data.getTemperature() == expectedData.getTemperature()
-                        && data.getHumidity() == expectedData.getHumidity()));
+    verify(weatherRepository).deleteById(expectedData.getId());
     verify(response).setStatus(HttpServletResponse.SC_NO_CONTENT);
   }
 
+  @Test
+  void testDoDeleteWithUnknownIdReturnsNotFound() throws Exception {
+    // Arrange: keine Zeile mit ID 99 vorhanden
+    when(request.getReader())
+        .thenReturn(new BufferedReader(new StringReader("<weatherData><id>99</id></weatherData>")));
+
+    // Act
+    servlet.doDelete(request, response);
+
+    // Assert
+    verify(weatherRepository).deleteById(99L);
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data with ID 99");
+  }
+
   @Test
   void testDoDeleteWithoutID() throws Exception {
     // Arrange: Ungültige XML-Daten
@@ -261,9 +723,75 @@ class WeatherServletTest {
 
     // Assert
     verify(weatherRepository, never())
-        .delete(any(WeatherData.class)); // Sicherstellen, dass delete nicht aufgerufen wurde
+        .deleteById(anyLong()); // Sicherstellen, dass nichts gelöscht wurde
     verify(response)
         .sendError(
             HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID must not be null for deletion");
   }
+
+  @Test
+  void testDoPutTakesTheIdFromThePath() throws Exception {
+    // Arrange: PUT /weather/5 mit einem Body ohne ID
+    when(request.getPathInfo()).thenReturn("/5");
+    when(request.getReader())
+        .thenReturn(
+            new BufferedReader(
+                new StringReader("<weatherData><location>Ulm</location></weatherData>")));
+    when(weatherRepository.update(any(WeatherData.class))).thenReturn(true);
+
+    // Act
+    servlet.doPut(request, response);
+
+    // Assert
+    verify(weatherRepository).update(argThat(data -> data.getId() == 5L));
+    verify(response).setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  @Test
+  void testDoPutRejectsBodyIdThatDoesNotMatchThePath() throws Exception {
+    // Arrange
+    when(request.getPathInfo()).thenReturn("/5");
+    when(request.getReader())
+        .thenReturn(
+            new BufferedReader(
+                new StringReader("<weatherData><id>6</id><location>Ulm</location></weatherData>")));
+
+    // Act
+    servlet.doPut(request, response);
+
+    // Assert
+    verify(weatherRepository, never()).update(any(WeatherData.class));
+    verify(response)
+        .sendError(HttpServletResponse.SC_BAD_REQUEST, "WeatherData ID does not match the path");
+  }
+
+  @Test
+  void testDoDeleteTakesTheIdFromThePathWithoutBody() throws Exception {
+    // Arrange: DELETE /weather/7 ohne Body
+    when(request.getPathInfo()).thenReturn("/7");
+    when(weatherRepository.deleteById(7L)).thenReturn(true);
+
+    // Act
+    servlet.doDelete(request, response);
+
+    // Assert
+    verify(request, never()).getReader();
+    verify(request, never()).getInputStream();
+    verify(response).setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  @Test
+  void testPathThatIsNoIdReturnsNotFound() throws Exception {
+    // Arrange
+    when(request.getPathInfo()).thenReturn("/abc");
+
+    // Act
+    servlet.doDelete(request, response);
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(weatherRepository, never()).deleteById(anyLong());
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "No weather data at /abc");
+    verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+  }
 }
@@ -0,0 +1,72 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherStreamServletTest {
+
+  private WeatherEventHub hub;
+  private WeatherStreamServlet servlet;
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Mock private AsyncContext asyncContext;
+
+  @BeforeEach
+  void setup() {
+    hub = new WeatherEventHub(weatherRepository, new WeatherXmlCodec());
+    servlet = new WeatherStreamServlet(weatherRepository, hub);
+  }
+
+  @AfterEach
+  void tearDown() {
+    hub.close();
+  }
+
+  @Test
+  void testDoGetOpensEventStream() throws Exception {
+    // Arrange
+    when(request.getParameter("location")).thenReturn("Berlin");
+    when(request.isAsyncSupported()).thenReturn(true);
+    when(request.startAsync()).thenReturn(asyncContext);
+    when(asyncContext.getResponse()).thenReturn(response);
+    when(response.getOutputStream()).thenReturn(new CapturingServletOutputStream());
+    lenient().when(weatherRepository.findLatestByLocations(any())).thenReturn(Map.of());
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert: Header sind gesendet, der Request bleibt ohne Timeout offen
+    verify(response).setContentType("text/event-stream");
+    verify(response).setHeader("Cache-Control", "no-cache");
+    verify(response).flushBuffer();
+    verify(asyncContext).setTimeout(0);
+    assertEquals(1, hub.subscriberCount());
+  }
+
+  @Test
+  void testDoGetWithMissingLocation() throws Exception {
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Location parameter is missing");
+    verify(request, never()).startAsync();
+  }
+}
@@ -0,0 +1,46 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class WeatherVersionTest {
+
+  private final WeatherVersion version =
+      new WeatherVersion(42L, LocalDateTime.of(2024, 1, 1, 12, 0, 30, 500_000_000), 15.0, 80);
+
+  @Test
+  void testIfNoneMatch() {
+    // Arrange
+    String etag = version.etag();
+
+    // Act & Assert: Listen, schwache Tags und "*" werden erkannt
+    assertTrue(version.isNotModified(etag, -1));
+    assertTrue(version.isNotModified("\"abc\", W/" + etag, -1));
+    assertTrue(version.isNotModified("*", -1));
+    assertFalse(version.isNotModified("\"abc\"", -1));
+  }
+
+  @Test
+  void testIfNoneMatchTakesPrecedenceOverIfModifiedSince() {
+    // Arrange
+    long later = version.lastModified() + 60_000;
+
+    // Act & Assert
+    assertFalse(version.isNotModified("\"abc\"", later));
+    assertTrue(version.isNotModified(null, later));
+  }
+
+  @Test
+  void testIfModifiedSinceUsesWholeSeconds() {
+    // Arrange: HTTP-Datum ohne die Millisekunden des Zeitstempels
+    long headerValue = version.lastModified() / 1000 * 1000;
+
+    // Act & Assert
+    assertTrue(version.isNotModified(null, headerValue));
+    assertFalse(version.isNotModified(null, headerValue - 1000));
+    assertFalse(version.isNotModified(null, -1));
+    assertFalse(new WeatherVersion(1L, null, 0, 0).isNotModified(null, headerValue));
+  }
+}
@@ -0,0 +1,74 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class WeatherXmlCodecTest {
+
+  private final WeatherXmlCodec codec = new WeatherXmlCodec();
+
+  @Test
+  void testRoundTrip() throws Exception {
+    // Arrange
+    WeatherData data = new WeatherData();
+    data.setId(7L);
+    data.setLocation("Stuttgart");
+    data.setTemperature(21.5);
+    data.setHumidity(55);
+    data.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30));
+
+    // Act
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(data, out);
+    WeatherData parsed = codec.read(new StringReader(out.toString(StandardCharsets.UTF_8)));
+
+    // Assert
+    assertEquals(7L, parsed.getId());
+    assertEquals("Stuttgart", parsed.getLocation());
+    assertEquals(21.5, parsed.getTemperature());
+    assertEquals(55, parsed.getHumidity());
+    assertEquals(data.getTimestamp(), parsed.getTimestamp());
+  }
+
+  @Test
+  void testCompactOutputByDefault() throws Exception {
+    WeatherData data = new WeatherData();
+    data.setLocation("Ulm");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.write(data, out);
+
+    assertFalse(codec.isFormattedOutput());
+    assertFalse(out.toString(StandardCharsets.UTF_8).contains("\n    <location>"));
+  }
+
+  @Test
+  void testMarshallerIsReusedAcrossThreads() throws Exception {
+    WeatherData data = new WeatherData();
+    data.setLocation("Ulm");
+    codec.write(data, new ByteArrayOutputStream());
+
+    // Ein anderer Thread, etwa ein neuer virtueller Thread je Request, nutzt denselben Marshaller
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor
+          .submit(
+              () -> {
+                codec.write(data, new ByteArrayOutputStream());
+                return null;
+              })
+          .get();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(1, codec.createdMarshallers());
+  }
+}
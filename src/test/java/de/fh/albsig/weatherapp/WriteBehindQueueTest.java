@@ -0,0 +1,194 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindQueueTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Test
+  void testFullQueueRejectsWithoutBlocking() {
+    // Arrange: Writer nicht gestartet, Kapazität 2
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 2, 10);
+
+    // Act
+    boolean first = queue.offer(reading(1));
+    boolean second = queue.offer(reading(2));
+    boolean third = queue.offer(reading(3));
+
+    // Assert
+    assertTrue(first);
+    assertTrue(second);
+    assertFalse(third);
+    WriteBehindStats stats = queue.stats();
+    assertEquals(2, stats.getDepth());
+    assertEquals(2, stats.getAccepted());
+    assertEquals(1, stats.getRejected());
+    assertTrue(queue.retryAfterSeconds() >= 1);
+  }
+
+  @Test
+  void testWriterStoresReadingsInBatches() {
+    // Arrange: Repository merkt sich die Batchgrößen
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    doAnswer(
+            invocation -> {
+              batchSizes.add(invocation.<List<WeatherData>>getArgument(0).size());
+              return null;
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 1000, 50);
+    for (int i = 0; i < 120; i++) {
+      queue.offer(reading(i));
+    }
+
+    // Act: Writer erst nach dem Befüllen starten, dann beim Herunterfahren leeren
+    queue.start();
+    queue.shutdown(Duration.ofSeconds(10));
+
+    // Assert
+    assertEquals(List.of(50, 50, 20), batchSizes);
+    WriteBehindStats stats = queue.stats();
+    assertEquals(0, stats.getDepth());
+    assertEquals(120, stats.getWritten());
+    assertEquals(3, stats.getBatches());
+    assertEquals(40.0, stats.getAverageBatchSize());
+  }
+
+  @Test
+  void testShutdownFlushesAndRejectsNewReadings() {
+    // Arrange: Writer wurde nie gestartet
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 100, 50);
+    queue.offer(reading(1));
+    queue.offer(reading(2));
+
+    // Act
+    queue.shutdown(Duration.ofSeconds(1));
+
+    // Assert
+    verify(weatherRepository).saveAll(argThat(batch -> batch.size() == 2));
+    assertFalse(queue.offer(reading(3)));
+    assertEquals(2, queue.stats().getWritten());
+  }
+
+  @Test
+  void testFailedBatchIsCounted() {
+    doThrow(new IllegalStateException("database down")).when(weatherRepository).saveAll(anyList());
+    doThrow(new IllegalStateException("database down")).when(weatherRepository).save(any());
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 100, 50);
+    queue.offer(reading(1));
+
+    queue.shutdown(Duration.ofSeconds(1));
+
+    WriteBehindStats stats = queue.stats();
+    assertEquals(0, stats.getWritten());
+    assertEquals(1, stats.getFailed());
+  }
+
+  @Test
+  void testBadReadingDoesNotDropTheRestOfTheBatch() {
+    // Arrange: der Batch scheitert an einem einzigen Messwert, dem mit 12 °C
+    doThrow(new IllegalStateException("constraint violation"))
+        .when(weatherRepository)
+        .saveAll(anyList());
+    doAnswer(
+            invocation -> {
+              if (invocation.<WeatherData>getArgument(0).getTemperature() == 12) {
+                throw new IllegalStateException("constraint violation");
+              }
+              return null;
+            })
+        .when(weatherRepository)
+        .save(any());
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 100, 50);
+    for (int i = 1; i <= 3; i++) {
+      queue.offer(reading(i));
+    }
+
+    // Act
+    queue.shutdown(Duration.ofSeconds(1));
+
+    // Assert: die beiden anderen werden einzeln gespeichert
+    verify(weatherRepository, times(3)).save(any());
+    WriteBehindStats stats = queue.stats();
+    assertEquals(2, stats.getWritten());
+    assertEquals(1, stats.getFailed());
+  }
+
+  @Test
+  void testSingleSavesStartWithoutIdsAssignedByTheFailedBatch() {
+    // Arrange: saveAll vergibt IDs und rollt dann zurück
+    doAnswer(
+            invocation -> {
+              invocation.<List<WeatherData>>getArgument(0).forEach(data -> data.setId(7L));
+              throw new IllegalStateException("rolled back");
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    List<Long> savedIds = new ArrayList<>();
+    doAnswer(invocation -> savedIds.add(invocation.<WeatherData>getArgument(0).getId()))
+        .when(weatherRepository)
+        .save(any());
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 100, 50);
+    queue.offer(reading(1));
+
+    // Act
+    queue.shutdown(Duration.ofSeconds(1));
+
+    // Assert
+    assertEquals(Collections.singletonList(null), savedIds);
+  }
+
+  @Test
+  void testShutdownTimeoutCountsQueuedReadingsAsFailed() throws Exception {
+    // Arrange: der Writer hängt im ersten Batch
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              writing.countDown();
+              release.await();
+              return null;
+            })
+        .when(weatherRepository)
+        .saveAll(anyList());
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 100, 1);
+    queue.offer(reading(1));
+    queue.start();
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+    queue.offer(reading(2));
+    queue.offer(reading(3));
+
+    // Act
+    queue.shutdown(Duration.ofMillis(50));
+
+    // Assert: die beiden wartenden Messwerte sind gezählt statt stillschweigend verworfen
+    release.countDown();
+    WriteBehindStats stats = queue.stats();
+    assertEquals(0, stats.getDepth());
+    assertEquals(2, stats.getFailed());
+  }
+
+  private static WeatherData reading(int i) {
+    WeatherData data = new WeatherData();
+    data.setLocation("Berlin");
+    data.setTemperature(10 + i % 10);
+    data.setHumidity(50);
+    return data;
+  }
+}
@@ -0,0 +1,49 @@
+package de.fh.albsig.weatherapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindStatsServletTest {
+
+  @Mock private WeatherRepository weatherRepository;
+
+  @Mock private HttpServletRequest request;
+
+  @Mock private HttpServletResponse response;
+
+  @Test
+  void testDoGetWritesQueueMetrics() throws Exception {
+    // Arrange: Queue mit zwei wartenden Messwerten, Writer nicht gestartet
+    WriteBehindQueue queue = new WriteBehindQueue(weatherRepository, 10, 10);
+    queue.offer(new WeatherData());
+    queue.offer(new WeatherData());
+    WeatherXmlCodec codec = new WeatherXmlCodec();
+    WriteBehindStatsServlet servlet = new WriteBehindStatsServlet(queue, codec);
+    CapturingServletOutputStream responseStream = new CapturingServletOutputStream();
+    when(response.getOutputStream()).thenReturn(responseStream);
+
+    // Act
+    servlet.doGet(request, response);
+
+    // Assert
+    WriteBehindStats stats =
+        (WriteBehindStats)
+            codec
+                .getContext()
+                .createUnmarshaller()
+                .unmarshal(new StringReader(responseStream.toString()));
+    verify(response).setContentType("application/xml");
+    assertEquals(2, stats.getDepth());
+    assertEquals(10, stats.getCapacity());
+    assertEquals(2, stats.getAccepted());
+  }
+}